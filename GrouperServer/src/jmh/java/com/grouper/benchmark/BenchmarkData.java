@@ -0,0 +1,18 @@
+package com.grouper.benchmark;
+
+/**
+ * Shared benchmark settings, and ids shaped like the ones IdGenerator issues.
+ */
+final class BenchmarkData {
+
+    // Fork argument for logging only errors, from src/jmh/resources
+    static final String QUIET_LOGGING = "-Dlogback.configurationFile=logback-benchmark.xml";
+
+    private BenchmarkData() {
+    }
+
+    static String id(String prefix, int index) {
+        return String.format("%s%013d", prefix, index);
+    }
+
+}
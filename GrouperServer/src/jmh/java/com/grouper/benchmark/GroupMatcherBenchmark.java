@@ -0,0 +1,84 @@
+package com.grouper.benchmark;
+
+import com.grouper.dataset.Dataset;
+import com.grouper.dataset.DatasetGenerator;
+import com.grouper.dataset.DatasetLoader;
+import com.grouper.dataset.DatasetSpec;
+import com.grouper.matching.GroupMatcher;
+import com.grouper.models.Event;
+import com.grouper.models.GroupMatch;
+import com.grouper.models.User;
+import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.InMemoryStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GroupMatcher.topGroupsForUser on the largest event of the default generated dataset (around 3000 users), with the
+ * skill index built and every group cached: the warm path /matchGroups takes. Sampled, so the report includes the
+ * p99, which should stay under 10ms.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkData.QUIET_LOGGING)
+@State(Scope.Benchmark)
+public class GroupMatcherBenchmark {
+
+    private final GroupMatcher matcher = new GroupMatcher();
+    private Event event;
+    private User[] users;
+
+    @Setup
+    public void setUp() {
+        GrouperServiceApplication.initServices(new InMemoryStorage(0, 0, 1));
+        Dataset dataset = new DatasetGenerator(GrouperServiceApplication.hashids)
+            .generate(new DatasetSpec.DatasetSpecBuilder().build());
+        DatasetLoader.toStorage(dataset, GrouperServiceApplication.storage, 4);
+
+        this.event = dataset.getEvents().get(0);
+        List<User> eventUsers = new ArrayList<>();
+        for (User user : dataset.getUsers()) {
+            if (user.getUserEventMap().containsKey(this.event.getEventId())) {
+                eventUsers.add(user);
+            }
+        }
+        this.users = eventUsers.toArray(new User[0]);
+
+        // Build the skill index and cache every candidate group
+        for (User user : this.users) {
+            this.matcher.topGroupsForUser(user, this.event, GroupMatcher.DEFAULT_MATCH_COUNT);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next(int bound) {
+            this.next = (this.next + 1) % bound;
+            return this.next;
+        }
+    }
+
+    @Benchmark
+    public List<GroupMatch> topGroupsForUser(Cursor cursor) {
+        return this.matcher.topGroupsForUser(this.users[cursor.next(this.users.length)], this.event,
+            GroupMatcher.DEFAULT_MATCH_COUNT);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.grouper.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.Message;
+import com.grouper.models.SkillSet;
+import com.grouper.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building responses: Message.toString, which every cache log line calls, and Jackson serialization of the
+ * Message-wrapped objects the GET endpoints return, with an ObjectMapper built the way Spring Boot builds its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkData.QUIET_LOGGING)
+@State(Scope.Benchmark)
+public class MessageBenchmark {
+
+    @Param({"10", "100"})
+    private int memberCount;
+
+    private ObjectMapper objectMapper;
+    private Message userMessage;
+    private Message groupMessage;
+    private Message eventMessage;
+
+    @Setup
+    public void setUp() {
+        this.objectMapper = Jackson2ObjectMapperBuilder.json()
+            .build();
+
+        HashMap<String, String> eventMap = new HashMap<>();
+        List<String> memberIds = new ArrayList<>();
+        for (int i = 0; i < this.memberCount; i++) {
+            eventMap.put(BenchmarkData.id("E", i), Group.EMPTY_GROUP_ID);
+            memberIds.add(BenchmarkData.id("U", i));
+        }
+
+        User user = new User.UserBuilder(BenchmarkData.id("U", 0))
+            .withUserName("Ada Lovelace")
+            .withUserOccupation("Engineer")
+            .withUserSkillSet(new SkillSet(0x5555L))
+            .withUserEventMap(eventMap)
+            .build();
+        Group group = new Group.GroupBuilder(BenchmarkData.id("G", 0))
+            .withGroupName("Team Rocket")
+            .withGroupType("Hackathon team")
+            .withGroupDescription("Building a drone that waters plants")
+            .withGroupSkillSet(new SkillSet(0x5555L))
+            .withGroupUsers(memberIds)
+            .build();
+        Event event = new Event.EventBuilder(BenchmarkData.id("E", 0))
+            .withEventName("Hack UCL")
+            .withEventDate(new Date())
+            .withEventLocation("London")
+            .withEventCoordinates(51.5246, -0.1340)
+            .withEventDescription("24 hours of hacking")
+            .withEventGroups(memberIds)
+            .withEventUsers(memberIds)
+            .build();
+
+        this.userMessage = message("User", user);
+        this.groupMessage = message("Group", group);
+        this.eventMessage = message("Event", event);
+    }
+
+    private static Message message(String field, Object value) {
+        return new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+            .withDescription(Message.AWS_GET_SUCCESS)
+            .withField(field)
+            .withValue(value)
+            .build();
+    }
+
+    @Benchmark
+    public String messageToString() {
+        return this.userMessage.toString();
+    }
+
+    @Benchmark
+    public byte[] serializeUserMessage() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.userMessage);
+    }
+
+    @Benchmark
+    public byte[] serializeGroupMessage() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.groupMessage);
+    }
+
+    @Benchmark
+    public byte[] serializeEventMessage() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(this.eventMessage);
+    }
+
+}
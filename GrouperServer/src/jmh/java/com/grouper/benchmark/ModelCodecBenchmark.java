@@ -0,0 +1,148 @@
+package com.grouper.benchmark;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.SkillRegistry;
+import com.grouper.models.SkillSet;
+import com.grouper.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting models to and from DynamoDB attribute values, and building them, which every cache load and write does.
+ *
+ * memberCount is the size of a user's event map and of a group's or event's member lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkData.QUIET_LOGGING)
+@State(Scope.Benchmark)
+public class ModelCodecBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int memberCount;
+
+    private SkillSet skillSet;
+    private AttributeValue skillAttribute;
+    private Map<String, AttributeValue> legacySkillAttributes;
+    private User user;
+    private Map<String, AttributeValue> eventMapAttributes;
+    private HashMap<String, String> eventMap;
+    private List<String> memberIds;
+    private Date eventDate;
+
+    @Setup
+    public void setUp() {
+        Map<String, Boolean> skills = new HashMap<>();
+        this.legacySkillAttributes = new HashMap<>();
+        for (int ordinal = 0; ordinal < SkillRegistry.size(); ordinal++) {
+            boolean hasSkill = ordinal % 2 == 0;
+            skills.put(SkillRegistry.name(ordinal), hasSkill);
+            this.legacySkillAttributes.put(SkillRegistry.name(ordinal), new AttributeValue()
+                .withBOOL(hasSkill));
+        }
+        this.skillSet = new SkillSet(skills);
+        this.skillAttribute = this.skillSet.toAttributeValue();
+
+        this.eventMap = new HashMap<>();
+        this.memberIds = new ArrayList<>();
+        for (int i = 0; i < this.memberCount; i++) {
+            this.eventMap.put(BenchmarkData.id("E", i), i % 2 == 0 ? Group.EMPTY_GROUP_ID : BenchmarkData.id("G", i));
+            this.memberIds.add(BenchmarkData.id("U", i));
+        }
+
+        this.user = new User.UserBuilder(BenchmarkData.id("U", 0))
+            .withUserName("Ada Lovelace")
+            .withUserOccupation("Engineer")
+            .withUserSkillSet(this.skillSet)
+            .withUserEventMap(this.eventMap)
+            .build();
+        this.eventMapAttributes = this.user.eventMapToAttributeValue();
+        this.eventDate = new Date();
+    }
+
+    @Benchmark
+    public AttributeValue skillSetToAttributeValue() {
+        return this.skillSet.toAttributeValue();
+    }
+
+    @Benchmark
+    public SkillSet skillSetFromAttributeValue() {
+        return SkillSet.fromAttributeValue(this.skillAttribute);
+    }
+
+    // Skill sets written before the bit mask was stored are still read from a map of booleans
+    @Benchmark
+    public Map<String, Boolean> extractSkillSet() {
+        return SkillSet.extractSkillSet(this.legacySkillAttributes);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> eventMapToAttributeValue() {
+        return this.user.eventMapToAttributeValue();
+    }
+
+    @Benchmark
+    public Map<String, String> extractUserEventMap() {
+        return User.extractUserEventMap(this.eventMapAttributes);
+    }
+
+    @Benchmark
+    public User buildUser() {
+        return new User.UserBuilder(this.user.getUserId())
+            .withUserName(this.user.getUserName())
+            .withUserOccupation(this.user.getUserOccupation())
+            .withUserSkillSet(new SkillSet(this.skillSet.getSkillMask()))
+            .withUserEventMap(this.eventMap)
+            .withUserVersion(1)
+            .build();
+    }
+
+    @Benchmark
+    public Group buildGroup() {
+        return new Group.GroupBuilder(BenchmarkData.id("G", 0))
+            .withGroupName("Team Rocket")
+            .withGroupType("Hackathon team")
+            .withGroupDescription("Building a drone that waters plants")
+            .withGroupEvent(BenchmarkData.id("E", 0))
+            .withGroupOwner(this.user.getUserId())
+            .withGroupSkillSet(new SkillSet(this.skillSet.getSkillMask()))
+            .withGroupUsers(this.memberIds)
+            .withGroupVersion(1)
+            .build();
+    }
+
+    @Benchmark
+    public Event buildEvent() {
+        return new Event.EventBuilder(BenchmarkData.id("E", 0))
+            .withEventName("Hack UCL")
+            .withEventDate(this.eventDate)
+            .withEventLocation("London")
+            .withEventCoordinates(51.5246, -0.1340)
+            .withEventDescription("24 hours of hacking")
+            .withEventGroups(this.memberIds)
+            .withEventUsers(this.memberIds)
+            .withEventVersion(1)
+            .build();
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.grouper.benchmark;
+
+import com.grouper.index.SearchIndex;
+import com.grouper.models.Event;
+import com.grouper.models.Message;
+import com.grouper.models.SkillSet;
+import com.grouper.models.User;
+import com.grouper.objectcache.EventObjectCache;
+import com.grouper.objectcache.UserObjectCache;
+import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.InMemoryStorage;
+import com.grouper.storage.Storage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserObjectCache and EventObjectCache getObject, over in-memory storage with no simulated latency, so only the
+ * caches' own work is measured: a hit, a miss loaded from storage and decoded, and an id known to be missing.
+ *
+ * Misses run in their own forks with a zero byte cache budget, so every load is evicted straight away and the next
+ * read misses again. Read batching is off there: one thread never shares a batch, so it would only measure the
+ * window. Forks only log errors, so the WARN logged for a missing id isn't measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkData.QUIET_LOGGING)
+@State(Scope.Benchmark)
+public class ObjectCacheBenchmark {
+
+    private static final int OBJECT_COUNT = 1024;
+    private static final String MISSING_ID = BenchmarkData.id("X", 0);
+
+    private UserObjectCache userObjectCache;
+    private EventObjectCache eventObjectCache;
+    private String[] userIds;
+    private String[] eventIds;
+
+    @Setup
+    public void setUp() {
+        Storage storage = new InMemoryStorage(0, 0, 1);
+        GrouperServiceApplication.storage = storage;
+        GrouperServiceApplication.searchIndex = new SearchIndex();
+
+        UserObjectCache.init(storage);
+        EventObjectCache.init(storage);
+        this.userObjectCache = new UserObjectCache();
+        this.eventObjectCache = new EventObjectCache();
+
+        this.userIds = new String[OBJECT_COUNT];
+        this.eventIds = new String[OBJECT_COUNT];
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            this.userIds[i] = BenchmarkData.id("U", i);
+            this.eventIds[i] = BenchmarkData.id("E", i);
+
+            check(this.userObjectCache.putObject(new User.UserBuilder(this.userIds[i])
+                .withUserName("User " + i)
+                .withUserOccupation("Engineer")
+                .withUserSkillSet(new SkillSet(i))
+                .build()));
+            check(this.eventObjectCache.putObject(new Event.EventBuilder(this.eventIds[i])
+                .withEventName("Event " + i)
+                .withEventDate(new Date())
+                .withEventLocation("London")
+                .withEventCoordinates(51.5, -0.13)
+                .withEventDescription("Event number " + i)
+                .build()));
+        }
+
+        // Tombstone one id, the way a read of a deleted object does
+        this.userObjectCache.getObject(MISSING_ID);
+    }
+
+    private static void check(Message message) {
+        if (message.getStatus() != Message.DEFAULT_SUCCESS_STATUS) {
+            throw new IllegalStateException("Benchmark setup failed: " + message);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next() {
+            this.next = (this.next + 1) & (OBJECT_COUNT - 1);
+            return this.next;
+        }
+    }
+
+    @Benchmark
+    public User userHit(Cursor cursor) {
+        return this.userObjectCache.getObject(this.userIds[cursor.next()]);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {BenchmarkData.QUIET_LOGGING, "-Dgrouper.cache.user.maximumWeightBytes=0",
+        "-Dgrouper.cache.user.batch.windowMicros=0"})
+    public User userMiss(Cursor cursor) {
+        return this.userObjectCache.getObject(this.userIds[cursor.next()]);
+    }
+
+    @Benchmark
+    public User userMissingId() {
+        return this.userObjectCache.getObject(MISSING_ID);
+    }
+
+    @Benchmark
+    public Event eventHit(Cursor cursor) {
+        return this.eventObjectCache.getObject(this.eventIds[cursor.next()]);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {BenchmarkData.QUIET_LOGGING, "-Dgrouper.cache.event.maximumWeightBytes=0",
+        "-Dgrouper.cache.event.batch.windowMicros=0"})
+    public Event eventMiss(Cursor cursor) {
+        return this.eventObjectCache.getObject(this.eventIds[cursor.next()]);
+    }
+
+}
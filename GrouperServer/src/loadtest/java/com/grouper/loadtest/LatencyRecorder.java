@@ -0,0 +1,83 @@
+package com.grouper.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Every latency recorded for one endpoint during the measured window, kept exactly: a run is at most a few hundred
+ * thousand requests, so sorting them at the end is cheaper than getting histogram buckets right.
+ */
+final class LatencyRecorder {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double[] PERCENTILES = {0.50, 0.95, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p95", "p99", "p999"};
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+
+    /**
+     * @param latencyNanos time from the request's intended start to its response
+     * @param failed       true if the request failed, or any Message in the response is not a success
+     */
+    synchronized void record(long latencyNanos, boolean failed) {
+        if (this.count == this.latencies.length) {
+            this.latencies = Arrays.copyOf(this.latencies, this.count * 2);
+        }
+        this.latencies[this.count++] = latencyNanos;
+        if (failed) {
+            this.errors++;
+        }
+    }
+
+    synchronized void addAll(LatencyRecorder other) {
+        synchronized (other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i], false);
+            }
+            this.errors += other.errors;
+        }
+    }
+
+    /**
+     * @param seconds length of the measured window
+     * @return requests, errors, throughput (requests per second) and latency percentiles in milliseconds
+     */
+    synchronized Map<String, Object> summary(double seconds) {
+        long[] sorted = Arrays.copyOf(this.latencies, this.count);
+        Arrays.sort(sorted);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            latency.put(PERCENTILE_NAMES[i], millis(percentile(sorted, PERCENTILES[i])));
+        }
+        latency.put("max", millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", this.count);
+        summary.put("errors", this.errors);
+        summary.put("throughput", seconds > 0 ? round(this.count / seconds) : 0);
+        summary.put("latencyMillis", latency);
+        return summary;
+    }
+
+    // Nearest rank
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / NANOS_PER_MILLI);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+}
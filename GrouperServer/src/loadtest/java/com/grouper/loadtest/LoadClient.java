@@ -0,0 +1,113 @@
+package com.grouper.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grouper.models.Message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking JSON calls to a Grouper server. HttpURLConnection keeps connections alive per thread, so each load test
+ * client thread reuses its own connection.
+ */
+final class LoadClient {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+
+    LoadClient(int port) {
+        this.baseUrl = "http://localhost:" + port;
+    }
+
+    JsonNode get(String path, String... parameters) throws IOException {
+        StringBuilder url = new StringBuilder(this.baseUrl).append(path);
+        for (int i = 0; i < parameters.length; i += 2) {
+            url.append(i == 0 ? '?' : '&')
+                .append(parameters[i])
+                .append('=')
+                .append(URLEncoder.encode(parameters[i + 1], "UTF-8"));
+        }
+        return send("GET", url.toString(), null);
+    }
+
+    JsonNode post(String path, Object body) throws IOException {
+        return send("POST", this.baseUrl + path, body);
+    }
+
+    JsonNode delete(String path, Object body) throws IOException {
+        return send("DELETE", this.baseUrl + path, body);
+    }
+
+    /**
+     * @return true if the response is a successful Message, or a list of them
+     */
+    static boolean succeeded(JsonNode response) {
+        if (response.isArray()) {
+            for (JsonNode message : response) {
+                if (!succeeded(message)) {
+                    return false;
+                }
+            }
+            return response.size() > 0;
+        }
+        return response.path("status").asInt() == Message.DEFAULT_SUCCESS_STATUS;
+    }
+
+    /**
+     * @return the value of a successful Message, such as the id a create returns
+     */
+    static String value(JsonNode response) throws IOException {
+        if (!succeeded(response)) {
+            throw new IOException("Request failed: " + response);
+        }
+        return response.path("value").asText();
+    }
+
+    private static JsonNode send(String method, String url, Object body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+            try (OutputStream stream = connection.getOutputStream()) {
+                objectMapper.writeValue(stream, body);
+            }
+        }
+
+        int status = connection.getResponseCode();
+        // Read the whole body, error or not, so the connection goes back to the keep-alive pool
+        InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        byte[] response = readAll(stream);
+        if (status >= 400) {
+            throw new IOException("HTTP " + status + " from " + method + " " + url + ": " +
+                new String(response, StandardCharsets.UTF_8));
+        }
+        return objectMapper.readTree(response);
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        if (stream == null) {
+            return new byte[0];
+        }
+
+        try (InputStream input = stream) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = input.read(buffer)) != -1; ) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+}
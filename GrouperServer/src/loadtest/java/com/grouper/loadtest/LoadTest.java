@@ -0,0 +1,456 @@
+package com.grouper.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.grouper.models.SkillRegistry;
+import com.grouper.service.GrouperServiceApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test. Boots GrouperServiceApplication in this JVM on in-memory storage with simulated DynamoDB
+ * latency, seeds users, events and groups over HTTP, then sends a mix of requests at a fixed rate and reports
+ * throughput and latency percentiles per endpoint as JSON.
+ *
+ * Requests are scheduled, not paced by responses: request i is due at start + i / rate whatever happened to the
+ * requests before it, and its latency is measured from when it was due. When the server falls behind, requests wait
+ * for a client and that wait counts, so a stall shows up in the tail instead of silently lowering the send rate
+ * (coordinated omission).
+ *
+ * <pre>
+ *     mvn -Ploadtest compile exec:exec -Dloadtest.args="--rate=200 --durationSeconds=60 --output=load.json"
+ * </pre>
+ *
+ * Options, as --name=value:
+ * <pre>
+ *     rate                  requests per second (100)
+ *     durationSeconds       measured window (30)
+ *     warmupSeconds         load sent before measuring, not reported (10)
+ *     clients               concurrent client threads (64)
+ *     mix                   relative weights of the operations (getUser=70,createGroup=10,addUserToGroup=15,
+ *                           deleteEvent=5)
+ *     users                 users seeded, each enrolled in one event (1000)
+ *     events                events seeded (20)
+ *     groupsPerEvent        groups seeded per event (5)
+ *     storageLatencyMillis  simulated latency per storage call (5)
+ *     storageJitterMillis   most extra random latency per storage call (5)
+ *     port                  server port (18080)
+ *     seed                  random seed for the request schedule (1)
+ *     output                file to write the summary to, as well as stdout
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final String DEFAULT_MIX = "getUser=70,createGroup=10,addUserToGroup=15,deleteEvent=5";
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    enum Operation {
+        GET_USER("getUser"),
+        CREATE_GROUP("createGroup"),
+        ADD_USER_TO_GROUP("addUserToGroup"),
+        DELETE_EVENT("deleteEvent");
+
+        private final String optionName;
+
+        Operation(String optionName) {
+            this.optionName = optionName;
+        }
+
+        static Operation fromOptionName(String optionName) {
+            for (Operation operation : values()) {
+                if (operation.optionName.equals(optionName)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation in mix: " + optionName);
+        }
+    }
+
+    private final Map<String, String> options;
+    private final LoadClient client;
+    private final ExecutorService clients;
+
+    // Seeded and created state the operations pick from. Users enrolled in an event are listed under it.
+    private String[] userIds;
+    private String[] eventIds;
+    private List<List<String>> eventUserIds;
+    private final List<SeededGroup> groups = new CopyOnWriteArrayList<>();
+    private final Queue<DisposableEvent> disposableEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicLong createdGroups = new AtomicLong();
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.client = new LoadClient(intOption("port", 18080));
+        this.clients = Executors.newFixedThreadPool(intOption("clients", 64), new ThreadFactoryBuilder()
+            .setNameFormat("load-client-%d")
+            .setDaemon(true)
+            .build());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options are --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+
+        LoadTest loadTest = new LoadTest(options);
+        loadTest.startServer();
+        Map<String, Object> summary = loadTest.run();
+
+        String json = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValueAsString(summary);
+        System.out.println(json);
+        if (options.containsKey("output")) {
+            new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(new File(options.get("output")), summary);
+        }
+
+        // The server's threads would keep the JVM alive
+        System.exit(0);
+    }
+
+    // GrouperConfig reads system properties once, so they are set before anything touches it
+    private void startServer() throws Exception {
+        System.setProperty("grouper.storage.backend", "memory");
+        System.setProperty("grouper.storage.memory.latencyMillis", option("storageLatencyMillis", "5"));
+        System.setProperty("grouper.storage.memory.latencyJitterMillis", option("storageJitterMillis", "5"));
+        GrouperServiceApplication.main(new String[]{"--server.port=" + intOption("port", 18080)});
+    }
+
+    private Map<String, Object> run() throws Exception {
+        double rate = doubleOption("rate", 100);
+        int warmupSeconds = intOption("warmupSeconds", 10);
+        int durationSeconds = intOption("durationSeconds", 30);
+        if (!(rate > 0) || warmupSeconds < 0 || durationSeconds <= 0) {
+            throw new IllegalArgumentException("rate and durationSeconds must be positive");
+        }
+
+        Operation[] schedule = schedule(rate, warmupSeconds + durationSeconds);
+        int deletes = 0;
+        for (Operation operation : schedule) {
+            if (operation == Operation.DELETE_EVENT) {
+                deletes++;
+            }
+        }
+        seed(deletes);
+
+        Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+
+        double periodNanos = NANOS_PER_SECOND / rate;
+        long start = System.nanoTime();
+        long measureStart = start + warmupSeconds * NANOS_PER_SECOND;
+        AtomicLong lastCompletion = new AtomicLong(measureStart);
+
+        for (int i = 0; i < schedule.length; i++) {
+            long due = start + (long) (i * periodNanos);
+            for (long wait; (wait = due - System.nanoTime()) > 0; ) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation operation = schedule[i];
+            this.clients.execute(() -> {
+                boolean failed;
+                try {
+                    failed = !send(operation);
+                } catch (IOException | RuntimeException e) {
+                    failed = true;
+                }
+
+                long completed = System.nanoTime();
+                if (due >= measureStart) {
+                    recorders.get(operation).record(completed - due, failed);
+                    lastCompletion.accumulateAndGet(completed, Math::max);
+                }
+            });
+        }
+
+        this.clients.shutdown();
+        if (!this.clients.awaitTermination(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Requests still running 10 minutes after the schedule ended");
+        }
+
+        // The window ends at the last response, so a server that can't keep up reports its real throughput
+        double seconds = Math.max(durationSeconds, (lastCompletion.get() - measureStart) / (double) NANOS_PER_SECOND);
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("targetRate", rate);
+        settings.put("warmupSeconds", warmupSeconds);
+        settings.put("durationSeconds", durationSeconds);
+        settings.put("clients", intOption("clients", 64));
+        settings.put("mix", option("mix", DEFAULT_MIX));
+        settings.put("storageLatencyMillis", intOption("storageLatencyMillis", 5));
+        settings.put("storageJitterMillis", intOption("storageJitterMillis", 5));
+        settings.put("seed", longOption("seed", 1));
+
+        LatencyRecorder all = new LatencyRecorder();
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<Operation, LatencyRecorder> entry : recorders.entrySet()) {
+            endpoints.put(entry.getKey().optionName, entry.getValue().summary(seconds));
+            all.addAll(entry.getValue());
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("settings", settings);
+        summary.put("measuredSeconds", Math.round(seconds * 1000) / 1000.0);
+        summary.put("all", all.summary(seconds));
+        summary.put("endpoints", endpoints);
+        return summary;
+    }
+
+    /**
+     * The operation sent at each tick, drawn up front from the seeded mix, so a run can be repeated exactly and the
+     * events to delete can be seeded beforehand.
+     */
+    private Operation[] schedule(double rate, int seconds) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        int totalWeight = 0;
+        for (String entry : option("mix", DEFAULT_MIX).split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + entry);
+            }
+            weights.put(Operation.fromOptionName(parts[0].trim()), weight);
+            totalWeight += weight;
+        }
+        if (totalWeight == 0) {
+            throw new IllegalArgumentException("The mix has no weight");
+        }
+
+        Random random = new Random(longOption("seed", 1));
+        Operation[] schedule = new Operation[(int) Math.ceil(rate * seconds)];
+        for (int i = 0; i < schedule.length; i++) {
+            int pick = random.nextInt(totalWeight);
+            for (Map.Entry<Operation, Integer> weight : weights.entrySet()) {
+                pick -= weight.getValue();
+                if (pick < 0) {
+                    schedule[i] = weight.getKey();
+                    break;
+                }
+            }
+        }
+        return schedule;
+    }
+
+    private boolean send(Operation operation) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case GET_USER:
+                return LoadClient.succeeded(this.client.get("/getUser",
+                    "userId", this.userIds[random.nextInt(this.userIds.length)]));
+
+            case CREATE_GROUP: {
+                int event = random.nextInt(this.eventIds.length);
+                List<String> enrolled = this.eventUserIds.get(event);
+                String ownerId = enrolled.get(random.nextInt(enrolled.size()));
+                JsonNode response = this.client.post("/createGroup", groupRequest(event, ownerId,
+                    "Load group " + this.createdGroups.incrementAndGet()));
+                if (LoadClient.succeeded(response)) {
+                    this.groups.add(new SeededGroup(response.get(response.size() - 1).path("value").asText(), event));
+                    return true;
+                }
+                return false;
+            }
+
+            case ADD_USER_TO_GROUP: {
+                SeededGroup group = this.groups.get(random.nextInt(this.groups.size()));
+                List<String> enrolled = this.eventUserIds.get(group.event);
+                return LoadClient.succeeded(this.client.get("/rel/addUserToGroup",
+                    "userId", enrolled.get(random.nextInt(enrolled.size())), "groupId", group.groupId));
+            }
+
+            case DELETE_EVENT: {
+                DisposableEvent event = this.disposableEvents.poll();
+                if (event == null) {
+                    throw new IllegalStateException("No seeded event left to delete");
+                }
+                Map<String, Object> request = new HashMap<>();
+                request.put("eventId", event.eventId);
+                request.put("eventGroups", Collections.emptyList());
+                request.put("eventUsers", Collections.singletonList(event.userId));
+                return LoadClient.succeeded(this.client.delete("/deleteEvent", request));
+            }
+
+            default:
+                throw new IllegalStateException("Unknown operation: " + operation);
+        }
+    }
+
+    /**
+     * Create the users, events and groups the operations use, and one event with a single enrolled user for every
+     * deleteEvent in the schedule. Runs closed-loop on the client threads before anything is measured.
+     */
+    private void seed(int disposableEventCount) throws Exception {
+        int userCount = intOption("users", 1000);
+        int eventCount = intOption("events", 20);
+        int groupsPerEvent = intOption("groupsPerEvent", 5);
+        if (userCount < eventCount || eventCount <= 0 || groupsPerEvent <= 0) {
+            throw new IllegalArgumentException("Need events > 0, groupsPerEvent > 0 and at least one user per event");
+        }
+
+        this.userIds = runAll(userCount, i -> LoadClient.value(this.client.post("/createUser", userRequest(i))))
+            .toArray(new String[0]);
+        this.eventIds = runAll(eventCount, i -> LoadClient.value(this.client.post("/createEvent",
+            eventRequest("Load event " + i)))).toArray(new String[0]);
+
+        this.eventUserIds = new ArrayList<>();
+        for (int event = 0; event < eventCount; event++) {
+            this.eventUserIds.add(new ArrayList<>());
+        }
+        for (int user = 0; user < userCount; user++) {
+            this.eventUserIds.get(user % eventCount).add(this.userIds[user]);
+        }
+        runAll(userCount, user -> enroll(this.userIds[user], this.eventIds[user % eventCount]));
+
+        this.groups.addAll(runAll(eventCount * groupsPerEvent, i -> {
+            int event = i % eventCount;
+            List<String> enrolled = this.eventUserIds.get(event);
+            JsonNode response = this.client.post("/createGroup", groupRequest(event,
+                enrolled.get((i / eventCount) % enrolled.size()), "Seed group " + i));
+            if (!LoadClient.succeeded(response)) {
+                throw new IOException("Seeding a group failed: " + response);
+            }
+            return new SeededGroup(response.get(response.size() - 1).path("value").asText(), event);
+        }));
+
+        this.disposableEvents.addAll(runAll(disposableEventCount, i -> {
+            String eventId = LoadClient.value(this.client.post("/createEvent", eventRequest("Disposable event " + i)));
+            String userId = this.userIds[i % userCount];
+            enroll(userId, eventId);
+            return new DisposableEvent(eventId, userId);
+        }));
+    }
+
+    private String enroll(String userId, String eventId) throws IOException {
+        JsonNode response = this.client.get("/rel/addUserToEvent", "userId", userId, "eventId", eventId);
+        if (!LoadClient.succeeded(response)) {
+            throw new IOException("Enrolling a user failed: " + response);
+        }
+        return userId;
+    }
+
+    private interface SeedTask<T> {
+        T run(int index) throws Exception;
+    }
+
+    private <T> List<T> runAll(int count, SeedTask<T> task) throws Exception {
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures.add(this.clients.submit((Callable<T>) () -> task.run(index)));
+        }
+
+        List<T> results = new ArrayList<>(count);
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private static Map<String, Object> userRequest(int index) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("userName", "Load user " + index);
+        request.put("userOccupation", "Engineer");
+        request.put("userSkills", skills(index));
+        return request;
+    }
+
+    private static Map<String, Object> eventRequest(String name) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("eventName", name);
+        request.put("eventDate", Long.toString(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(30)));
+        request.put("eventLocation", "London");
+        request.put("eventLatitude", 51.5246);
+        request.put("eventLongitude", -0.1340);
+        request.put("eventDescription", "An event created by the load test");
+        return request;
+    }
+
+    private Map<String, Object> groupRequest(int event, String ownerId, String name) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("groupName", name);
+        request.put("groupType", "Hackathon team");
+        request.put("groupDescription", "A group created by the load test");
+        request.put("groupEventId", this.eventIds[event]);
+        request.put("groupOwnerId", ownerId);
+        request.put("groupSkills", skills(event));
+        return request;
+    }
+
+    private static Map<String, Boolean> skills(int index) {
+        Map<String, Boolean> skills = new HashMap<>();
+        for (int ordinal = 0; ordinal < SkillRegistry.size(); ordinal++) {
+            skills.put(SkillRegistry.name(ordinal), (index >> (ordinal % 8) & 1) == 1);
+        }
+        return skills;
+    }
+
+    private String option(String name, String defaultValue) {
+        return this.options.getOrDefault(name, defaultValue);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, Integer.toString(defaultValue)));
+    }
+
+    private long longOption(String name, long defaultValue) {
+        return Long.parseLong(option(name, Long.toString(defaultValue)));
+    }
+
+    private double doubleOption(String name, double defaultValue) {
+        return Double.parseDouble(option(name, Double.toString(defaultValue)));
+    }
+
+    private static final class SeededGroup {
+
+        private final String groupId;
+        private final int event;
+
+        private SeededGroup(String groupId, int event) {
+            this.groupId = groupId;
+            this.event = event;
+        }
+    }
+
+    private static final class DisposableEvent {
+
+        private final String eventId;
+        private final String userId;
+
+        private DisposableEvent(String eventId, String userId) {
+            this.eventId = eventId;
+            this.userId = userId;
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.grouper.dataset;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.User;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A generated set of users, groups and events that agree with each other: a user's userEventMap lists exactly the
+ * events that list the user in eventUsers, mapped to the group that lists the user in groupUsers, or to
+ * Group.EMPTY_GROUP_ID. Every group belongs to one event, which lists it in eventGroups, and is owned by its first
+ * user.
+ */
+public class Dataset {
+
+    private final DatasetSpec spec;
+    private final List<User> users;
+    private final List<Group> groups;
+    private final List<Event> events;
+
+    Dataset(DatasetSpec spec, List<User> users, List<Group> groups, List<Event> events) {
+        this.spec = spec;
+        this.users = Collections.unmodifiableList(users);
+        this.groups = Collections.unmodifiableList(groups);
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    public DatasetSpec getSpec() {
+        return this.spec;
+    }
+
+    public List<User> getUsers() {
+        return this.users;
+    }
+
+    public List<Group> getGroups() {
+        return this.groups;
+    }
+
+    // Most popular first
+    public List<Event> getEvents() {
+        return this.events;
+    }
+
+}
@@ -0,0 +1,241 @@
+package com.grouper.dataset;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.SkillRegistry;
+import com.grouper.models.SkillSet;
+import com.grouper.models.User;
+import com.grouper.service.IdGenerator;
+import org.hashids.Hashids;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a {@link Dataset} from a {@link DatasetSpec}. Everything is drawn from one Random seeded with the spec's
+ * seed, in a fixed order, so the same spec and Hashids salt give the same ids, names, skills and memberships.
+ *
+ * Events are ranked by popularity, and each enrollment picks an event by Zipf rank, so a few events are large and
+ * most are small. Events are spread over a handful of cities, also by Zipf rank, and scattered a few kilometres around
+ * the city centre. User and group skills are drawn by Zipf rank in SkillRegistry order. Within each event, the
+ * grouped share of its users are shuffled and dealt into groups of random size.
+ *
+ * Ids are those one node would have issued in a row 30 days before the reference time: events, then users, then
+ * groups.
+ */
+public class DatasetGenerator {
+
+    // Generated ids look like, and decode the same as, ids issued by this node id
+    public static final int DATASET_NODE_ID = IdGenerator.MAXIMUM_NODE_ID;
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // Roughly 5 km
+    private static final double CITY_SPREAD_DEGREES = 0.05;
+    private static final int MAXIMUM_SKILLS_PER_GROUP = 3;
+
+    private static final String[] CITY_NAMES = {"London", "San Francisco", "New York", "Berlin", "Toronto",
+        "Bangalore", "Singapore", "Sydney"};
+    private static final double[][] CITY_COORDINATES = {{51.5074, -0.1278}, {37.7749, -122.4194},
+        {40.7128, -74.0060}, {52.5200, 13.4050}, {43.6532, -79.3832}, {12.9716, 77.5946}, {1.3521, 103.8198},
+        {-33.8688, 151.2093}};
+    private static final String[] EVENT_KINDS = {"Hackathon", "Game Jam", "Startup Weekend", "Data Challenge",
+        "Code Sprint"};
+    private static final String[] TOPICS = {"machine learning", "mobile apps", "fintech", "health", "climate",
+        "education", "open source", "robotics", "security", "music"};
+    private static final String[] FIRST_NAMES = {"Alex", "Sam", "Jordan", "Taylor", "Morgan", "Casey", "Riley",
+        "Jamie", "Avery", "Quinn", "Priya", "Wei", "Amara", "Mateo", "Yuki", "Olu"};
+    private static final String[] LAST_NAMES = {"Smith", "Chen", "Patel", "Garcia", "Kim", "Okafor", "Muller",
+        "Rossi", "Silva", "Nguyen", "Cohen", "Ivanova"};
+    private static final String[] OCCUPATIONS = {"Student", "Software Engineer", "Designer", "Data Scientist",
+        "Product Manager", "Researcher"};
+    private static final String[] GROUP_ADJECTIVES = {"Blue", "Quick", "Quiet", "Bright", "Lazy", "Brave", "Tiny",
+        "Electric"};
+    private static final String[] GROUP_NOUNS = {"Foxes", "Pandas", "Rockets", "Owls", "Builders", "Hackers",
+        "Wizards", "Otters"};
+    private static final String[] GROUP_TYPES = {Group.HACKATHON_GROUP_TYPE, Group.PROJECT_GROUP_TYPE,
+        Group.STARTUP_GROUP_TYPE};
+
+    private final IdGenerator idGenerator;
+
+    /**
+     * @param hashids encoder for generated ids, normally the service's own so they decode like its ids
+     */
+    public DatasetGenerator(Hashids hashids) {
+        this.idGenerator = new IdGenerator(hashids, DATASET_NODE_ID);
+    }
+
+    public Dataset generate(DatasetSpec spec) {
+        Random random = new Random(spec.getSeed());
+        long referenceTime = spec.getReferenceTimeMillis();
+        long createdAt = referenceTime - 30 * DAY_MILLIS;
+
+        double[] eventWeights = zipfCumulativeWeights(spec.getEvents(), spec.getEventSizeSkew());
+        double[] skillWeights = zipfCumulativeWeights(SkillRegistry.size(), spec.getSkillSkew());
+        double[] cityWeights = zipfCumulativeWeights(CITY_NAMES.length, 1.0);
+
+        // Events, most popular first
+        List<Event.EventBuilder> eventBuilders = new ArrayList<>(spec.getEvents());
+        List<String> eventIds = new ArrayList<>(spec.getEvents());
+        for (int i = 0; i < spec.getEvents(); i++) {
+            String eventId = this.idGenerator.idAt("E", createdAt, i);
+            int city = sample(cityWeights, random);
+            String kind = pick(EVENT_KINDS, random);
+            String topic = pick(TOPICS, random);
+
+            eventIds.add(eventId);
+            eventBuilders.add(new Event.EventBuilder(eventId)
+                .withEventName(CITY_NAMES[city] + " " + kind + " " + (i + 1))
+                .withEventDate(new Date(referenceTime - 30 * DAY_MILLIS +
+                    (long) (random.nextDouble() * 120 * DAY_MILLIS) / 60000 * 60000))
+                .withEventLocation(CITY_NAMES[city])
+                .withEventCoordinates(
+                    CITY_COORDINATES[city][0] + random.nextGaussian() * CITY_SPREAD_DEGREES,
+                    CITY_COORDINATES[city][1] + random.nextGaussian() * CITY_SPREAD_DEGREES)
+                .withEventDescription("A " + kind.toLowerCase() + " about " + topic + " in " + CITY_NAMES[city] +
+                    ". Form a team, build something and demo it at the end."));
+        }
+
+        // Users, their skills and enrollments
+        List<String> userIds = new ArrayList<>(spec.getUsers());
+        List<User.UserBuilder> userBuilders = new ArrayList<>(spec.getUsers());
+        List<HashMap<String, String>> userEventMaps = new ArrayList<>(spec.getUsers());
+        List<List<String>> eventUsers = new ArrayList<>(spec.getEvents());
+        for (int i = 0; i < spec.getEvents(); i++) {
+            eventUsers.add(new ArrayList<>());
+        }
+
+        int eventsPerUser = Math.min(spec.getMaximumEventsPerUser(), spec.getEvents());
+        int skillsPerUser = Math.min(spec.getMaximumSkillsPerUser(), SkillRegistry.size());
+        for (int i = 0; i < spec.getUsers(); i++) {
+            String userId = this.idGenerator.idAt("U", createdAt, spec.getEvents() + i);
+            HashMap<String, String> userEventMap = new HashMap<>();
+            for (int event : sampleDistinct(eventWeights, count(eventsPerUser, random), random)) {
+                userEventMap.put(eventIds.get(event), Group.EMPTY_GROUP_ID);
+                eventUsers.get(event).add(userId);
+            }
+
+            userIds.add(userId);
+            userEventMaps.add(userEventMap);
+            userBuilders.add(new User.UserBuilder(userId)
+                .withUserName(pick(FIRST_NAMES, random) + " " + pick(LAST_NAMES, random))
+                .withUserOccupation(pick(OCCUPATIONS, random))
+                .withUserSkillSet(skillSet(skillWeights, count(skillsPerUser, random), random))
+                .withUserEventMap(userEventMap));
+        }
+
+        // Groups, dealt out of each event's users
+        HashMap<String, Integer> userIndexes = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            userIndexes.put(userIds.get(i), i);
+        }
+
+        List<Group> groups = new ArrayList<>();
+        List<Event> events = new ArrayList<>(spec.getEvents());
+        for (int i = 0; i < spec.getEvents(); i++) {
+            String eventId = eventIds.get(i);
+            List<String> shuffled = new ArrayList<>(eventUsers.get(i));
+            Collections.shuffle(shuffled, random);
+
+            List<String> eventGroups = new ArrayList<>();
+            int grouped = (int) Math.round(shuffled.size() * spec.getGroupedFraction());
+            int next = 0;
+            while (grouped - next >= 2) {
+                int size = Math.min(grouped - next, 2 + random.nextInt(spec.getMaximumGroupSize() - 1));
+                List<String> members = shuffled.subList(next, next + size);
+                next += size;
+
+                String groupId = this.idGenerator.idAt("G", createdAt,
+                    spec.getEvents() + spec.getUsers() + groups.size());
+                for (String userId : members) {
+                    userEventMaps.get(userIndexes.get(userId)).put(eventId, groupId);
+                }
+                eventGroups.add(groupId);
+                groups.add(new Group.GroupBuilder(groupId)
+                    .withGroupName(pick(GROUP_ADJECTIVES, random) + " " + pick(GROUP_NOUNS, random))
+                    .withGroupType(pick(GROUP_TYPES, random))
+                    .withGroupDescription("Looking for people who know " + pick(TOPICS, random) + ".")
+                    .withGroupEvent(eventId)
+                    .withGroupOwner(members.get(0))
+                    .withGroupSkillSet(skillSet(skillWeights, count(MAXIMUM_SKILLS_PER_GROUP, random), random))
+                    .withGroupUsers(members)
+                    .withGroupVersion(1)
+                    .build());
+            }
+
+            events.add(eventBuilders.get(i)
+                .withEventGroups(eventGroups)
+                .withEventUsers(eventUsers.get(i))
+                .withEventVersion(1)
+                .build());
+        }
+
+        List<User> users = new ArrayList<>(spec.getUsers());
+        for (User.UserBuilder builder : userBuilders) {
+            users.add(builder
+                .withUserVersion(1)
+                .build());
+        }
+
+        return new Dataset(spec, users, groups, events);
+    }
+
+    // 1, then each further one with probability 1/2, up to maximum
+    private static int count(int maximum, Random random) {
+        int count = 1;
+        while (count < maximum && random.nextBoolean()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static SkillSet skillSet(double[] skillWeights, int count, Random random) {
+        SkillSet skillSet = new SkillSet();
+        for (int ordinal : sampleDistinct(skillWeights, count, random)) {
+            skillSet.addSkill(SkillRegistry.name(ordinal));
+        }
+        return skillSet;
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Cumulative weights of ranks 0 to n - 1, rank r weighing 1 / (r + 1)^exponent
+    private static double[] zipfCumulativeWeights(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulativeWeights, Random random) {
+        double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int index = Arrays.binarySearch(cumulativeWeights, target);
+        return Math.min(index < 0 ? -index - 1 : index + 1, cumulativeWeights.length - 1);
+    }
+
+    // count distinct ranks, count no more than the number of ranks
+    private static int[] sampleDistinct(double[] cumulativeWeights, int count, Random random) {
+        int[] ranks = new int[count];
+        boolean[] taken = new boolean[cumulativeWeights.length];
+        for (int i = 0; i < count; i++) {
+            int rank = sample(cumulativeWeights, random);
+            while (taken[rank]) {
+                rank = sample(cumulativeWeights, random);
+            }
+            taken[rank] = true;
+            ranks[i] = rank;
+        }
+        return ranks;
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.grouper.dataset;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.Message;
+import com.grouper.models.User;
+import com.grouper.objectcache.EventObjectCache;
+import com.grouper.objectcache.GroupObjectCache;
+import com.grouper.objectcache.MembershipStore;
+import com.grouper.objectcache.UserObjectCache;
+import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.ObjectStore;
+import com.grouper.storage.Storage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes a {@link Dataset}, either straight into a storage backend or through the running service's object caches.
+ * Both create every user, group and event, and the membership edges behind the paged member lists. Objects are
+ * created, never overwritten, so loading into tables that already hold the same ids fails.
+ *
+ * Writes run on a pool of the given size, which is what bounds how fast a dataset loads into a backend with latency.
+ */
+public final class DatasetLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetLoader.class);
+
+    private DatasetLoader() {
+    }
+
+    /**
+     * Write into storage without touching the caches or indexes, which pick the data up on their next read or
+     * refresh. Works before the service is initialised.
+     *
+     * @throws IllegalStateException if any write fails
+     */
+    public static void toStorage(Dataset dataset, Storage storage, int threads) {
+        ObjectStore userStore = UserObjectCache.objectStore(storage);
+        ObjectStore groupStore = GroupObjectCache.objectStore(storage);
+        ObjectStore eventStore = EventObjectCache.objectStore(storage);
+
+        List<Runnable> tasks = new ArrayList<>();
+        for (User user : dataset.getUsers()) {
+            tasks.add(() -> userStore.create(UserObjectCache.toItem(user)));
+        }
+        for (Group group : dataset.getGroups()) {
+            tasks.add(() -> groupStore.create(GroupObjectCache.toItem(group)));
+        }
+        for (Event event : dataset.getEvents()) {
+            tasks.add(() -> eventStore.create(EventObjectCache.toItem(event)));
+        }
+        addMembershipTasks(dataset, new MembershipStore(storage), tasks);
+
+        runAll(tasks, threads);
+        logger.info("Loaded dataset into storage: seed={}, users={}, groups={}, events={}", dataset.getSpec().getSeed(),
+            dataset.getUsers().size(), dataset.getGroups().size(), dataset.getEvents().size());
+    }
+
+    /**
+     * Write through GrouperServiceApplication's object caches, and update the indexes the way the create endpoints
+     * do, so the data is visible to every endpoint as soon as this returns.
+     *
+     * @throws IllegalStateException if any write fails
+     */
+    public static void throughCaches(Dataset dataset, int threads) {
+        List<Runnable> tasks = new ArrayList<>();
+        for (User user : dataset.getUsers()) {
+            tasks.add(() -> {
+                succeeded(GrouperServiceApplication.userObjectCache.putObject(user));
+                GrouperServiceApplication.eventSkillIndex.indexUser(user.getUserEventMap().keySet(), user);
+            });
+        }
+        for (Group group : dataset.getGroups()) {
+            tasks.add(() -> {
+                succeeded(GrouperServiceApplication.groupObjectCache.putObject(group));
+                GrouperServiceApplication.eventSkillIndex.indexGroup(group);
+            });
+        }
+        for (Event event : dataset.getEvents()) {
+            tasks.add(() -> {
+                succeeded(GrouperServiceApplication.eventObjectCache.putObject(event));
+                GrouperServiceApplication.eventTimeIndex.index(event.getEventId(), event.getEventDate().getTime());
+                GrouperServiceApplication.eventGeoIndex.index(event);
+            });
+        }
+        addMembershipTasks(dataset, GrouperServiceApplication.membershipStore, tasks);
+
+        runAll(tasks, threads);
+        logger.info("Loaded dataset through caches: seed={}, users={}, groups={}, events={}",
+            dataset.getSpec().getSeed(), dataset.getUsers().size(), dataset.getGroups().size(),
+            dataset.getEvents().size());
+    }
+
+    // The same edges the rel endpoints write: event to user, event to group and group to user
+    private static void addMembershipTasks(Dataset dataset, MembershipStore membershipStore, List<Runnable> tasks) {
+        for (Event event : dataset.getEvents()) {
+            for (String userId : event.getEventUsers()) {
+                tasks.add(() -> added(membershipStore.add(MembershipStore.EVENT, event.getEventId(),
+                    MembershipStore.USER, userId)));
+            }
+            for (String groupId : event.getEventGroups()) {
+                tasks.add(() -> added(membershipStore.add(MembershipStore.EVENT, event.getEventId(),
+                    MembershipStore.GROUP, groupId)));
+            }
+        }
+        for (Group group : dataset.getGroups()) {
+            for (String userId : group.getGroupUsers()) {
+                tasks.add(() -> added(membershipStore.add(MembershipStore.GROUP, group.getGroupId(),
+                    MembershipStore.USER, userId)));
+            }
+        }
+    }
+
+    private static void succeeded(Message message) {
+        if (message.getStatus() != Message.DEFAULT_SUCCESS_STATUS) {
+            throw new IllegalStateException("Creating " + message.getValue() + " failed.");
+        }
+    }
+
+    private static void added(CompletableFuture<Boolean> membershipWrite) {
+        if (!membershipWrite.join()) {
+            throw new IllegalStateException("Adding a membership failed.");
+        }
+    }
+
+    private static void runAll(List<Runnable> tasks, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+            .setNameFormat("dataset-load-%d")
+            .setDaemon(true)
+            .build());
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks) {
+                futures.add(CompletableFuture.runAsync(task, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ce) {
+            throw new IllegalStateException("Loading the dataset failed.", Storage.cause(ce));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.grouper.dataset;
+
+/**
+ * The shape of a generated dataset. The same spec always generates the same dataset.
+ *
+ * Skews are Zipf exponents: 0 is uniform, and the larger the exponent, the more the first few ranks dominate. With
+ * the defaults, about 40% of all enrollments go to the five most popular events, the largest of 100 events has
+ * around 3000 users and the smallest a few dozen, and over half of all users know Java.
+ */
+public class DatasetSpec {
+
+    // 2026-01-01T00:00:00Z
+    public static final long DEFAULT_REFERENCE_TIME_MILLIS = 1767225600000L;
+
+    private final long seed;
+    private final int users;
+    private final int events;
+    private final int maximumEventsPerUser;
+    private final double eventSizeSkew;
+    private final int maximumSkillsPerUser;
+    private final double skillSkew;
+    private final double groupedFraction;
+    private final int maximumGroupSize;
+    private final long referenceTimeMillis;
+
+    private DatasetSpec(DatasetSpecBuilder builder) {
+        this.seed = builder.seed;
+        this.users = builder.users;
+        this.events = builder.events;
+        this.maximumEventsPerUser = builder.maximumEventsPerUser;
+        this.eventSizeSkew = builder.eventSizeSkew;
+        this.maximumSkillsPerUser = builder.maximumSkillsPerUser;
+        this.skillSkew = builder.skillSkew;
+        this.groupedFraction = builder.groupedFraction;
+        this.maximumGroupSize = builder.maximumGroupSize;
+        this.referenceTimeMillis = builder.referenceTimeMillis;
+    }
+
+    public static class DatasetSpecBuilder {
+
+        private long seed = 1;
+        private int users = 10000;
+        private int events = 100;
+        private int maximumEventsPerUser = 4;
+        private double eventSizeSkew = 1.0;
+        private int maximumSkillsPerUser = 4;
+        private double skillSkew = 1.0;
+        private double groupedFraction = 0.6;
+        private int maximumGroupSize = 6;
+        private long referenceTimeMillis = DEFAULT_REFERENCE_TIME_MILLIS;
+
+        public DatasetSpecBuilder withSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public DatasetSpecBuilder withUsers(int users) {
+            this.users = users;
+            return this;
+        }
+
+        public DatasetSpecBuilder withEvents(int events) {
+            this.events = events;
+            return this;
+        }
+
+        // Every user is enrolled in at least one event, and in each further one with probability 1/2
+        public DatasetSpecBuilder withMaximumEventsPerUser(int maximumEventsPerUser) {
+            this.maximumEventsPerUser = maximumEventsPerUser;
+            return this;
+        }
+
+        // Zipf exponent of event popularity, which sets how heavy-tailed event sizes are
+        public DatasetSpecBuilder withEventSizeSkew(double eventSizeSkew) {
+            this.eventSizeSkew = eventSizeSkew;
+            return this;
+        }
+
+        // Every user has at least one skill, and each further one with probability 1/2
+        public DatasetSpecBuilder withMaximumSkillsPerUser(int maximumSkillsPerUser) {
+            this.maximumSkillsPerUser = maximumSkillsPerUser;
+            return this;
+        }
+
+        // Zipf exponent of skill popularity, in SkillRegistry order
+        public DatasetSpecBuilder withSkillSkew(double skillSkew) {
+            this.skillSkew = skillSkew;
+            return this;
+        }
+
+        // Share of each event's users who are in one of its groups
+        public DatasetSpecBuilder withGroupedFraction(double groupedFraction) {
+            this.groupedFraction = groupedFraction;
+            return this;
+        }
+
+        // Groups have 2 to maximumGroupSize users
+        public DatasetSpecBuilder withMaximumGroupSize(int maximumGroupSize) {
+            this.maximumGroupSize = maximumGroupSize;
+            return this;
+        }
+
+        // Events are dated from 30 days before to 90 days after the reference time, and objects were created 30 days
+        // before it
+        public DatasetSpecBuilder withReferenceTimeMillis(long referenceTimeMillis) {
+            this.referenceTimeMillis = referenceTimeMillis;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a count or fraction is out of range
+         */
+        public DatasetSpec build() {
+            if (users < 0 || events < 1 || maximumEventsPerUser < 1 || maximumSkillsPerUser < 1 ||
+                maximumGroupSize < 2 || groupedFraction < 0 || groupedFraction > 1 || eventSizeSkew < 0 ||
+                skillSkew < 0) {
+                throw new IllegalArgumentException("Invalid dataset spec.");
+            }
+            return new DatasetSpec(this);
+        }
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public int getUsers() {
+        return this.users;
+    }
+
+    public int getEvents() {
+        return this.events;
+    }
+
+    public int getMaximumEventsPerUser() {
+        return this.maximumEventsPerUser;
+    }
+
+    public double getEventSizeSkew() {
+        return this.eventSizeSkew;
+    }
+
+    public int getMaximumSkillsPerUser() {
+        return this.maximumSkillsPerUser;
+    }
+
+    public double getSkillSkew() {
+        return this.skillSkew;
+    }
+
+    public double getGroupedFraction() {
+        return this.groupedFraction;
+    }
+
+    public int getMaximumGroupSize() {
+        return this.maximumGroupSize;
+    }
+
+    public long getReferenceTimeMillis() {
+        return this.referenceTimeMillis;
+    }
+
+}
@@ -0,0 +1,235 @@
+package com.grouper.index;
+
+import com.grouper.models.Event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory grid index of every event with coordinates, for /events/nearby.
+ *
+ * The globe is cut into cells of cellDegrees x cellDegrees. A radius query only reads the cells overlapping the
+ * radius's bounding box, then keeps the events whose great-circle distance is within the radius, nearest first.
+ * Near the poles, or for a box crossing the antimeridian, the box is widened or wrapped so no cell is missed.
+ *
+ * Like EventTimeIndex, it is filled from a background scan of the events table and rescanned periodically, and the
+ * create, update and delete endpoints keep it current in between. Each event's position is kept beside it, and an
+ * event only moves between cells inside that event's ConcurrentHashMap.compute. Cells are concurrent sets, so
+ * queries never lock.
+ */
+public class EventGeoIndex {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final double cellDegrees;
+    private final int latitudeCells;
+    private final int longitudeCells;
+
+    private final ConcurrentHashMap<Long, Set<String>> cells = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Position> positions = new ConcurrentHashMap<>();
+
+    /**
+     * @param cellDegrees cell size, in degrees. Smaller cells mean fewer distance checks per query, but more cells
+     *                    read for a large radius.
+     */
+    public EventGeoIndex(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 90)) {
+            throw new IllegalArgumentException("Cell size must be in (0, 90] degrees: " + cellDegrees);
+        }
+
+        this.cellDegrees = cellDegrees;
+        this.latitudeCells = (int) Math.ceil(180 / cellDegrees);
+        this.longitudeCells = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    /**
+     * Index an event at its current coordinates. An event without coordinates is removed from the index.
+     */
+    public void index(Event event) {
+        if (!event.hasCoordinates()) {
+            removeEvent(event.getEventId());
+            return;
+        }
+
+        double latitude = event.getEventLatitude();
+        double longitude = event.getEventLongitude();
+        long cell = cell(row(latitude), column(longitude));
+
+        this.positions.compute(event.getEventId(), (id, previous) -> {
+            if (previous != null) {
+                removeFromCell(previous.cell, id);
+            }
+            this.cells.computeIfAbsent(cell, key -> ConcurrentHashMap.newKeySet()).add(id);
+            return new Position(latitude, longitude, cell);
+        });
+    }
+
+    public void removeEvent(String eventId) {
+        this.positions.computeIfPresent(eventId, (id, previous) -> {
+            removeFromCell(previous.cell, id);
+            return null;
+        });
+    }
+
+    /**
+     * @param latitude  query latitude, in degrees
+     * @param longitude query longitude, in degrees
+     * @param radiusKm  search radius, in kilometres
+     * @param limit     most ids to return
+     * @return ids of events within radiusKm of the point, nearest first
+     */
+    public List<String> nearby(double latitude, double longitude, double radiusKm, int limit) {
+        List<String> eventIds = new ArrayList<>();
+        if (limit <= 0 || !(radiusKm >= 0)) {
+            return eventIds;
+        }
+
+        double latitudeRadius = radiusKm / KM_PER_DEGREE;
+        double south = latitude - latitudeRadius;
+        double north = latitude + latitudeRadius;
+        int firstRow = row(Math.max(south, -90));
+        int lastRow = row(Math.min(north, 90));
+
+        // A degree of longitude shrinks with cos(latitude); size the box for the widest point, the edge nearest a
+        // pole. If that edge reaches a pole, every longitude is in range.
+        double widestLatitude = Math.min(90, Math.max(Math.abs(south), Math.abs(north)));
+        double cosine = Math.cos(Math.toRadians(widestLatitude));
+        double longitudeRadius = cosine <= 0 ? 360 : radiusKm / (KM_PER_DEGREE * cosine);
+
+        int firstColumn;
+        int columnCount;
+        if (longitudeRadius >= 180) {
+            firstColumn = 0;
+            columnCount = this.longitudeCells;
+        } else {
+            firstColumn = column(longitude - longitudeRadius);
+            int lastColumn = column(longitude + longitudeRadius);
+            // Wraps past the antimeridian when lastColumn < firstColumn
+            columnCount = Math.floorMod(lastColumn - firstColumn, this.longitudeCells) + 1;
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int offset = 0; offset < columnCount; offset++) {
+                Set<String> cellEvents = this.cells.get(cell(row, (firstColumn + offset) % this.longitudeCells));
+                if (cellEvents == null) {
+                    continue;
+                }
+
+                for (String eventId : cellEvents) {
+                    Position position = this.positions.get(eventId);
+                    if (position == null) {
+                        continue;
+                    }
+
+                    double distance = distanceKm(latitude, longitude, position.latitude, position.longitude);
+                    if (distance <= radiusKm) {
+                        candidates.add(new Candidate(eventId, distance));
+                    }
+                }
+            }
+        }
+
+        candidates.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.distanceKm)
+            .thenComparing(candidate -> candidate.eventId));
+        for (Candidate candidate : candidates) {
+            // An event moving cells during the query can be seen in both
+            if (eventIds.size() == limit) {
+                break;
+            }
+            if (eventIds.isEmpty() || !eventIds.get(eventIds.size() - 1).equals(candidate.eventId)) {
+                eventIds.add(candidate.eventId);
+            }
+        }
+        return eventIds;
+    }
+
+    /**
+     * Replace the index contents with a full scan. See EventTimeIndex.refresh.
+     *
+     * @param scannedEvents every event in the table, with at least eventId and coordinates set
+     * @param indexedBeforeScan ids that were indexed when the scan started, from {@link #indexedEventIds()}
+     */
+    public void refresh(Collection<Event> scannedEvents, Set<String> indexedBeforeScan) {
+        Set<String> scannedEventIds = new HashSet<>();
+        for (Event event : scannedEvents) {
+            scannedEventIds.add(event.getEventId());
+            index(event);
+        }
+
+        for (String eventId : indexedBeforeScan) {
+            if (!scannedEventIds.contains(eventId)) {
+                removeEvent(eventId);
+            }
+        }
+    }
+
+    public Set<String> indexedEventIds() {
+        return new HashSet<>(this.positions.keySet());
+    }
+
+    public int size() {
+        return this.positions.size();
+    }
+
+    /**
+     * Great-circle distance between two points, by the haversine formula.
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeSine = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double longitudeSine = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = latitudeSine * latitudeSine + Math.cos(Math.toRadians(latitude1)) *
+            Math.cos(Math.toRadians(latitude2)) * longitudeSine * longitudeSine;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void removeFromCell(long cell, String eventId) {
+        Set<String> cellEvents = this.cells.get(cell);
+        if (cellEvents != null) {
+            cellEvents.remove(eventId);
+        }
+    }
+
+    private int row(double latitude) {
+        return Math.min(this.latitudeCells - 1, (int) Math.floor((latitude + 90) / this.cellDegrees));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / this.cellDegrees), this.longitudeCells);
+    }
+
+    private long cell(int row, int column) {
+        return (long) row * this.longitudeCells + column;
+    }
+
+    private static final class Position {
+
+        private final double latitude;
+        private final double longitude;
+        private final long cell;
+
+        private Position(double latitude, double longitude, long cell) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cell = cell;
+        }
+    }
+
+    private static final class Candidate {
+
+        private final String eventId;
+        private final double distanceKm;
+
+        private Candidate(String eventId, double distanceKm) {
+            this.eventId = eventId;
+            this.distanceKm = distanceKm;
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+package com.grouper.index;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.SkillRegistry;
+import com.grouper.models.User;
+import com.grouper.service.GrouperServiceApplication;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory inverted skill index, kept per event. For every registered skill it holds the groups of the event that
+ * need the skill, and the users enrolled in the event that have it.
+ *
+ * An event is indexed the first time it is queried, by walking its groups and users through the object caches once.
+ * From then on the create, update and rel endpoints keep it current incrementally. Updates for events that have not
+ * been queried yet are dropped, since the first query will read the current state anyway.
+ *
+ * Only events that load get postings. A query for an id with no event, or whose event can't be read right now,
+ * matches nothing and leaves no entry behind, so the next query tries again. Entries are dropped when their event is
+ * deleted, here or, through retainEvents, on another node.
+ *
+ * Postings are concurrent sets, so queries never lock. Writers to a single event are serialised on that event's
+ * entry, which also makes a writer wait for an in-progress initial build instead of racing it.
+ */
+public class EventSkillIndex {
+
+    private final ConcurrentHashMap<String, EventPostings> events = new ConcurrentHashMap<>();
+
+    public List<String> groupsNeeding(String eventId, long skillMask) {
+        return postingsFor(eventId).groups.matching(skillMask);
+    }
+
+    public List<String> usersHaving(String eventId, long skillMask) {
+        return postingsFor(eventId).users.matching(skillMask);
+    }
+
+    /**
+     * @param eventId   string eventId
+     * @param skillMask skill mask
+     * @return ids of groups in the event that need at least one of the skills in the mask
+     */
+    public Set<String> groupsNeedingAny(String eventId, long skillMask) {
+        return postingsFor(eventId).groups.matchingAny(skillMask);
+    }
+
+    public void indexGroup(Group group) {
+        EventPostings postings = this.events.get(group.getGroupEvent());
+        if (postings != null) {
+            synchronized (postings) {
+                if (postings.loaded) {
+                    postings.groups.put(group.getGroupId(), group.getGroupSkillSet().getSkillMask());
+                }
+            }
+        }
+    }
+
+    public void removeGroup(String eventId, String groupId) {
+        EventPostings postings = this.events.get(eventId);
+        if (postings != null) {
+            synchronized (postings) {
+                if (postings.loaded) {
+                    postings.groups.remove(groupId);
+                }
+            }
+        }
+    }
+
+    public void indexUser(String eventId, User user) {
+        EventPostings postings = this.events.get(eventId);
+        if (postings != null) {
+            synchronized (postings) {
+                if (postings.loaded) {
+                    postings.users.put(user.getUserId(), user.getUserSkillSet().getSkillMask());
+                }
+            }
+        }
+    }
+
+    public void indexUser(Collection<String> eventIds, User user) {
+        for (String eventId : eventIds) {
+            indexUser(eventId, user);
+        }
+    }
+
+    public void removeUser(String eventId, String userId) {
+        EventPostings postings = this.events.get(eventId);
+        if (postings != null) {
+            synchronized (postings) {
+                if (postings.loaded) {
+                    postings.users.remove(userId);
+                }
+            }
+        }
+    }
+
+    public void removeEvent(String eventId) {
+        this.events.remove(eventId);
+    }
+
+    /**
+     * Drop the postings of every event not in eventIds, such as events deleted on other nodes.
+     *
+     * @param eventIds ids of every event that still exists
+     */
+    public void retainEvents(Set<String> eventIds) {
+        this.events.keySet().retainAll(eventIds);
+    }
+
+    /**
+     * @return number of events with postings
+     */
+    public int indexedEventCount() {
+        return this.events.size();
+    }
+
+    // The loaded postings of an event, or EMPTY if the event doesn't exist or can't be read
+    private EventPostings postingsFor(String eventId) {
+        while (true) {
+            EventPostings postings = this.events.computeIfAbsent(eventId, id -> new EventPostings());
+            if (postings.loaded) {
+                return postings;
+            }
+
+            synchronized (postings) {
+                if (this.events.get(eventId) != postings) {
+                    // A failed load removed this entry while we waited for it. Start over with a fresh one.
+                    continue;
+                }
+                if (!postings.loaded) {
+                    if (!load(eventId, postings)) {
+                        this.events.remove(eventId, postings);
+                        return EventPostings.EMPTY;
+                    }
+                    postings.loaded = true;
+                }
+                return postings;
+            }
+        }
+    }
+
+    // Fill postings from the caches. False, with postings left unloaded, if the event or any of its groups and users
+    // can't be read.
+    private static boolean load(String eventId, EventPostings postings) {
+        Event event = GrouperServiceApplication.eventObjectCache.getObject(eventId);
+        if (event.getEventId() == Event.EMPTY_EVENT_ID) {
+            return false;
+        }
+
+        SkillPostings groups = new SkillPostings();
+        SkillPostings users = new SkillPostings();
+        try {
+            for (Group group : GrouperServiceApplication.groupObjectCache.getObjectsOrThrow(event.getEventGroups())
+                .values()) {
+                if (group.getGroupId() != Group.EMPTY_GROUP_ID) {
+                    groups.put(group.getGroupId(), group.getGroupSkillSet().getSkillMask());
+                }
+            }
+
+            for (User user : GrouperServiceApplication.userObjectCache.getObjectsOrThrow(event.getEventUsers())
+                .values()) {
+                if (user.getUserId() != User.EMPTY_USER_ID) {
+                    users.put(user.getUserId(), user.getUserSkillSet().getSkillMask());
+                }
+            }
+        } catch (RuntimeException re) {
+            // Loading what could be read would leave the missing groups or users out until the event is evicted
+            return false;
+        }
+
+        postings.groups = groups;
+        postings.users = users;
+        return true;
+    }
+
+    // Until loaded, an entry only holds the lock writers wait on. Its postings are set, under that lock, by a
+    // successful load.
+    private static class EventPostings {
+
+        private static final EventPostings EMPTY = new EventPostings(new SkillPostings(), new SkillPostings());
+
+        private SkillPostings groups;
+        private SkillPostings users;
+        private volatile boolean loaded;
+
+        private EventPostings() {
+        }
+
+        private EventPostings(SkillPostings groups, SkillPostings users) {
+            this.groups = groups;
+            this.users = users;
+            this.loaded = true;
+        }
+    }
+
+    /**
+     * skill ordinal -> ids, plus the mask each id was last indexed with so a re-index can drop stale postings.
+     * One posting per registered skill; bits past the registered skills are ignored. Mutated only while holding the
+     * owning EventPostings' lock.
+     */
+    private static class SkillPostings {
+
+        private static final long REGISTERED_SKILLS = SkillRegistry.size() == Long.SIZE ? -1L :
+            (1L << SkillRegistry.size()) - 1;
+
+        private final Map<String, Long> masks = new HashMap<>();
+        private final List<Set<String>> postings = new ArrayList<>(SkillRegistry.size());
+
+        private SkillPostings() {
+            for (int ordinal = 0; ordinal < SkillRegistry.size(); ordinal++) {
+                this.postings.add(ConcurrentHashMap.newKeySet());
+            }
+        }
+
+        private void put(String id, long mask) {
+            long skillMask = mask & REGISTERED_SKILLS;
+            Long previous = this.masks.put(id, skillMask);
+            long previousMask = previous == null ? 0L : previous;
+
+            update(id, previousMask & ~skillMask, false);
+            update(id, skillMask & ~previousMask, true);
+        }
+
+        private void remove(String id) {
+            Long previous = this.masks.remove(id);
+            if (previous != null) {
+                update(id, previous, false);
+            }
+        }
+
+        private void update(String id, long skillMask, boolean add) {
+            long remaining = skillMask;
+            while (remaining != 0) {
+                Set<String> posting = this.postings.get(Long.numberOfTrailingZeros(remaining));
+                if (add) {
+                    posting.add(id);
+                } else {
+                    posting.remove(id);
+                }
+                remaining &= remaining - 1;
+            }
+        }
+
+        // Ids holding every skill in the mask. Starts from the shortest posting list and filters it by the rest.
+        private List<String> matching(long skillMask) {
+            // Nobody has a skill that isn't registered
+            if (skillMask == 0 || (skillMask & ~REGISTERED_SKILLS) != 0) {
+                return Collections.emptyList();
+            }
+
+            List<Set<String>> required = new ArrayList<>(Long.bitCount(skillMask));
+            Set<String> shortest = null;
+            long remaining = skillMask;
+            while (remaining != 0) {
+                Set<String> posting = this.postings.get(Long.numberOfTrailingZeros(remaining));
+                required.add(posting);
+                if (shortest == null || posting.size() < shortest.size()) {
+                    shortest = posting;
+                }
+                remaining &= remaining - 1;
+            }
+
+            ArrayList<String> ids = new ArrayList<>();
+            for (String id : shortest) {
+                boolean matches = true;
+                for (Set<String> posting : required) {
+                    if (posting != shortest && !posting.contains(id)) {
+                        matches = false;
+                        break;
+                    }
+                }
+                if (matches) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        }
+
+        private Set<String> matchingAny(long skillMask) {
+            Set<String> ids = new HashSet<>();
+            long remaining = skillMask & REGISTERED_SKILLS;
+            while (remaining != 0) {
+                ids.addAll(this.postings.get(Long.numberOfTrailingZeros(remaining)));
+                remaining &= remaining - 1;
+            }
+            return ids;
+        }
+    }
+
+}
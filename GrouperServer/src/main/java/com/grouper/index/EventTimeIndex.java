@@ -0,0 +1,120 @@
+package com.grouper.index;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory index of every event by start time, for range queries (upcoming events, events happening now) without
+ * scanning the events table.
+ *
+ * It is filled from a scan of the events table's ids and dates at startup, and rescanned periodically to pick up
+ * events created or deleted on other nodes. Between scans the create, update and delete endpoints keep it current.
+ *
+ * Entries are (time, eventId) pairs in a concurrent skip list, so range reads never lock. Each event's current time
+ * is kept beside it, and an event's entry is only moved inside that event's ConcurrentHashMap.compute, so two
+ * writers can't leave an event indexed twice.
+ */
+public class EventTimeIndex {
+
+    private final ConcurrentSkipListSet<TimedEvent> byTime = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, Long> times = new ConcurrentHashMap<>();
+
+    public void index(String eventId, long eventTime) {
+        this.times.compute(eventId, (id, previousTime) -> {
+            if (previousTime != null) {
+                this.byTime.remove(new TimedEvent(previousTime, id));
+            }
+            this.byTime.add(new TimedEvent(eventTime, id));
+            return eventTime;
+        });
+    }
+
+    public void removeEvent(String eventId) {
+        this.times.computeIfPresent(eventId, (id, previousTime) -> {
+            this.byTime.remove(new TimedEvent(previousTime, id));
+            return null;
+        });
+    }
+
+    /**
+     * @param from  earliest start time, inclusive, in epoch milliseconds
+     * @param to    latest start time, inclusive, in epoch milliseconds
+     * @param limit most ids to return
+     * @return ids of events starting between from and to, earliest first
+     */
+    public List<String> between(long from, long to, int limit) {
+        List<String> eventIds = new ArrayList<>();
+        if (from > to || limit <= 0) {
+            return eventIds;
+        }
+
+        TimedEvent lowest = new TimedEvent(from, "");
+        for (TimedEvent event : this.byTime.tailSet(lowest, true)) {
+            if (event.time > to || eventIds.size() == limit) {
+                break;
+            }
+            eventIds.add(event.eventId);
+        }
+        return eventIds;
+    }
+
+    /**
+     * Replace the index contents with a full scan. Events indexed after the scan started are kept, so a create
+     * that races the scan isn't lost. A date change that races the scan can be undone until the next scan.
+     *
+     * @param scannedTimes eventId -&gt; start time of every event in the table
+     * @param indexedBeforeScan ids that were indexed when the scan started, from {@link #indexedEventIds()}
+     */
+    public void refresh(Map<String, Long> scannedTimes, Set<String> indexedBeforeScan) {
+        for (Map.Entry<String, Long> entry : scannedTimes.entrySet()) {
+            index(entry.getKey(), entry.getValue());
+        }
+
+        for (String eventId : indexedBeforeScan) {
+            if (!scannedTimes.containsKey(eventId)) {
+                removeEvent(eventId);
+            }
+        }
+    }
+
+    public Set<String> indexedEventIds() {
+        return new HashSet<>(this.times.keySet());
+    }
+
+    public int size() {
+        return this.times.size();
+    }
+
+    private static final class TimedEvent implements Comparable<TimedEvent> {
+
+        private final long time;
+        private final String eventId;
+
+        private TimedEvent(long time, String eventId) {
+            this.time = time;
+            this.eventId = eventId;
+        }
+
+        @Override
+        public int compareTo(TimedEvent other) {
+            int byTime = Long.compare(this.time, other.time);
+            return byTime != 0 ? byTime : this.eventId.compareTo(other.eventId);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TimedEvent && compareTo((TimedEvent) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(this.time) + this.eventId.hashCode();
+        }
+    }
+
+}
@@ -0,0 +1,430 @@
+package com.grouper.index;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.SearchHit;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory full-text index over group and event names, types and descriptions.
+ *
+ * Text is lower-cased, stripped of accents and split on anything that isn't a letter or digit. Each term maps to
+ * its postings, docKey -&gt; (document, weighted term frequency), where a name counts NAME_WEIGHT times, a group
+ * type TYPE_WEIGHT times and a description once. Queries are ranked by BM25 over those weighted frequencies.
+ * Postings point straight at their documents, so scoring a posting never needs a second lookup, and a term found
+ * in more than a tenth of the documents only re-ranks what rarer query terms matched.
+ *
+ * Type-ahead reads the terms in sorted order: every term is also kept in a concurrent skip list, so the terms
+ * starting with a prefix are one range read, the same walk a prefix trie would do, without locking.
+ *
+ * The group and event caches update the index on every successful write, and a periodic scan picks up writes from
+ * other nodes (see EventTimeIndex.refresh). A document's postings are only changed inside that document's
+ * ConcurrentHashMap.compute, and a term's postings inside that term's, so writers never lock the whole index.
+ */
+public class SearchIndex {
+
+    public static final String GROUP = "group";
+    public static final String EVENT = "event";
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int TYPE_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // BM25 term frequency saturation and length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Terms in more than this fraction of documents only re-rank the matches of rarer terms
+    private static final double COMMON_TERM_FRACTION = 0.1;
+
+    // Most terms a type-ahead prefix expands to, so a one-letter prefix stays cheap
+    private static final int MAXIMUM_PREFIX_TERMS = 256;
+
+    private static final String KEY_SEPARATOR = "#";
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final ConcurrentHashMap<String, Document> documents = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Posting>> postings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> terms = new ConcurrentSkipListSet<>();
+    private final AtomicLong totalLength = new AtomicLong();
+
+    public void indexGroup(Group group) {
+        index(GROUP, group.getGroupId(), group.getGroupName(), group.getGroupType(), group.getGroupDescription());
+    }
+
+    public void indexEvent(Event event) {
+        index(EVENT, event.getEventId(), event.getEventName(), null, event.getEventDescription());
+    }
+
+    public void remove(String kind, String id) {
+        this.documents.computeIfPresent(kind + KEY_SEPARATOR + id, (docKey, previous) -> {
+            unpost(docKey, previous);
+            return null;
+        });
+    }
+
+    /**
+     * Full-text search. Documents matching any query term are ranked by BM25.
+     *
+     * @param query free text
+     * @param kind  GROUP, EVENT, or null for both
+     * @param limit most hits to return
+     * @return hits, best first
+     */
+    public List<SearchHit> search(String query, String kind, int limit) {
+        List<String> queryTerms = rarestFirst(tokenize(query));
+        int commonFrequency = (int) (this.documents.size() * COMMON_TERM_FRACTION);
+
+        Map<String, Candidate> candidates = new HashMap<>();
+        for (int i = 0; i < queryTerms.size(); i++) {
+            // A common term only re-ranks documents a rarer term already matched; scoring all of its postings
+            // would cost the most and change the ranking the least. If the rarer terms matched nothing, it is all
+            // the query has, and is scored in full.
+            String term = queryTerms.get(i);
+            boolean common = i > 0 && !candidates.isEmpty() && documentFrequency(term) > commonFrequency;
+
+            for (Map.Entry<String, Candidate> entry : termScores(term, common ? candidates : null).entrySet()) {
+                Candidate candidate = candidates.putIfAbsent(entry.getKey(), entry.getValue());
+                if (candidate != null) {
+                    candidate.score += entry.getValue().score;
+                }
+            }
+        }
+        return top(candidates.values(), kind, limit);
+    }
+
+    /**
+     * Type-ahead. The last query term is a prefix unless the query ends in a separator; every earlier term has to
+     * match exactly. A document has to match every term, and is ranked by BM25, with its best-scoring completion of
+     * the prefix.
+     *
+     * @param query what the user has typed so far
+     * @param kind  GROUP, EVENT, or null for both
+     * @param limit most hits to return
+     * @return hits, best first
+     */
+    public List<SearchHit> suggest(String query, String kind, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        boolean endsInPrefix = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        String prefix = endsInPrefix ? queryTerms.remove(queryTerms.size() - 1) : null;
+
+        List<String> completions = new ArrayList<>();
+        int completionFrequency = 0;
+        if (prefix != null) {
+            for (String term : this.terms.tailSet(prefix)) {
+                if (!term.startsWith(prefix) || completions.size() == MAXIMUM_PREFIX_TERMS) {
+                    break;
+                }
+                completions.add(term);
+                completionFrequency += documentFrequency(term);
+            }
+        }
+
+        // Rarest clause first, so every later clause only scores the documents still matching. The prefix is one
+        // clause, as common as all its completions together.
+        Map<String, Candidate> candidates = null;
+        for (String term : rarestFirst(queryTerms)) {
+            if (prefix != null && completionFrequency <= documentFrequency(term)) {
+                candidates = matchAll(candidates, completionScores(completions, candidates));
+                prefix = null;
+            }
+            candidates = matchAll(candidates, termScores(term, candidates));
+        }
+        if (prefix != null) {
+            candidates = matchAll(candidates, completionScores(completions, candidates));
+        }
+
+        return candidates == null ? Collections.emptyList() : top(candidates.values(), kind, limit);
+    }
+
+    /**
+     * Replace one kind's documents with a full scan. See EventTimeIndex.refresh.
+     *
+     * @param scannedGroups every group in the table, with at least id, name, type and description set
+     * @param indexedBeforeScan group ids that were indexed when the scan started, from {@link #indexedIds}
+     */
+    public void refreshGroups(Collection<Group> scannedGroups, Set<String> indexedBeforeScan) {
+        Set<String> scannedIds = new HashSet<>();
+        for (Group group : scannedGroups) {
+            scannedIds.add(group.getGroupId());
+            indexGroup(group);
+        }
+        removeMissing(GROUP, indexedBeforeScan, scannedIds);
+    }
+
+    /**
+     * @param scannedEvents every event in the table, with at least id, name and description set
+     * @param indexedBeforeScan event ids that were indexed when the scan started, from {@link #indexedIds}
+     */
+    public void refreshEvents(Collection<Event> scannedEvents, Set<String> indexedBeforeScan) {
+        Set<String> scannedIds = new HashSet<>();
+        for (Event event : scannedEvents) {
+            scannedIds.add(event.getEventId());
+            indexEvent(event);
+        }
+        removeMissing(EVENT, indexedBeforeScan, scannedIds);
+    }
+
+    public Set<String> indexedIds(String kind) {
+        Set<String> ids = new HashSet<>();
+        for (Document document : this.documents.values()) {
+            if (document.kind.equals(kind)) {
+                ids.add(document.id);
+            }
+        }
+        return ids;
+    }
+
+    public int size() {
+        return this.documents.size();
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        String normalized = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD))
+            .replaceAll("")
+            .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void index(String kind, String id, String name, String type, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, name, NAME_WEIGHT);
+        addTerms(frequencies, type, TYPE_WEIGHT);
+        addTerms(frequencies, description, DESCRIPTION_WEIGHT);
+
+        int length = 0;
+        for (int frequency : frequencies.values()) {
+            length += frequency;
+        }
+        String documentKey = kind + KEY_SEPARATOR + id;
+        Document document = new Document(kind, id, name, frequencies, length);
+
+        this.documents.compute(documentKey, (docKey, previous) -> {
+            // Rescans reindex every document; leave unchanged ones alone
+            if (previous != null && previous.frequencies.equals(frequencies) && Objects.equals(previous.name, name)) {
+                return previous;
+            }
+            if (previous != null) {
+                unpost(docKey, previous);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                this.postings.compute(entry.getKey(), (term, termPostings) -> {
+                    if (termPostings == null) {
+                        termPostings = new ConcurrentHashMap<>();
+                        this.terms.add(term);
+                    }
+                    termPostings.put(docKey, new Posting(document, entry.getValue()));
+                    return termPostings;
+                });
+            }
+            this.totalLength.addAndGet(document.length);
+            return document;
+        });
+    }
+
+    private void unpost(String docKey, Document document) {
+        for (String term : document.frequencies.keySet()) {
+            this.postings.computeIfPresent(term, (key, termPostings) -> {
+                termPostings.remove(docKey);
+                if (termPostings.isEmpty()) {
+                    this.terms.remove(term);
+                    return null;
+                }
+                return termPostings;
+            });
+        }
+        this.totalLength.addAndGet(-document.length);
+    }
+
+    private void removeMissing(String kind, Set<String> indexedBeforeScan, Set<String> scannedIds) {
+        for (String id : indexedBeforeScan) {
+            if (!scannedIds.contains(id)) {
+                remove(kind, id);
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private int documentFrequency(String term) {
+        Map<String, Posting> termPostings = this.postings.get(term);
+        return termPostings == null ? 0 : termPostings.size();
+    }
+
+    private List<String> rarestFirst(List<String> queryTerms) {
+        List<String> sortedTerms = new ArrayList<>(new LinkedHashSet<>(queryTerms));
+        sortedTerms.sort(Comparator.comparingInt(this::documentFrequency));
+        return sortedTerms;
+    }
+
+    /**
+     * One term's BM25 score for every document containing it, or only for the documents in restrictTo.
+     *
+     * @return docKey -&gt; a new Candidate holding the term's score
+     */
+    private Map<String, Candidate> termScores(String term, Map<String, Candidate> restrictTo) {
+        Map<String, Candidate> scores = new HashMap<>();
+        Map<String, Posting> termPostings = this.postings.get(term);
+        int documentCount = this.documents.size();
+        if (termPostings == null || documentCount == 0) {
+            return scores;
+        }
+
+        int documentFrequency = termPostings.size();
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        double averageLength = Math.max(1.0, (double) this.totalLength.get() / documentCount);
+
+        if (restrictTo == null || restrictTo.size() >= documentFrequency) {
+            for (Map.Entry<String, Posting> entry : termPostings.entrySet()) {
+                if (restrictTo == null || restrictTo.containsKey(entry.getKey())) {
+                    Posting posting = entry.getValue();
+                    scores.put(entry.getKey(), new Candidate(posting.document, score(posting, idf, averageLength)));
+                }
+            }
+        } else {
+            // Fewer documents left than postings: look each one up instead
+            for (String docKey : restrictTo.keySet()) {
+                Posting posting = termPostings.get(docKey);
+                if (posting != null) {
+                    scores.put(docKey, new Candidate(posting.document, score(posting, idf, averageLength)));
+                }
+            }
+        }
+        return scores;
+    }
+
+    // A document's best score over the completions of a prefix
+    private Map<String, Candidate> completionScores(List<String> completions, Map<String, Candidate> restrictTo) {
+        Map<String, Candidate> scores = new HashMap<>();
+        for (String term : completions) {
+            termScores(term, restrictTo).forEach((docKey, candidate) -> scores.merge(docKey, candidate,
+                (best, other) -> best.score >= other.score ? best : other));
+        }
+        return scores;
+    }
+
+    private static double score(Posting posting, double idf, double averageLength) {
+        double frequency = posting.frequency;
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * posting.document.length / averageLength));
+    }
+
+    // AND: termScores was restricted to candidates, so add the earlier terms' scores to it. null means no terms yet.
+    private static Map<String, Candidate> matchAll(Map<String, Candidate> candidates,
+                                                   Map<String, Candidate> termScores) {
+        if (candidates != null) {
+            for (Map.Entry<String, Candidate> entry : termScores.entrySet()) {
+                entry.getValue().score += candidates.get(entry.getKey()).score;
+            }
+        }
+        return termScores;
+    }
+
+    private static List<SearchHit> top(Collection<Candidate> candidates, String kind, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Comparator<Candidate> byScore = Comparator.comparingDouble((Candidate candidate) -> candidate.score)
+            .thenComparing(candidate -> candidate.document.id, Comparator.reverseOrder());
+        PriorityQueue<Candidate> best = new PriorityQueue<>(byScore);
+
+        for (Candidate candidate : candidates) {
+            if (kind != null && !kind.equals(candidate.document.kind)) {
+                continue;
+            }
+
+            best.add(candidate);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(best);
+        sorted.sort(byScore.reversed());
+
+        List<SearchHit> hits = new ArrayList<>(sorted.size());
+        for (Candidate candidate : sorted) {
+            Document document = candidate.document;
+            hits.add(new SearchHit(document.kind, document.id, document.name, candidate.score));
+        }
+        return hits;
+    }
+
+    private static final class Document {
+
+        private final String kind;
+        private final String id;
+        private final String name;
+        private final Map<String, Integer> frequencies;
+        private final int length;
+
+        private Document(String kind, String id, String name, Map<String, Integer> frequencies, int length) {
+            this.kind = kind;
+            this.id = id;
+            this.name = name;
+            this.frequencies = frequencies;
+            this.length = length;
+        }
+    }
+
+    private static final class Posting {
+
+        private final Document document;
+        private final int frequency;
+
+        private Posting(Document document, int frequency) {
+            this.document = document;
+            this.frequency = frequency;
+        }
+    }
+
+    private static final class Candidate {
+
+        private final Document document;
+        private double score;
+
+        private Candidate(Document document, double score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.grouper.matching;
+
+import com.grouper.models.GroupMatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the k best GroupMatches seen so far. The head of the underlying min-heap is always the weakest match kept,
+ * so offering a new match costs O(log k) and never grows the heap past k.
+ *
+ * Not thread safe. Parallel scoring gives every worker its own heap and merges them when the workers finish.
+ */
+class BoundedMatchHeap {
+
+    // Weakest match first: lower score, then the later groupId on ties so results are deterministic
+    static final Comparator<GroupMatch> WORST_FIRST = Comparator.comparingDouble(GroupMatch::getScore)
+        .thenComparing(GroupMatch::getGroupId, Comparator.reverseOrder());
+
+    private final int capacity;
+    private final PriorityQueue<GroupMatch> heap;
+
+    BoundedMatchHeap(int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(capacity + 1, WORST_FIRST);
+    }
+
+    void offer(GroupMatch match) {
+        if (match == null) {
+            return;
+        }
+
+        if (this.heap.size() < this.capacity) {
+            this.heap.add(match);
+        } else if (WORST_FIRST.compare(match, this.heap.peek()) > 0) {
+            this.heap.poll();
+            this.heap.add(match);
+        }
+    }
+
+    BoundedMatchHeap merge(BoundedMatchHeap other) {
+        for (GroupMatch match : other.heap) {
+            offer(match);
+        }
+        return this;
+    }
+
+    ArrayList<GroupMatch> toSortedList() {
+        ArrayList<GroupMatch> matches = new ArrayList<>(this.heap);
+        matches.sort(Collections.reverseOrder(WORST_FIRST));
+        return matches;
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.grouper.matching;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.GroupMatch;
+import com.grouper.models.SkillRegistry;
+import com.grouper.models.User;
+import com.grouper.service.GrouperServiceApplication;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collector;
+
+/**
+ * Scores the groups of an event against a user's SkillSet, and keeps the best k of them. Candidate groups come from
+ * the event's skill index, so groups that need none of the user's skills are never loaded.
+ *
+ * A group's score is the number of its needed skills the user can fill, plus the fraction of its needs that this
+ * covers. Filling more needs always ranks higher; between groups where the user fills the same number of needs, the
+ * group that would be closest to complete ranks first. Groups the user can't help, or already belongs to, are skipped.
+ */
+public class GroupMatcher {
+
+    public static final int DEFAULT_MATCH_COUNT = 10;
+    public static final int MAXIMUM_MATCH_COUNT = 100;
+
+    // Events with fewer groups than this are scored on the request thread, larger ones across the common pool
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    public ArrayList<GroupMatch> topGroupsForUser(User user, Event event, int k) {
+        int capacity = Math.max(1, Math.min(k, MAXIMUM_MATCH_COUNT));
+        // Only groups needing at least one of the user's skills can score, and the skill index already knows which
+        Set<String> groupIds = GrouperServiceApplication.eventSkillIndex.groupsNeedingAny(event.getEventId(),
+            user.getUserSkillSet().getSkillMask());
+        Collection<Group> groups = GrouperServiceApplication.groupObjectCache.getObjects(groupIds).values();
+
+        Collector<Group, BoundedMatchHeap, BoundedMatchHeap> topK = Collector.of(
+            () -> new BoundedMatchHeap(capacity),
+            (heap, group) -> heap.offer(score(user, group)),
+            BoundedMatchHeap::merge);
+
+        BoundedMatchHeap heap;
+        if (groups.size() < PARALLEL_THRESHOLD) {
+            heap = groups.stream().collect(topK);
+        } else {
+            heap = groups.parallelStream().collect(topK);
+        }
+
+        return heap.toSortedList();
+    }
+
+    private static GroupMatch score(User user, Group group) {
+        if (group.getGroupId() == Group.EMPTY_GROUP_ID || group.getGroupUsers().contains(user.getUserId())) {
+            return null;
+        }
+
+        long needs = group.getGroupSkillSet().getSkillMask();
+        long filled = needs & user.getUserSkillSet().getSkillMask();
+        if (filled == 0) {
+            return null;
+        }
+
+        int filledCount = Long.bitCount(filled);
+        double score = filledCount + (double) filledCount / Long.bitCount(needs);
+        return new GroupMatch(group.getGroupId(), group.getGroupName(), score, SkillRegistry.namesOf(filled));
+    }
+
+}
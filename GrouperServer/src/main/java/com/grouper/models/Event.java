@@ -5,14 +5,25 @@ import com.grouper.objectcache.UserObjectCache;
 import com.grouper.service.GrouperServiceApplication;
 
 import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 public class Event {
 
     public static final String EMPTY_EVENT_ID = "00000000";
     public static final String EVENT_DATE_FORMAT = "EEEE, d MMM yyyy, h:mm a zzzz";
+    // Immutable and thread-safe, unlike SimpleDateFormat, so one instance is shared
+    public static final DateTimeFormatter EVENT_DATE_FORMATTER = DateTimeFormatter.ofPattern(EVENT_DATE_FORMAT,
+        Locale.ENGLISH);
+    // EVENT_DATE_FORMAT after its day of week. java.time rejects a day of week that doesn't match the date, even when
+    // resolving leniently, where SimpleDateFormat ignored it, so stored dates are parsed without it.
+    private static final DateTimeFormatter EVENT_DATE_WITHOUT_DAY_FORMATTER = DateTimeFormatter.ofPattern(
+        EVENT_DATE_FORMAT.substring(EVENT_DATE_FORMAT.indexOf(", ") + 2), Locale.ENGLISH);
 
     public static final String DEFAULT_EVENT_NAME = "NO_EVENT_NAME";
     public static final Date DEFAULT_EVENT_DATE = Date.from(Instant.now());
@@ -22,19 +33,49 @@ public class Event {
     private final String eventId;
     private String eventName;
     private Date eventDate;
-    private String eventLocation; // TODO - change to GEO
+    private String eventLocation;
+    // Null for events created without coordinates, which are left out of /events/nearby
+    private Double eventLatitude;
+    private Double eventLongitude;
     private String eventDescription;
     private ArrayList<String> eventGroups;
     private ArrayList<String> eventUsers;
+    private final long eventVersion;
 
     private Event(EventBuilder builder) {
         this.eventId = builder.eventId;
         this.eventName = builder.eventName;
         this.eventDate = builder.eventDate;
         this.eventLocation = builder.eventLocation;
+        this.eventLatitude = builder.eventLatitude;
+        this.eventLongitude = builder.eventLongitude;
         this.eventDescription = builder.eventDescription;
         this.eventGroups = builder.eventGroups;
         this.eventUsers = builder.eventUsers;
+        this.eventVersion = builder.eventVersion;
+    }
+
+    /**
+     * Parse an event date sent by a client, or stored by an older version of the service: either epoch milliseconds
+     * or a string in EVENT_DATE_FORMAT. The day of week is skipped, so a date whose day of week is wrong, or missing,
+     * still parses; SimpleDateFormat ignored it too.
+     *
+     * @throws DateTimeParseException if it is neither
+     */
+    public static Date parseEventDate(String eventDate) {
+        if (!eventDate.isEmpty() && eventDate.chars().allMatch(Character::isDigit)) {
+            return new Date(Long.parseLong(eventDate));
+        }
+
+        int dayEnd = eventDate.indexOf(", ");
+        String withoutDay = dayEnd > 0 && eventDate.substring(0, dayEnd).chars().allMatch(Character::isLetter) ?
+            eventDate.substring(dayEnd + 2) : eventDate;
+        return Date.from(ZonedDateTime.parse(withoutDay, EVENT_DATE_WITHOUT_DAY_FORMATTER).toInstant());
+    }
+
+    public static boolean validCoordinates(Double latitude, Double longitude) {
+        return latitude != null && longitude != null && latitude >= -90 && latitude <= 90 && longitude >= -180 &&
+            longitude <= 180;
     }
 
     public static class EventBuilder {
@@ -42,10 +83,13 @@ public class Event {
         private final String eventId;
         private String eventName = DEFAULT_EVENT_NAME;
         private Date eventDate = DEFAULT_EVENT_DATE;
-        private String eventLocation = DEFAULT_EVENT_LOCATION; // TODO - change to GEO
+        private String eventLocation = DEFAULT_EVENT_LOCATION;
+        private Double eventLatitude;
+        private Double eventLongitude;
         private String eventDescription = DEFAULT_EVENT_DESCRIPTION;
         private ArrayList<String> eventGroups;
         private ArrayList<String> eventUsers;
+        private long eventVersion;
 
         public EventBuilder(String eventId) {
             this.eventId = eventId;
@@ -64,12 +108,19 @@ public class Event {
             return this;
         }
 
-        // TODO - change to GEO
         public EventBuilder withEventLocation(String eventLocation) {
             this.eventLocation = eventLocation;
             return this;
         }
 
+        // Coordinates are kept only as a valid pair; anything else leaves the event without coordinates
+        public EventBuilder withEventCoordinates(Double eventLatitude, Double eventLongitude) {
+            boolean valid = validCoordinates(eventLatitude, eventLongitude);
+            this.eventLatitude = valid ? eventLatitude : null;
+            this.eventLongitude = valid ? eventLongitude : null;
+            return this;
+        }
+
         public EventBuilder withEventDescription(String eventDescription) {
             this.eventDescription = eventDescription;
             return this;
@@ -97,6 +148,11 @@ public class Event {
             return this;
         }
 
+        public EventBuilder withEventVersion(long eventVersion) {
+            this.eventVersion = eventVersion;
+            return this;
+        }
+
         public Event build() {
             return new Event(this);
         }
@@ -122,16 +178,26 @@ public class Event {
         return this.eventDate;
     }
 
-    // TODO - change to GEO
     public void setEventLocation(String eventLocation) {
         this.eventLocation = eventLocation;
     }
 
-    // TODO - change to GEO
     public String getEventLocation() {
         return this.eventLocation;
     }
 
+    public Double getEventLatitude() {
+        return this.eventLatitude;
+    }
+
+    public Double getEventLongitude() {
+        return this.eventLongitude;
+    }
+
+    public boolean hasCoordinates() {
+        return this.eventLatitude != null && this.eventLongitude != null;
+    }
+
     public void setEventDescription(String eventDescription) {
         this.eventDescription = eventDescription;
     }
@@ -145,7 +211,9 @@ public class Event {
     }
 
     public void addGroup(String groupId) {
-        this.eventGroups.add(groupId);
+        if (!this.eventGroups.contains(groupId)) {
+            this.eventGroups.add(groupId);
+        }
     }
 
     public void removeGroup(String groupId) {
@@ -157,11 +225,18 @@ public class Event {
     }
 
     public void addUser(String userId) {
-        this.eventGroups.add(userId);
+        if (!this.eventUsers.contains(userId)) {
+            this.eventUsers.add(userId);
+        }
     }
 
     public void removeUser(String userId) {
-        this.eventGroups.remove(userId);
+        this.eventUsers.remove(userId);
+    }
+
+    // See User.getUserVersion
+    public long getEventVersion() {
+        return this.eventVersion;
     }
 
 }
@@ -0,0 +1,42 @@
+package com.grouper.models;
+
+import java.util.List;
+
+/**
+ * An event with its groups and the members of those groups, for building an event screen in one request. groups and
+ * members are empty when the request's depth left them out. Only the first groups of a large event are included;
+ * groupsTruncated says so, and the rest can be read with /getGroups.
+ */
+public class EventDetail {
+
+    private final Event event;
+    private final List<Group> groups;
+    private final List<UserSummary> members;
+    private final boolean groupsTruncated;
+
+    public EventDetail(Event event, List<Group> groups, List<UserSummary> members, boolean groupsTruncated) {
+        this.event = event;
+        this.groups = groups;
+        this.members = members;
+        this.groupsTruncated = groupsTruncated;
+    }
+
+    public Event getEvent() {
+        return this.event;
+    }
+
+    // In eventGroups order. Groups that no longer exist are left out.
+    public List<Group> getGroups() {
+        return this.groups;
+    }
+
+    // Every user in one of the groups, in order of first appearance
+    public List<UserSummary> getMembers() {
+        return this.members;
+    }
+
+    public boolean isGroupsTruncated() {
+        return this.groupsTruncated;
+    }
+
+}
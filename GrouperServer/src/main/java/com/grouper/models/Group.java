@@ -14,9 +14,9 @@ public class Group {
     public static final String DEFAULT_GROUP_TYPE = "NO_GROUP_TYPE";
     public static final String DEFAULT_GROUP_DESCRIPTION = "NO_GROUP_DESCRIPTION";
 
-    private static final String PROJECT_GROUP_TYPE = "PROJECT_GROUP_TYPE";
-    private static final String HACKATHON_GROUP_TYPE = "HACKATHON_GROUP_TYPE";
-    private static final String STARTUP_GROUP_TYPE = "STARTUP_GROUP_TYPE";
+    public static final String PROJECT_GROUP_TYPE = "PROJECT_GROUP_TYPE";
+    public static final String HACKATHON_GROUP_TYPE = "HACKATHON_GROUP_TYPE";
+    public static final String STARTUP_GROUP_TYPE = "STARTUP_GROUP_TYPE";
 
     private final String groupId;
     private String groupName;
@@ -26,6 +26,7 @@ public class Group {
     private final String groupOwner;
     private SkillSet groupSkillSet;
     private ArrayList<String> groupUsers;
+    private final long groupVersion;
 
     private Group(GroupBuilder builder) {
         this.groupId = builder.groupId;
@@ -36,6 +37,7 @@ public class Group {
         this.groupOwner = builder.groupOwner;
         this.groupSkillSet = builder.groupSkillSet;
         this.groupUsers = builder.groupUsers;
+        this.groupVersion = builder.groupVersion;
     }
 
     public static class GroupBuilder {
@@ -48,6 +50,7 @@ public class Group {
         private String groupOwner;
         private SkillSet groupSkillSet;
         private ArrayList<String> groupUsers;
+        private long groupVersion;
 
         public GroupBuilder(String groupId) {
             this.groupId = groupId;
@@ -90,11 +93,19 @@ public class Group {
 
         public GroupBuilder withGroupUsers(List<String> stringList) {
             for (String userId : stringList) {
-                this.groupUsers.add(userId);
+                // The owner is already in groupUsers if withGroupOwner came first
+                if (!this.groupUsers.contains(userId)) {
+                    this.groupUsers.add(userId);
+                }
             }
             return this;
         }
 
+        public GroupBuilder withGroupVersion(long groupVersion) {
+            this.groupVersion = groupVersion;
+            return this;
+        }
+
         public Group build() {
             return new Group(this);
         }
@@ -149,7 +160,9 @@ public class Group {
     }
 
     public void addUser(String userId) {
-        this.groupUsers.add(userId);
+        if (!this.groupUsers.contains(userId)) {
+            this.groupUsers.add(userId);
+        }
     }
 
     public void removeUser(String userId) {
@@ -160,4 +173,9 @@ public class Group {
         return this.groupUsers;
     }
 
+    // See User.getUserVersion
+    public long getGroupVersion() {
+        return this.groupVersion;
+    }
+
 }
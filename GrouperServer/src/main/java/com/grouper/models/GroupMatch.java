@@ -0,0 +1,35 @@
+package com.grouper.models;
+
+import java.util.List;
+
+public class GroupMatch {
+
+    private final String groupId;
+    private final String groupName;
+    private final double score;
+    private final List<String> filledSkills;
+
+    public GroupMatch(String groupId, String groupName, double score, List<String> filledSkills) {
+        this.groupId = groupId;
+        this.groupName = groupName;
+        this.score = score;
+        this.filledSkills = filledSkills;
+    }
+
+    public String getGroupId() {
+        return this.groupId;
+    }
+
+    public String getGroupName() {
+        return this.groupName;
+    }
+
+    public double getScore() {
+        return this.score;
+    }
+
+    public List<String> getFilledSkills() {
+        return this.filledSkills;
+    }
+
+}
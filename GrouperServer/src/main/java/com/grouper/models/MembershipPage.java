@@ -0,0 +1,27 @@
+package com.grouper.models;
+
+import java.util.List;
+
+/**
+ * One page of an event roster or group member list. Pass cursor back to get the next page; it is null on the last
+ * page.
+ */
+public class MembershipPage {
+
+    private final List<String> members;
+    private final String cursor;
+
+    public MembershipPage(List<String> members, String cursor) {
+        this.members = members;
+        this.cursor = cursor;
+    }
+
+    public List<String> getMembers() {
+        return this.members;
+    }
+
+    public String getCursor() {
+        return this.cursor;
+    }
+
+}
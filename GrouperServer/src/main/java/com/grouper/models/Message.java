@@ -1,6 +1,5 @@
 package com.grouper.models;
 
-import java.sql.Date;
 import java.time.Instant;
 
 public class Message {
@@ -14,6 +13,11 @@ public class Message {
     public static final String DEFAULT_SUCCESS_DESC = "Operation succeeded.";
     public static final String DEFAULT_FAILURE_DESC = "Operation failed.";
     public static final String FALLBACK_PATH_DESC = "Endpoint not found.";
+    public static final String BATCH_LIMIT_DESC = "Too many ids requested at once.";
+    public static final String INVALID_CURSOR_DESC = "Cursor is invalid, or belongs to a different list.";
+    public static final String UNKNOWN_SKILL_DESC = "Unknown skill names. Only registered skills can be set.";
+    public static final String INVALID_LIMIT_DESC = "Limit must be at least 1. Larger limits are capped at 100.";
+    public static final String INVALID_COORDINATES_DESC = "Latitude must be -90 to 90, and longitude -180 to 180.";
 
     // Amazon Debugging Strings
     public static final String AWS_GET_SUCCESS = "AWS: GET request succeeded.";
@@ -29,6 +33,8 @@ public class Message {
     public static final String AWS_UPDATE_FAILURE = "ASE: UPDATE request failed. Desired entry may not exist, or the " +
         "provided AttributeValue may be improperly formatted.";
     public static final String AWS_DELETE_FAILURE = "ASE: DELETE request failed. Desired entry may not exist.";
+    public static final String UPDATE_CONFLICT_DESC = "UPDATE conflicts with a newer change to the same fields. Read " +
+        "the entry again and retry.";
 
     private static final String DEFAULT_EMPTY_FIELD = "EMPTY";
     private static final String DEFAULT_EMPTY_VALUE = null;
@@ -105,20 +111,20 @@ public class Message {
 
     @Override
     public String toString() {
-        String message = new String();
-        message += ":----------:\n";
+        StringBuilder message = new StringBuilder(256)
+            .append(":----------:\n");
         if (this.status == DEFAULT_FAILURE_STATUS) {
-            message += "ERROR:\n";
+            message.append("ERROR:\n");
         } else if (this.status == DEFAULT_SUCCESS_STATUS) {
-            message += "DEBUG:\n";
+            message.append("DEBUG:\n");
         }
-        message += " TIME: " + Date.from(Instant.now()).toString() + "\n";
-        message += " STATUS: " + this.status.toString() + "\n";
-        message += " Description: " + this.description + "\n";
-        message += " Field: " + this.field + "\n";
-        message += " Value: " + this.value.toString();
+        message.append(" TIME: ").append(Instant.now()).append('\n')
+            .append(" STATUS: ").append(this.status).append('\n')
+            .append(" Description: ").append(this.description).append('\n')
+            .append(" Field: ").append(this.field).append('\n')
+            .append(" Value: ").append(this.value);
 
-        return message;
+        return message.toString();
     }
 
 }
@@ -0,0 +1,34 @@
+package com.grouper.models;
+
+public class SearchHit {
+
+    private final String kind;
+    private final String id;
+    private final String name;
+    private final double score;
+
+    public SearchHit(String kind, String id, String name, double score) {
+        this.kind = kind;
+        this.id = id;
+        this.name = name;
+        this.score = score;
+    }
+
+    // group or event
+    public String getKind() {
+        return this.kind;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public double getScore() {
+        return this.score;
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.grouper.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of every skill Grouper knows about. Each skill name is given a fixed ordinal, which is its bit in a
+ * SkillSet mask.
+ *
+ * Ordinals are persisted inside those masks, so they must be identical on every server node and must never change:
+ * new skills are only ever appended to the end of SKILL_NAMES, and skills are never removed or reordered. A mask is
+ * a long, so at most 64 skills can be registered.
+ */
+public final class SkillRegistry {
+
+    public static final int MAXIMUM_SKILLS = Long.SIZE;
+
+    // Append only. The position of a name in this list is its ordinal.
+    private static final String[] SKILL_NAMES = {
+        SkillSet.JAVA_SKILL_NAME,
+        SkillSet.C_SKILL_NAME,
+        SkillSet.CPP_SKILL_NAME,
+        SkillSet.OBJC_SKILL_NAME,
+        SkillSet.SWIFT_SKILL_NAME,
+        SkillSet.PYTHON_SKILL_NAME,
+        SkillSet.HTML_SKILL_NAME,
+        SkillSet.JAVASCRIPT_SKILL_NAME
+    };
+
+    private static final Map<String, Integer> ORDINALS;
+    private static final List<String> NAMES;
+
+    static {
+        if (SKILL_NAMES.length > MAXIMUM_SKILLS) {
+            throw new IllegalStateException("SkillRegistry supports at most " + MAXIMUM_SKILLS + " skills.");
+        }
+
+        HashMap<String, Integer> ordinals = new HashMap<>();
+        ArrayList<String> names = new ArrayList<>();
+        for (int ordinal = 0; ordinal < SKILL_NAMES.length; ordinal++) {
+            String name = SKILL_NAMES[ordinal].intern();
+            ordinals.put(name, ordinal);
+            names.add(name);
+        }
+
+        ORDINALS = Collections.unmodifiableMap(ordinals);
+        NAMES = Collections.unmodifiableList(names);
+    }
+
+    private SkillRegistry() {
+    }
+
+    /**
+     * @param skillName string skill name
+     * @return the skill's ordinal, or -1 if the skill is not registered
+     */
+    public static int ordinal(String skillName) {
+        Integer ordinal = ORDINALS.get(skillName);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * @param skillName string skill name
+     * @return the skill's bit in a SkillSet mask, or 0 if the skill is not registered
+     */
+    public static long bit(String skillName) {
+        int ordinal = ordinal(skillName);
+        return ordinal < 0 ? 0L : 1L << ordinal;
+    }
+
+    /**
+     * @param skills skill name -&gt; Boolean, as sent by a client
+     * @return the names in skills that are not registered, empty if there are none
+     */
+    public static List<String> unknownNames(Map<String, Boolean> skills) {
+        ArrayList<String> unknownNames = new ArrayList<>();
+        if (skills != null) {
+            for (String skillName : skills.keySet()) {
+                if (ordinal(skillName) < 0) {
+                    unknownNames.add(skillName);
+                }
+            }
+        }
+        return unknownNames;
+    }
+
+    public static String name(int ordinal) {
+        return NAMES.get(ordinal);
+    }
+
+    public static int size() {
+        return NAMES.size();
+    }
+
+    public static List<String> names() {
+        return NAMES;
+    }
+
+    /**
+     * @param mask  skill mask
+     * @return names of the skills set in the mask, in ordinal order
+     */
+    public static List<String> namesOf(long mask) {
+        ArrayList<String> names = new ArrayList<>(Long.bitCount(mask));
+        long remaining = mask;
+        while (remaining != 0) {
+            int ordinal = Long.numberOfTrailingZeros(remaining);
+            if (ordinal < NAMES.size()) {
+                names.add(NAMES.get(ordinal));
+            }
+            remaining &= remaining - 1;
+        }
+        return names;
+    }
+
+}
@@ -1,12 +1,19 @@
 package com.grouper.models;
 
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.util.HashMap;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
+/**
+ * Set of skills, stored as a bitmask over the ordinals in SkillRegistry.
+ *
+ * The JSON API still sees a Map(String: Boolean) of every registered skill through getSkills(). In DynamoDB a
+ * SkillSet is a single number attribute holding the mask; items written before the mask was introduced hold a
+ * Map(String: Boolean) instead, and are still read by fromAttributeValue().
+ */
 public class SkillSet {
 
     public static final String JAVA_SKILL_NAME = "Java";
@@ -19,58 +26,101 @@ public class SkillSet {
     public static final String JAVASCRIPT_SKILL_NAME = "Javascript";
     public static final String NESTED_SKILLS_KEY = "skills";
 
-    private HashMap<String, Boolean> skills;
+    private long skillMask;
 
     public SkillSet() {
-        HashMap<String, Boolean> skills = new HashMap<>();
-        this.skills = skills;
-
-        // TODO - add more skills
-        setAllSkillsFalse();
+        this.skillMask = 0L;
     }
 
-    public SkillSet(HashMap<String, Boolean> skills) {
-        this.skills = skills;
+    public SkillSet(long skillMask) {
+        this.skillMask = skillMask;
     }
 
-    private void setAllSkillsFalse() {
-        ArrayList<String> skillNames = new ArrayList<>();
-        skillNames.add(JAVA_SKILL_NAME);
-        skillNames.add(C_SKILL_NAME);
-        skillNames.add(CPP_SKILL_NAME);
-        skillNames.add(OBJC_SKILL_NAME);
-        skillNames.add(SWIFT_SKILL_NAME);
-        skillNames.add(PYTHON_SKILL_NAME);
-        skillNames.add(HTML_SKILL_NAME);
-        skillNames.add(JAVASCRIPT_SKILL_NAME);
-
-        for (String name : skillNames) {
-            this.skills.put(name, Boolean.FALSE);
+    // Names that aren't registered have no bit and are left out. Endpoints reject them first, see
+    // SkillRegistry.unknownNames.
+    public SkillSet(Map<String, Boolean> skills) {
+        long skillMask = 0L;
+
+        if (skills != null) {
+            for (Map.Entry<String, Boolean> entry : skills.entrySet()) {
+                if (Boolean.TRUE.equals(entry.getValue())) {
+                    skillMask |= SkillRegistry.bit(entry.getKey());
+                }
+            }
         }
+
+        this.skillMask = skillMask;
     }
 
     public void addSkill(String skillName) {
-        this.skills.replace(skillName, Boolean.TRUE);
+        this.skillMask |= SkillRegistry.bit(skillName);
     }
 
     public void removeSkill(String skillName) {
-        this.skills.replace(skillName, Boolean.FALSE);
+        this.skillMask &= ~SkillRegistry.bit(skillName);
+    }
+
+    public boolean hasSkill(String skillName) {
+        return (this.skillMask & SkillRegistry.bit(skillName)) != 0;
+    }
+
+    @JsonIgnore
+    public long getSkillMask() {
+        return this.skillMask;
+    }
+
+    /**
+     * @return number of skills in this set
+     */
+    public int count() {
+        return Long.bitCount(this.skillMask);
+    }
+
+    /**
+     * @param other SkillSet to compare against
+     * @return number of skills present in both sets
+     */
+    public int overlap(SkillSet other) {
+        return Long.bitCount(this.skillMask & other.skillMask);
+    }
+
+    /**
+     * @param other SkillSet to compare against
+     * @return true if every skill in other is also in this set
+     */
+    public boolean covers(SkillSet other) {
+        return (other.skillMask & ~this.skillMask) == 0;
+    }
+
+    public List<String> skillNames() {
+        return SkillRegistry.namesOf(this.skillMask);
     }
 
     public HashMap<String, Boolean> getSkills() {
+        HashMap<String, Boolean> skills = new HashMap<>();
+
+        for (int ordinal = 0; ordinal < SkillRegistry.size(); ordinal++) {
+            skills.put(SkillRegistry.name(ordinal), (this.skillMask & (1L << ordinal)) != 0);
+        }
+
         return skills;
     }
 
-    public Map<String, AttributeValue> toAttributeValue() {
-        HashMap<String, AttributeValue> attributeValueMap = new HashMap<>();
+    public AttributeValue toAttributeValue() {
+        return new AttributeValue()
+            .withN(Long.toString(this.skillMask));
+    }
 
-        Set<String> keySet = this.skills.keySet();
-        for (String key : keySet) {
-            attributeValueMap.put(key, new AttributeValue()
-                .withBOOL(skills.get(key)));
+    public static SkillSet fromAttributeValue(AttributeValue attributeValue) {
+        if (attributeValue == null) {
+            return new SkillSet();
+        } else if (attributeValue.getN() != null) {
+            return new SkillSet(Long.parseLong(attributeValue.getN()));
+        } else if (attributeValue.getM() != null) {
+            return new SkillSet(extractSkillSet(attributeValue.getM()));
         }
 
-        return attributeValueMap;
+        return new SkillSet();
     }
 
     public static HashMap<String, Boolean> extractSkillSet(Map<String, AttributeValue> attributeValueMap) {
@@ -21,6 +21,7 @@ public class User {
     private String userOccupation;
     private SkillSet userSkillSet;
     private HashMap<String, String> userEventMap;
+    private final long userVersion;
 
     private User(UserBuilder builder) {
         this.userId = builder.userId;
@@ -28,6 +29,7 @@ public class User {
         this.userOccupation = builder.userOccupation;
         this.userSkillSet = builder.userSkillSet;
         this.userEventMap = builder.userEventMap;
+        this.userVersion = builder.userVersion;
     }
 
     public static class UserBuilder {
@@ -37,6 +39,7 @@ public class User {
         private String userOccupation = DEFAULT_USER_OCCUPATION;
         private SkillSet userSkillSet;
         private HashMap<String, String> userEventMap;
+        private long userVersion;
 
         public UserBuilder(String userId) {
             this.userId = userId;
@@ -69,6 +72,11 @@ public class User {
             return this;
         }
 
+        public UserBuilder withUserVersion(long userVersion) {
+            this.userVersion = userVersion;
+            return this;
+        }
+
         public User build() {
             return new User(this);
         }
@@ -107,7 +115,7 @@ public class User {
     }
 
     public void addEvent(String eventId) {
-        this.userEventMap.put(eventId, Group.EMPTY_GROUP_ID);
+        this.userEventMap.putIfAbsent(eventId, Group.EMPTY_GROUP_ID);
     }
 
     public void removeEvent(String eventId) {
@@ -119,8 +127,8 @@ public class User {
     }
 
     public void removeGroup(String groupId, String eventId) {
-        if (this.userEventMap.get(eventId) == groupId) {
-            this.userEventMap.replace(eventId, null);
+        if (groupId.equals(this.userEventMap.get(eventId))) {
+            this.userEventMap.replace(eventId, Group.EMPTY_GROUP_ID);
         }
     }
 
@@ -128,6 +136,13 @@ public class User {
         return this.userEventMap;
     }
 
+    /**
+     * Incremented on every write, and checked on field updates so concurrent writers don't overwrite each other.
+     */
+    public long getUserVersion() {
+        return this.userVersion;
+    }
+
     public Map<String, AttributeValue> eventMapToAttributeValue() {
         HashMap<String, AttributeValue> attributeValueMap = new HashMap<>();
 
@@ -0,0 +1,38 @@
+package com.grouper.models;
+
+import java.util.List;
+
+/**
+ * The part of a user shown next to a group: no event membership.
+ */
+public class UserSummary {
+
+    private final String userId;
+    private final String userName;
+    private final String userOccupation;
+    private final List<String> userSkills;
+
+    public UserSummary(User user) {
+        this.userId = user.getUserId();
+        this.userName = user.getUserName();
+        this.userOccupation = user.getUserOccupation();
+        this.userSkills = user.getUserSkillSet().skillNames();
+    }
+
+    public String getUserId() {
+        return this.userId;
+    }
+
+    public String getUserName() {
+        return this.userName;
+    }
+
+    public String getUserOccupation() {
+        return this.userOccupation;
+    }
+
+    public List<String> getUserSkills() {
+        return this.userSkills;
+    }
+
+}
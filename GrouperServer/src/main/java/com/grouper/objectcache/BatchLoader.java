@@ -0,0 +1,176 @@
+package com.grouper.objectcache;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.grouper.storage.ObjectStore;
+import com.grouper.storage.Storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the single-item reads of one object cache. A read with nothing else in flight is sent at once. A read
+ * arriving while earlier ones are in flight joins the open batch, which is sent when the reads in flight have all
+ * finished, when it has been open for the window, or when it holds maximumBatchSize ids, whichever comes first.
+ * Concurrent misses, from parallel requests, cascade tasks and background refreshes, then share one BatchGetItem
+ * instead of a GetItem each, and reads of the same id in one batch share its result. A batch of one is sent as a
+ * plain async get.
+ *
+ * A lone miss therefore costs no more than a plain get, and a read only waits while the store is busy anyway. A
+ * batch is only sent after every read in it was asked for, so a read never returns an item older than the call. A
+ * failed batch fails every read in it.
+ */
+final class BatchLoader {
+
+    private final ObjectStore store;
+    private final long windowMicros;
+    private final int maximumBatchSize;
+    private final ScheduledExecutorService timer;
+    private final Executor batchExecutor;
+    private final CacheMetrics metrics;
+
+    // id -> future of its item, for the batch still collecting reads. Guarded by this.
+    private Map<String, CompletableFuture<Map<String, AttributeValue>>> openBatch;
+    // Batches sent and not finished yet. Guarded by this.
+    private int inFlight;
+
+    /**
+     * @param windowMicros     how long a batch collects reads; 0 sends every read on its own
+     * @param maximumBatchSize ids at which a batch is sent without waiting for the window
+     * @param timer            closes batches at the end of their window
+     * @param batchExecutor    runs the blocking batchGet calls. Completing a read runs its callbacks on the same
+     *                         thread, so they should compose futures rather than wait on another read.
+     */
+    BatchLoader(ObjectStore store, long windowMicros, int maximumBatchSize, ScheduledExecutorService timer,
+                Executor batchExecutor, CacheMetrics metrics) {
+        this.store = store;
+        this.windowMicros = windowMicros;
+        this.maximumBatchSize = maximumBatchSize;
+        this.timer = timer;
+        this.batchExecutor = batchExecutor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the item with this id, or null if there is none
+     * @throws com.amazonaws.AmazonServiceException if the read fails
+     */
+    Map<String, AttributeValue> load(String id) {
+        if (this.windowMicros <= 0) {
+            return this.store.get(id);
+        }
+
+        try {
+            return loadAsync(id).join();
+        } catch (CompletionException ce) {
+            Throwable cause = Storage.cause(ce);
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : ce;
+        }
+    }
+
+    /**
+     * @return a future of the item with this id, or of null if there is none
+     */
+    CompletableFuture<Map<String, AttributeValue>> loadAsync(String id) {
+        if (this.windowMicros <= 0) {
+            return this.store.getAsync(id);
+        }
+
+        CompletableFuture<Map<String, AttributeValue>> future;
+        Map<String, CompletableFuture<Map<String, AttributeValue>>> readyBatch = null;
+        synchronized (this) {
+            if (this.openBatch == null) {
+                Map<String, CompletableFuture<Map<String, AttributeValue>>> batch = new HashMap<>();
+                this.openBatch = batch;
+                // With nothing in flight there is nothing to wait for, and the read goes out below
+                if (this.inFlight > 0) {
+                    this.timer.schedule(() -> close(batch), this.windowMicros, TimeUnit.MICROSECONDS);
+                }
+            }
+
+            future = this.openBatch.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (this.inFlight == 0 || this.openBatch.size() >= this.maximumBatchSize) {
+                readyBatch = takeOpenBatch();
+            }
+        }
+
+        if (readyBatch != null) {
+            send(readyBatch);
+        }
+        return future;
+    }
+
+    // End of the window. The batch may have been sent already because it filled up or the store went idle.
+    private void close(Map<String, CompletableFuture<Map<String, AttributeValue>>> batch) {
+        synchronized (this) {
+            if (this.openBatch != batch) {
+                return;
+            }
+            takeOpenBatch();
+        }
+
+        send(batch);
+    }
+
+    // A batch finished. If it was the last one in flight, waiting any longer only delays the open batch.
+    private void finished() {
+        Map<String, CompletableFuture<Map<String, AttributeValue>>> readyBatch = null;
+        synchronized (this) {
+            this.inFlight--;
+            if (this.inFlight == 0 && this.openBatch != null) {
+                readyBatch = takeOpenBatch();
+            }
+        }
+
+        if (readyBatch != null) {
+            send(readyBatch);
+        }
+    }
+
+    // Caller holds this
+    private Map<String, CompletableFuture<Map<String, AttributeValue>>> takeOpenBatch() {
+        Map<String, CompletableFuture<Map<String, AttributeValue>>> batch = this.openBatch;
+        this.openBatch = null;
+        this.inFlight++;
+        return batch;
+    }
+
+    // Reads complete before the batch counts as finished, so reads their callbacks start join the next batch
+    private void send(Map<String, CompletableFuture<Map<String, AttributeValue>>> batch) {
+        this.metrics.recordBatch(batch.size());
+
+        if (batch.size() == 1) {
+            Map.Entry<String, CompletableFuture<Map<String, AttributeValue>>> read = batch.entrySet().iterator().next();
+            this.store.getAsync(read.getKey())
+                .whenComplete((item, throwable) -> {
+                    if (throwable != null) {
+                        read.getValue().completeExceptionally(Storage.cause(throwable));
+                    } else {
+                        read.getValue().complete(item);
+                    }
+                    finished();
+                });
+            return;
+        }
+
+        this.batchExecutor.execute(() -> {
+            try {
+                Map<String, Map<String, AttributeValue>> items = this.store.batchGet(batch.keySet());
+                for (Map.Entry<String, CompletableFuture<Map<String, AttributeValue>>> read : batch.entrySet()) {
+                    read.getValue().complete(items.get(read.getKey()));
+                }
+            } catch (RuntimeException re) {
+                for (CompletableFuture<Map<String, AttributeValue>> future : batch.values()) {
+                    future.completeExceptionally(re);
+                }
+            } finally {
+                finished();
+            }
+        });
+    }
+
+}
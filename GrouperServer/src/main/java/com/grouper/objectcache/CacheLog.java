@@ -0,0 +1,76 @@
+package com.grouper.objectcache;
+
+import com.grouper.models.Message;
+import com.grouper.service.GrouperConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Result logging for one object cache, in place of printing a Message to stdout for every call.
+ *
+ * Lines are key=value pairs (cache=user status=200 userId=... description="..."), formatted by SLF4J only once a
+ * line is actually going to be written, and written through the async appender in logback-spring.xml. Failures are
+ * always logged, at WARN. Successes are sampled per level: with the logger at DEBUG, 1 in
+ * grouper.log.cache.debugSampleRate successes is logged at DEBUG; otherwise 1 in grouper.log.cache.infoSampleRate is
+ * logged at INFO. A rate of 0 turns success logging off at that level.
+ *
+ * Loggers are named com.grouper.objectcache.&lt;cache&gt;, so a single cache can be turned up with
+ * logging.level.com.grouper.objectcache.user=DEBUG.
+ */
+final class CacheLog {
+
+    private static final String LOG_PROPERTY_PREFIX = "grouper.log.cache.";
+
+    private static final int DEFAULT_INFO_SAMPLE_RATE = 100;
+    private static final int DEFAULT_DEBUG_SAMPLE_RATE = 1;
+
+    private static final String RESULT_FORMAT = "cache={} status={} {}={} description=\"{}\"";
+    private static final String FAILURE_FORMAT = "cache={} failure=\"{}\"";
+
+    private final String cacheName;
+    private final Logger logger;
+    private final int infoSampleRate;
+    private final int debugSampleRate;
+
+    /**
+     * @param cacheName cache name in settings (user, group, event)
+     */
+    CacheLog(String cacheName) {
+        this.cacheName = cacheName;
+        this.logger = LoggerFactory.getLogger(CacheLog.class.getPackage().getName() + "." + cacheName);
+        this.infoSampleRate = GrouperConfig.getInt(LOG_PROPERTY_PREFIX + "infoSampleRate", DEFAULT_INFO_SAMPLE_RATE);
+        this.debugSampleRate = GrouperConfig.getInt(LOG_PROPERTY_PREFIX + "debugSampleRate",
+            DEFAULT_DEBUG_SAMPLE_RATE);
+    }
+
+    /**
+     * Log the result of a cache operation. value is only turned into a string if the line is written, so pass ids
+     * rather than whole objects.
+     */
+    void result(int status, String description, String field, Object value) {
+        if (status != Message.DEFAULT_SUCCESS_STATUS) {
+            this.logger.warn(RESULT_FORMAT, this.cacheName, status, field, value, description);
+        } else if (this.logger.isDebugEnabled()) {
+            if (sampled(this.debugSampleRate)) {
+                this.logger.debug(RESULT_FORMAT, this.cacheName, status, field, value, description);
+            }
+        } else if (this.logger.isInfoEnabled() && sampled(this.infoSampleRate)) {
+            this.logger.info(RESULT_FORMAT, this.cacheName, status, field, value, description);
+        }
+    }
+
+    /**
+     * Log a failed DynamoDB call, with its stack trace.
+     */
+    void failure(String action, Throwable throwable) {
+        this.logger.warn(FAILURE_FORMAT, this.cacheName, action, throwable);
+    }
+
+    // Independent per call, so concurrent requests don't contend on a shared counter
+    private static boolean sampled(int rate) {
+        return rate > 0 && (rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0);
+    }
+
+}
@@ -0,0 +1,291 @@
+package com.grouper.objectcache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation for one object cache: Guava's hit/miss/load counters, load latency histograms, removals by cause,
+ * current size and weight. Every cache registers itself by name, and {@link #scrape()} renders all of them in the
+ * Prometheus text format for the /metrics endpoint.
+ */
+public final class CacheMetrics implements RemovalListener<Object, Object> {
+
+    private static final String LOAD_OPERATION = "load";
+    private static final String LOAD_ALL_OPERATION = "loadAll";
+    private static final String RELOAD_OPERATION = "reload";
+
+    // Upper bounds of the load latency buckets, in seconds
+    private static final double[] LATENCY_BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0,
+        2.5, 5.0};
+
+    private static final ConcurrentMap<String, CacheMetrics> registry = new ConcurrentHashMap<>();
+
+    private final String cacheName;
+    private final long maximumWeight;
+    private final Map<RemovalCause, LongAdder> removals = new EnumMap<>(RemovalCause.class);
+    private final Map<String, LatencyHistogram> loadLatencies = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedReads = new LongAdder();
+
+    private volatile Cache<?, ?> cache;
+    private volatile Cache<?, ?> missingIds;
+    private volatile WeightScanner weightScanner;
+
+    private CacheMetrics(String cacheName, long maximumWeight) {
+        this.cacheName = cacheName;
+        this.maximumWeight = maximumWeight;
+
+        for (RemovalCause cause : RemovalCause.values()) {
+            this.removals.put(cause, new LongAdder());
+        }
+        for (String operation : new String[]{LOAD_OPERATION, LOAD_ALL_OPERATION, RELOAD_OPERATION}) {
+            this.loadLatencies.put(operation, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Create the metrics for a cache and register them for scraping. Replaces any earlier metrics with the same name.
+     *
+     * @param cacheName     cache name in settings (user, group, event)
+     * @param maximumWeight the cache's byte budget, reported so it can be compared with the live weight
+     */
+    static CacheMetrics register(String cacheName, long maximumWeight) {
+        CacheMetrics metrics = new CacheMetrics(cacheName, maximumWeight);
+        registry.put(cacheName, metrics);
+        return metrics;
+    }
+
+    /**
+     * Attach the built caches, so their stats and sizes can be read. The object cache must be built with
+     * recordStats().
+     *
+     * @param weigher the object cache's weigher. Guava doesn't expose the total weight, so it is summed over the
+     *                cached entries on each scrape.
+     */
+    <K, V> void attach(Cache<K, V> cache, Cache<?, ?> missingIds, Weigher<? super K, ? super V> weigher) {
+        this.cache = cache;
+        this.missingIds = missingIds;
+        this.weightScanner = () -> {
+            long weight = 0;
+            for (Map.Entry<K, V> entry : cache.asMap().entrySet()) {
+                weight += weigher.weigh(entry.getKey(), entry.getValue());
+            }
+            return weight;
+        };
+    }
+
+    /**
+     * Count one batch of single-item reads sent by the cache's {@link BatchLoader}.
+     *
+     * @param reads distinct ids in the batch
+     */
+    void recordBatch(int reads) {
+        this.batches.increment();
+        this.batchedReads.add(reads);
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Object, Object> notification) {
+        this.removals.get(notification.getCause()).increment();
+    }
+
+    /**
+     * Wrap a loader so every load, loadAll and reload is timed. A reload is timed until its future completes.
+     */
+    <K, V> CacheLoader<K, V> instrument(CacheLoader<K, V> loader) {
+        return new CacheLoader<K, V>() {
+            @Override
+            public V load(K key) throws Exception {
+                long start = System.nanoTime();
+                try {
+                    return loader.load(key);
+                } finally {
+                    loadLatencies.get(LOAD_OPERATION).record(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public Map<K, V> loadAll(Iterable<? extends K> keys) throws Exception {
+                long start = System.nanoTime();
+                try {
+                    return loader.loadAll(keys);
+                } finally {
+                    loadLatencies.get(LOAD_ALL_OPERATION).record(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public ListenableFuture<V> reload(K key, V oldValue) throws Exception {
+                long start = System.nanoTime();
+                ListenableFuture<V> future = loader.reload(key, oldValue);
+                Futures.addCallback(future, new FutureCallback<V>() {
+                    @Override
+                    public void onSuccess(V value) {
+                        loadLatencies.get(RELOAD_OPERATION).record(System.nanoTime() - start);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        loadLatencies.get(RELOAD_OPERATION).record(System.nanoTime() - start);
+                    }
+                }, MoreExecutors.directExecutor());
+                return future;
+            }
+        };
+    }
+
+    /**
+     * Render every registered cache's metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder();
+
+        header(out, "grouper_cache_hits_total", "counter", "Cache lookups that found a value.");
+        for (CacheMetrics metrics : registry.values()) {
+            sample(out, "grouper_cache_hits_total", metrics.labels(), metrics.stats().hitCount());
+        }
+
+        header(out, "grouper_cache_misses_total", "counter", "Cache lookups that had to load a value.");
+        for (CacheMetrics metrics : registry.values()) {
+            sample(out, "grouper_cache_misses_total", metrics.labels(), metrics.stats().missCount());
+        }
+
+        header(out, "grouper_cache_loads_total", "counter",
+            "Loads and reloads by result. Ids with no item count as failures.");
+        for (CacheMetrics metrics : registry.values()) {
+            CacheStats stats = metrics.stats();
+            sample(out, "grouper_cache_loads_total", metrics.labels() + ",result=\"success\"",
+                stats.loadSuccessCount());
+            sample(out, "grouper_cache_loads_total", metrics.labels() + ",result=\"failure\"",
+                stats.loadExceptionCount());
+        }
+
+        header(out, "grouper_cache_removals_total", "counter",
+            "Entries removed, by cause. SIZE and EXPIRED are evictions.");
+        for (CacheMetrics metrics : registry.values()) {
+            for (Map.Entry<RemovalCause, LongAdder> entry : metrics.removals.entrySet()) {
+                sample(out, "grouper_cache_removals_total", metrics.labels() + ",cause=\"" + entry.getKey() + "\"",
+                    entry.getValue().sum());
+            }
+        }
+
+        header(out, "grouper_cache_size", "gauge", "Entries currently cached.");
+        for (CacheMetrics metrics : registry.values()) {
+            sample(out, "grouper_cache_size", metrics.labels(), metrics.cache == null ? 0 : metrics.cache.size());
+        }
+
+        header(out, "grouper_cache_weight_bytes", "gauge", "Approximate heap used by cached entries.");
+        for (CacheMetrics metrics : registry.values()) {
+            sample(out, "grouper_cache_weight_bytes", metrics.labels(),
+                metrics.weightScanner == null ? 0 : metrics.weightScanner.scan());
+        }
+
+        header(out, "grouper_cache_maximum_weight_bytes", "gauge", "Configured byte budget.");
+        for (CacheMetrics metrics : registry.values()) {
+            sample(out, "grouper_cache_maximum_weight_bytes", metrics.labels(), metrics.maximumWeight);
+        }
+
+        header(out, "grouper_cache_missing_ids", "gauge", "Ids currently remembered as having no item.");
+        for (CacheMetrics metrics : registry.values()) {
+            sample(out, "grouper_cache_missing_ids", metrics.labels(),
+                metrics.missingIds == null ? 0 : metrics.missingIds.size());
+        }
+
+        header(out, "grouper_cache_read_batches_total", "counter",
+            "Batches of single-item reads sent to the store. Fewer batches than reads means reads were shared.");
+        for (CacheMetrics metrics : registry.values()) {
+            sample(out, "grouper_cache_read_batches_total", metrics.labels(), metrics.batches.sum());
+        }
+
+        header(out, "grouper_cache_batched_reads_total", "counter", "Distinct ids read through read batches.");
+        for (CacheMetrics metrics : registry.values()) {
+            sample(out, "grouper_cache_batched_reads_total", metrics.labels(), metrics.batchedReads.sum());
+        }
+
+        header(out, "grouper_cache_load_duration_seconds", "histogram", "Time spent loading from DynamoDB.");
+        for (CacheMetrics metrics : registry.values()) {
+            for (Map.Entry<String, LatencyHistogram> entry : metrics.loadLatencies.entrySet()) {
+                entry.getValue().write(out, "grouper_cache_load_duration_seconds",
+                    metrics.labels() + ",operation=\"" + entry.getKey() + "\"");
+            }
+        }
+
+        return out.toString();
+    }
+
+    private String labels() {
+        return "cache=\"" + this.cacheName + "\"";
+    }
+
+    private CacheStats stats() {
+        return this.cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : this.cache.stats();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private interface WeightScanner {
+        long scan();
+    }
+
+    /**
+     * Fixed-bucket latency histogram. Buckets are counted individually and made cumulative when rendered.
+     */
+    private static final class LatencyHistogram {
+
+        // One slot per bucket, plus +Inf
+        private final AtomicLongArray counts = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+        private final LongAdder sumNanos = new LongAdder();
+
+        void record(long nanos) {
+            double seconds = nanos / 1e9;
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS.length && seconds > LATENCY_BUCKETS[bucket]) {
+                bucket++;
+            }
+
+            this.counts.incrementAndGet(bucket);
+            this.sumNanos.add(nanos);
+        }
+
+        void write(StringBuilder out, String name, String labels) {
+            long cumulative = 0;
+            for (int bucket = 0; bucket < LATENCY_BUCKETS.length; bucket++) {
+                cumulative += this.counts.get(bucket);
+                sample(out, name + "_bucket", labels + ",le=\"" + LATENCY_BUCKETS[bucket] + "\"", cumulative);
+            }
+            cumulative += this.counts.get(LATENCY_BUCKETS.length);
+
+            sample(out, name + "_bucket", labels + ",le=\"+Inf\"", cumulative);
+            sample(out, name + "_sum", labels, this.sumNanos.sum() / 1e9);
+            sample(out, name + "_count", labels, cumulative);
+        }
+    }
+
+}
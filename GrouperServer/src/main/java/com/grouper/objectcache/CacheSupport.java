@@ -0,0 +1,142 @@
+package com.grouper.objectcache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.grouper.service.GrouperConfig;
+import com.grouper.storage.ObjectStore;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings and background work shared by the object caches.
+ */
+final class CacheSupport {
+
+    private static final String CACHE_PROPERTY_PREFIX = "grouper.cache.";
+
+    private static final int DEFAULT_REFRESH_THREADS = 4;
+    private static final long DEFAULT_EXPIRE_AFTER_WRITE_SECONDS = 600;
+    private static final long DEFAULT_REFRESH_AFTER_WRITE_SECONDS = 60;
+    private static final long DEFAULT_MISSING_ID_TTL_SECONDS = 30;
+    private static final long DEFAULT_MISSING_ID_MAXIMUM_SIZE = 10000;
+    private static final int DEFAULT_BATCH_THREADS = 16;
+    private static final long DEFAULT_BATCH_WINDOW_MICROS = 1000;
+    // The most ids DynamoDB accepts in one BatchGetItem
+    private static final int DEFAULT_BATCH_MAXIMUM_SIZE = 100;
+
+    // Guava runs at most one refresh per key at a time, so the queue is bounded by the number of cached keys
+    private static final ExecutorService refreshExecutor = Executors.newFixedThreadPool(
+        GrouperConfig.getInt(CACHE_PROPERTY_PREFIX + "refreshThreads", DEFAULT_REFRESH_THREADS),
+        new ThreadFactoryBuilder()
+            .setNameFormat("object-cache-refresh-%d")
+            .setDaemon(true)
+            .build());
+
+    private static final ScheduledExecutorService batchTimer = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("object-cache-batch-timer-%d")
+            .setDaemon(true)
+            .build());
+
+    // Batches past the thread count queue. Batching itself keeps the number of batches in flight small: a batch is
+    // only sent alone when the store is idle, and the rest collect reads while earlier ones are in flight.
+    private static final ExecutorService batchExecutor = Executors.newFixedThreadPool(
+        GrouperConfig.getInt(CACHE_PROPERTY_PREFIX + "batch.threads", DEFAULT_BATCH_THREADS),
+        new ThreadFactoryBuilder()
+            .setNameFormat("object-cache-batch-%d")
+            .setDaemon(true)
+            .build());
+
+    private CacheSupport() {
+    }
+
+    /**
+     * Apply the configured expireAfterWrite and refreshAfterWrite for a cache to its builder.
+     *
+     * @param builder   cache builder
+     * @param cacheName cache name in settings (user, group, event)
+     */
+    static <K, V> CacheBuilder<K, V> withExpiry(CacheBuilder<K, V> builder, String cacheName) {
+        long expireAfterWriteSeconds = GrouperConfig.getLong(CACHE_PROPERTY_PREFIX + cacheName +
+            ".expireAfterWriteSeconds", DEFAULT_EXPIRE_AFTER_WRITE_SECONDS);
+        long refreshAfterWriteSeconds = GrouperConfig.getLong(CACHE_PROPERTY_PREFIX + cacheName +
+            ".refreshAfterWriteSeconds", DEFAULT_REFRESH_AFTER_WRITE_SECONDS);
+
+        if (expireAfterWriteSeconds > 0) {
+            builder.expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS);
+        }
+        if (refreshAfterWriteSeconds > 0) {
+            builder.refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Read a cache's byte budget, grouper.cache.&lt;name&gt;.maximumWeightBytes. Entries are weighed with
+     * {@link ObjectWeigher}.
+     *
+     * @param cacheName     cache name in settings (user, group, event)
+     * @param defaultWeight budget used when the setting is missing
+     */
+    static long maximumWeight(String cacheName, long defaultWeight) {
+        return GrouperConfig.getLong(CACHE_PROPERTY_PREFIX + cacheName + ".maximumWeightBytes", defaultWeight);
+    }
+
+    /**
+     * Build the missing-id cache that sits beside an object cache. It remembers ids with no DynamoDB item (never
+     * created, or deleted) for a short TTL, so repeated misses neither hit DynamoDB nor take object cache slots.
+     * Deletes leave a tombstone here that expires with the same TTL.
+     *
+     * @param cacheName cache name in settings (user, group, event)
+     */
+    static Cache<String, Boolean> newMissingIdCache(String cacheName) {
+        return CacheBuilder.newBuilder()
+            .maximumSize(GrouperConfig.getLong(CACHE_PROPERTY_PREFIX + cacheName + ".missing.maximumSize",
+                DEFAULT_MISSING_ID_MAXIMUM_SIZE))
+            .expireAfterWrite(GrouperConfig.getLong(CACHE_PROPERTY_PREFIX + cacheName + ".missing.ttlSeconds",
+                DEFAULT_MISSING_ID_TTL_SECONDS), TimeUnit.SECONDS)
+            .build();
+    }
+
+    /**
+     * Build the loader that batches a cache's single-item reads, from grouper.cache.&lt;name&gt;.batch.windowMicros and
+     * batch.maximumSize. A window of 0 turns batching off.
+     *
+     * @param store     the cache's object store
+     * @param cacheName cache name in settings (user, group, event)
+     * @param metrics   the cache's metrics, which count batches and the reads in them
+     */
+    static BatchLoader newBatchLoader(ObjectStore store, String cacheName, CacheMetrics metrics) {
+        return new BatchLoader(store,
+            GrouperConfig.getLong(CACHE_PROPERTY_PREFIX + cacheName + ".batch.windowMicros",
+                DEFAULT_BATCH_WINDOW_MICROS),
+            Math.max(1, GrouperConfig.getInt(CACHE_PROPERTY_PREFIX + cacheName + ".batch.maximumSize",
+                DEFAULT_BATCH_MAXIMUM_SIZE)),
+            batchTimer, batchExecutor, metrics);
+    }
+
+    /**
+     * Run cleanup that a write leaves behind, such as a deleted object's memberships, on the refresh executor.
+     */
+    static void runInBackground(Runnable task) {
+        refreshExecutor.execute(task);
+    }
+
+    /**
+     * Run a cache reload on the refresh executor. Callers keep getting the current value until it completes.
+     */
+    static <V> ListenableFuture<V> reloadAsync(Callable<V> reload) {
+        ListenableFutureTask<V> task = ListenableFutureTask.create(reload);
+        refreshExecutor.execute(task);
+        return task;
+    }
+
+}
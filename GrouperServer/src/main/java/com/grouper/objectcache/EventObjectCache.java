@@ -2,94 +2,204 @@ package com.grouper.objectcache;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.grouper.index.SearchIndex;
 import com.grouper.models.Event;
 import com.grouper.models.Message;
 import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.DynamoUpdate;
+import com.grouper.storage.ObjectStore;
+import com.grouper.storage.Storage;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Locale;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 public class EventObjectCache {
 
-    private static int MAXIMUM_SIZE = 10;
+    private static final long DEFAULT_MAXIMUM_WEIGHT_BYTES = 32L * 1024 * 1024;
 
     private static final String EVENT_OBJECT_KEY = "Event";
     private static final String EVENT_ID_KEY = "eventId";
     private static final String EVENT_NAME_KEY = "eventName";
     private static final String EVENT_DATE_KEY = "eventDate";
     private static final String EVENT_LOCATION_KEY = "eventLocation";
+    private static final String EVENT_LATITUDE_KEY = "eventLatitude";
+    private static final String EVENT_LONGITUDE_KEY = "eventLongitude";
     private static final String EVENT_DESCRIPTION_KEY = "eventDescription";
     private static final String EVENT_GROUPS_KEY = "eventGroups";
     private static final String EVENT_USERS_KEY = "eventUsers";
+    private static final String EVENT_VERSION_KEY = "eventVersion";
 
     private static final String EVENT_PROJECTION_EXPRESSION = "eventId, eventName, eventDate, eventLocation, " +
-        "eventDescription, eventGroups, eventUsers";
-    private static final String EVENT_UPDATE_EXPRESSION = "set eventName=:val1, set eventDate=:val2, set " +
-        "eventLocation=:val3, set eventDescription=:val4, set eventGroups=:val5, set eventUsers=:val6";
+        "eventLatitude, eventLongitude, eventDescription, eventGroups, eventUsers, eventVersion";
     private static final String EVENT_TABLE_NAME = "grouper-events";
 
+    // Attributes updateObject writes
+    private static final List<String> UPDATED_KEYS = Arrays.asList(EVENT_NAME_KEY, EVENT_DATE_KEY,
+        EVENT_LOCATION_KEY, EVENT_LATITUDE_KEY, EVENT_LONGITUDE_KEY, EVENT_DESCRIPTION_KEY);
+
+    private static ObjectStore eventStore;
+    private static BatchLoader eventLoader;
     private static LoadingCache<String, Event> eventObjectCache;
+    private static Cache<String, Boolean> missingEventIds;
+    private static ResponseCache eventResponses;
+    private static final CacheLog cacheLog = new CacheLog("event");
+
+    public static void init(Storage storage) {
 
-    public static void init() {
+        eventStore = objectStore(storage);
 
         CacheLoader<String, Event> loader;
         loader = new CacheLoader<String, Event>() {
             @Override
             public Event load(String s) throws Exception {
-                try {
-                    Map<String, AttributeValue> key = new HashMap<>();
-
-                    key.put(EVENT_ID_KEY, new AttributeValue()
-                        .withS(s));
-                    GetItemRequest request = new GetItemRequest()
-                        .withTableName(EVENT_TABLE_NAME)
-                        .withKey(key)
-                        .withProjectionExpression(EVENT_PROJECTION_EXPRESSION);
-
-                    Map<String, AttributeValue> result = GrouperServiceApplication.dynamoClient.getItem(request)
-                        .getItem();
-                    if (result == null) {
-                        throw new AmazonServiceException(Message.AWS_GET_FAILURE);
+                Map<String, AttributeValue> result = getItem(s);
+                if (result == null) {
+                    missingEventIds.put(s, Boolean.TRUE);
+                    throw new ObjectNotFoundException(s);
+                }
+
+                return itemToEvent(result);
+            }
+
+            // Refreshes run in the background. If DynamoDB can't be reached, keep serving the current event. If the
+            // event is gone, the failed refresh leaves the entry alone and getObject drops it on its next read.
+            @Override
+            public ListenableFuture<Event> reload(String s, Event oldEvent) throws Exception {
+                return CacheSupport.reloadAsync(() -> {
+                    try {
+                        Map<String, AttributeValue> result = getItem(s);
+                        if (result == null) {
+                            missingEventIds.put(s, Boolean.TRUE);
+                            throw new ObjectNotFoundException(s);
+                        }
+
+                        return itemToEvent(result);
+                    } catch (AmazonServiceException ase) {
+                        cacheLog.failure("Refresh failed, keeping the cached event.", ase);
+                        return oldEvent;
                     }
+                });
+            }
 
-                    return new Event.EventBuilder(result.get(EVENT_ID_KEY).getS())
-                        .withEventName(result.get(EVENT_NAME_KEY).getS())
-                        .withEventDate(new SimpleDateFormat(Event.EVENT_DATE_FORMAT, Locale.ENGLISH)
-                            .parse(result.get(EVENT_DATE_KEY)
-                                .getS()))
-                        .withEventLocation(result.get(EVENT_LOCATION_KEY)
-                            .getS())
-                        .withEventDescription(result.get(EVENT_DESCRIPTION_KEY)
-                            .getS())
-                        .withEventGroups(result.get(EVENT_GROUPS_KEY)
-                            .getSS())
-                        .withEventUsers(result.get(EVENT_USERS_KEY)
-                            .getSS())
-                        .build();
-                } catch (AmazonServiceException ase) {
-                    return new Event.EventBuilder(Event.EMPTY_EVENT_ID)
-                        .build();
+            // Ids with no item are left out of the result and recorded as missing. Guava caches the events that
+            // were found and then reports the rest through InvalidCacheLoadException, which getObjects handles.
+            @Override
+            public Map<String, Event> loadAll(Iterable<? extends String> keys) throws Exception {
+                Map<String, Map<String, AttributeValue>> items = eventStore.batchGet(keys);
+
+                Map<String, Event> events = new HashMap<>();
+                for (String key : keys) {
+                    Map<String, AttributeValue> item = items.get(key);
+                    if (item == null) {
+                        missingEventIds.put(key, Boolean.TRUE);
+                    } else {
+                        events.put(key, itemToEvent(item));
+                    }
                 }
-
+                return events;
             }
         };
 
-        eventObjectCache = CacheBuilder.newBuilder()
-            .maximumSize(MAXIMUM_SIZE)
-            .build(loader);
+        long maximumWeight = CacheSupport.maximumWeight("event", DEFAULT_MAXIMUM_WEIGHT_BYTES);
+        CacheMetrics metrics = CacheMetrics.register("event", maximumWeight);
+        missingEventIds = CacheSupport.newMissingIdCache("event");
+        eventResponses = new ResponseCache("eventResponse");
+        eventObjectCache = CacheSupport.withExpiry(CacheBuilder.newBuilder(), "event")
+            .maximumWeight(maximumWeight)
+            .weigher(ObjectWeigher.EVENT)
+            .recordStats()
+            .removalListener(metrics)
+            .build(metrics.instrument(loader));
+        metrics.attach(eventObjectCache, missingEventIds, ObjectWeigher.EVENT);
+        eventLoader = CacheSupport.newBatchLoader(eventStore, "event", metrics);
     }
 
-    public Event getObject(String eventId) {
+    // Concurrent single-item reads share a BatchGetItem, see BatchLoader
+    private static Map<String, AttributeValue> getItem(String eventId) {
+        return eventLoader.load(eventId);
+    }
+
+    // Dates are epoch milliseconds. Items written before that hold an EVENT_DATE_FORMAT string, which is still read.
+    private static Date eventDate(AttributeValue value) {
+        if (value.getN() != null) {
+            return new Date(Long.parseLong(value.getN()));
+        }
+        return Event.parseEventDate(value.getS());
+    }
+
+    private static AttributeValue eventDateValue(Date eventDate) {
+        return new AttributeValue()
+            .withN(Long.toString(eventDate.getTime()));
+    }
+
+    // Coordinates are optional, and absent on events created before they were added
+    private static Double coordinate(AttributeValue value) {
+        return value == null || value.getN() == null ? null : Double.valueOf(value.getN());
+    }
+
+    private static AttributeValue coordinateValue(double coordinate) {
+        return new AttributeValue()
+            .withN(Double.toString(coordinate));
+    }
+
+    private static Event itemToEvent(Map<String, AttributeValue> item) {
+        return new Event.EventBuilder(item.get(EVENT_ID_KEY).getS())
+            .withEventName(item.get(EVENT_NAME_KEY).getS())
+            .withEventDate(eventDate(item.get(EVENT_DATE_KEY)))
+            .withEventLocation(item.get(EVENT_LOCATION_KEY)
+                .getS())
+            .withEventCoordinates(coordinate(item.get(EVENT_LATITUDE_KEY)), coordinate(item.get(EVENT_LONGITUDE_KEY)))
+            .withEventDescription(item.get(EVENT_DESCRIPTION_KEY)
+                .getS())
+            .withEventGroups(stringSet(item.get(EVENT_GROUPS_KEY)))
+            .withEventUsers(stringSet(item.get(EVENT_USERS_KEY)))
+            .withEventVersion(DynamoUpdate.version(item.get(EVENT_VERSION_KEY)))
+            .build();
+    }
+
+    // DynamoDB drops a string set once its last element is deleted
+    private static List<String> stringSet(AttributeValue value) {
+        return value == null || value.getSS() == null ? new ArrayList<>() : value.getSS();
+    }
+
+    // Look up a event, without logging. Missing ids, and failed loads, come back as an EMPTY_EVENT_ID event, which
+    // is never cached.
+    private static Event getEvent(String eventId) {
+        if (missingEventIds.getIfPresent(eventId) != null) {
+            // A refresh may have found the event gone while it was still cached
+            eventObjectCache.invalidate(eventId);
+            eventResponses.invalidate(eventId);
+        } else {
+            try {
+                return eventObjectCache.get(eventId);
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                if (!(e.getCause() instanceof ObjectNotFoundException)) {
+                    cacheLog.failure("Load failed.", e);
+                }
+            }
+        }
+
+        return new Event.EventBuilder(Event.EMPTY_EVENT_ID)
+            .build();
+    }
 
-        Event event = eventObjectCache.getUnchecked(eventId);
+    public Event getObject(String eventId) {
+        Event event = getEvent(eventId);
 
         int status;
         String description = new String();
@@ -97,58 +207,256 @@ public class EventObjectCache {
         if (event.getEventId() == Event.EMPTY_EVENT_ID) {
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_GET_FAILURE;
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Get event " +
-                "failed" +
-                ".");
         } else {
             status = Message.DEFAULT_SUCCESS_STATUS;
             description = Message.AWS_GET_SUCCESS;
         }
 
-        logResult(status, description, EVENT_ID_KEY, eventId);
+        cacheLog.result(status, description, EVENT_ID_KEY, eventId);
         return event;
     }
 
-    public Message updateObject(Event event) {
+    /**
+     * Get a event without blocking the calling thread. Cached events complete immediately. A miss joins the next
+     * read batch and is cached, unless a write cached a newer event in the meantime.
+     *
+     * @return a future of the event, or of an EMPTY_EVENT_ID event if it doesn't exist or can't be read
+     */
+    public CompletableFuture<Event> getObjectAsync(String eventId) {
+        CompletableFuture<Event> future;
+        Event cachedEvent = eventObjectCache.getIfPresent(eventId);
+        if (missingEventIds.getIfPresent(eventId) != null) {
+            future = CompletableFuture.completedFuture(null);
+        } else if (cachedEvent != null) {
+            future = CompletableFuture.completedFuture(cachedEvent);
+        } else {
+            future = eventLoader.loadAsync(eventId)
+                .handle((item, throwable) -> {
+                    if (throwable != null) {
+                        cacheLog.failure("Async get failed.", Storage.cause(throwable));
+                        return null;
+                    }
+
+                    if (item == null) {
+                        missingEventIds.put(eventId, Boolean.TRUE);
+                        return null;
+                    }
+
+                    try {
+                        Event event = itemToEvent(item);
+                        eventObjectCache.asMap().putIfAbsent(eventId, event);
+                        return event;
+                    } catch (DateTimeParseException pe) {
+                        cacheLog.failure("Unreadable event date.", pe);
+                        return null;
+                    }
+                });
+        }
+
+        return future.thenApply(event -> {
+            if (event == null) {
+                cacheLog.result(Message.DEFAULT_FAILURE_STATUS, Message.AWS_GET_FAILURE, EVENT_ID_KEY, eventId);
+                return new Event.EventBuilder(Event.EMPTY_EVENT_ID)
+                    .build();
+            }
+
+            cacheLog.result(Message.DEFAULT_SUCCESS_STATUS, Message.AWS_GET_SUCCESS, EVENT_ID_KEY, eventId);
+            return event;
+        });
+    }
+
+    /**
+     * Read the fields of every event that the time, geo and search indexes need. A paginated Scan that only projects
+     * those attributes; run it in the background, not on a request.
+     *
+     * @return partial events, with only eventId, eventName, eventDate, coordinates and eventDescription set. Never
+     *          cache them. Events with unreadable dates are left out.
+     */
+    public List<Event> scanIndexedFields() {
+        List<Event> events = new ArrayList<>();
+
+        String projection = EVENT_ID_KEY + ", " + EVENT_NAME_KEY + ", " + EVENT_DATE_KEY + ", " + EVENT_LATITUDE_KEY +
+            ", " + EVENT_LONGITUDE_KEY + ", " + EVENT_DESCRIPTION_KEY;
+        for (Map<String, AttributeValue> item : eventStore.scan(projection)) {
+            try {
+                events.add(new Event.EventBuilder(item.get(EVENT_ID_KEY).getS())
+                    .withEventName(item.get(EVENT_NAME_KEY).getS())
+                    .withEventDate(eventDate(item.get(EVENT_DATE_KEY)))
+                    .withEventCoordinates(coordinate(item.get(EVENT_LATITUDE_KEY)),
+                        coordinate(item.get(EVENT_LONGITUDE_KEY)))
+                    .withEventDescription(item.get(EVENT_DESCRIPTION_KEY).getS())
+                    .build());
+            } catch (DateTimeParseException | NullPointerException e) {
+                cacheLog.failure("Unreadable event.", e);
+            }
+        }
+
+        return events;
+    }
+
+    /**
+     * Copy the eventUsers and eventGroups string set of every event into the membership table. A paginated Scan; run
+     * it in the background, not on a request.
+     *
+     * @return true if every membership was copied
+     * @throws AmazonServiceException if the scan fails
+     */
+    public boolean backfillMemberships() {
+        boolean succeeded = true;
+
+        for (Map<String, AttributeValue> item : eventStore.scan(EVENT_ID_KEY + ", " + EVENT_USERS_KEY + ", " +
+            EVENT_GROUPS_KEY)) {
+            String eventId = item.get(EVENT_ID_KEY).getS();
+            succeeded &= GrouperServiceApplication.membershipStore.backfill(MembershipStore.EVENT, eventId,
+                MembershipStore.USER, stringSet(item.get(EVENT_USERS_KEY)),
+                () -> consistentStringSet(eventId, EVENT_USERS_KEY));
+            succeeded &= GrouperServiceApplication.membershipStore.backfill(MembershipStore.EVENT, eventId,
+                MembershipStore.GROUP, stringSet(item.get(EVENT_GROUPS_KEY)),
+                () -> consistentStringSet(eventId, EVENT_GROUPS_KEY));
+        }
+
+        return succeeded;
+    }
+
+    private static List<String> consistentStringSet(String eventId, String key) {
+        Map<String, AttributeValue> item = eventStore.getConsistent(eventId);
+        return item == null ? new ArrayList<>() : stringSet(item.get(key));
+    }
+
+    /**
+     * Serialized /getEvent responses, tagged with the event version they were built from. Dropped whenever this cache
+     * writes the event.
+     */
+    public ResponseCache getResponseCache() {
+        return eventResponses;
+    }
+
+    /**
+     * Get every event with one of the provided eventIds. Events missing from the cache are loaded together, with one
+     * BatchGetItem per 100 misses.
+     *
+     * @param eventIds   eventIds to get
+     * @return eventId -> Event, in the order of eventIds. Events that could not be loaded are EMPTY_EVENT_ID events.
+     */
+    public Map<String, Event> getObjects(Iterable<String> eventIds) {
+        int status = Message.DEFAULT_SUCCESS_STATUS;
+        String description = Message.AWS_GET_SUCCESS;
+
+        List<String> idsToLoad = new ArrayList<>();
+        for (String eventId : eventIds) {
+            if (missingEventIds.getIfPresent(eventId) == null) {
+                idsToLoad.add(eventId);
+            }
+        }
+
+        Map<String, Event> loadedEvents;
+        try {
+            loadedEvents = eventObjectCache.getAll(idsToLoad);
+        } catch (CacheLoader.InvalidCacheLoadException icle) {
+            // Some ids had no item. The ones that did are cached now.
+            loadedEvents = eventObjectCache.getAllPresent(idsToLoad);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            cacheLog.failure("Batch get failed.", e);
+            status = Message.DEFAULT_FAILURE_STATUS;
+            description = Message.AWS_GET_FAILURE;
+            loadedEvents = new HashMap<>();
+        }
+
+        Map<String, Event> events = new LinkedHashMap<>();
+        for (String eventId : eventIds) {
+            Event event = loadedEvents.get(eventId);
+            if (event == null) {
+                event = new Event.EventBuilder(Event.EMPTY_EVENT_ID)
+                    .build();
+            }
+            events.put(eventId, event);
+        }
+
+        cacheLog.result(status, description, EVENT_ID_KEY, eventIds);
+        return events;
+    }
+
+    /**
+     * Write the fields of an event that the caller changed. Groups and users are left alone, they are only changed
+     * through addGroup, removeGroup, addUser and removeUser.
+     *
+     * Conditional on baseEvent's version, with the same bounded retry-and-merge as UserObjectCache.updateObject.
+     * Latitude and longitude are merged as one field.
+     *
+     * @param baseEvent the event as the caller read it
+     * @param event     baseEvent with the caller's changes
+     */
+    public Message updateObject(Event baseEvent, Event event) {
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_UPDATE_SUCCESS;
 
+        Event writtenEvent = null;
+
         try {
-            Map<String, AttributeValue> key = new HashMap<>();
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-
-            key.put(EVENT_ID_KEY, new AttributeValue()
-                .withS(event.getEventId()));
-            expressionAttributeValues.put(":val1", new AttributeValue()
-                .withS(event.getEventName()));
-            expressionAttributeValues.put(":val2", new AttributeValue()
-                .withS(new SimpleDateFormat(Event.EVENT_DATE_FORMAT)
-                    .format(event.getEventDate())));
-            expressionAttributeValues.put(":val3", new AttributeValue()
-                .withS(event.getEventLocation()));
-            expressionAttributeValues.put(":val4", new AttributeValue()
-                .withS(event.getEventDescription()));
-            expressionAttributeValues.put(":val5", new AttributeValue()
-                .withSS(event.getEventGroups()));
-            expressionAttributeValues.put(":val6", new AttributeValue()
-                .withSS(event.getEventUsers()));
+            Map<String, AttributeValue> baseItem = toItem(baseEvent);
+            Map<String, AttributeValue> updatedItem = toItem(event);
+            Map<String, AttributeValue> changes = FieldMerge.changes(baseItem, updatedItem, UPDATED_KEYS);
+            if (changes.containsKey(EVENT_LATITUDE_KEY) || changes.containsKey(EVENT_LONGITUDE_KEY)) {
+                changes.put(EVENT_LATITUDE_KEY, updatedItem.get(EVENT_LATITUDE_KEY));
+                changes.put(EVENT_LONGITUDE_KEY, updatedItem.get(EVENT_LONGITUDE_KEY));
+            }
+            Map<String, AttributeValue> currentItem = baseItem;
+            long expectedVersion = baseEvent.getEventVersion();
+
+            for (int attempt = 1; ; attempt++) {
+                if (!FieldMerge.conflicts(baseItem, currentItem, changes).isEmpty()) {
+                    status = Message.DEFAULT_FAILURE_STATUS;
+                    description = Message.UPDATE_CONFLICT_DESC;
+                    break;
+                }
 
-            UpdateItemRequest request = new UpdateItemRequest().withTableName(EVENT_TABLE_NAME).withKey(key)
-                .withUpdateExpression(EVENT_UPDATE_EXPRESSION).withExpressionAttributeValues(expressionAttributeValues)
-                .withReturnValues(ReturnValue.ALL_NEW);
+                Map<String, AttributeValue> pending = FieldMerge.pending(currentItem, changes);
+                if (pending.isEmpty()) {
+                    break;
+                }
 
-            UpdateItemResult result = GrouperServiceApplication.dynamoClient.updateItem(request);
-            eventObjectCache.put(event.getEventId(), event);
+                try {
+                    eventStore.update(FieldMerge.write(new DynamoUpdate(EVENT_TABLE_NAME, EVENT_ID_KEY,
+                        event.getEventId()), pending)
+                        .incrementVersion(EVENT_VERSION_KEY)
+                        .expectVersion(EVENT_VERSION_KEY, expectedVersion));
+
+                    Map<String, AttributeValue> written = FieldMerge.apply(currentItem, pending);
+                    written.put(EVENT_VERSION_KEY, new AttributeValue()
+                        .withN(Long.toString(expectedVersion + 1)));
+                    Event newEvent = itemToEvent(written);
+                    // A higher cached version came from a membership change applied to an older copy, drop it
+                    eventObjectCache.asMap().compute(event.getEventId(), (eventId, cached) -> cached != null &&
+                        cached.getEventVersion() > newEvent.getEventVersion() ? null : newEvent);
+                    eventResponses.invalidate(event.getEventId());
+                    writtenEvent = newEvent;
+                    break;
+                } catch (ConditionalCheckFailedException ccfe) {
+                    // Consistent, since an eventually consistent read can still return the version that just failed
+                    Map<String, AttributeValue> item = eventStore.getConsistent(event.getEventId());
+                    if (item == null || attempt == DynamoUpdate.MAXIMUM_VERSION_ATTEMPTS) {
+                        throw ccfe;
+                    }
 
-        } catch (AmazonServiceException ase) {
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Event update " +
-                "failed.");
-            System.err.println(ase);
+                    Event currentEvent = itemToEvent(item);
+                    currentItem = toItem(currentEvent);
+                    expectedVersion = currentEvent.getEventVersion();
+                    eventObjectCache.put(currentEvent.getEventId(), currentEvent);
+                    eventResponses.invalidate(currentEvent.getEventId());
+                }
+            }
+
+        } catch (AmazonServiceException | DateTimeParseException e) {
+            cacheLog.failure("Event update failed.", e);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_UPDATE_FAILURE;
         }
 
-        logResult(status, description, EVENT_OBJECT_KEY, event);
+        if (writtenEvent != null) {
+            GrouperServiceApplication.searchIndex.indexEvent(writtenEvent);
+        }
+
+        cacheLog.result(status, description, EVENT_ID_KEY, event.getEventId());
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -157,45 +465,155 @@ public class EventObjectCache {
             .build();
     }
 
-    public Message putObject(Event event) {
-        int status = Message.DEFAULT_SUCCESS_STATUS;
-        String description = Message.AWS_PUT_SUCCESS;
+    public CompletableFuture<Message> addGroup(String eventId, String groupId) {
+        CompletableFuture<Message> update = updateMembers(eventId,
+            new DynamoUpdate(EVENT_TABLE_NAME, EVENT_ID_KEY, eventId)
+                .add(EVENT_GROUPS_KEY, new AttributeValue()
+                    .withSS(groupId)),
+            event -> event.addGroup(groupId));
+        return MembershipStore.mirror(update, () -> GrouperServiceApplication.membershipStore
+            .add(MembershipStore.EVENT, eventId, MembershipStore.GROUP, groupId));
+    }
 
-        try {
-            Map<String, AttributeValue> newItem = new HashMap<>();
-
-            newItem.put(EVENT_ID_KEY, new AttributeValue()
-                .withS(event.getEventId()));
-            newItem.put(EVENT_NAME_KEY, new AttributeValue()
-                .withS(event.getEventName()));
-            newItem.put(EVENT_DATE_KEY, new AttributeValue()
-                .withS(new SimpleDateFormat(Event.EVENT_DATE_FORMAT)
-                    .format(event.getEventDate())));
-            newItem.put(EVENT_LOCATION_KEY, new AttributeValue()
-                .withS(event.getEventLocation()));
-            newItem.put(EVENT_DESCRIPTION_KEY, new AttributeValue()
-                .withS(event.getEventDescription()));
-            newItem.put(EVENT_GROUPS_KEY, new AttributeValue()
+    public CompletableFuture<Message> removeGroup(String eventId, String groupId) {
+        CompletableFuture<Message> update = updateMembers(eventId,
+            new DynamoUpdate(EVENT_TABLE_NAME, EVENT_ID_KEY, eventId)
+                .delete(EVENT_GROUPS_KEY, new AttributeValue()
+                    .withSS(groupId)),
+            event -> event.removeGroup(groupId));
+        return MembershipStore.mirror(update, () -> GrouperServiceApplication.membershipStore
+            .remove(MembershipStore.EVENT, eventId, MembershipStore.GROUP, groupId));
+    }
+
+    public CompletableFuture<Message> addUser(String eventId, String userId) {
+        CompletableFuture<Message> update = updateMembers(eventId,
+            new DynamoUpdate(EVENT_TABLE_NAME, EVENT_ID_KEY, eventId)
+                .add(EVENT_USERS_KEY, new AttributeValue()
+                    .withSS(userId)),
+            event -> event.addUser(userId));
+        return MembershipStore.mirror(update, () -> GrouperServiceApplication.membershipStore
+            .add(MembershipStore.EVENT, eventId, MembershipStore.USER, userId));
+    }
+
+    public CompletableFuture<Message> removeUser(String eventId, String userId) {
+        CompletableFuture<Message> update = updateMembers(eventId,
+            new DynamoUpdate(EVENT_TABLE_NAME, EVENT_ID_KEY, eventId)
+                .delete(EVENT_USERS_KEY, new AttributeValue()
+                    .withSS(userId)),
+            event -> event.removeUser(userId));
+        return MembershipStore.mirror(update, () -> GrouperServiceApplication.membershipStore
+            .remove(MembershipStore.EVENT, eventId, MembershipStore.USER, userId));
+    }
+
+    // Apply a single group or user change in DynamoDB, then to a copy of the cached event. The cached event is
+    // replaced, never changed in place, since readers may be holding it.
+    private CompletableFuture<Message> updateMembers(String eventId, DynamoUpdate update, Consumer<Event> change) {
+        return eventStore.updateAsync(update
+            .incrementVersion(EVENT_VERSION_KEY))
+            .handle((result, throwable) -> {
+                int status = Message.DEFAULT_SUCCESS_STATUS;
+                String description = Message.AWS_UPDATE_SUCCESS;
+
+                if (throwable == null) {
+                    eventObjectCache.asMap().computeIfPresent(eventId, (id, current) -> {
+                        Event event = copyOf(current, current.getEventGroups(), current.getEventUsers(),
+                            current.getEventVersion() + 1);
+                        change.accept(event);
+                        return event;
+                    });
+                    eventResponses.invalidate(eventId);
+                } else {
+                    cacheLog.failure("Event update failed.", Storage.cause(throwable));
+                    status = Message.DEFAULT_FAILURE_STATUS;
+                    description = Message.AWS_UPDATE_FAILURE;
+                }
+
+                cacheLog.result(status, description, EVENT_ID_KEY, eventId);
+
+                return new Message.MessageBuilder(status)
+                    .withDescription(description)
+                    .withField(EVENT_ID_KEY)
+                    .withValue(eventId)
+                    .build();
+            });
+    }
+
+    private static Event copyOf(Event event, List<String> eventGroups, List<String> eventUsers,
+                                long eventVersion) {
+        return new Event.EventBuilder(event.getEventId())
+            .withEventName(event.getEventName())
+            .withEventDate(event.getEventDate())
+            .withEventLocation(event.getEventLocation())
+            .withEventCoordinates(event.getEventLatitude(), event.getEventLongitude())
+            .withEventDescription(event.getEventDescription())
+            .withEventGroups(eventGroups)
+            .withEventUsers(eventUsers)
+            .withEventVersion(eventVersion)
+            .build();
+    }
+
+    /**
+     * The event table of a storage backend. Also used to load generated data without going through a cache.
+     */
+    public static ObjectStore objectStore(Storage storage) {
+        return storage.objectStore(EVENT_TABLE_NAME, EVENT_ID_KEY, EVENT_PROJECTION_EXPRESSION);
+    }
+
+    /**
+     * @param event new event
+     * @return the item putObject creates for the event, at version 1
+     */
+    public static Map<String, AttributeValue> toItem(Event event) {
+        Map<String, AttributeValue> item = new HashMap<>();
+
+        item.put(EVENT_ID_KEY, new AttributeValue()
+            .withS(event.getEventId()));
+        item.put(EVENT_NAME_KEY, new AttributeValue()
+            .withS(event.getEventName()));
+        item.put(EVENT_DATE_KEY, eventDateValue(event.getEventDate()));
+        item.put(EVENT_LOCATION_KEY, new AttributeValue()
+            .withS(event.getEventLocation()));
+        if (event.hasCoordinates()) {
+            item.put(EVENT_LATITUDE_KEY, coordinateValue(event.getEventLatitude()));
+            item.put(EVENT_LONGITUDE_KEY, coordinateValue(event.getEventLongitude()));
+        }
+        item.put(EVENT_DESCRIPTION_KEY, new AttributeValue()
+            .withS(event.getEventDescription()));
+        // DynamoDB doesn't store empty sets
+        if (!event.getEventGroups().isEmpty()) {
+            item.put(EVENT_GROUPS_KEY, new AttributeValue()
                 .withSS(event.getEventGroups()));
-            newItem.put(EVENT_USERS_KEY, new AttributeValue()
+        }
+        if (!event.getEventUsers().isEmpty()) {
+            item.put(EVENT_USERS_KEY, new AttributeValue()
                 .withSS(event.getEventUsers()));
+        }
+
+        item.put(EVENT_VERSION_KEY, new AttributeValue()
+            .withN("1"));
 
-            PutItemRequest request = new PutItemRequest()
-                .withTableName(EVENT_TABLE_NAME)
-                .withItem(newItem);
+        return item;
+    }
 
-            GrouperServiceApplication.dynamoClient.putItem(request);
-            eventObjectCache.put(event.getEventId(), event);
+    public Message putObject(Event event) {
+        int status = Message.DEFAULT_SUCCESS_STATUS;
+        String description = Message.AWS_PUT_SUCCESS;
+
+        try {
+            // Never overwrites an existing event
+            eventStore.create(toItem(event));
+            missingEventIds.invalidate(event.getEventId());
+            eventObjectCache.put(event.getEventId(), copyOf(event, event.getEventGroups(), event.getEventUsers(), 1));
+            eventResponses.invalidate(event.getEventId());
+            GrouperServiceApplication.searchIndex.indexEvent(event);
 
         } catch (AmazonServiceException ase) {
-            System.err.println(ase);
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Create event " +
-                "failed.");
+            cacheLog.failure("Create event failed.", ase);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_PUT_FAILURE;
         }
 
-        logResult(status, description, EVENT_OBJECT_KEY, event);
+        cacheLog.result(status, description, EVENT_ID_KEY, event.getEventId());
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -208,28 +626,21 @@ public class EventObjectCache {
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_DELETE_SUCCESS;
 
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put(EVENT_ID_KEY, new AttributeValue()
-            .withS(eventId));
-
-        DeleteItemRequest request = new DeleteItemRequest()
-            .withTableName(EVENT_TABLE_NAME)
-            .withKey(key);
-        DeleteItemResult result = GrouperServiceApplication.dynamoClient.deleteItem(request);
-        eventObjectCache.put(eventId, new Event.EventBuilder(Event.EMPTY_EVENT_ID)
-            .build());
-
         try {
+            eventStore.delete(eventId);
+            eventObjectCache.invalidate(eventId);
+            eventResponses.invalidate(eventId);
+            missingEventIds.put(eventId, Boolean.TRUE);
+            GrouperServiceApplication.membershipStore.removeAllLater(MembershipStore.EVENT, eventId);
+            GrouperServiceApplication.searchIndex.remove(SearchIndex.EVENT, eventId);
 
         } catch (AmazonServiceException ase) {
-            System.err.println(ase);
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Delete event " +
-                "failed.");
+            cacheLog.failure("Delete event failed.", ase);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_DELETE_FAILURE;
         }
 
-        logResult(status, description, EVENT_ID_KEY, eventId);
+        cacheLog.result(status, description, EVENT_ID_KEY, eventId);
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -238,13 +649,4 @@ public class EventObjectCache {
             .build();
     }
 
-    private void logResult(int status, String description, String field, Object value) {
-        System.out.println(new Message.MessageBuilder(status)
-            .withDescription(description)
-            .withField(field)
-            .withValue(value)
-            .build()
-            .toString());
-    }
-
 }
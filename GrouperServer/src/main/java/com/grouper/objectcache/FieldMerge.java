@@ -0,0 +1,104 @@
+package com.grouper.objectcache;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.grouper.storage.DynamoUpdate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Three-way merge for the conditional field updates of the object caches.
+ *
+ * The changes of an update are the fields the caller changed relative to the object they read, its base. Only those
+ * are written, on every attempt. When someone else wrote first, their item is compared with the base: a field both
+ * sides changed, to different values, is a conflict, and every other change is retried as is against the new version,
+ * so the other writer's fields survive.
+ *
+ * Fields are compared as the attribute values toItem stores. A null value is an attribute that is absent, and
+ * writing it removes the attribute.
+ */
+final class FieldMerge {
+
+    private FieldMerge() {
+    }
+
+    /**
+     * @param keys attributes an update may write
+     * @return key -&gt; value in updated, for every key whose value differs between base and updated
+     */
+    static Map<String, AttributeValue> changes(Map<String, AttributeValue> base, Map<String, AttributeValue> updated,
+                                               Collection<String> keys) {
+        Map<String, AttributeValue> changes = new LinkedHashMap<>();
+        for (String key : keys) {
+            if (!Objects.equals(base.get(key), updated.get(key))) {
+                changes.put(key, updated.get(key));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return keys changed both by changes and, to a different value, from base to current
+     */
+    static List<String> conflicts(Map<String, AttributeValue> base, Map<String, AttributeValue> current,
+                                  Map<String, AttributeValue> changes) {
+        List<String> conflicts = new ArrayList<>();
+        for (Map.Entry<String, AttributeValue> change : changes.entrySet()) {
+            AttributeValue currentValue = current.get(change.getKey());
+            if (!Objects.equals(base.get(change.getKey()), currentValue) &&
+                !Objects.equals(change.getValue(), currentValue)) {
+                conflicts.add(change.getKey());
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * @return the changes that current doesn't already hold
+     */
+    static Map<String, AttributeValue> pending(Map<String, AttributeValue> current,
+                                               Map<String, AttributeValue> changes) {
+        Map<String, AttributeValue> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, AttributeValue> change : changes.entrySet()) {
+            if (!Objects.equals(current.get(change.getKey()), change.getValue())) {
+                pending.put(change.getKey(), change.getValue());
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * SET every change with a value, REMOVE every change without one.
+     */
+    static DynamoUpdate write(DynamoUpdate update, Map<String, AttributeValue> changes) {
+        for (Map.Entry<String, AttributeValue> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                update.remove(change.getKey());
+            } else {
+                update.set(change.getKey(), change.getValue());
+            }
+        }
+        return update;
+    }
+
+    /**
+     * @return a copy of item with the changes applied
+     */
+    static Map<String, AttributeValue> apply(Map<String, AttributeValue> item, Map<String, AttributeValue> changes) {
+        Map<String, AttributeValue> merged = new HashMap<>(item);
+        for (Map.Entry<String, AttributeValue> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                merged.remove(change.getKey());
+            } else {
+                merged.put(change.getKey(), change.getValue());
+            }
+        }
+        return merged;
+    }
+
+}
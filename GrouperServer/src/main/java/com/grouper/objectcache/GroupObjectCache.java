@@ -2,22 +2,38 @@ package com.grouper.objectcache;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.grouper.index.SearchIndex;
 import com.grouper.models.Group;
 import com.grouper.models.Message;
 import com.grouper.models.SkillSet;
 import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.DynamoUpdate;
+import com.grouper.storage.ObjectStore;
+import com.grouper.storage.Storage;
 
-import java.time.Instant;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 public class GroupObjectCache {
 
-    private static final int MAXIMUM_SIZE = 100;
+    private static final long DEFAULT_MAXIMUM_WEIGHT_BYTES = 16L * 1024 * 1024;
 
     private static final String GROUP_OBJECT_KEY = "Group";
     private static final String GROUP_ID_KEY = "groupId";
@@ -28,70 +44,144 @@ public class GroupObjectCache {
     private static final String GROUP_OWNER_KEY = "groupOwner";
     private static final String GROUP_SKILLSET_KEY = "groupSkillSet";
     private static final String GROUP_USERS_KEY = "groupUsers";
+    private static final String GROUP_VERSION_KEY = "groupVersion";
 
     private static final String GROUP_PROJECTION_EXPRESSION = "groupId, groupName, groupType, groupDescription, " +
-        "groupEvent, groupOwner, groupSkillSet, groupUsers";
-    private static final String GROUP_UPDATE_EXPRESSION = "set groupName=:val1, set groupType=:val2, set " +
-        "groupDescription=:val3, set groupEvent=:val4, set groupOwner=:val5, set groupSkillSet=:val6, set " +
-        "groupUsers=:val7";
+        "groupEvent, groupOwner, groupSkillSet, groupUsers, groupVersion";
     private static final String GROUP_TABLE_NAME = "grouper-groups";
 
+    // Attributes updateObject writes
+    private static final List<String> UPDATED_KEYS = Arrays.asList(GROUP_NAME_KEY, GROUP_TYPE_KEY,
+        GROUP_DESCRIPTION_KEY, GROUP_EVENT_KEY, GROUP_OWNER_KEY, GROUP_SKILLSET_KEY);
+
+    private static ObjectStore groupStore;
+    private static BatchLoader groupLoader;
     private static LoadingCache<String, Group> groupObjectCache;
+    private static Cache<String, Boolean> missingGroupIds;
+    private static ResponseCache groupResponses;
+    private static final CacheLog cacheLog = new CacheLog("group");
+
+    public static void init(Storage storage) {
 
-    public static void init() {
+        groupStore = objectStore(storage);
 
         CacheLoader<String, Group> loader;
         loader = new CacheLoader<String, Group>() {
             @Override
             public Group load(String s) throws Exception {
-                try {
-                    Map<String, AttributeValue> key = new HashMap<>();
-
-                    key.put(GROUP_ID_KEY, new AttributeValue()
-                        .withS(s));
-                    GetItemRequest request = new GetItemRequest()
-                        .withTableName(GROUP_TABLE_NAME)
-                        .withKey(key)
-                        .withProjectionExpression(GROUP_PROJECTION_EXPRESSION);
-
-                    Map<String, AttributeValue> result = GrouperServiceApplication.dynamoClient.getItem(request)
-                        .getItem();
-                    if (result == null) {
-                        throw new AmazonServiceException(Message.AWS_GET_FAILURE);
+                Map<String, AttributeValue> result = getItem(s);
+                if (result == null) {
+                    missingGroupIds.put(s, Boolean.TRUE);
+                    throw new ObjectNotFoundException(s);
+                }
+
+                return itemToGroup(result);
+            }
+
+            // Refreshes run in the background. If DynamoDB can't be reached, keep serving the current group. If the
+            // group is gone, the failed refresh leaves the entry alone and getObject drops it on its next read.
+            @Override
+            public ListenableFuture<Group> reload(String s, Group oldGroup) throws Exception {
+                return CacheSupport.reloadAsync(() -> {
+                    try {
+                        Map<String, AttributeValue> result = getItem(s);
+                        if (result == null) {
+                            missingGroupIds.put(s, Boolean.TRUE);
+                            throw new ObjectNotFoundException(s);
+                        }
+
+                        return itemToGroup(result);
+                    } catch (AmazonServiceException ase) {
+                        cacheLog.failure("Refresh failed, keeping the cached group.", ase);
+                        return oldGroup;
                     }
+                });
+            }
 
-                    return new Group.GroupBuilder(result.get(GROUP_ID_KEY).getS())
-                        .withGroupName(result.get(GROUP_NAME_KEY)
-                            .getS())
-                        .withGroupType(result.get(GROUP_TYPE_KEY)
-                            .getS())
-                        .withGroupDescription(result.get(GROUP_DESCRIPTION_KEY)
-                            .getS())
-                        .withGroupEvent(result.get(GROUP_EVENT_KEY)
-                                .getS())
-                        .withGroupOwner(result.get(GROUP_OWNER_KEY)
-                            .getS())
-                        .withGroupSkillSet(new SkillSet(SkillSet.extractSkillSet(result.get(GROUP_SKILLSET_KEY)
-                            .getM())))
-                        .withGroupUsers(result.get(GROUP_USERS_KEY)
-                            .getSS())
-                        .build();
-                } catch (AmazonServiceException ase) {
-                    return new Group.GroupBuilder(Group.EMPTY_GROUP_ID)
-                        .build();
+            // Ids with no item are left out of the result and recorded as missing. Guava caches the groups that
+            // were found and then reports the rest through InvalidCacheLoadException, which getObjects handles.
+            @Override
+            public Map<String, Group> loadAll(Iterable<? extends String> keys) throws Exception {
+                Map<String, Map<String, AttributeValue>> items = groupStore.batchGet(keys);
+
+                Map<String, Group> groups = new HashMap<>();
+                for (String key : keys) {
+                    Map<String, AttributeValue> item = items.get(key);
+                    if (item == null) {
+                        missingGroupIds.put(key, Boolean.TRUE);
+                    } else {
+                        groups.put(key, itemToGroup(item));
+                    }
                 }
-
+                return groups;
             }
         };
 
-        groupObjectCache = CacheBuilder.newBuilder()
-            .maximumSize(MAXIMUM_SIZE)
-            .build(loader);
+        long maximumWeight = CacheSupport.maximumWeight("group", DEFAULT_MAXIMUM_WEIGHT_BYTES);
+        CacheMetrics metrics = CacheMetrics.register("group", maximumWeight);
+        missingGroupIds = CacheSupport.newMissingIdCache("group");
+        groupResponses = new ResponseCache("groupResponse");
+        groupObjectCache = CacheSupport.withExpiry(CacheBuilder.newBuilder(), "group")
+            .maximumWeight(maximumWeight)
+            .weigher(ObjectWeigher.GROUP)
+            .recordStats()
+            .removalListener(metrics)
+            .build(metrics.instrument(loader));
+        metrics.attach(groupObjectCache, missingGroupIds, ObjectWeigher.GROUP);
+        groupLoader = CacheSupport.newBatchLoader(groupStore, "group", metrics);
     }
 
-    public Group getObject(String groupId) {
+    // Concurrent single-item reads share a BatchGetItem, see BatchLoader
+    private static Map<String, AttributeValue> getItem(String groupId) {
+        return groupLoader.load(groupId);
+    }
 
-        Group group = groupObjectCache.getUnchecked(groupId);
+    static Group itemToGroup(Map<String, AttributeValue> item) {
+        return new Group.GroupBuilder(item.get(GROUP_ID_KEY).getS())
+            .withGroupName(item.get(GROUP_NAME_KEY)
+                .getS())
+            .withGroupType(item.get(GROUP_TYPE_KEY)
+                .getS())
+            .withGroupDescription(item.get(GROUP_DESCRIPTION_KEY)
+                .getS())
+            .withGroupEvent(item.get(GROUP_EVENT_KEY)
+                    .getS())
+            .withGroupOwner(item.get(GROUP_OWNER_KEY)
+                .getS())
+            .withGroupSkillSet(SkillSet.fromAttributeValue(item.get(GROUP_SKILLSET_KEY)))
+            .withGroupUsers(stringSet(item.get(GROUP_USERS_KEY)))
+            .withGroupVersion(DynamoUpdate.version(item.get(GROUP_VERSION_KEY)))
+            .build();
+    }
+
+    // DynamoDB drops a string set once its last element is deleted
+    private static List<String> stringSet(AttributeValue value) {
+        return value == null || value.getSS() == null ? new ArrayList<>() : value.getSS();
+    }
+
+    // Look up a group, without logging. Missing ids, and failed loads, come back as an EMPTY_GROUP_ID group, which
+    // is never cached.
+    private static Group getGroup(String groupId) {
+        if (missingGroupIds.getIfPresent(groupId) != null) {
+            // A refresh may have found the group gone while it was still cached
+            groupObjectCache.invalidate(groupId);
+            groupResponses.invalidate(groupId);
+        } else {
+            try {
+                return groupObjectCache.get(groupId);
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                if (!(e.getCause() instanceof ObjectNotFoundException)) {
+                    cacheLog.failure("Load failed.", e);
+                }
+            }
+        }
+
+        return new Group.GroupBuilder(Group.EMPTY_GROUP_ID)
+            .build();
+    }
+
+    public Group getObject(String groupId) {
+        Group group = getGroup(groupId);
 
         int status;
         String description = new String();
@@ -99,60 +189,254 @@ public class GroupObjectCache {
         if (group.getGroupId() == Group.EMPTY_GROUP_ID) {
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_GET_FAILURE;
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Get group " +
-                "failed" +
-                ".");
         } else {
             status = Message.DEFAULT_SUCCESS_STATUS;
             description = Message.AWS_GET_SUCCESS;
         }
 
-        logResult(status, description, GROUP_ID_KEY, groupId);
+        cacheLog.result(status, description, GROUP_ID_KEY, groupId);
         return group;
     }
 
-    public Message updateObject(Group group) {
+    /**
+     * Get a group without blocking the calling thread. Cached groups complete immediately. A miss joins the next
+     * read batch and is cached, unless a write cached a newer group in the meantime.
+     *
+     * @return a future of the group, or of an EMPTY_GROUP_ID group if it doesn't exist or can't be read
+     */
+    public CompletableFuture<Group> getObjectAsync(String groupId) {
+        CompletableFuture<Group> future;
+        Group cachedGroup = groupObjectCache.getIfPresent(groupId);
+        if (missingGroupIds.getIfPresent(groupId) != null) {
+            future = CompletableFuture.completedFuture(null);
+        } else if (cachedGroup != null) {
+            future = CompletableFuture.completedFuture(cachedGroup);
+        } else {
+            future = groupLoader.loadAsync(groupId)
+                .handle((item, throwable) -> {
+                    if (throwable != null) {
+                        cacheLog.failure("Async get failed.", Storage.cause(throwable));
+                        return null;
+                    }
+
+                    if (item == null) {
+                        missingGroupIds.put(groupId, Boolean.TRUE);
+                        return null;
+                    }
+
+                    Group group = itemToGroup(item);
+                    groupObjectCache.asMap().putIfAbsent(groupId, group);
+                    return group;
+                });
+        }
+
+        return future.thenApply(group -> {
+            if (group == null) {
+                cacheLog.result(Message.DEFAULT_FAILURE_STATUS, Message.AWS_GET_FAILURE, GROUP_ID_KEY, groupId);
+                return new Group.GroupBuilder(Group.EMPTY_GROUP_ID)
+                    .build();
+            }
+
+            cacheLog.result(Message.DEFAULT_SUCCESS_STATUS, Message.AWS_GET_SUCCESS, GROUP_ID_KEY, groupId);
+            return group;
+        });
+    }
+
+    /**
+     * Read the fields of every group that the search index needs. A paginated Scan that only projects those
+     * attributes; run it in the background, not on a request.
+     *
+     * @return partial groups, with only groupId, groupName, groupType and groupDescription set. Never cache them.
+     */
+    public List<Group> scanIndexedFields() {
+        List<Group> groups = new ArrayList<>();
+
+        String projection = GROUP_ID_KEY + ", " + GROUP_NAME_KEY + ", " + GROUP_TYPE_KEY + ", " +
+            GROUP_DESCRIPTION_KEY;
+        for (Map<String, AttributeValue> item : groupStore.scan(projection)) {
+            try {
+                groups.add(new Group.GroupBuilder(item.get(GROUP_ID_KEY).getS())
+                    .withGroupName(item.get(GROUP_NAME_KEY).getS())
+                    .withGroupType(item.get(GROUP_TYPE_KEY).getS())
+                    .withGroupDescription(item.get(GROUP_DESCRIPTION_KEY).getS())
+                    .build());
+            } catch (NullPointerException npe) {
+                cacheLog.failure("Unreadable group.", npe);
+            }
+        }
+
+        return groups;
+    }
+
+    /**
+     * Copy the groupUsers string set of every group into the membership table. A paginated Scan; run it in the
+     * background, not on a request.
+     *
+     * @return true if every membership was copied
+     * @throws AmazonServiceException if the scan fails
+     */
+    public boolean backfillMemberships() {
+        boolean succeeded = true;
+
+        for (Map<String, AttributeValue> item : groupStore.scan(GROUP_ID_KEY + ", " + GROUP_USERS_KEY)) {
+            String groupId = item.get(GROUP_ID_KEY).getS();
+            succeeded &= GrouperServiceApplication.membershipStore.backfill(MembershipStore.GROUP, groupId,
+                MembershipStore.USER, stringSet(item.get(GROUP_USERS_KEY)), () -> {
+                    Map<String, AttributeValue> current = groupStore.getConsistent(groupId);
+                    return current == null ? new ArrayList<>() : stringSet(current.get(GROUP_USERS_KEY));
+                });
+        }
+
+        return succeeded;
+    }
+
+    /**
+     * Serialized /getGroup responses, tagged with the group version they were built from. Dropped whenever this cache
+     * writes the group.
+     */
+    public ResponseCache getResponseCache() {
+        return groupResponses;
+    }
+
+    /**
+     * Get every group with one of the provided groupIds. Groups missing from the cache are loaded together, with one
+     * BatchGetItem per 100 misses.
+     *
+     * @param groupIds   groupIds to get
+     * @return groupId -> Group, in the order of groupIds. Groups that could not be loaded are EMPTY_GROUP_ID groups.
+     */
+    public Map<String, Group> getObjects(Iterable<String> groupIds) {
+        try {
+            Map<String, Group> groups = inOrder(groupIds, loadPresent(groupIds));
+            cacheLog.result(Message.DEFAULT_SUCCESS_STATUS, Message.AWS_GET_SUCCESS, GROUP_ID_KEY, groupIds);
+            return groups;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            cacheLog.failure("Batch get failed.", e);
+            cacheLog.result(Message.DEFAULT_FAILURE_STATUS, Message.AWS_GET_FAILURE, GROUP_ID_KEY, groupIds);
+            return inOrder(groupIds, new HashMap<>());
+        }
+    }
+
+    /**
+     * getObjects for callers that have to tell a group that doesn't exist from one that couldn't be read.
+     *
+     * @param groupIds   groupIds to get
+     * @return groupId -> Group, in the order of groupIds. Groups that don't exist are EMPTY_GROUP_ID groups.
+     * @throws AmazonServiceException if the groups can't be read
+     */
+    public Map<String, Group> getObjectsOrThrow(Iterable<String> groupIds) {
+        try {
+            return inOrder(groupIds, loadPresent(groupIds));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new UncheckedExecutionException(cause);
+        }
+    }
+
+    // The groups that exist, loading the ones missing from the cache
+    private static Map<String, Group> loadPresent(Iterable<String> groupIds) throws ExecutionException {
+        List<String> idsToLoad = new ArrayList<>();
+        for (String groupId : groupIds) {
+            if (missingGroupIds.getIfPresent(groupId) == null) {
+                idsToLoad.add(groupId);
+            }
+        }
+
+        try {
+            return groupObjectCache.getAll(idsToLoad);
+        } catch (CacheLoader.InvalidCacheLoadException icle) {
+            // Some ids had no item. The ones that did are cached now.
+            return groupObjectCache.getAllPresent(idsToLoad);
+        }
+    }
+
+    private static Map<String, Group> inOrder(Iterable<String> groupIds, Map<String, Group> loadedGroups) {
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (String groupId : groupIds) {
+            Group group = loadedGroups.get(groupId);
+            if (group == null) {
+                group = new Group.GroupBuilder(Group.EMPTY_GROUP_ID)
+                    .build();
+            }
+            groups.put(groupId, group);
+        }
+        return groups;
+    }
+
+    /**
+     * Write the fields of a group that the caller changed. Members are left alone, they are only changed through
+     * addUser and removeUser.
+     *
+     * Conditional on baseGroup's version, with the same bounded retry-and-merge as UserObjectCache.updateObject.
+     *
+     * @param baseGroup the group as the caller read it
+     * @param group     baseGroup with the caller's changes
+     */
+    public Message updateObject(Group baseGroup, Group group) {
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_UPDATE_SUCCESS;
 
+        Map<String, AttributeValue> baseItem = toItem(baseGroup);
+        Map<String, AttributeValue> changes = FieldMerge.changes(baseItem, toItem(group), UPDATED_KEYS);
+        Map<String, AttributeValue> currentItem = baseItem;
+        long expectedVersion = baseGroup.getGroupVersion();
+        Group writtenGroup = null;
+
         try {
-            Map<String, AttributeValue> key = new HashMap<>();
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-
-            key.put(GROUP_ID_KEY, new AttributeValue()
-                .withS(group.getGroupId()));
-            expressionAttributeValues.put(":val1", new AttributeValue()
-                .withS(group.getGroupName()));
-            expressionAttributeValues.put(":val2", new AttributeValue()
-                .withS(group.getGroupType()));
-            expressionAttributeValues.put(":val3", new AttributeValue()
-                .withS(group.getGroupDescription()));
-            expressionAttributeValues.put(":val4", new AttributeValue()
-                .withS(group.getGroupEvent()));
-            expressionAttributeValues.put(":val5", new AttributeValue()
-                .withS(group.getGroupOwner()));
-            expressionAttributeValues.put(":val6", new AttributeValue()
-                .withM(group.getGroupSkillSet()
-                    .toAttributeValue()));
-            expressionAttributeValues.put(":val7", new AttributeValue()
-                .withSS(group.getGroupUsers()));
+            for (int attempt = 1; ; attempt++) {
+                if (!FieldMerge.conflicts(baseItem, currentItem, changes).isEmpty()) {
+                    status = Message.DEFAULT_FAILURE_STATUS;
+                    description = Message.UPDATE_CONFLICT_DESC;
+                    break;
+                }
 
-            UpdateItemRequest request = new UpdateItemRequest().withTableName(GROUP_TABLE_NAME).withKey(key)
-                .withUpdateExpression(GROUP_UPDATE_EXPRESSION).withExpressionAttributeValues(expressionAttributeValues)
-                .withReturnValues(ReturnValue.ALL_NEW);
+                Map<String, AttributeValue> pending = FieldMerge.pending(currentItem, changes);
+                if (pending.isEmpty()) {
+                    break;
+                }
 
-            UpdateItemResult result = GrouperServiceApplication.dynamoClient.updateItem(request);
-            groupObjectCache.put(group.getGroupId(), group);
+                try {
+                    groupStore.update(FieldMerge.write(new DynamoUpdate(GROUP_TABLE_NAME, GROUP_ID_KEY,
+                        group.getGroupId()), pending)
+                        .incrementVersion(GROUP_VERSION_KEY)
+                        .expectVersion(GROUP_VERSION_KEY, expectedVersion));
+
+                    Map<String, AttributeValue> written = FieldMerge.apply(currentItem, pending);
+                    written.put(GROUP_VERSION_KEY, new AttributeValue()
+                        .withN(Long.toString(expectedVersion + 1)));
+                    Group newGroup = itemToGroup(written);
+                    // A higher cached version came from a membership change applied to an older copy, drop it
+                    groupObjectCache.asMap().compute(group.getGroupId(), (groupId, cached) -> cached != null &&
+                        cached.getGroupVersion() > newGroup.getGroupVersion() ? null : newGroup);
+                    groupResponses.invalidate(group.getGroupId());
+                    writtenGroup = newGroup;
+                    break;
+                } catch (ConditionalCheckFailedException ccfe) {
+                    // Consistent, since an eventually consistent read can still return the version that just failed
+                    Map<String, AttributeValue> item = groupStore.getConsistent(group.getGroupId());
+                    if (item == null || attempt == DynamoUpdate.MAXIMUM_VERSION_ATTEMPTS) {
+                        throw ccfe;
+                    }
+
+                    Group currentGroup = itemToGroup(item);
+                    currentItem = toItem(currentGroup);
+                    expectedVersion = currentGroup.getGroupVersion();
+                    groupObjectCache.put(currentGroup.getGroupId(), currentGroup);
+                    groupResponses.invalidate(currentGroup.getGroupId());
+                }
+            }
 
         } catch (AmazonServiceException ase) {
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Group update " +
-                "failed.");
-            System.err.println(ase);
+            cacheLog.failure("Group update failed.", ase);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_UPDATE_FAILURE;
         }
 
-        logResult(status, description, GROUP_OBJECT_KEY, group);
+        if (writtenGroup != null) {
+            GrouperServiceApplication.searchIndex.indexGroup(writtenGroup);
+        }
+
+        cacheLog.result(status, description, GROUP_ID_KEY, group.getGroupId());
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -161,47 +445,130 @@ public class GroupObjectCache {
             .build();
     }
 
+    public CompletableFuture<Message> addUser(String groupId, String userId) {
+        CompletableFuture<Message> update = updateUsers(groupId,
+            new DynamoUpdate(GROUP_TABLE_NAME, GROUP_ID_KEY, groupId)
+                .add(GROUP_USERS_KEY, new AttributeValue()
+                    .withSS(userId)),
+            group -> group.addUser(userId));
+        return MembershipStore.mirror(update, () -> GrouperServiceApplication.membershipStore
+            .add(MembershipStore.GROUP, groupId, MembershipStore.USER, userId));
+    }
+
+    public CompletableFuture<Message> removeUser(String groupId, String userId) {
+        CompletableFuture<Message> update = updateUsers(groupId,
+            new DynamoUpdate(GROUP_TABLE_NAME, GROUP_ID_KEY, groupId)
+                .delete(GROUP_USERS_KEY, new AttributeValue()
+                    .withSS(userId)),
+            group -> group.removeUser(userId));
+        return MembershipStore.mirror(update, () -> GrouperServiceApplication.membershipStore
+            .remove(MembershipStore.GROUP, groupId, MembershipStore.USER, userId));
+    }
+
+    // Apply a single membership change in DynamoDB, then to a copy of the cached group. The cached group is
+    // replaced, never changed in place, since readers may be holding it.
+    private CompletableFuture<Message> updateUsers(String groupId, DynamoUpdate update, Consumer<Group> change) {
+        return groupStore.updateAsync(update
+            .incrementVersion(GROUP_VERSION_KEY))
+            .handle((result, throwable) -> {
+                int status = Message.DEFAULT_SUCCESS_STATUS;
+                String description = Message.AWS_UPDATE_SUCCESS;
+
+                if (throwable == null) {
+                    groupObjectCache.asMap().computeIfPresent(groupId, (id, current) -> {
+                        Group group = copyOf(current, current.getGroupUsers(), current.getGroupVersion() + 1);
+                        change.accept(group);
+                        return group;
+                    });
+                    groupResponses.invalidate(groupId);
+                } else {
+                    cacheLog.failure("Group update failed.", Storage.cause(throwable));
+                    status = Message.DEFAULT_FAILURE_STATUS;
+                    description = Message.AWS_UPDATE_FAILURE;
+                }
+
+                cacheLog.result(status, description, GROUP_ID_KEY, groupId);
+
+                return new Message.MessageBuilder(status)
+                    .withDescription(description)
+                    .withField(GROUP_ID_KEY)
+                    .withValue(groupId)
+                    .build();
+            });
+    }
+
+    private static Group copyOf(Group group, List<String> groupUsers, long groupVersion) {
+        return new Group.GroupBuilder(group.getGroupId())
+            .withGroupName(group.getGroupName())
+            .withGroupType(group.getGroupType())
+            .withGroupDescription(group.getGroupDescription())
+            .withGroupEvent(group.getGroupEvent())
+            .withGroupOwner(group.getGroupOwner())
+            .withGroupSkillSet(new SkillSet(group.getGroupSkillSet().getSkillMask()))
+            .withGroupUsers(groupUsers)
+            .withGroupVersion(groupVersion)
+            .build();
+    }
+
+    /**
+     * The group table of a storage backend. Also used to load generated data without going through a cache.
+     */
+    public static ObjectStore objectStore(Storage storage) {
+        return storage.objectStore(GROUP_TABLE_NAME, GROUP_ID_KEY, GROUP_PROJECTION_EXPRESSION);
+    }
+
+    /**
+     * @param group new group
+     * @return the item putObject creates for the group, at version 1
+     */
+    public static Map<String, AttributeValue> toItem(Group group) {
+        Map<String, AttributeValue> item = new HashMap<>();
+
+        item.put(GROUP_ID_KEY, new AttributeValue()
+            .withS(group.getGroupId()));
+        item.put(GROUP_NAME_KEY, new AttributeValue()
+            .withS(group.getGroupName()));
+        item.put(GROUP_TYPE_KEY, new AttributeValue()
+            .withS(group.getGroupType()));
+        item.put(GROUP_DESCRIPTION_KEY, new AttributeValue()
+            .withS(group.getGroupDescription()));
+        item.put(GROUP_EVENT_KEY, new AttributeValue()
+            .withS(group.getGroupEvent()));
+        item.put(GROUP_OWNER_KEY, new AttributeValue()
+            .withS(group.getGroupOwner()));
+        item.put(GROUP_SKILLSET_KEY, group.getGroupSkillSet()
+            .toAttributeValue());
+        // DynamoDB doesn't store empty sets
+        if (!group.getGroupUsers().isEmpty()) {
+            item.put(GROUP_USERS_KEY, new AttributeValue()
+                .withSS(group.getGroupUsers()));
+        }
+
+        item.put(GROUP_VERSION_KEY, new AttributeValue()
+            .withN("1"));
+
+        return item;
+    }
+
     public Message putObject(Group group) {
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_PUT_SUCCESS;
 
         try {
-            Map<String, AttributeValue> newItem = new HashMap<>();
-
-            newItem.put(GROUP_ID_KEY, new AttributeValue()
-                .withS(group.getGroupId()));
-            newItem.put(GROUP_NAME_KEY, new AttributeValue()
-                .withS(group.getGroupName()));
-            newItem.put(GROUP_TYPE_KEY, new AttributeValue()
-                .withS(group.getGroupType()));
-            newItem.put(GROUP_DESCRIPTION_KEY, new AttributeValue()
-                .withS(group.getGroupDescription()));
-            newItem.put(GROUP_EVENT_KEY, new AttributeValue()
-                .withS(group.getGroupEvent()));
-            newItem.put(GROUP_OWNER_KEY, new AttributeValue()
-                .withS(group.getGroupOwner()));
-            newItem.put(GROUP_SKILLSET_KEY, new AttributeValue()
-                .withM(group.getGroupSkillSet()
-                    .toAttributeValue()));
-            newItem.put(GROUP_USERS_KEY, new AttributeValue()
-                .withSS(group.getGroupUsers()));
-
-            PutItemRequest request = new PutItemRequest()
-                .withTableName(GROUP_TABLE_NAME)
-                .withItem(newItem);
-
-            GrouperServiceApplication.dynamoClient.putItem(request);
-            groupObjectCache.put(group.getGroupId(), group);
+            // Never overwrites an existing group
+            groupStore.create(toItem(group));
+            missingGroupIds.invalidate(group.getGroupId());
+            groupObjectCache.put(group.getGroupId(), copyOf(group, group.getGroupUsers(), 1));
+            groupResponses.invalidate(group.getGroupId());
+            GrouperServiceApplication.searchIndex.indexGroup(group);
 
         } catch (AmazonServiceException ase) {
-            System.err.println(ase);
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Create group " +
-                "failed.");
+            cacheLog.failure("Create group failed.", ase);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_PUT_FAILURE;
         }
 
-        logResult(status, description, GROUP_OBJECT_KEY, group);
+        cacheLog.result(status, description, GROUP_ID_KEY, group.getGroupId());
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -214,28 +581,21 @@ public class GroupObjectCache {
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_DELETE_SUCCESS;
 
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put(GROUP_ID_KEY, new AttributeValue()
-            .withS(groupId));
-
-        DeleteItemRequest request = new DeleteItemRequest()
-            .withTableName(GROUP_TABLE_NAME)
-            .withKey(key);
-        DeleteItemResult result = GrouperServiceApplication.dynamoClient.deleteItem(request);
-        groupObjectCache.put(groupId, new Group.GroupBuilder(Group.EMPTY_GROUP_ID)
-            .build());
-
         try {
+            groupStore.delete(groupId);
+            groupObjectCache.invalidate(groupId);
+            groupResponses.invalidate(groupId);
+            missingGroupIds.put(groupId, Boolean.TRUE);
+            GrouperServiceApplication.membershipStore.removeAllLater(MembershipStore.GROUP, groupId);
+            GrouperServiceApplication.searchIndex.remove(SearchIndex.GROUP, groupId);
 
         } catch (AmazonServiceException ase) {
-            System.err.println(ase);
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Delete group " +
-                "failed.");
+            cacheLog.failure("Delete group failed.", ase);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_DELETE_FAILURE;
         }
 
-        logResult(status, description, GROUP_ID_KEY, groupId);
+        cacheLog.result(status, description, GROUP_ID_KEY, groupId);
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -244,13 +604,47 @@ public class GroupObjectCache {
             .build();
     }
 
-    private void logResult(int status, String description, String field, Object value) {
-        System.out.println(new Message.MessageBuilder(status)
-            .withDescription(description)
-            .withField(field)
-            .withValue(value)
-            .build()
-            .toString());
+    /**
+     * Delete several groups with BatchWriteItem, 25 per request.
+     *
+     * @return one Message per unique groupId, in order
+     */
+    public ArrayList<Message> deleteObjects(Collection<String> groupIds) {
+        Set<String> failedIds;
+        try {
+            failedIds = groupStore.batchDelete(groupIds);
+        } catch (AmazonServiceException ase) {
+            cacheLog.failure("Batch delete failed.", ase);
+            failedIds = new HashSet<>(groupIds);
+        }
+
+        ArrayList<Message> messages = new ArrayList<>();
+        for (String groupId : new LinkedHashSet<>(groupIds)) {
+            int status = Message.DEFAULT_SUCCESS_STATUS;
+            String description = Message.AWS_DELETE_SUCCESS;
+
+            if (failedIds.contains(groupId)) {
+                status = Message.DEFAULT_FAILURE_STATUS;
+                description = Message.AWS_DELETE_FAILURE;
+            } else {
+                groupObjectCache.invalidate(groupId);
+                groupResponses.invalidate(groupId);
+                missingGroupIds.put(groupId, Boolean.TRUE);
+                GrouperServiceApplication.membershipStore.removeAllLater(MembershipStore.GROUP, groupId);
+                GrouperServiceApplication.searchIndex.remove(SearchIndex.GROUP, groupId);
+            }
+
+            messages.add(new Message.MessageBuilder(status)
+                .withDescription(description)
+                .withField(GROUP_ID_KEY)
+                .withValue(groupId)
+                .build());
+        }
+
+        cacheLog.result(failedIds.isEmpty() ? Message.DEFAULT_SUCCESS_STATUS : Message.DEFAULT_FAILURE_STATUS,
+            failedIds.isEmpty() ? Message.AWS_DELETE_SUCCESS : Message.AWS_DELETE_FAILURE, GROUP_ID_KEY, groupIds);
+
+        return messages;
     }
 
 }
@@ -0,0 +1,364 @@
+package com.grouper.objectcache;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.grouper.models.MembershipPage;
+import com.grouper.models.Message;
+import com.grouper.storage.EdgeStore;
+import com.grouper.storage.Storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Event and group memberships as one item per edge, in the grouper-memberships table:
+ *
+ * <pre>
+ *     parentKey (hash)     memberKey (range)    memberId    joinedAt
+ *     event#&lt;eventId&gt;     user#&lt;userId&gt;        userId      epoch millis
+ *     event#&lt;eventId&gt;     group#&lt;groupId&gt;      groupId
+ *     group#&lt;groupId&gt;     user#&lt;userId&gt;        userId
+ * </pre>
+ *
+ * A roster is read one page at a time with a Query on parentKey and a begins_with on memberKey, so a page costs the
+ * same for an event with 10 users as for one with 100,000, and no item grows with the event.
+ *
+ * The event and group caches write every membership change here as well as to their string sets, which the existing
+ * object endpoints still return. Memberships written before this table existed are copied over by a one-time
+ * backfill (see {@link #isBackfilled()}); until it has run, pages are cut from the string sets instead.
+ */
+public class MembershipStore {
+
+    public static final String EVENT = "event";
+    public static final String GROUP = "group";
+    public static final String USER = "user";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAXIMUM_PAGE_SIZE = 100;
+
+    private static final String MEMBERSHIP_TABLE_NAME = "grouper-memberships";
+    private static final String PARENT_KEY = "parentKey";
+    private static final String MEMBER_KEY = "memberKey";
+    private static final String MEMBER_ID_KEY = "memberId";
+    private static final String JOINED_AT_KEY = "joinedAt";
+
+    private static final String KEY_SEPARATOR = "#";
+
+    // Written once the backfill has copied every string set, so later startups skip it
+    private static final String BACKFILL_PARENT_KEY = "backfill" + KEY_SEPARATOR + "memberships";
+    private static final String BACKFILL_MEMBER_KEY = "done" + KEY_SEPARATOR + "1";
+
+    private static final CacheLog cacheLog = new CacheLog("membership");
+
+    private final EdgeStore memberships;
+
+    // parentKeys of deleted events and groups whose edges haven't all been removed yet
+    private final Set<String> pendingRemovals = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean backfilled;
+
+    public MembershipStore(Storage storage) {
+        this.memberships = storage.edgeStore(MEMBERSHIP_TABLE_NAME, PARENT_KEY, MEMBER_KEY);
+    }
+
+    /**
+     * Record that memberId (of kind memberKind) belongs to parentId. Overwrites the same edge, so retries are safe.
+     *
+     * @return a future of whether the write succeeded
+     */
+    public CompletableFuture<Boolean> add(String parentKind, String parentId, String memberKind, String memberId) {
+        Map<String, AttributeValue> item = key(parentKind, parentId, memberKind, memberId);
+        item.put(MEMBER_ID_KEY, new AttributeValue()
+            .withS(memberId));
+        item.put(JOINED_AT_KEY, new AttributeValue()
+            .withN(Long.toString(System.currentTimeMillis())));
+
+        return this.memberships.put(item)
+            .handle((result, throwable) -> succeeded("Add membership failed.", throwable));
+    }
+
+    /**
+     * Remove an edge. Removing an edge that doesn't exist succeeds.
+     *
+     * @return a future of whether the delete succeeded
+     */
+    public CompletableFuture<Boolean> remove(String parentKind, String parentId, String memberKind, String memberId) {
+        return this.memberships.delete(parentKind + KEY_SEPARATOR + parentId, memberKind + KEY_SEPARATOR + memberId)
+            .handle((result, throwable) -> succeeded("Remove membership failed.", throwable));
+    }
+
+    /**
+     * Read one page of the members of one kind under a parent, ordered by member id.
+     *
+     * @param limit  page size, clamped to [1, MAXIMUM_PAGE_SIZE]
+     * @param cursor cursor from the previous page, or null/empty for the first page
+     * @return a future of the page. Fails with IllegalArgumentException if the cursor is not one this store issued
+     *         for the same parent and member kind.
+     */
+    public CompletableFuture<MembershipPage> page(String parentKind, String parentId, String memberKind, int limit,
+                                                  String cursor) {
+        String parentKey = parentKind + KEY_SEPARATOR + parentId;
+        String memberPrefix = memberKind + KEY_SEPARATOR;
+
+        String startMemberKey = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            startMemberKey = decodeCursor(cursor);
+            if (startMemberKey == null || !startMemberKey.startsWith(memberPrefix)) {
+                CompletableFuture<MembershipPage> invalid = new CompletableFuture<>();
+                invalid.completeExceptionally(new IllegalArgumentException("Invalid cursor: " + cursor));
+                return invalid;
+            }
+        }
+
+        return this.memberships.query(parentKey, memberPrefix, startMemberKey,
+            Math.max(1, Math.min(limit, MAXIMUM_PAGE_SIZE)), MEMBER_KEY + ", " + MEMBER_ID_KEY)
+            .thenApply(MembershipStore::toPage);
+    }
+
+    /**
+     * Like {@link #page(String, String, String, int, String)}, but until the backfill has run the page is cut from
+     * the parent's string set instead, since the table may not hold every membership yet. Cursors work across the
+     * switch.
+     *
+     * @param setMembers reads the parent's string set of this member kind, empty if the parent doesn't exist
+     */
+    public CompletableFuture<MembershipPage> page(String parentKind, String parentId, String memberKind, int limit,
+                                                  String cursor,
+                                                  Supplier<CompletableFuture<List<String>>> setMembers) {
+        if (this.backfilled) {
+            return page(parentKind, parentId, memberKind, limit, cursor);
+        }
+
+        String memberPrefix = memberKind + KEY_SEPARATOR;
+        String startMemberKey = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            startMemberKey = decodeCursor(cursor);
+            if (startMemberKey == null || !startMemberKey.startsWith(memberPrefix)) {
+                CompletableFuture<MembershipPage> invalid = new CompletableFuture<>();
+                invalid.completeExceptionally(new IllegalArgumentException("Invalid cursor: " + cursor));
+                return invalid;
+            }
+        }
+
+        String startAfter = startMemberKey == null ? null : startMemberKey.substring(memberPrefix.length());
+        int pageSize = Math.max(1, Math.min(limit, MAXIMUM_PAGE_SIZE));
+        return setMembers.get().thenApply(members -> toPage(members, memberPrefix, startAfter, pageSize));
+    }
+
+    /**
+     * @return whether the backfill has copied every string set into the table, on this or an earlier run
+     */
+    public boolean isBackfilled() {
+        return this.backfilled;
+    }
+
+    /**
+     * Check for the marker an earlier backfill left, and switch paging to the table if it is there.
+     *
+     * @throws AmazonServiceException if the marker can't be read
+     */
+    public boolean readBackfillMarker() {
+        if (!this.backfilled) {
+            this.backfilled = !this.memberships.query(BACKFILL_PARENT_KEY, BACKFILL_MEMBER_KEY, null, 1, MEMBER_KEY)
+                .join().getItems().isEmpty();
+        }
+        return this.backfilled;
+    }
+
+    /**
+     * Record that every string set has been copied, and switch paging to the table.
+     *
+     * @return whether the marker was written
+     */
+    public boolean markBackfilled() {
+        Map<String, AttributeValue> marker = new HashMap<>();
+        marker.put(PARENT_KEY, new AttributeValue()
+            .withS(BACKFILL_PARENT_KEY));
+        marker.put(MEMBER_KEY, new AttributeValue()
+            .withS(BACKFILL_MEMBER_KEY));
+
+        boolean written = this.memberships.put(marker)
+            .handle((result, throwable) -> succeeded("Writing backfill marker failed.", throwable))
+            .join();
+        this.backfilled = written;
+        return written;
+    }
+
+    /**
+     * Copy one parent's string set into the table. A member removed while its edge was being written would leave a
+     * stale edge behind, so the set is read again afterwards and edges of members no longer in it are removed.
+     *
+     * @param members        the string set as scanned
+     * @param currentMembers a consistent read of the same string set
+     * @return true if every edge was written
+     */
+    boolean backfill(String parentKind, String parentId, String memberKind, List<String> members,
+                     Supplier<List<String>> currentMembers) {
+        if (members.isEmpty()) {
+            return true;
+        }
+
+        List<CompletableFuture<Boolean>> adds = new ArrayList<>(members.size());
+        for (String memberId : members) {
+            adds.add(add(parentKind, parentId, memberKind, memberId));
+        }
+        boolean succeeded = true;
+        for (CompletableFuture<Boolean> add : adds) {
+            succeeded &= add.join();
+        }
+
+        Set<String> current = new HashSet<>(currentMembers.get());
+        for (String memberId : members) {
+            if (!current.contains(memberId)) {
+                succeeded &= remove(parentKind, parentId, memberKind, memberId).join();
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * Remove every edge under a deleted event or group, on the refresh executor, so the delete doesn't wait for the
+     * Query and BatchWriteItem calls. A parent whose edges can't all be removed stays queued for
+     * {@link #retryRemovals}. The queue is in memory, so a node that restarts first leaves those edges behind.
+     */
+    void removeAllLater(String parentKind, String parentId) {
+        String parentKey = parentKind + KEY_SEPARATOR + parentId;
+        this.pendingRemovals.add(parentKey);
+        CacheSupport.runInBackground(() -> removePending(parentKey));
+    }
+
+    /**
+     * Retry the removals queued by {@link #removeAllLater} that failed. Runs on the index refresh schedule.
+     *
+     * @return true if no removals are left
+     */
+    public boolean retryRemovals() {
+        for (String parentKey : this.pendingRemovals) {
+            removePending(parentKey);
+        }
+        return this.pendingRemovals.isEmpty();
+    }
+
+    /**
+     * Remove every edge under a parent, when the event or group itself is deleted.
+     *
+     * @return true if every edge was removed
+     */
+    boolean removeAll(String parentKind, String parentId) {
+        return removeAll(parentKind + KEY_SEPARATOR + parentId);
+    }
+
+    private void removePending(String parentKey) {
+        if (removeAll(parentKey)) {
+            this.pendingRemovals.remove(parentKey);
+        }
+    }
+
+    private boolean removeAll(String parentKey) {
+        List<Map<String, AttributeValue>> keys;
+        try {
+            keys = this.memberships.keys(parentKey);
+        } catch (AmazonServiceException ase) {
+            cacheLog.failure("Reading memberships to remove failed.", ase);
+            return false;
+        }
+
+        List<Map<String, AttributeValue>> failedKeys = this.memberships.batchDelete(keys);
+        cacheLog.result(failedKeys.isEmpty() ? Message.DEFAULT_SUCCESS_STATUS : Message.DEFAULT_FAILURE_STATUS,
+            failedKeys.isEmpty() ? Message.AWS_DELETE_SUCCESS : Message.AWS_DELETE_FAILURE, PARENT_KEY, parentKey);
+        return failedKeys.isEmpty();
+    }
+
+    /**
+     * Follow a successful set update with its membership write. If the membership write fails, the result is a
+     * failure, so the caller retries both; they are idempotent.
+     */
+    static CompletableFuture<Message> mirror(CompletableFuture<Message> setUpdate,
+                                             Supplier<CompletableFuture<Boolean>> membershipWrite) {
+        return setUpdate.thenCompose(message -> {
+            if (message.getStatus() != Message.DEFAULT_SUCCESS_STATUS) {
+                return CompletableFuture.completedFuture(message);
+            }
+
+            return membershipWrite.get().thenApply(succeeded -> succeeded ? message :
+                new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_UPDATE_FAILURE)
+                    .withField(message.getField())
+                    .withValue(message.getValue())
+                    .build());
+        });
+    }
+
+    private static Map<String, AttributeValue> key(String parentKind, String parentId, String memberKind,
+                                                   String memberId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(PARENT_KEY, new AttributeValue()
+            .withS(parentKind + KEY_SEPARATOR + parentId));
+        key.put(MEMBER_KEY, new AttributeValue()
+            .withS(memberKind + KEY_SEPARATOR + memberId));
+        return key;
+    }
+
+    private static boolean succeeded(String action, Throwable throwable) {
+        if (throwable != null) {
+            cacheLog.failure(action, Storage.cause(throwable));
+            return false;
+        }
+        return true;
+    }
+
+    // A page of a string set, in the order the table would return it
+    private static MembershipPage toPage(List<String> members, String memberPrefix, String startAfter, int limit) {
+        List<String> sorted = new ArrayList<>(members);
+        Collections.sort(sorted);
+
+        int start = 0;
+        if (startAfter != null) {
+            // Continue after the cursor's member, or after where it was if it has left the set since
+            int found = Collections.binarySearch(sorted, startAfter);
+            start = found >= 0 ? found + 1 : -found - 1;
+        }
+
+        int end = Math.min(sorted.size(), start + limit);
+        List<String> page = new ArrayList<>(sorted.subList(start, end));
+        String cursor = end < sorted.size() ? encodeCursor(memberPrefix + sorted.get(end - 1)) : null;
+        return new MembershipPage(page, cursor);
+    }
+
+    private static MembershipPage toPage(QueryResult result) {
+        List<String> members = new ArrayList<>(result.getItems().size());
+        for (Map<String, AttributeValue> item : result.getItems()) {
+            members.add(item.get(MEMBER_ID_KEY).getS());
+        }
+
+        // DynamoDB may return a last key on a full final page; the next request then just returns an empty page
+        Map<String, AttributeValue> lastKey = result.getLastEvaluatedKey();
+        String cursor = lastKey == null || lastKey.isEmpty() ? null : encodeCursor(lastKey.get(MEMBER_KEY).getS());
+        return new MembershipPage(members, cursor);
+    }
+
+    // Cursors are the last member key read, opaque to clients
+    private static String encodeCursor(String memberKey) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(memberKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.grouper.objectcache;
+
+/**
+ * Thrown by the object cache loaders when DynamoDB has no item under the requested id. Guava never caches a failed
+ * load, so the id is recorded in the cache's missing-id cache instead of taking a slot in the object cache.
+ */
+class ObjectNotFoundException extends Exception {
+
+    ObjectNotFoundException(String id) {
+        super(id);
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.grouper.objectcache;
+
+import com.google.common.cache.Weigher;
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.User;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate heap sizes of cached objects, in bytes, for weight-bounded caches. The estimates assume a 64-bit JVM
+ * with compressed oops and UTF-16 strings. They only need to be proportional: an event with 3,000 users has to
+ * cost about 3,000 times what one of its ids costs, not the exact number of bytes.
+ */
+final class ObjectWeigher {
+
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 8;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int LIST_OVERHEAD = 40;
+    private static final int MAP_OVERHEAD = 48;
+    private static final int MAP_ENTRY_OVERHEAD = 48;
+    private static final int SKILL_SET_SIZE = 24;
+    private static final int DATE_SIZE = 24;
+    private static final int DOUBLE_SIZE = 16;
+
+    static final Weigher<String, User> USER = (userId, user) -> saturate(OBJECT_OVERHEAD + 5 * REFERENCE_SIZE +
+        weigh(userId) + weigh(user.getUserName()) + weigh(user.getUserOccupation()) + SKILL_SET_SIZE +
+        weigh(user.getUserEventMap()));
+
+    static final Weigher<String, Group> GROUP = (groupId, group) -> saturate(OBJECT_OVERHEAD + 8 * REFERENCE_SIZE +
+        weigh(groupId) + weigh(group.getGroupName()) + weigh(group.getGroupType()) +
+        weigh(group.getGroupDescription()) + weigh(group.getGroupEvent()) + weigh(group.getGroupOwner()) +
+        SKILL_SET_SIZE + weigh(group.getGroupUsers()));
+
+    static final Weigher<String, Event> EVENT = (eventId, event) -> saturate(OBJECT_OVERHEAD + 9 * REFERENCE_SIZE +
+        weigh(eventId) + weigh(event.getEventName()) + DATE_SIZE + weigh(event.getEventLocation()) +
+        (event.hasCoordinates() ? 2 * DOUBLE_SIZE : 0) +
+        weigh(event.getEventDescription()) + weigh(event.getEventGroups()) + weigh(event.getEventUsers()));
+
+    private ObjectWeigher() {
+    }
+
+    private static long weigh(String string) {
+        return string == null ? 0 : STRING_OVERHEAD + 2L * string.length();
+    }
+
+    private static long weigh(List<String> strings) {
+        if (strings == null) {
+            return 0;
+        }
+
+        long weight = LIST_OVERHEAD;
+        for (String string : strings) {
+            weight += REFERENCE_SIZE + weigh(string);
+        }
+        return weight;
+    }
+
+    private static long weigh(Map<String, String> map) {
+        if (map == null) {
+            return 0;
+        }
+
+        long weight = MAP_OVERHEAD;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            weight += MAP_ENTRY_OVERHEAD + REFERENCE_SIZE + weigh(entry.getKey()) + weigh(entry.getValue());
+        }
+        return weight;
+    }
+
+    private static int saturate(long weight) {
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+}
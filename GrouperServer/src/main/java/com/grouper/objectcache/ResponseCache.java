@@ -0,0 +1,76 @@
+package com.grouper.objectcache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import java.util.function.Supplier;
+
+/**
+ * Serialized GET responses for one object cache, keyed by id and tagged with the version they were serialized
+ * from. A response is only served while the cached object is still at that version, and the object cache drops it
+ * whenever it writes the object, so a stale response is never returned and rarely kept.
+ *
+ * Bounded by grouper.cache.&lt;name&gt;.maximumWeightBytes, on the length of the stored bytes.
+ */
+public final class ResponseCache {
+
+    private static final long DEFAULT_MAXIMUM_WEIGHT_BYTES = 16L * 1024 * 1024;
+
+    // Entry, key and array headers
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private static final Weigher<String, SerializedResponse> WEIGHER = (id, response) -> (int) Math.min(
+        ENTRY_OVERHEAD + 2L * id.length() + response.bytes.length, Integer.MAX_VALUE);
+
+    private final Cache<String, SerializedResponse> responses;
+
+    /**
+     * @param cacheName cache name in settings and metrics (userResponse, groupResponse, eventResponse)
+     */
+    ResponseCache(String cacheName) {
+        long maximumWeight = CacheSupport.maximumWeight(cacheName, DEFAULT_MAXIMUM_WEIGHT_BYTES);
+        CacheMetrics metrics = CacheMetrics.register(cacheName, maximumWeight);
+
+        this.responses = CacheBuilder.newBuilder()
+            .maximumWeight(maximumWeight)
+            .weigher(WEIGHER)
+            .recordStats()
+            .removalListener(metrics)
+            .build();
+        metrics.attach(this.responses, null, WEIGHER);
+    }
+
+    /**
+     * Get the response for an object at the given version, serializing and storing it if there is none.
+     *
+     * @param serializer builds the response. Only called on a miss, and may run more than once for the same version
+     *                   under concurrent misses, which is harmless.
+     */
+    public byte[] get(String id, long version, Supplier<byte[]> serializer) {
+        SerializedResponse response = this.responses.getIfPresent(id);
+        if (response != null && response.version == version) {
+            return response.bytes;
+        }
+
+        byte[] bytes = serializer.get();
+        this.responses.put(id, new SerializedResponse(version, bytes));
+        return bytes;
+    }
+
+    void invalidate(String id) {
+        this.responses.invalidate(id);
+    }
+
+    private static final class SerializedResponse {
+
+        private final long version;
+        private final byte[] bytes;
+
+        private SerializedResponse(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+
+}
@@ -2,29 +2,40 @@ package com.grouper.objectcache;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.grouper.models.Group;
 import com.grouper.models.Message;
 import com.grouper.models.SkillSet;
 import com.grouper.models.User;
 import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.DynamoUpdate;
+import com.grouper.storage.ObjectStore;
+import com.grouper.storage.Storage;
 
 import javax.validation.constraints.Null;
-import java.time.Instant;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 public class UserObjectCache {
 
-    public static final int MAXIMUM_CACHE_SIZE = 1000;
+    private static final long DEFAULT_MAXIMUM_WEIGHT_BYTES = 32L * 1024 * 1024;
 
     private static final String USER_OBJECT_KEY = "User";
     private static final String USER_ID_KEY = "userId";
@@ -32,113 +43,334 @@ public class UserObjectCache {
     private static final String USER_OCCUPATION_KEY = "userOccupation";
     private static final String USER_SKILLSET_KEY = "userSkillSet";
     private static final String USER_EVENTMAP_KEY = "userEventMap";
+    private static final String USER_VERSION_KEY = "userVersion";
 
     private static final String USER_TABLE_NAME = "grouper-users";
+
+    // Attributes updateObject writes
+    private static final List<String> UPDATED_KEYS = Arrays.asList(USER_NAME_KEY, USER_OCCUPATION_KEY,
+        USER_SKILLSET_KEY);
     private static final String USER_PROJECTION_EXPRESSION = "userId, userName, userOccupation, userSkillSet," +
-        "userEventMap";
-    private static final String USER_UPDATE_EXPRESSION = "set userName=:val1, set userOccupation=:val2, set " +
-        "userSkillSet=:val3, set userEventMap=:val4";
+        "userEventMap, userVersion";
 
+    private static ObjectStore userStore;
+    private static BatchLoader userLoader;
     private static LoadingCache<String, User> userObjectCache;
+    private static Cache<String, Boolean> missingUserIds;
+    private static ResponseCache userResponses;
+    private static final CacheLog cacheLog = new CacheLog("user");
+
+    public static void init(Storage storage) {
 
-    public static void init() {
+        userStore = objectStore(storage);
 
         CacheLoader<String, User> loader;
         loader = new CacheLoader<String, User>() {
             @Override
             public User load(String s) throws Exception {
-                try {
-                    Map<String, AttributeValue> key = new HashMap<>();
-
-                    key.put(USER_ID_KEY, new AttributeValue()
-                        .withS(s));
-                    GetItemRequest request = new GetItemRequest()
-                        .withTableName(USER_TABLE_NAME)
-                        .withKey(key)
-                        .withProjectionExpression(USER_PROJECTION_EXPRESSION);
-
-                    Map<String, AttributeValue> result = GrouperServiceApplication.dynamoClient.getItem(request)
-                        .getItem();
-                    if (result == null) {
-                        throw new AmazonServiceException(Message.AWS_GET_FAILURE);
+                Map<String, AttributeValue> result = getItem(s);
+                if (result == null) {
+                    missingUserIds.put(s, Boolean.TRUE);
+                    throw new ObjectNotFoundException(s);
+                }
+
+                return itemToUser(result);
+            }
+
+            // Refreshes run in the background. If DynamoDB can't be reached, keep serving the current user. If the
+            // user is gone, the failed refresh leaves the entry alone and getObject drops it on its next read.
+            @Override
+            public ListenableFuture<User> reload(String s, User oldUser) throws Exception {
+                return CacheSupport.reloadAsync(() -> {
+                    try {
+                        Map<String, AttributeValue> result = getItem(s);
+                        if (result == null) {
+                            missingUserIds.put(s, Boolean.TRUE);
+                            throw new ObjectNotFoundException(s);
+                        }
+
+                        return itemToUser(result);
+                    } catch (AmazonServiceException ase) {
+                        cacheLog.failure("Refresh failed, keeping the cached user.", ase);
+                        return oldUser;
                     }
+                });
+            }
 
-                    return new User.UserBuilder(result.get(USER_ID_KEY).getS())
-                        .withUserName(result.get(USER_NAME_KEY)
-                            .getS())
-                        .withUserOccupation(result.get(USER_OCCUPATION_KEY)
-                            .getS())
-                        .withUserSkillSet(new SkillSet(SkillSet.extractSkillSet(result.get(USER_SKILLSET_KEY)
-                            .getM())))
-                        .withUserEventMap(User.extractUserEventMap(result.get(USER_EVENTMAP_KEY)
-                            .getM()))
-                        .build();
-                } catch (AmazonServiceException ase) {
-                    System.err.println(ase);
-                    return new User.UserBuilder(User.EMPTY_USER_ID)
-                        .build();
+            // Ids with no item are left out of the result and recorded as missing. Guava caches the users that
+            // were found and then reports the rest through InvalidCacheLoadException, which getObjects handles.
+            @Override
+            public Map<String, User> loadAll(Iterable<? extends String> keys) throws Exception {
+                Map<String, Map<String, AttributeValue>> items = userStore.batchGet(keys);
+
+                Map<String, User> users = new HashMap<>();
+                for (String key : keys) {
+                    Map<String, AttributeValue> item = items.get(key);
+                    if (item == null) {
+                        missingUserIds.put(key, Boolean.TRUE);
+                    } else {
+                        users.put(key, itemToUser(item));
+                    }
                 }
-
+                return users;
             }
         };
 
-        userObjectCache = CacheBuilder.newBuilder()
-            .maximumSize(MAXIMUM_CACHE_SIZE)
-            .build(loader);
+        long maximumWeight = CacheSupport.maximumWeight("user", DEFAULT_MAXIMUM_WEIGHT_BYTES);
+        CacheMetrics metrics = CacheMetrics.register("user", maximumWeight);
+        missingUserIds = CacheSupport.newMissingIdCache("user");
+        userResponses = new ResponseCache("userResponse");
+        userObjectCache = CacheSupport.withExpiry(CacheBuilder.newBuilder(), "user")
+            .maximumWeight(maximumWeight)
+            .weigher(ObjectWeigher.USER)
+            .recordStats()
+            .removalListener(metrics)
+            .build(metrics.instrument(loader));
+        metrics.attach(userObjectCache, missingUserIds, ObjectWeigher.USER);
+        userLoader = CacheSupport.newBatchLoader(userStore, "user", metrics);
+    }
+
+    // Concurrent single-item reads share a BatchGetItem, see BatchLoader
+    private static Map<String, AttributeValue> getItem(String userId) {
+        return userLoader.load(userId);
+    }
+
+    static User itemToUser(Map<String, AttributeValue> item) {
+        return new User.UserBuilder(item.get(USER_ID_KEY).getS())
+            .withUserName(item.get(USER_NAME_KEY)
+                .getS())
+            .withUserOccupation(item.get(USER_OCCUPATION_KEY)
+                .getS())
+            .withUserSkillSet(SkillSet.fromAttributeValue(item.get(USER_SKILLSET_KEY)))
+            .withUserEventMap(User.extractUserEventMap(item.get(USER_EVENTMAP_KEY)
+                .getM()))
+            .withUserVersion(DynamoUpdate.version(item.get(USER_VERSION_KEY)))
+            .build();
+    }
+
+    // Look up a user, without logging. Missing ids, and failed loads, come back as an EMPTY_USER_ID user, which
+    // is never cached.
+    private static User getUser(String userId) {
+        if (missingUserIds.getIfPresent(userId) != null) {
+            // A refresh may have found the user gone while it was still cached
+            userObjectCache.invalidate(userId);
+            userResponses.invalidate(userId);
+        } else {
+            try {
+                return userObjectCache.get(userId);
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                if (!(e.getCause() instanceof ObjectNotFoundException)) {
+                    cacheLog.failure("Load failed.", e);
+                }
+            }
+        }
+
+        return new User.UserBuilder(User.EMPTY_USER_ID)
+            .build();
     }
 
     public User getObject(String userId) {
-        User user = userObjectCache.getUnchecked(userId);
+        User user = getUser(userId);
+
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_GET_SUCCESS;
 
         if (user.getUserId() == User.EMPTY_USER_ID) {
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_GET_FAILURE;
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Get user failed" +
-                ".");
         }
 
-        logResult(status, description, USER_ID_KEY, userId);
+        cacheLog.result(status, description, USER_ID_KEY, userId);
         return user;
     }
 
-    public Message updateObject(User user) {
+    /**
+     * Get a user without blocking the calling thread. Cached users complete immediately. A miss joins the next
+     * read batch and is cached, unless a write cached a newer user in the meantime.
+     *
+     * @return a future of the user, or of an EMPTY_USER_ID user if it doesn't exist or can't be read
+     */
+    public CompletableFuture<User> getObjectAsync(String userId) {
+        CompletableFuture<User> future;
+        User cachedUser = userObjectCache.getIfPresent(userId);
+        if (missingUserIds.getIfPresent(userId) != null) {
+            future = CompletableFuture.completedFuture(null);
+        } else if (cachedUser != null) {
+            future = CompletableFuture.completedFuture(cachedUser);
+        } else {
+            future = userLoader.loadAsync(userId)
+                .handle((item, throwable) -> {
+                    if (throwable != null) {
+                        cacheLog.failure("Async get failed.", Storage.cause(throwable));
+                        return null;
+                    }
+
+                    if (item == null) {
+                        missingUserIds.put(userId, Boolean.TRUE);
+                        return null;
+                    }
+
+                    User user = itemToUser(item);
+                    userObjectCache.asMap().putIfAbsent(userId, user);
+                    return user;
+                });
+        }
+
+        return future.thenApply(user -> {
+            if (user == null) {
+                cacheLog.result(Message.DEFAULT_FAILURE_STATUS, Message.AWS_GET_FAILURE, USER_ID_KEY, userId);
+                return new User.UserBuilder(User.EMPTY_USER_ID)
+                    .build();
+            }
+
+            cacheLog.result(Message.DEFAULT_SUCCESS_STATUS, Message.AWS_GET_SUCCESS, USER_ID_KEY, userId);
+            return user;
+        });
+    }
+
+    /**
+     * Serialized /getUser responses, tagged with the user version they were built from. Dropped whenever this cache
+     * writes the user.
+     */
+    public ResponseCache getResponseCache() {
+        return userResponses;
+    }
+
+    /**
+     * Get every user with one of the provided userIds. Users missing from the cache are loaded together, with one
+     * BatchGetItem per 100 misses.
+     *
+     * @param userIds   userIds to get
+     * @return userId -> User, in the order of userIds. Users that could not be loaded are EMPTY_USER_ID users.
+     */
+    public Map<String, User> getObjects(Iterable<String> userIds) {
+        try {
+            Map<String, User> users = inOrder(userIds, loadPresent(userIds));
+            cacheLog.result(Message.DEFAULT_SUCCESS_STATUS, Message.AWS_GET_SUCCESS, USER_ID_KEY, userIds);
+            return users;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            cacheLog.failure("Batch get failed.", e);
+            cacheLog.result(Message.DEFAULT_FAILURE_STATUS, Message.AWS_GET_FAILURE, USER_ID_KEY, userIds);
+            return inOrder(userIds, new HashMap<>());
+        }
+    }
+
+    /**
+     * getObjects for callers that have to tell a user that doesn't exist from one that couldn't be read.
+     *
+     * @param userIds   userIds to get
+     * @return userId -> User, in the order of userIds. Users that don't exist are EMPTY_USER_ID users.
+     * @throws AmazonServiceException if the users can't be read
+     */
+    public Map<String, User> getObjectsOrThrow(Iterable<String> userIds) {
+        try {
+            return inOrder(userIds, loadPresent(userIds));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new UncheckedExecutionException(cause);
+        }
+    }
+
+    // The users that exist, loading the ones missing from the cache
+    private static Map<String, User> loadPresent(Iterable<String> userIds) throws ExecutionException {
+        List<String> idsToLoad = new ArrayList<>();
+        for (String userId : userIds) {
+            if (missingUserIds.getIfPresent(userId) == null) {
+                idsToLoad.add(userId);
+            }
+        }
+
+        try {
+            return userObjectCache.getAll(idsToLoad);
+        } catch (CacheLoader.InvalidCacheLoadException icle) {
+            // Some ids had no item. The ones that did are cached now.
+            return userObjectCache.getAllPresent(idsToLoad);
+        }
+    }
+
+    private static Map<String, User> inOrder(Iterable<String> userIds, Map<String, User> loadedUsers) {
+        Map<String, User> users = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            User user = loadedUsers.get(userId);
+            if (user == null) {
+                user = new User.UserBuilder(User.EMPTY_USER_ID)
+                    .build();
+            }
+            users.put(userId, user);
+        }
+        return users;
+    }
+
+    /**
+     * Write the fields of a user that the caller changed: name, occupation and skills. Event membership is left
+     * alone, it is only changed through addEvent, removeEvent, addGroup and removeGroup.
+     *
+     * The write is conditional on the user still being at baseUser's version. If someone else wrote first, their
+     * user is read back and the caller's changes are merged into it, see FieldMerge, a few times at most. If both
+     * changed the same field, nothing is written and UPDATE_CONFLICT_DESC is returned.
+     *
+     * @param baseUser the user as the caller read it
+     * @param user     baseUser with the caller's changes
+     */
+    public Message updateObject(User baseUser, User user) {
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_UPDATE_SUCCESS;
 
+        Map<String, AttributeValue> baseItem = toItem(baseUser);
+        Map<String, AttributeValue> changes = FieldMerge.changes(baseItem, toItem(user), UPDATED_KEYS);
+        Map<String, AttributeValue> currentItem = baseItem;
+        long expectedVersion = baseUser.getUserVersion();
+
         try {
-            Map<String, AttributeValue> key = new HashMap<>();
-            Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
-
-            key.put(USER_ID_KEY, new AttributeValue()
-                .withS(user.getUserId()));
-            expressionAttributeValues.put(":val1", new AttributeValue()
-                .withS(user.getUserName()));
-            expressionAttributeValues.put(":val2", new AttributeValue()
-                .withS(user.getUserOccupation()));
-            expressionAttributeValues.put(":val3", new AttributeValue()
-                .withM(user.getUserSkillSet()
-                    .toAttributeValue()));
-            expressionAttributeValues.put(":val4", new AttributeValue()
-                .withM(user.eventMapToAttributeValue()));
-
-            UpdateItemRequest request = new UpdateItemRequest().withTableName(USER_TABLE_NAME).withKey(key)
-                .withUpdateExpression(USER_UPDATE_EXPRESSION).withExpressionAttributeValues(expressionAttributeValues)
-                .withReturnValues(ReturnValue.ALL_NEW);
-
-            UpdateItemResult result = GrouperServiceApplication.dynamoClient.updateItem(request);
-            userObjectCache.put(user.getUserId(), user);
+            for (int attempt = 1; ; attempt++) {
+                if (!FieldMerge.conflicts(baseItem, currentItem, changes).isEmpty()) {
+                    status = Message.DEFAULT_FAILURE_STATUS;
+                    description = Message.UPDATE_CONFLICT_DESC;
+                    break;
+                }
+
+                Map<String, AttributeValue> pending = FieldMerge.pending(currentItem, changes);
+                if (pending.isEmpty()) {
+                    break;
+                }
+
+                try {
+                    userStore.update(FieldMerge.write(new DynamoUpdate(USER_TABLE_NAME, USER_ID_KEY,
+                        user.getUserId()), pending)
+                        .incrementVersion(USER_VERSION_KEY)
+                        .expectVersion(USER_VERSION_KEY, expectedVersion));
+
+                    Map<String, AttributeValue> written = FieldMerge.apply(currentItem, pending);
+                    written.put(USER_VERSION_KEY, new AttributeValue()
+                        .withN(Long.toString(expectedVersion + 1)));
+                    User writtenUser = itemToUser(written);
+                    // A higher cached version came from a membership change applied to an older copy, drop it
+                    userObjectCache.asMap().compute(user.getUserId(), (userId, cached) -> cached != null &&
+                        cached.getUserVersion() > writtenUser.getUserVersion() ? null : writtenUser);
+                    userResponses.invalidate(user.getUserId());
+                    break;
+                } catch (ConditionalCheckFailedException ccfe) {
+                    // Consistent, since an eventually consistent read can still return the version that just failed
+                    Map<String, AttributeValue> item = userStore.getConsistent(user.getUserId());
+                    if (item == null || attempt == DynamoUpdate.MAXIMUM_VERSION_ATTEMPTS) {
+                        throw ccfe;
+                    }
+
+                    User currentUser = itemToUser(item);
+                    currentItem = toItem(currentUser);
+                    expectedVersion = currentUser.getUserVersion();
+                    userObjectCache.put(currentUser.getUserId(), currentUser);
+                    userResponses.invalidate(currentUser.getUserId());
+                }
+            }
 
         } catch (AmazonServiceException ase) {
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- User update " +
-                "failed.");
-            System.err.println(ase);
+            cacheLog.failure("User update failed.", ase);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_UPDATE_FAILURE;
         }
 
-        logResult(status, description, USER_OBJECT_KEY, user);
+        cacheLog.result(status, description, USER_ID_KEY, user.getUserId());
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -147,41 +379,145 @@ public class UserObjectCache {
             .build();
     }
 
+    /**
+     * Enroll a user in an event, with no group. Keeps the user's group if they are already enrolled.
+     */
+    public CompletableFuture<Message> addEvent(String userId, String eventId) {
+        return updateEventMap(userId, new DynamoUpdate(USER_TABLE_NAME, USER_ID_KEY, userId)
+            .name("#event", eventId)
+            .value(":noGroup", new AttributeValue()
+                .withS(Group.EMPTY_GROUP_ID))
+            .set(USER_EVENTMAP_KEY + ".#event = if_not_exists(" + USER_EVENTMAP_KEY + ".#event, :noGroup)"),
+            user -> user.addEvent(eventId));
+    }
+
+    public CompletableFuture<Message> removeEvent(String userId, String eventId) {
+        return updateEventMap(userId, new DynamoUpdate(USER_TABLE_NAME, USER_ID_KEY, userId)
+            .name("#event", eventId)
+            .remove(USER_EVENTMAP_KEY + ".#event"),
+            user -> user.removeEvent(eventId));
+    }
+
+    /**
+     * Put a user in a group. Fails if the user isn't enrolled in the group's event.
+     */
+    public CompletableFuture<Message> addGroup(String userId, String eventId, String groupId) {
+        return updateEventMap(userId, new DynamoUpdate(USER_TABLE_NAME, USER_ID_KEY, userId)
+            .name("#event", eventId)
+            .value(":group", new AttributeValue()
+                .withS(groupId))
+            .set(USER_EVENTMAP_KEY + ".#event = :group")
+            .condition("attribute_exists(" + USER_EVENTMAP_KEY + ".#event)"),
+            user -> user.addGroup(groupId, eventId));
+    }
+
+    /**
+     * Take a user out of a group, leaving them enrolled in its event. Fails if the user isn't in that group.
+     */
+    public CompletableFuture<Message> removeGroup(String userId, String eventId, String groupId) {
+        return updateEventMap(userId, new DynamoUpdate(USER_TABLE_NAME, USER_ID_KEY, userId)
+            .name("#event", eventId)
+            .value(":group", new AttributeValue()
+                .withS(groupId))
+            .value(":noGroup", new AttributeValue()
+                .withS(Group.EMPTY_GROUP_ID))
+            .set(USER_EVENTMAP_KEY + ".#event = :noGroup")
+            .condition(USER_EVENTMAP_KEY + ".#event = :group"),
+            user -> user.removeGroup(groupId, eventId));
+    }
+
+    // Apply a single event map change in DynamoDB, then to a copy of the cached user. The cached user is replaced,
+    // never changed in place, since readers may be holding it.
+    private CompletableFuture<Message> updateEventMap(String userId, DynamoUpdate update, Consumer<User> change) {
+        return userStore.updateAsync(update
+            .incrementVersion(USER_VERSION_KEY))
+            .handle((result, throwable) -> {
+                int status = Message.DEFAULT_SUCCESS_STATUS;
+                String description = Message.AWS_UPDATE_SUCCESS;
+
+                if (throwable == null) {
+                    userObjectCache.asMap().computeIfPresent(userId, (id, current) -> {
+                        User user = copyOf(current, new HashMap<>(current.getUserEventMap()),
+                            current.getUserVersion() + 1);
+                        change.accept(user);
+                        return user;
+                    });
+                    userResponses.invalidate(userId);
+                } else {
+                    cacheLog.failure("User update failed.", Storage.cause(throwable));
+                    status = Message.DEFAULT_FAILURE_STATUS;
+                    description = Message.AWS_UPDATE_FAILURE;
+                }
+
+                cacheLog.result(status, description, USER_ID_KEY, userId);
+
+                return new Message.MessageBuilder(status)
+                    .withDescription(description)
+                    .withField(USER_ID_KEY)
+                    .withValue(userId)
+                    .build();
+            });
+    }
+
+    private static User copyOf(User user, HashMap<String, String> userEventMap, long userVersion) {
+        return new User.UserBuilder(user.getUserId())
+            .withUserName(user.getUserName())
+            .withUserOccupation(user.getUserOccupation())
+            .withUserSkillSet(new SkillSet(user.getUserSkillSet().getSkillMask()))
+            .withUserEventMap(userEventMap)
+            .withUserVersion(userVersion)
+            .build();
+    }
+
+    /**
+     * The user table of a storage backend. Also used to load generated data without going through a cache.
+     */
+    public static ObjectStore objectStore(Storage storage) {
+        return storage.objectStore(USER_TABLE_NAME, USER_ID_KEY, USER_PROJECTION_EXPRESSION);
+    }
+
+    /**
+     * @param user new user
+     * @return the item putObject creates for the user, at version 1
+     */
+    public static Map<String, AttributeValue> toItem(User user) {
+        Map<String, AttributeValue> item = new HashMap<>();
+
+        item.put(USER_ID_KEY, new AttributeValue()
+            .withS(user.getUserId()));
+        item.put(USER_NAME_KEY, new AttributeValue()
+            .withS(user.getUserName()));
+        item.put(USER_OCCUPATION_KEY, new AttributeValue()
+            .withS(user.getUserOccupation()));
+        item.put(USER_SKILLSET_KEY, user.getUserSkillSet()
+            .toAttributeValue());
+        item.put(USER_EVENTMAP_KEY, new AttributeValue()
+            .withM(user.eventMapToAttributeValue()));
+
+        item.put(USER_VERSION_KEY, new AttributeValue()
+            .withN("1"));
+
+        return item;
+    }
+
     public Message putObject(User user) {
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_PUT_SUCCESS;
 
         try {
-            Map<String, AttributeValue> newItem = new HashMap<>();
-
-            newItem.put(USER_ID_KEY, new AttributeValue()
-                .withS(user.getUserId()));
-            newItem.put(USER_NAME_KEY, new AttributeValue()
-                .withS(user.getUserName()));
-            newItem.put(USER_OCCUPATION_KEY, new AttributeValue()
-                .withS(user.getUserOccupation()));
-            newItem.put(USER_SKILLSET_KEY, new AttributeValue()
-                .withM(user.getUserSkillSet()
-                    .toAttributeValue()));
-            newItem.put(USER_EVENTMAP_KEY, new AttributeValue()
-                .withM(user.eventMapToAttributeValue()));
-
-            PutItemRequest request = new PutItemRequest()
-                .withTableName(USER_TABLE_NAME)
-                .withItem(newItem);
-
-            GrouperServiceApplication.dynamoClient.putItem(request);
-            userObjectCache.put(user.getUserId(), user);
+            // Never overwrites an existing user
+            userStore.create(toItem(user));
+            missingUserIds.invalidate(user.getUserId());
+            userObjectCache.put(user.getUserId(), copyOf(user, user.getUserEventMap(), 1));
+            userResponses.invalidate(user.getUserId());
 
         } catch (AmazonServiceException ase) {
-            System.err.println(ase);
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Create user " +
-                "failed.");
+            cacheLog.failure("Create user failed.", ase);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_PUT_FAILURE;
         }
 
-        logResult(status, description, USER_OBJECT_KEY, user);
+        cacheLog.result(status, description, USER_ID_KEY, user.getUserId());
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -194,28 +530,19 @@ public class UserObjectCache {
         int status = Message.DEFAULT_SUCCESS_STATUS;
         String description = Message.AWS_DELETE_SUCCESS;
 
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put(USER_ID_KEY, new AttributeValue()
-            .withS(userId));
-
-        DeleteItemRequest request = new DeleteItemRequest()
-            .withTableName(USER_TABLE_NAME)
-            .withKey(key);
-        DeleteItemResult result = GrouperServiceApplication.dynamoClient.deleteItem(request);
-        userObjectCache.put(userId, new User.UserBuilder(User.EMPTY_USER_ID)
-            .build());
-
         try {
+            userStore.delete(userId);
+            userObjectCache.invalidate(userId);
+            userResponses.invalidate(userId);
+            missingUserIds.put(userId, Boolean.TRUE);
 
         } catch (AmazonServiceException ase) {
-            System.err.println(ase);
-            System.err.println(Date.from(Instant.now()).toString() + ": Amazon Service Exception ---- Delete user " +
-                "failed.");
+            cacheLog.failure("Delete user failed.", ase);
             status = Message.DEFAULT_FAILURE_STATUS;
             description = Message.AWS_DELETE_FAILURE;
         }
 
-        logResult(status, description, USER_ID_KEY, userId);
+        cacheLog.result(status, description, USER_ID_KEY, userId);
 
         return new Message.MessageBuilder(status)
             .withDescription(description)
@@ -224,13 +551,4 @@ public class UserObjectCache {
             .build();
     }
 
-    private void logResult(int status, String description, String field, Object value) {
-        System.out.println(new Message.MessageBuilder(status)
-            .withDescription(description)
-            .withField(field)
-            .withValue(value)
-            .build()
-            .toString());
-    }
-
 }
@@ -2,9 +2,8 @@ package com.grouper.requestmodels;
 
 import com.grouper.models.Event;
 
-import java.text.SimpleDateFormat;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
-import java.util.Locale;
 
 /**
  * Create Event Request
@@ -22,9 +21,15 @@ public class CreateEventRequest {
     /** String date of the event, in the format "EEEE, d MMM yyyy, h:mm a zzzz" {eventDate: string}
      */
     private Date eventDate;
-    /** string location of the event {eventLocation: string} (TODO: use geo instead)
+    /** string location of the event {eventLocation: string}
      */
     private String eventLocation;
+    /** latitude of the event, in degrees, -90 to 90. Optional. {eventLatitude: number}
+     */
+    private Double eventLatitude;
+    /** longitude of the event, in degrees, -180 to 180. Optional. {eventLongitude: number}
+     */
+    private Double eventLongitude;
     /** string description of the event {eventDescription: string}
      */
     private String eventDescription;
@@ -52,11 +57,9 @@ public class CreateEventRequest {
     }
 
     public void setEventDate(String eventDate) {
-        SimpleDateFormat format = new SimpleDateFormat(Event.EVENT_DATE_FORMAT, Locale.ENGLISH);
-
         try {
-            this.eventDate = format.parse(eventDate);
-        } catch (java.text.ParseException pe) {
+            this.eventDate = Event.parseEventDate(eventDate);
+        } catch (DateTimeParseException pe) {
             System.err.println(pe);
             this.eventDate = Event.DEFAULT_EVENT_DATE;
         }
@@ -74,6 +77,22 @@ public class CreateEventRequest {
         return eventLocation;
     }
 
+    public void setEventLatitude(Double eventLatitude) {
+        this.eventLatitude = eventLatitude;
+    }
+
+    public Double getEventLatitude() {
+        return eventLatitude;
+    }
+
+    public void setEventLongitude(Double eventLongitude) {
+        this.eventLongitude = eventLongitude;
+    }
+
+    public Double getEventLongitude() {
+        return eventLongitude;
+    }
+
     public void setEventDescription(String eventDescription) {
         this.eventDescription = eventDescription;
     }
@@ -2,10 +2,9 @@ package com.grouper.requestmodels;
 
 import com.grouper.models.Event;
 
-import java.text.SimpleDateFormat;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Locale;
 
 /**
  * Update Event Request
@@ -26,9 +25,15 @@ public class UpdateEventRequest {
     /** String event date, in the format "EEEE, d MMM yyyy, h:mm a zzzz" {eventDate: String}
      */
     private Date eventDate;
-    /** String event location {eventLocation: String} (TODO: use geo instead)
+    /** String event location {eventLocation: String}
      */
     private String eventLocation;
+    /** latitude of the event, in degrees, -90 to 90. Optional. {eventLatitude: number}
+     */
+    private Double eventLatitude;
+    /** longitude of the event, in degrees, -180 to 180. Optional. {eventLongitude: number}
+     */
+    private Double eventLongitude;
     /** String event description {eventDescription: String}
      */
     private String eventDescription;
@@ -67,11 +72,9 @@ public class UpdateEventRequest {
     }
 
     public void setEventDate(String eventDate) {
-        SimpleDateFormat format = new SimpleDateFormat(Event.EVENT_DATE_FORMAT, Locale.ENGLISH);
-
         try {
-            this.eventDate = format.parse(eventDate);
-        } catch (java.text.ParseException pe) {
+            this.eventDate = Event.parseEventDate(eventDate);
+        } catch (DateTimeParseException pe) {
             System.err.println(pe);
             this.eventDate = Event.DEFAULT_EVENT_DATE;
         }
@@ -89,6 +92,22 @@ public class UpdateEventRequest {
         return eventLocation;
     }
 
+    public void setEventLatitude(Double eventLatitude) {
+        this.eventLatitude = eventLatitude;
+    }
+
+    public Double getEventLatitude() {
+        return eventLatitude;
+    }
+
+    public void setEventLongitude(Double eventLongitude) {
+        this.eventLongitude = eventLongitude;
+    }
+
+    public Double getEventLongitude() {
+        return eventLongitude;
+    }
+
     public void setEventDescription(String eventDescription) {
         this.eventDescription = eventDescription;
     }
@@ -0,0 +1,103 @@
+package com.grouper.service;
+
+import com.grouper.models.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs the per-item writes of a cascading delete. Every write is async, so no thread waits on one; at most
+ * GrouperServiceApplication.cascadePermits writes are in flight at once, and the request thread waits for a permit
+ * before starting the next.
+ */
+final class CascadeRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CascadeRunner.class);
+
+    private CascadeRunner() {
+    }
+
+    /**
+     * One write of a cascade, with the id it writes, which a failure is reported under.
+     */
+    static final class Task {
+
+        private final String field;
+        private final String value;
+        private final Supplier<CompletableFuture<Message>> write;
+
+        Task(String field, String value, Supplier<CompletableFuture<Message>> write) {
+            this.field = field;
+            this.value = value;
+            this.write = write;
+        }
+
+    }
+
+    /**
+     * Start every task, without waiting for them to finish.
+     */
+    static List<CompletableFuture<Message>> startAll(List<Task> tasks) {
+        List<CompletableFuture<Message>> futures = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            futures.add(start(task));
+        }
+        return futures;
+    }
+
+    /**
+     * Wait for every task and collect its Message, in start order.
+     */
+    static ArrayList<Message> awaitAll(List<CompletableFuture<Message>> futures) {
+        ArrayList<Message> messages = new ArrayList<>(futures.size());
+        for (CompletableFuture<Message> future : futures) {
+            messages.add(future.join());
+        }
+        return messages;
+    }
+
+    static ArrayList<Message> runAll(List<Task> tasks) {
+        return awaitAll(startAll(tasks));
+    }
+
+    // Completes with the task's Message, or with a failure naming the task's id if it threw or failed
+    private static CompletableFuture<Message> start(Task task) {
+        try {
+            GrouperServiceApplication.cascadePermits.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(failure(task));
+        }
+
+        CompletableFuture<Message> write;
+        try {
+            write = task.write.get();
+        } catch (RuntimeException re) {
+            write = new CompletableFuture<>();
+            write.completeExceptionally(re);
+        }
+
+        return write.handle((message, throwable) -> {
+            GrouperServiceApplication.cascadePermits.release();
+            if (throwable != null) {
+                logger.warn("failure=\"Cascade task failed.\" field=\"{}\" value=\"{}\"", task.field, task.value,
+                    throwable);
+                return failure(task);
+            }
+            return message;
+        });
+    }
+
+    private static Message failure(Task task) {
+        return new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+            .withDescription(Message.AWS_UPDATE_FAILURE)
+            .withField(task.field)
+            .withValue(task.value)
+            .build();
+    }
+
+}
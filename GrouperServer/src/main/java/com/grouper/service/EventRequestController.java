@@ -1,6 +1,7 @@
 package com.grouper.service;
 
 import com.grouper.models.*;
+import com.grouper.objectcache.MembershipStore;
 import com.grouper.requestmodels.CreateEventRequest;
 import com.grouper.requestmodels.DeleteEventRequest;
 import com.grouper.requestmodels.UpdateEventRequest;
@@ -9,16 +10,35 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @RestController
 public class EventRequestController {
 
+    private static final int MAXIMUM_IDS_PER_REQUEST = 100;
+    private static final int MAXIMUM_DETAIL_DEPTH = 2;
+    private static final long DEFAULT_UPCOMING_RANGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final double DEFAULT_NEARBY_RADIUS_KM = 25;
+    private static final double MAXIMUM_NEARBY_RADIUS_KM = 500;
+    private static final long EVENT_DURATION_MILLIS = TimeUnit.HOURS.toMillis(
+        GrouperConfig.getLong("grouper.events.durationHours", 24));
+
     /**
      * Get an event with the provided eventId from the object store. If the object is not currently in the cache, it
      * will be loaded from DynamoDB.
      *
+     * The serialized response is cached per event version, so repeated reads of an unchanged event skip JSON
+     * serialization.
+     *
      * <p> -- Request format -- </p>
      * <p>method: GET</p>
      * <p>url: box.grouper.site:8080/getEvent?eventId=00000000</p>
@@ -32,23 +52,268 @@ public class EventRequestController {
      */
     @RequestMapping(value="/getEvent", method= RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<Message> getEvent(@RequestParam(value = "eventId", defaultValue = "00000000") String
-                                                    eventId) {
-        Event event = GrouperServiceApplication.eventObjectCache.getObject(eventId);
-
-        if (event.getEventId() == Event.EMPTY_EVENT_ID) {
-            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
-                .withDescription(Message.AWS_GET_FAILURE)
-                .withField("eventId")
-                .withValue(eventId)
-                .build(), HttpStatus.OK);
-        } else {
-            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
-                .withDescription(Message.AWS_GET_SUCCESS)
-                .withField("Event")
-                .withValue(event)
-                .build(), HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<byte[]>> getEvent(
+        @RequestParam(value = "eventId", defaultValue = "00000000") String eventId) {
+
+        return GrouperServiceApplication.eventObjectCache.getObjectAsync(eventId).thenApply(event -> {
+            if (event.getEventId() == Event.EMPTY_EVENT_ID) {
+                Message message = new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_GET_FAILURE)
+                    .withField("eventId")
+                    .withValue(eventId)
+                    .build();
+                return JsonResponses.ok(JsonResponses.serialize(message));
+            }
+
+            // Cached until the event is written again
+            return JsonResponses.ok(GrouperServiceApplication.eventObjectCache.getResponseCache().get(eventId,
+                event.getEventVersion(), () -> JsonResponses.serialize(new Message.MessageBuilder(
+                    Message.DEFAULT_SUCCESS_STATUS)
+                    .withDescription(Message.AWS_GET_SUCCESS)
+                    .withField("Event")
+                    .withValue(event)
+                    .build())));
+        });
+    }
+
+    /**
+     * Get every event with one of the provided eventIds from the object store. Events that are not currently in the
+     * cache are loaded from DynamoDB together, in batches of 100.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/getEvents?eventIds=00000000,00000001</p>
+     *
+     * @param eventIds   [String] eventIds, comma separated, at most 100
+     * @return [Message(status, description, field, value)]
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, BATCH_LIMIT_DESC}
+     *          field: {Event, eventId, eventIds}
+     *          value: {JSON Event object, offending eventId, number of eventIds requested}
+     */
+    @RequestMapping(value="/getEvents", method=RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<ArrayList<Message>> getEvents(@RequestParam(value = "eventIds") List<String> eventIds) {
+
+        ArrayList<Message> messages = new ArrayList<>();
+
+        if (eventIds.size() > MAXIMUM_IDS_PER_REQUEST) {
+            messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.BATCH_LIMIT_DESC)
+                .withField("eventIds")
+                .withValue(eventIds.size())
+                .build());
+            return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
         }
+
+        Map<String, Event> events = GrouperServiceApplication.eventObjectCache.getObjects(
+            new LinkedHashSet<>(eventIds));
+        messages.addAll(eventMessages(events));
+
+        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+    }
+
+    /**
+     * Get an event together with its groups and a summary of every group member, in place of a /getEvent, a
+     * /getGroup per group and a /getUser per member. All groups, then all members, are read at once, so cache misses
+     * share batched DynamoDB reads. Only the first 100 groups are included; groupsTruncated is set if there are more.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/getEventDetail?eventId=00000000&amp;depth=2</p>
+     *
+     * @param eventId   string eventId
+     * @param depth     0 for the event only, 1 to add its groups, 2 to add their members (default)
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, DEFAULT_FAILURE_DESC}
+     *          field: {EventDetail, eventId, depth}
+     *          value: {JSON EventDetail object, offending eventId, offending depth}
+     */
+    @RequestMapping(value = "/getEventDetail", method = RequestMethod.GET)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<Message>> getEventDetail(
+        @RequestParam(value = "eventId", defaultValue = "00000000") String eventId,
+        @RequestParam(value = "depth", defaultValue = "2") int depth) {
+
+        if (depth < 0 || depth > MAXIMUM_DETAIL_DEPTH) {
+            return CompletableFuture.completedFuture(new ResponseEntity<Message>(
+                new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withField("depth")
+                    .withValue(depth)
+                    .build(), HttpStatus.OK));
+        }
+
+        return GrouperServiceApplication.eventObjectCache.getObjectAsync(eventId).thenCompose(event -> {
+            if (event.getEventId() == Event.EMPTY_EVENT_ID) {
+                return CompletableFuture.completedFuture(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_GET_FAILURE)
+                    .withField("eventId")
+                    .withValue(eventId)
+                    .build());
+            }
+
+            List<String> groupIds = depth >= 1 ? event.getEventGroups() : Collections.<String>emptyList();
+            boolean groupsTruncated = groupIds.size() > MAXIMUM_IDS_PER_REQUEST;
+            CompletableFuture<List<Group>> groups = getAllAsync(groupIds.subList(0, Math.min(groupIds.size(),
+                MAXIMUM_IDS_PER_REQUEST)), GrouperServiceApplication.groupObjectCache::getObjectAsync,
+                group -> group.getGroupId() != Group.EMPTY_GROUP_ID);
+
+            return groups.thenCompose(eventGroups -> {
+                LinkedHashSet<String> memberIds = new LinkedHashSet<>();
+                if (depth >= 2) {
+                    for (Group group : eventGroups) {
+                        memberIds.addAll(group.getGroupUsers());
+                    }
+                }
+
+                return getAllAsync(memberIds, GrouperServiceApplication.userObjectCache::getObjectAsync,
+                    user -> user.getUserId() != User.EMPTY_USER_ID).thenApply(users -> {
+                        List<UserSummary> members = new ArrayList<>(users.size());
+                        for (User user : users) {
+                            members.add(new UserSummary(user));
+                        }
+
+                        return new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+                            .withDescription(Message.AWS_GET_SUCCESS)
+                            .withField("EventDetail")
+                            .withValue(new EventDetail(event, eventGroups, members, groupsTruncated))
+                            .build();
+                    });
+            });
+        }).thenApply(message -> new ResponseEntity<Message>(message, HttpStatus.OK));
+    }
+
+    /**
+     * Get the events starting in a time range, earliest first, from the in-memory time index. Without from and to,
+     * returns the events starting in the next 30 days.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/events/upcoming?from=1520000000000&amp;to=1525000000000&amp;limit=50</p>
+     *
+     * @param from     earliest start time in epoch milliseconds, inclusive. Defaults to now.
+     * @param to       latest start time in epoch milliseconds, inclusive. Defaults to from + 30 days.
+     * @param limit    most events to return, at least 1. Limits above 100 are capped at 100.
+     * @return [Message(status, description, field, value)]
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, INVALID_LIMIT_DESC}
+     *          field: {Event, eventId, limit}
+     *          value: {JSON Event object, offending eventId, offending limit}
+     */
+    @RequestMapping(value = "/events/upcoming", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<ArrayList<Message>> getUpcomingEvents(
+        @RequestParam(value = "from", required = false) Long from,
+        @RequestParam(value = "to", required = false) Long to,
+        @RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+        if (limit < 1) {
+            return invalidLimit(limit);
+        }
+
+        long rangeStart = from == null ? System.currentTimeMillis() : from;
+        long rangeEnd = to == null ? rangeStart + DEFAULT_UPCOMING_RANGE_MILLIS : to;
+
+        List<String> eventIds = GrouperServiceApplication.eventTimeIndex.between(rangeStart, rangeEnd,
+            Math.min(limit, MAXIMUM_IDS_PER_REQUEST));
+        ArrayList<Message> messages = eventMessages(GrouperServiceApplication.eventObjectCache.getObjects(eventIds));
+
+        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+    }
+
+    /**
+     * Get the events happening now: events that started within the last grouper.events.durationHours hours (24 by
+     * default), since events only have a start time. Earliest first.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/events/happeningNow?limit=50</p>
+     *
+     * @param limit    most events to return, at least 1. Limits above 100 are capped at 100.
+     * @return [Message(status, description, field, value)]
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, INVALID_LIMIT_DESC}
+     *          field: {Event, eventId, limit}
+     *          value: {JSON Event object, offending eventId, offending limit}
+     */
+    @RequestMapping(value = "/events/happeningNow", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<ArrayList<Message>> getEventsHappeningNow(
+        @RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+        if (limit < 1) {
+            return invalidLimit(limit);
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> eventIds = GrouperServiceApplication.eventTimeIndex.between(now - EVENT_DURATION_MILLIS, now,
+            Math.min(limit, MAXIMUM_IDS_PER_REQUEST));
+        ArrayList<Message> messages = eventMessages(GrouperServiceApplication.eventObjectCache.getObjects(eventIds));
+
+        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+    }
+
+    /**
+     * Get the userIds of the users enrolled in an event, one page at a time, ordered by id. Each page is a single
+     * DynamoDB Query on the membership table, so its cost depends on the page size, not on how many members there are.
+     * Until the membership backfill has run, pages are cut from the cached string set instead.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/getEventUsers?eventId=00000000&amp;limit=50&amp;cursor=dXNlciMwMDAwMDAwMA</p>
+     *
+     * @param eventId  string eventId
+     * @param limit    page size, at most 100
+     * @param cursor   cursor from the previous page, omitted for the first page
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, INVALID_CURSOR_DESC}
+     *          field: {MembershipPage, eventId, cursor}
+     *          value: {JSON MembershipPage {members: [String], cursor: String or null on the last page},
+     *                  offending eventId, offending cursor}
+     */
+    @RequestMapping(value = "/getEventUsers", method = RequestMethod.GET)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<Message>> getEventUsers(
+        @RequestParam(value = "eventId", defaultValue = "00000000") String eventId,
+        @RequestParam(value = "limit", defaultValue = "50") int limit,
+        @RequestParam(value = "cursor", defaultValue = "") String cursor) {
+
+        return MembershipResponses.pageMessage(GrouperServiceApplication.membershipStore.page(MembershipStore.EVENT,
+            eventId, MembershipStore.USER, limit, cursor, () -> GrouperServiceApplication.eventObjectCache
+                .getObjectAsync(eventId).thenApply(Event::getEventUsers)), "eventId", eventId, cursor);
+    }
+
+    /**
+     * Get the groupIds of the groups in an event, one page at a time, ordered by id. Each page is a single DynamoDB
+     * Query on the membership table, so its cost depends on the page size, not on how many members there are.
+     * Until the membership backfill has run, pages are cut from the cached string set instead.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/getEventGroups?eventId=00000000&amp;limit=50&amp;cursor=Z3JvdXAjMDAwMDAwMDA</p>
+     *
+     * @param eventId  string eventId
+     * @param limit    page size, at most 100
+     * @param cursor   cursor from the previous page, omitted for the first page
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, INVALID_CURSOR_DESC}
+     *          field: {MembershipPage, eventId, cursor}
+     *          value: {JSON MembershipPage {members: [String], cursor: String or null on the last page},
+     *                  offending eventId, offending cursor}
+     */
+    @RequestMapping(value = "/getEventGroups", method = RequestMethod.GET)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<Message>> getEventGroups(
+        @RequestParam(value = "eventId", defaultValue = "00000000") String eventId,
+        @RequestParam(value = "limit", defaultValue = "50") int limit,
+        @RequestParam(value = "cursor", defaultValue = "") String cursor) {
+
+        return MembershipResponses.pageMessage(GrouperServiceApplication.membershipStore.page(MembershipStore.EVENT,
+            eventId, MembershipStore.GROUP, limit, cursor, () -> GrouperServiceApplication.eventObjectCache
+                .getObjectAsync(eventId).thenApply(Event::getEventGroups)), "eventId", eventId, cursor);
     }
 
     /**
@@ -57,7 +322,8 @@ public class EventRequestController {
      * <p> -- Request format -- </p>
      * <p>method: POST</p>
      * <p>url: box.grouper.site:8080/createEvent</p>
-     * <p>body: {eventName: String, eventDate: String, eventLocation: String, eventDescription: String}</p>
+     * <p>body: {eventName: String, eventDate: String, eventLocation: String, eventLatitude: Number, eventLongitude:
+     * Number, eventDescription: String}</p>
      *
      * @param request   CreateEventRequest request
      * @return Message(status, description, field, value)
@@ -71,16 +337,22 @@ public class EventRequestController {
     @ResponseBody
     public ResponseEntity<Message> createEvent(@RequestBody CreateEventRequest request) {
 
-        String eventId = "E" + GrouperServiceApplication.hashids.encode(Instant.now().toEpochMilli());
+        String eventId = GrouperServiceApplication.idGenerator.nextId("E");
         Event newEvent = new Event.EventBuilder(eventId)
             .withEventName(request.getEventName())
             .withEventDate(request.getEventDate())
             .withEventLocation(request.getEventLocation())
+            .withEventCoordinates(request.getEventLatitude(), request.getEventLongitude())
             .withEventDescription(request.getEventDescription())
             .build();
 
         Message message = GrouperServiceApplication.eventObjectCache.putObject(newEvent);
 
+        if (message.getStatus() == Message.DEFAULT_SUCCESS_STATUS) {
+            GrouperServiceApplication.eventTimeIndex.index(eventId, newEvent.getEventDate().getTime());
+            GrouperServiceApplication.eventGeoIndex.index(newEvent);
+        }
+
         return new ResponseEntity<Message>(message, HttpStatus.OK);
     }
 
@@ -90,13 +362,13 @@ public class EventRequestController {
      * <p> -- Request format -- </p>
      * <p>method: POST</p>
      * <p>url: box.grouper.site:8080/updateEventFields</p>
-     * <p>body: {eventId: String, eventName: String, eventDate: String, eventLocation: String, eventDescription:
-     * String}</p>
+     * <p>body: {eventId: String, eventName: String, eventDate: String, eventLocation: String, eventLatitude: Number,
+     * eventLongitude: Number, eventDescription: String}</p>
      *
      * @param request   UpdateEventRequest request
      * @return Message(status, description, field, value)
      *          status: {200, 400}
-     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE}
+     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE, UPDATE_CONFLICT_DESC}
      *          field: {Event, eventId}
      *          value: {JSON Event Object, offending eventId}
      */
@@ -112,12 +384,24 @@ public class EventRequestController {
             .withEventName(request.getEventName())
             .withEventDate(request.getEventDate())
             .withEventLocation(request.getEventLocation())
+            .withEventCoordinates(request.getEventLatitude(), request.getEventLongitude())
             .withEventDescription(request.getEventDescription())
             .withEventGroups(currentEvent.getEventGroups())
             .withEventUsers(currentEvent.getEventUsers())
+            .withEventVersion(currentEvent.getEventVersion())
             .build();
 
-        Message message = GrouperServiceApplication.eventObjectCache.updateObject(updatedEvent);
+        Message message = GrouperServiceApplication.eventObjectCache.updateObject(currentEvent, updatedEvent);
+
+        if (message.getStatus() == Message.DEFAULT_SUCCESS_STATUS) {
+            // Index what was stored, which keeps fields changed concurrently by someone else
+            Event storedEvent = GrouperServiceApplication.eventObjectCache.getObject(request.getEventId());
+            if (storedEvent.getEventId() != Event.EMPTY_EVENT_ID) {
+                GrouperServiceApplication.eventTimeIndex.index(storedEvent.getEventId(),
+                    storedEvent.getEventDate().getTime());
+                GrouperServiceApplication.eventGeoIndex.index(storedEvent);
+            }
+        }
 
         return new ResponseEntity<Message>(message, HttpStatus.OK);
     }
@@ -157,22 +441,125 @@ public class EventRequestController {
         // This request should remove all users and groups from this event. Once groups have been removed, there will
         // be no way to access them, so they should probably just be deleted.
 
-        ArrayList<Message> messages = new ArrayList<>();
-
+        List<CascadeRunner.Task> tasks = new ArrayList<>();
         for (String userId : request.getEventUsers()) {
-            User updatedUser = GrouperServiceApplication.userObjectCache.getObject(userId);
-            updatedUser.removeEvent(request.getEventId());
-
-            messages.add(GrouperServiceApplication.userObjectCache.updateObject(updatedUser));
+            tasks.add(new CascadeRunner.Task("userId", userId, () -> GrouperServiceApplication.userObjectCache
+                .removeEvent(userId, request.getEventId())));
         }
+        List<CompletableFuture<Message>> userResults = CascadeRunner.startAll(tasks);
 
-        for (String groupId : request.getEventGroups()) {
-            messages.add(GrouperServiceApplication.groupObjectCache.deleteObject(groupId));
-        }
+        // Groups are batch deleted on this thread while the users are updated
+        ArrayList<Message> groupMessages = GrouperServiceApplication.groupObjectCache.deleteObjects(
+            request.getEventGroups());
+
+        ArrayList<Message> messages = CascadeRunner.awaitAll(userResults);
+        messages.addAll(groupMessages);
 
         messages.add(GrouperServiceApplication.eventObjectCache.deleteObject(request.getEventId()));
+        GrouperServiceApplication.eventSkillIndex.removeEvent(request.getEventId());
+        GrouperServiceApplication.eventTimeIndex.removeEvent(request.getEventId());
+        GrouperServiceApplication.eventGeoIndex.removeEvent(request.getEventId());
+
+        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+    }
+
+    /**
+     * Get the events within radiusKm of a point, nearest first, from the in-memory geo index. Events created without
+     * coordinates are never returned.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/events/nearby?lat=34.0689&amp;lon=-118.4452&amp;radiusKm=25&amp;limit=50</p>
+     *
+     * @param lat      latitude, in degrees
+     * @param lon      longitude, in degrees
+     * @param radiusKm search radius in kilometres, 25 by default, at most 500
+     * @param limit    most events to return, at least 1. Limits above 100 are capped at 100.
+     * @return [Message(status, description, field, value)]
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, INVALID_COORDINATES_DESC, INVALID_LIMIT_DESC}
+     *          field: {Event, eventId, coordinates, limit}
+     *          value: {JSON Event object, offending eventId, offending "lat,lon", offending limit}
+     */
+    @RequestMapping(value = "/events/nearby", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<ArrayList<Message>> getNearbyEvents(@RequestParam(value = "lat") double lat,
+        @RequestParam(value = "lon") double lon,
+        @RequestParam(value = "radiusKm", required = false) Double radiusKm,
+        @RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+        if (!Event.validCoordinates(lat, lon)) {
+            ArrayList<Message> messages = new ArrayList<>();
+            messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.INVALID_COORDINATES_DESC)
+                .withField("coordinates")
+                .withValue(lat + "," + lon)
+                .build());
+            return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+        }
+        if (limit < 1) {
+            return invalidLimit(limit);
+        }
+
+        double radius = radiusKm == null ? DEFAULT_NEARBY_RADIUS_KM : Math.min(radiusKm, MAXIMUM_NEARBY_RADIUS_KM);
+        List<String> eventIds = GrouperServiceApplication.eventGeoIndex.nearby(lat, lon, radius,
+            Math.min(limit, MAXIMUM_IDS_PER_REQUEST));
+        ArrayList<Message> messages = eventMessages(GrouperServiceApplication.eventObjectCache.getObjects(eventIds));
 
         return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
     }
 
+    private static ResponseEntity<ArrayList<Message>> invalidLimit(int limit) {
+        ArrayList<Message> messages = new ArrayList<>();
+        messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+            .withDescription(Message.INVALID_LIMIT_DESC)
+            .withField("limit")
+            .withValue(limit)
+            .build());
+        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+    }
+
+    // Start every read at once, so the misses among them are batched together, and keep the found objects in order
+    private static <T> CompletableFuture<List<T>> getAllAsync(Collection<String> ids,
+                                                             Function<String, CompletableFuture<T>> get,
+                                                             Predicate<T> found) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            futures.add(get.apply(id));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<T> objects = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                T object = future.join();
+                if (found.test(object)) {
+                    objects.add(object);
+                }
+            }
+            return objects;
+        });
+    }
+
+    private static ArrayList<Message> eventMessages(Map<String, Event> events) {
+        ArrayList<Message> messages = new ArrayList<>();
+
+        for (Map.Entry<String, Event> entry : events.entrySet()) {
+            if (entry.getValue().getEventId() == Event.EMPTY_EVENT_ID) {
+                messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_GET_FAILURE)
+                    .withField("eventId")
+                    .withValue(entry.getKey())
+                    .build());
+            } else {
+                messages.add(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+                    .withDescription(Message.AWS_GET_SUCCESS)
+                    .withField("Event")
+                    .withValue(entry.getValue())
+                    .build());
+            }
+        }
+
+        return messages;
+    }
+
 }
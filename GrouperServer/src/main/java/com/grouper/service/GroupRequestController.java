@@ -1,6 +1,7 @@
 package com.grouper.service;
 
 import com.grouper.models.*;
+import com.grouper.objectcache.MembershipStore;
 import com.grouper.requestmodels.CreateGroupRequest;
 import com.grouper.requestmodels.DeleteGroupRequest;
 import com.grouper.requestmodels.UpdateGroupRequest;
@@ -9,16 +10,24 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class GroupRequestController {
 
+    private static final int MAXIMUM_IDS_PER_REQUEST = 100;
+
     /**
      * Get a group with the provided groupId from the object store. If the object is not currently in the cache, it
      * will be loaded from DynamoDB.
      *
+     * The serialized response is cached per group version, so repeated reads of an unchanged group skip JSON
+     * serialization.
+     *
      * <p> -- Request format -- </p>
      * <p>method: GET</p>
      * <p>url: box.grouper.site:8080/getGroup?groupId=00000000</p>
@@ -32,30 +41,119 @@ public class GroupRequestController {
      */
     @RequestMapping(value="/getGroup", method= RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<Message> getGroup(@RequestParam(value = "groupId", defaultValue = "00000000") String
-                                                    groupId) {
+    public CompletableFuture<ResponseEntity<byte[]>> getGroup(
+        @RequestParam(value = "groupId", defaultValue = "00000000") String groupId) {
 
-        Group group = GrouperServiceApplication.groupObjectCache.getObject(groupId);
+        return GrouperServiceApplication.groupObjectCache.getObjectAsync(groupId).thenApply(group -> {
+            if (group.getGroupId() == Group.EMPTY_GROUP_ID) {
+                Message message = new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_GET_FAILURE)
+                    .withField("groupId")
+                    .withValue(groupId)
+                    .build();
+                return JsonResponses.ok(JsonResponses.serialize(message));
+            }
 
-        if (group.getGroupId() == Group.EMPTY_GROUP_ID) {
-            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
-                .withDescription(Message.AWS_GET_FAILURE)
-                .withField("groupId")
-                .withValue(groupId)
-                .build(), HttpStatus.OK);
-        } else {
-            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
-                .withDescription(Message.AWS_GET_SUCCESS)
-                .withField("Group")
-                .withValue(group)
-                .build(), HttpStatus.OK);
+            // Cached until the group is written again
+            return JsonResponses.ok(GrouperServiceApplication.groupObjectCache.getResponseCache().get(groupId,
+                group.getGroupVersion(), () -> JsonResponses.serialize(new Message.MessageBuilder(
+                    Message.DEFAULT_SUCCESS_STATUS)
+                    .withDescription(Message.AWS_GET_SUCCESS)
+                    .withField("Group")
+                    .withValue(group)
+                    .build())));
+        });
+    }
+
+    /**
+     * Get every group with one of the provided groupIds from the object store. Groups that are not currently in the
+     * cache are loaded from DynamoDB together, in batches of 100.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/getGroups?groupIds=00000000,00000001</p>
+     *
+     * @param groupIds   [String] groupIds, comma separated, at most 100
+     * @return [Message(status, description, field, value)]
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, BATCH_LIMIT_DESC}
+     *          field: {Group, groupId, groupIds}
+     *          value: {JSON Group object, offending groupId, number of groupIds requested}
+     */
+    @RequestMapping(value="/getGroups", method=RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<ArrayList<Message>> getGroups(@RequestParam(value = "groupIds") List<String> groupIds) {
+
+        ArrayList<Message> messages = new ArrayList<>();
+
+        if (groupIds.size() > MAXIMUM_IDS_PER_REQUEST) {
+            messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.BATCH_LIMIT_DESC)
+                .withField("groupIds")
+                .withValue(groupIds.size())
+                .build());
+            return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
         }
+
+        Map<String, Group> groups = GrouperServiceApplication.groupObjectCache.getObjects(
+            new LinkedHashSet<>(groupIds));
+
+        for (Map.Entry<String, Group> entry : groups.entrySet()) {
+            if (entry.getValue().getGroupId() == Group.EMPTY_GROUP_ID) {
+                messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_GET_FAILURE)
+                    .withField("groupId")
+                    .withValue(entry.getKey())
+                    .build());
+            } else {
+                messages.add(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+                    .withDescription(Message.AWS_GET_SUCCESS)
+                    .withField("Group")
+                    .withValue(entry.getValue())
+                    .build());
+            }
+        }
+
+        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+    }
+
+    /**
+     * Get the userIds of the members of a group, one page at a time, ordered by id. Each page is a single DynamoDB
+     * Query on the membership table, so its cost depends on the page size, not on how many members there are.
+     * Until the membership backfill has run, pages are cut from the cached string set instead.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/getGroupUsers?groupId=00000000&amp;limit=50&amp;cursor=dXNlciMwMDAwMDAwMA</p>
+     *
+     * @param groupId  string groupId
+     * @param limit    page size, at most 100
+     * @param cursor   cursor from the previous page, omitted for the first page
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, INVALID_CURSOR_DESC}
+     *          field: {MembershipPage, groupId, cursor}
+     *          value: {JSON MembershipPage {members: [String], cursor: String or null on the last page},
+     *                  offending groupId, offending cursor}
+     */
+    @RequestMapping(value = "/getGroupUsers", method = RequestMethod.GET)
+    @ResponseBody
+    public CompletableFuture<ResponseEntity<Message>> getGroupUsers(
+        @RequestParam(value = "groupId", defaultValue = "00000000") String groupId,
+        @RequestParam(value = "limit", defaultValue = "50") int limit,
+        @RequestParam(value = "cursor", defaultValue = "") String cursor) {
+
+        return MembershipResponses.pageMessage(GrouperServiceApplication.membershipStore.page(MembershipStore.GROUP,
+            groupId, MembershipStore.USER, limit, cursor, () -> GrouperServiceApplication.groupObjectCache
+                .getObjectAsync(groupId).thenApply(Group::getGroupUsers)), "groupId", groupId, cursor);
     }
 
     /**
      * Create a group in DynamoDB with the provided parameters, and add it to the local object store.
      *
-     * If any portions of this request fail, the offending id will be appending to the response payload.
+     * If any portions of this request fail, the offending id will be appending to the response payload. If the event
+     * or the owner can't reference the new group, or the owner's membership can't be recorded, the references that
+     * were written and the group are removed again.
      *
      * <p> -- Request format -- </p>
      * <p>method: POST</p>
@@ -66,9 +164,11 @@ public class GroupRequestController {
      * @param request   CreateGroupRequest request
      * @return [Message(status, description, field, value)]
      *          status: {200, 400}
-     *          description: {AWS_PUT_SUCCESS, AWS_PUT_FAILURE, AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE}
-     *          field: {Group, groupId}
-     *          value: {JSON Group Object, offending groupId}
+     *          description: {AWS_PUT_SUCCESS, AWS_PUT_FAILURE, AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE,
+     *                        AWS_DELETE_SUCCESS, AWS_DELETE_FAILURE, UNKNOWN_SKILL_DESC}
+     *          field: {Group, groupId, eventId, userId, groupSkills}
+     *          value: {JSON Group Object, offending groupId, offending eventId, offending userId,
+     *                  [unknown skill names]}
      */
     @RequestMapping(value = "/createGroup", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_UTF8_VALUE,
         consumes = MediaType.APPLICATION_JSON_UTF8_VALUE)
@@ -77,7 +177,17 @@ public class GroupRequestController {
 
         ArrayList<Message> messages = new ArrayList<>();
 
-        String groupId = "G" + GrouperServiceApplication.hashids.encode(Instant.now().toEpochMilli());
+        List<String> unknownSkills = SkillRegistry.unknownNames(request.getGroupSkills());
+        if (!unknownSkills.isEmpty()) {
+            messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.UNKNOWN_SKILL_DESC)
+                .withField("groupSkills")
+                .withValue(unknownSkills)
+                .build());
+            return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+        }
+
+        String groupId = GrouperServiceApplication.idGenerator.nextId("G");
         Group newGroup = new Group.GroupBuilder(groupId)
             .withGroupName(request.getGroupName())
             .withGroupType(request.getGroupType())
@@ -87,14 +197,48 @@ public class GroupRequestController {
             .withGroupSkillSet(new SkillSet(request.getGroupSkills()))
             .build();
 
-        Event updatedEvent = GrouperServiceApplication.eventObjectCache.getObject(request.getGroupEventId());
-        updatedEvent.addGroup(groupId);
-        User updatedUser = GrouperServiceApplication.userObjectCache.getObject(request.getGroupOwnerId());
-        updatedUser.addGroup(request.getGroupEventId(), request.getGroupOwnerId());
+        // The group goes first, so the event and owner never reference a group that doesn't exist
+        Message groupMessage = GrouperServiceApplication.groupObjectCache.putObject(newGroup);
+        messages.add(groupMessage);
+        if (groupMessage.getStatus() != Message.DEFAULT_SUCCESS_STATUS) {
+            return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+        }
+
+        CompletableFuture<Message> eventUpdate = GrouperServiceApplication.eventObjectCache.addGroup(
+            request.getGroupEventId(), groupId);
+        CompletableFuture<Message> ownerUpdate = GrouperServiceApplication.userObjectCache.addGroup(
+            request.getGroupOwnerId(), request.getGroupEventId(), groupId);
+        // The owner is the group's first member, in its groupUsers set and so in the membership table
+        CompletableFuture<Boolean> ownerMembership = GrouperServiceApplication.membershipStore.add(
+            MembershipStore.GROUP, groupId, MembershipStore.USER, request.getGroupOwnerId());
+        Message eventMessage = eventUpdate.join();
+        Message ownerMessage = ownerUpdate.join();
+        messages.add(eventMessage);
+        messages.add(ownerMessage);
+        boolean ownerMembershipAdded = ownerMembership.join();
+        if (!ownerMembershipAdded) {
+            messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.AWS_UPDATE_FAILURE)
+                .withField("groupId")
+                .withValue(groupId)
+                .build());
+        }
 
-        messages.add(GrouperServiceApplication.eventObjectCache.updateObject(updatedEvent));
-        messages.add(GrouperServiceApplication.userObjectCache.updateObject(updatedUser));
-        messages.add(GrouperServiceApplication.groupObjectCache.putObject(newGroup));
+        if (eventMessage.getStatus() == Message.DEFAULT_SUCCESS_STATUS &&
+            ownerMessage.getStatus() == Message.DEFAULT_SUCCESS_STATUS && ownerMembershipAdded) {
+            GrouperServiceApplication.eventSkillIndex.indexGroup(newGroup);
+        } else {
+            // Undo the references that were written, then the group, which also drops its memberships
+            if (eventMessage.getStatus() == Message.DEFAULT_SUCCESS_STATUS) {
+                messages.add(GrouperServiceApplication.eventObjectCache.removeGroup(request.getGroupEventId(), groupId)
+                    .join());
+            }
+            if (ownerMessage.getStatus() == Message.DEFAULT_SUCCESS_STATUS) {
+                messages.add(GrouperServiceApplication.userObjectCache.removeGroup(request.getGroupOwnerId(),
+                    request.getGroupEventId(), groupId).join());
+            }
+            messages.add(GrouperServiceApplication.groupObjectCache.deleteObject(groupId));
+        }
 
         return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
     }
@@ -111,9 +255,9 @@ public class GroupRequestController {
      * @param request   UpdateGroupRequest request
      * @return Message(status, description, field, value)
      *          status: {200, 400}
-     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE}
-     *          field: {Group, groupId}
-     *          value: {JSON Group Object, offending groupId}
+     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE, UPDATE_CONFLICT_DESC, UNKNOWN_SKILL_DESC}
+     *          field: {Group, groupId, groupSkills}
+     *          value: {JSON Group Object, offending groupId, [unknown skill names]}
      */
     @RequestMapping(value = "/updateGroupFields", method = RequestMethod.POST, produces = MediaType
         .APPLICATION_JSON_UTF8_VALUE,
@@ -121,6 +265,15 @@ public class GroupRequestController {
     @ResponseBody
     public ResponseEntity<Message> updateGroupFields(@RequestBody UpdateGroupRequest request) {
 
+        List<String> unknownSkills = SkillRegistry.unknownNames(request.getGroupSkills());
+        if (!unknownSkills.isEmpty()) {
+            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.UNKNOWN_SKILL_DESC)
+                .withField("groupSkills")
+                .withValue(unknownSkills)
+                .build(), HttpStatus.OK);
+        }
+
         Group currentGroup = GrouperServiceApplication.groupObjectCache.getObject(request.getGroupId());
 
         Group updatedGroup = new Group.GroupBuilder(request.getGroupId())
@@ -131,9 +284,21 @@ public class GroupRequestController {
             .withGroupOwner(request.getGroupOwnerId())
             .withGroupSkillSet(new SkillSet(request.getGroupSkills()))
             .withGroupUsers(currentGroup.getGroupUsers())
+            .withGroupVersion(currentGroup.getGroupVersion())
             .build();
 
-        Message message = GrouperServiceApplication.groupObjectCache.updateObject(updatedGroup);
+        Message message = GrouperServiceApplication.groupObjectCache.updateObject(currentGroup, updatedGroup);
+        if (message.getStatus() == Message.DEFAULT_SUCCESS_STATUS) {
+            // Index what was stored, which keeps fields changed concurrently by someone else
+            Group storedGroup = GrouperServiceApplication.groupObjectCache.getObject(request.getGroupId());
+            if (storedGroup.getGroupId() != Group.EMPTY_GROUP_ID) {
+                if (!currentGroup.getGroupEvent().equals(storedGroup.getGroupEvent())) {
+                    GrouperServiceApplication.eventSkillIndex.removeGroup(currentGroup.getGroupEvent(),
+                        storedGroup.getGroupId());
+                }
+                GrouperServiceApplication.eventSkillIndex.indexGroup(storedGroup);
+            }
+        }
 
         return new ResponseEntity<Message>(message, HttpStatus.OK);
     }
@@ -164,19 +329,18 @@ public class GroupRequestController {
 
         ArrayList<Message> messages = new ArrayList<>();
 
-        Event updatedEvent = GrouperServiceApplication.eventObjectCache.getObject(request.getGroupEventId());
-        updatedEvent.removeGroup(request.getGroupId());
-
-        messages.add(GrouperServiceApplication.eventObjectCache.updateObject(updatedEvent));
+        messages.add(GrouperServiceApplication.eventObjectCache.removeGroup(request.getGroupEventId(),
+            request.getGroupId()).join());
 
+        List<CascadeRunner.Task> tasks = new ArrayList<>();
         for (String userId : request.getGroupUsers()) {
-            User updatedUser = GrouperServiceApplication.userObjectCache.getObject(userId);
-            updatedUser.removeGroup(request.getGroupId(), request.getGroupEventId());
-
-            messages.add(GrouperServiceApplication.userObjectCache.updateObject(updatedUser));
+            tasks.add(new CascadeRunner.Task("userId", userId, () -> GrouperServiceApplication.userObjectCache
+                .removeGroup(userId, request.getGroupEventId(), request.getGroupId())));
         }
+        messages.addAll(CascadeRunner.runAll(tasks));
 
         messages.add(GrouperServiceApplication.groupObjectCache.deleteObject(request.getGroupId()));
+        GrouperServiceApplication.eventSkillIndex.removeGroup(request.getGroupEventId(), request.getGroupId());
 
         return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
     }
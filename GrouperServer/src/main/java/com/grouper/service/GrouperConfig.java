@@ -0,0 +1,84 @@
+package com.grouper.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Static access to Grouper's settings, for code that runs before (or outside of) the Spring context, like the object
+ * caches.
+ *
+ * Settings are read from application.properties on the classpath, the same file Spring Boot reads, and can be
+ * overridden per node with JVM system properties (-Dgrouper.cache.user.refreshAfterWriteSeconds=30).
+ */
+public final class GrouperConfig {
+
+    private static final String PROPERTIES_FILE = "application.properties";
+
+    // Declared before properties, which load() fills in while the class initializes
+    private static final Logger logger = LoggerFactory.getLogger(GrouperConfig.class);
+
+    private static final Properties properties = load();
+
+    private GrouperConfig() {
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+
+        try (InputStream stream = GrouperConfig.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE)) {
+            if (stream != null) {
+                properties.load(stream);
+            }
+        } catch (IOException ioe) {
+            logger.warn("failure=\"Reading {} failed, using defaults.\"", PROPERTIES_FILE, ioe);
+        }
+
+        properties.putAll(System.getProperties());
+        return properties;
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException nfe) {
+            logger.warn("Invalid integer for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException nfe) {
+            logger.warn("Invalid long for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException nfe) {
+            logger.warn("Invalid double for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+}
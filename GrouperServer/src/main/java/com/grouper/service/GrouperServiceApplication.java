@@ -4,24 +4,62 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.profile.ProfileCredentialsProvider;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsyncClientBuilder;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.regions.Regions;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.grouper.dataset.DatasetGenerator;
+import com.grouper.dataset.DatasetLoader;
+import com.grouper.dataset.DatasetSpec;
+import com.grouper.index.EventGeoIndex;
+import com.grouper.index.EventSkillIndex;
+import com.grouper.index.EventTimeIndex;
+import com.grouper.index.SearchIndex;
+import com.grouper.models.Event;
 import com.grouper.objectcache.EventObjectCache;
 import com.grouper.objectcache.GroupObjectCache;
+import com.grouper.objectcache.MembershipStore;
 import com.grouper.objectcache.UserObjectCache;
+import com.grouper.storage.DynamoStorage;
+import com.grouper.storage.InMemoryStorage;
+import com.grouper.storage.Storage;
 import org.hashids.Hashids;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 @SpringBootApplication
 public class GrouperServiceApplication {
 
+    private static final Logger logger = LoggerFactory.getLogger(GrouperServiceApplication.class);
+
     public static AmazonDynamoDB dynamoClient;
+    public static AmazonDynamoDBAsync dynamoAsyncClient;
+    public static Storage storage;
     public static Hashids hashids;
+    public static IdGenerator idGenerator;
     public static UserObjectCache userObjectCache;
     public static GroupObjectCache groupObjectCache;
     public static EventObjectCache eventObjectCache;
+    public static MembershipStore membershipStore;
+    public static EventSkillIndex eventSkillIndex;
+    public static EventTimeIndex eventTimeIndex;
+    public static EventGeoIndex eventGeoIndex;
+    public static SearchIndex searchIndex;
+    public static Semaphore cascadePermits;
+    private static ScheduledExecutorService indexExecutor;
 
     private static void initAWS() throws Exception {
 
@@ -39,29 +77,201 @@ public class GrouperServiceApplication {
             .withCredentials(credentialsProvider)
             .withRegion(Regions.US_WEST_1)
             .build();
+
+        // The async client runs its HTTP calls on its own pool, so controllers returning futures don't hold a
+        // Tomcat thread while DynamoDB answers
+        int asyncThreads = GrouperConfig.getInt("grouper.dynamo.asyncThreads", 64);
+        dynamoAsyncClient = AmazonDynamoDBAsyncClientBuilder.standard()
+            .withCredentials(credentialsProvider)
+            .withRegion(Regions.US_WEST_1)
+            .withExecutorFactory(() -> Executors.newFixedThreadPool(asyncThreads, new ThreadFactoryBuilder()
+                .setNameFormat("dynamo-async-%d")
+                .setDaemon(true)
+                .build()))
+            .build();
+    }
+
+    // dynamodb in production; memory runs the service without AWS, for local development, load tests and benchmarks
+    private static void initStorage() throws Exception {
+
+        String backend = GrouperConfig.getString("grouper.storage.backend", Storage.DYNAMODB);
+        if (Storage.DYNAMODB.equals(backend)) {
+            initAWS();
+            storage = new DynamoStorage(dynamoClient, dynamoAsyncClient);
+        } else if (Storage.MEMORY.equals(backend)) {
+            storage = new InMemoryStorage(GrouperConfig.getLong("grouper.storage.memory.latencyMillis", 0),
+                GrouperConfig.getLong("grouper.storage.memory.latencyJitterMillis", 0),
+                GrouperConfig.getInt("grouper.storage.memory.asyncThreads", 8));
+            logger.warn("Using in-memory storage. Nothing is persisted.");
+        } else {
+            throw new IllegalStateException("Unknown grouper.storage.backend: " + backend);
+        }
     }
 
     private static void initHashids() {
 
         hashids = new Hashids("voBxXOCwSmjtGHYk6mVVzFI2Yr9gbf");
+        idGenerator = new IdGenerator(hashids, IdGenerator.configuredNodeId());
     }
 
     private static void initObjectCache() {
 
-        UserObjectCache.init();
-        GroupObjectCache.init();
-        EventObjectCache.init();
+        membershipStore = new MembershipStore(storage);
+
+        UserObjectCache.init(storage);
+        GroupObjectCache.init(storage);
+        EventObjectCache.init(storage);
 
         userObjectCache = new UserObjectCache();
         groupObjectCache = new GroupObjectCache();
         eventObjectCache = new EventObjectCache();
     }
 
-    public static void main(String[] args) throws Exception {
+    private static void initIndexes() {
+
+        eventSkillIndex = new EventSkillIndex();
+        eventTimeIndex = new EventTimeIndex();
+        eventGeoIndex = new EventGeoIndex(GrouperConfig.getDouble("grouper.events.geoCellDegrees", 0.25));
+        searchIndex = new SearchIndex();
+    }
 
-        initAWS();
+    // Generated data for in-memory storage, loaded before the first index refresh so the indexes include it
+    private static void initDataset() {
+
+        int users = GrouperConfig.getInt("grouper.dataset.users", 0);
+        if (users <= 0) {
+            return;
+        }
+        if (!(storage instanceof InMemoryStorage)) {
+            logger.warn("grouper.dataset.users is only loaded into in-memory storage. No dataset loaded.");
+            return;
+        }
+
+        DatasetSpec spec = new DatasetSpec.DatasetSpecBuilder()
+            .withSeed(GrouperConfig.getLong("grouper.dataset.seed", 1))
+            .withUsers(users)
+            .withEvents(GrouperConfig.getInt("grouper.dataset.events", 100))
+            .withEventSizeSkew(GrouperConfig.getDouble("grouper.dataset.eventSizeSkew", 1.0))
+            .withSkillSkew(GrouperConfig.getDouble("grouper.dataset.skillSkew", 1.0))
+            .withReferenceTimeMillis(GrouperConfig.getLong("grouper.dataset.referenceTimeMillis",
+                DatasetSpec.DEFAULT_REFERENCE_TIME_MILLIS))
+            .build();
+        DatasetLoader.toStorage(new DatasetGenerator(hashids).generate(spec), storage,
+            GrouperConfig.getInt("grouper.dataset.loadThreads", 16));
+    }
+
+    // Bound on the writes of cascading deletes in flight at once. A request that has as many in flight waits for one
+    // to finish before starting the next, which slows the caller down instead of flooding the backend.
+    private static void initCascadePermits() {
+
+        cascadePermits = new Semaphore(GrouperConfig.getInt("grouper.cascade.inFlight", 16));
+    }
+
+    /**
+     * Set up ids, object caches, indexes and the cascade bound over a storage backend. main calls this with the
+     * configured backend; tests call it with in-memory storage to run the service without Spring or AWS.
+     */
+    public static void initServices(Storage backend) {
+
+        storage = backend;
         initHashids();
         initObjectCache();
+        initIndexes();
+        initCascadePermits();
+    }
+
+    private static void initIndexRefresh() {
+
+        // Fill the time, geo and search indexes now, then rescan for events created or deleted on other nodes. Skill
+        // postings of events deleted elsewhere are dropped on the same rescan.
+        long refreshMinutes = GrouperConfig.getLong("grouper.events.indexRefreshMinutes", 10);
+        indexExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("index-refresh-%d")
+            .setDaemon(true)
+            .build());
+        indexExecutor.scheduleWithFixedDelay(GrouperServiceApplication::refreshIndexes, 0, refreshMinutes,
+            TimeUnit.MINUTES);
+    }
+
+    // Copy memberships written before the membership table existed, on the index refresh thread. Retried on the
+    // refresh schedule until it succeeds; the paged roster endpoints read the string sets until then.
+    private static void initMembershipBackfill() {
+
+        long retryMinutes = GrouperConfig.getLong("grouper.events.indexRefreshMinutes", 10);
+        indexExecutor.scheduleWithFixedDelay(GrouperServiceApplication::backfillMemberships, 0, retryMinutes,
+            TimeUnit.MINUTES);
+    }
+
+    // Edges of deleted events and groups are removed in the background; retry the removals that failed
+    private static void initMembershipCleanup() {
+
+        long retryMinutes = GrouperConfig.getLong("grouper.events.indexRefreshMinutes", 10);
+        indexExecutor.scheduleWithFixedDelay(GrouperServiceApplication::retryMembershipRemovals, retryMinutes,
+            retryMinutes, TimeUnit.MINUTES);
+    }
+
+    private static void retryMembershipRemovals() {
+        try {
+            if (!membershipStore.retryRemovals()) {
+                logger.warn("failure=\"Membership removals incomplete, retrying on the next refresh.\"");
+            }
+        } catch (RuntimeException re) {
+            logger.warn("failure=\"Membership removals failed.\"", re);
+        }
+    }
+
+    static void backfillMemberships() {
+        try {
+            if (membershipStore.readBackfillMarker()) {
+                return;
+            }
+
+            // Both scans run even if the first one misses an edge, so a retry has less left to fix
+            boolean eventsCopied = eventObjectCache.backfillMemberships();
+            boolean groupsCopied = groupObjectCache.backfillMemberships();
+            if (eventsCopied && groupsCopied && membershipStore.markBackfilled()) {
+                logger.info("Membership backfill finished.");
+            } else {
+                logger.warn("failure=\"Membership backfill incomplete, retrying on the next refresh.\"");
+            }
+        } catch (RuntimeException re) {
+            logger.warn("failure=\"Membership backfill failed.\"", re);
+        }
+    }
+
+    // One scan per table feeds every index
+    private static void refreshIndexes() {
+        try {
+            Set<String> timeIndexedEventIds = eventTimeIndex.indexedEventIds();
+            Set<String> geoIndexedEventIds = eventGeoIndex.indexedEventIds();
+            Set<String> searchIndexedEventIds = searchIndex.indexedIds(SearchIndex.EVENT);
+            List<Event> events = eventObjectCache.scanIndexedFields();
+
+            Map<String, Long> eventTimes = new HashMap<>();
+            for (Event event : events) {
+                eventTimes.put(event.getEventId(), event.getEventDate().getTime());
+            }
+            eventTimeIndex.refresh(eventTimes, timeIndexedEventIds);
+            eventSkillIndex.retainEvents(eventTimes.keySet());
+            eventGeoIndex.refresh(events, geoIndexedEventIds);
+            searchIndex.refreshEvents(events, searchIndexedEventIds);
+
+            Set<String> searchIndexedGroupIds = searchIndex.indexedIds(SearchIndex.GROUP);
+            searchIndex.refreshGroups(groupObjectCache.scanIndexedFields(), searchIndexedGroupIds);
+        } catch (RuntimeException re) {
+            // Keep the schedule alive; the next run retries
+            logger.warn("failure=\"Index refresh failed.\"", re);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        initStorage();
+        initServices(storage);
+        initDataset();
+        initIndexRefresh();
+        initMembershipBackfill();
+        initMembershipCleanup();
         SpringApplication.run(GrouperServiceApplication.class, args);
     }
 
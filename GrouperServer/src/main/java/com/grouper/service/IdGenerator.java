@@ -0,0 +1,126 @@
+package com.grouper.service;
+
+import org.hashids.Hashids;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style ids: a millisecond timestamp, a node id and a per-millisecond sequence. Ids from one node are
+ * strictly increasing, and nodes never share ids as long as their node ids differ.
+ *
+ * The timestamp and sequence are one AtomicLong, advanced with a CAS loop, so generating an id never takes a lock.
+ * Up to 4096 ids are issued per millisecond; past that the generator borrows the next millisecond rather than
+ * waiting for it. If the clock moves backwards (NTP step, VM migration), it keeps counting from the last timestamp it
+ * issued, so ids never repeat or go backwards.
+ *
+ * Hashids caps each number at 2^53, so an id is encoded as two numbers: milliseconds since {@link #EPOCH_MILLIS} and
+ * (node &lt;&lt; 12 | sequence). {@link #timestampOf} decodes the creation time.
+ */
+public final class IdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGenerator.class);
+
+    // 2018-01-01T00:00:00Z
+    public static final long EPOCH_MILLIS = 1514764800000L;
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAXIMUM_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final Hashids hashids;
+    private final long nodeId;
+
+    // (milliseconds since EPOCH_MILLIS) << SEQUENCE_BITS | sequence, of the last id issued
+    private final AtomicLong lastState = new AtomicLong();
+
+    /**
+     * @param hashids encoder for the two id numbers
+     * @param nodeId  this node's id, 0 to MAXIMUM_NODE_ID, unique among running nodes
+     */
+    public IdGenerator(Hashids hashids, int nodeId) {
+        if (nodeId < 0 || nodeId > MAXIMUM_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAXIMUM_NODE_ID + ": " + nodeId);
+        }
+
+        this.hashids = hashids;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Read grouper.id.nodeId. Without it, a node id is derived from the host name, which is only unique enough for a
+     * handful of nodes, so production nodes should set it.
+     */
+    static int configuredNodeId() {
+        int nodeId = GrouperConfig.getInt("grouper.id.nodeId", -1);
+        if (nodeId >= 0) {
+            return nodeId;
+        }
+
+        String hostName;
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException uhe) {
+            hostName = uhe.getMessage();
+        }
+
+        nodeId = (hostName == null ? 0 : hostName.hashCode()) & MAXIMUM_NODE_ID;
+        logger.warn("grouper.id.nodeId is not set, using {} from host name {}", nodeId, hostName);
+        return nodeId;
+    }
+
+    /**
+     * @param prefix type prefix, U, G or E
+     * @return prefix followed by the encoded id
+     */
+    public String nextId(String prefix) {
+        return encode(prefix, nextState());
+    }
+
+    /**
+     * The id this node would have issued as the given sequence number counted from a point in time: sequence 4096 is
+     * the first id of the following millisecond. For generated data, which needs the same ids on every run.
+     *
+     * @param prefix          type prefix, U, G or E
+     * @param timestampMillis epoch milliseconds, not before {@link #EPOCH_MILLIS}
+     * @param sequence        non-negative sequence number
+     * @return prefix followed by the encoded id
+     */
+    public String idAt(String prefix, long timestampMillis, long sequence) {
+        return encode(prefix, ((timestampMillis - EPOCH_MILLIS) << SEQUENCE_BITS) + sequence);
+    }
+
+    /**
+     * @param id an id from {@link #nextId}, with its prefix
+     * @return when the id was generated, in epoch milliseconds, or -1 if it isn't one of these ids
+     */
+    public long timestampOf(String id) {
+        long[] numbers = id.isEmpty() ? new long[0] : this.hashids.decode(id.substring(1));
+        return numbers.length == 2 ? EPOCH_MILLIS + numbers[0] : -1;
+    }
+
+    private long nextState() {
+        while (true) {
+            long last = this.lastState.get();
+            long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+
+            // A new millisecond starts at sequence 0. In the same millisecond, after a full one, or after the clock
+            // went back, continue from the last id; overflowing the sequence carries into the next millisecond.
+            long next = now > last ? now : last + 1;
+            if (this.lastState.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private String encode(String prefix, long state) {
+        return prefix + this.hashids.encode(state >>> SEQUENCE_BITS, this.nodeId << SEQUENCE_BITS |
+            (state & SEQUENCE_MASK));
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.grouper.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grouper.models.Message;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Pre-serialized JSON responses. A ResponseEntity&lt;byte[]&gt; is copied straight to the response stream by Spring's
+ * byte array converter, so a response cached with {@link com.grouper.objectcache.ResponseCache} skips Jackson
+ * entirely.
+ */
+final class JsonResponses {
+
+    // Built the way Spring Boot builds the ObjectMapper for @ResponseBody, so serialized and regular responses match
+    private static final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+        .build();
+
+    private JsonResponses() {
+    }
+
+    static byte[] serialize(Message message) {
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException jpe) {
+            throw new IllegalStateException(jpe);
+        }
+    }
+
+    static ResponseEntity<byte[]> ok(byte[] body) {
+        return ResponseEntity.status(HttpStatus.OK)
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .body(body);
+    }
+
+}
@@ -1,8 +1,173 @@
 package com.grouper.service;
 
-import org.springframework.web.bind.annotation.RestController;
+import com.grouper.matching.GroupMatcher;
+import com.grouper.models.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 public class MatchRequestController {
-    // Big TODO
+
+    private final GroupMatcher groupMatcher = new GroupMatcher();
+
+    /**
+     * Find the groups in an event that best fit a user's skills. Every group in the event is scored by how many of
+     * the skills it needs the user can fill, and the top k groups are returned, best match first. Groups the user
+     * already belongs to, and groups the user can't help, are left out.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/match/groupsForUser?userId=00000000&amp;eventId=00000000&amp;k=10</p>
+     *
+     * @param userId    string userId
+     * @param eventId   string eventId
+     * @param k         int maximum number of matches to return (1 - 100)
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {DEFAULT_SUCCESS_DESC, AWS_GET_FAILURE}
+     *          field: {GroupMatches, userId, eventId}
+     *          value: {[JSON GroupMatch object], offending userId, offending eventId}
+     */
+    @RequestMapping(value = "/match/groupsForUser", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<Message> groupsForUser(
+        @RequestParam(value = "userId", defaultValue = "00000000") String userId,
+        @RequestParam(value = "eventId", defaultValue = "00000000") String eventId,
+        @RequestParam(value = "k", defaultValue = "10") int k) {
+
+        User user = GrouperServiceApplication.userObjectCache.getObject(userId);
+        if (user.getUserId() == User.EMPTY_USER_ID) {
+            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.AWS_GET_FAILURE)
+                .withField("userId")
+                .withValue(userId)
+                .build(), HttpStatus.OK);
+        }
+
+        Event event = GrouperServiceApplication.eventObjectCache.getObject(eventId);
+        if (event.getEventId() == Event.EMPTY_EVENT_ID) {
+            return missingEventResponse(eventId);
+        }
+
+        ArrayList<GroupMatch> matches = this.groupMatcher.topGroupsForUser(user, event, k);
+
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+            .withField("GroupMatches")
+            .withValue(matches)
+            .build(), HttpStatus.OK);
+    }
+
+    /**
+     * Find the groups in an event that need every one of the given skills. Answered from the event's skill index.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/match/groupsNeedingSkills?eventId=00000000&amp;skills=Swift,Python</p>
+     *
+     * @param eventId   string eventId
+     * @param skills    [String] skill names, comma separated
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {DEFAULT_SUCCESS_DESC, AWS_GET_FAILURE, UNKNOWN_SKILL_DESC}
+     *          field: {groupIds, eventId, skills}
+     *          value: {[String] groupIds, offending eventId, offending skill name}
+     */
+    @RequestMapping(value = "/match/groupsNeedingSkills", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<Message> groupsNeedingSkills(
+        @RequestParam(value = "eventId", defaultValue = "00000000") String eventId,
+        @RequestParam(value = "skills") List<String> skills) {
+
+        String unknownSkill = firstUnknownSkill(skills);
+        if (unknownSkill != null) {
+            return unknownSkillResponse(unknownSkill);
+        }
+        // The skill index matches nothing for an event it can't load, so tell a missing event apart first
+        if (GrouperServiceApplication.eventObjectCache.getObject(eventId).getEventId() == Event.EMPTY_EVENT_ID) {
+            return missingEventResponse(eventId);
+        }
+
+        List<String> groupIds = GrouperServiceApplication.eventSkillIndex.groupsNeeding(eventId, skillMask(skills));
+
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+            .withField("groupIds")
+            .withValue(groupIds)
+            .build(), HttpStatus.OK);
+    }
+
+    /**
+     * Find the users enrolled in an event that have every one of the given skills. Answered from the event's skill
+     * index.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/match/usersWithSkills?eventId=00000000&amp;skills=Python</p>
+     *
+     * @param eventId   string eventId
+     * @param skills    [String] skill names, comma separated
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {DEFAULT_SUCCESS_DESC, AWS_GET_FAILURE, UNKNOWN_SKILL_DESC}
+     *          field: {userIds, eventId, skills}
+     *          value: {[String] userIds, offending eventId, offending skill name}
+     */
+    @RequestMapping(value = "/match/usersWithSkills", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<Message> usersWithSkills(
+        @RequestParam(value = "eventId", defaultValue = "00000000") String eventId,
+        @RequestParam(value = "skills") List<String> skills) {
+
+        String unknownSkill = firstUnknownSkill(skills);
+        if (unknownSkill != null) {
+            return unknownSkillResponse(unknownSkill);
+        }
+        if (GrouperServiceApplication.eventObjectCache.getObject(eventId).getEventId() == Event.EMPTY_EVENT_ID) {
+            return missingEventResponse(eventId);
+        }
+
+        List<String> userIds = GrouperServiceApplication.eventSkillIndex.usersHaving(eventId, skillMask(skills));
+
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+            .withField("userIds")
+            .withValue(userIds)
+            .build(), HttpStatus.OK);
+    }
+
+    private static String firstUnknownSkill(List<String> skills) {
+        for (String skill : skills) {
+            if (SkillRegistry.ordinal(skill) < 0) {
+                return skill;
+            }
+        }
+        return null;
+    }
+
+    private static long skillMask(List<String> skills) {
+        long skillMask = 0L;
+        for (String skill : skills) {
+            skillMask |= SkillRegistry.bit(skill);
+        }
+        return skillMask;
+    }
+
+    private static ResponseEntity<Message> missingEventResponse(String eventId) {
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+            .withDescription(Message.AWS_GET_FAILURE)
+            .withField("eventId")
+            .withValue(eventId)
+            .build(), HttpStatus.OK);
+    }
+
+    private static ResponseEntity<Message> unknownSkillResponse(String skill) {
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+            .withDescription(Message.UNKNOWN_SKILL_DESC)
+            .withField("skills")
+            .withValue(skill)
+            .build(), HttpStatus.OK);
+    }
+
 }
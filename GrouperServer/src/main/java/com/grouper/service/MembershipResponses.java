@@ -0,0 +1,51 @@
+package com.grouper.service;
+
+import com.grouper.models.MembershipPage;
+import com.grouper.models.Message;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Responses of the paged roster endpoints (/getEventUsers, /getEventGroups, /getGroupUsers).
+ */
+final class MembershipResponses {
+
+    private MembershipResponses() {
+    }
+
+    /**
+     * @param idField name of the parent's id, reported if the page can't be read
+     * @param id      the parent's id
+     * @param cursor  the requested cursor, reported if it is invalid
+     */
+    static CompletableFuture<ResponseEntity<Message>> pageMessage(CompletableFuture<MembershipPage> page,
+                                                                  String idField, String id, String cursor) {
+        return page.handle((membershipPage, throwable) -> {
+            Message message;
+            if (throwable == null) {
+                message = new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+                    .withDescription(Message.AWS_GET_SUCCESS)
+                    .withField("MembershipPage")
+                    .withValue(membershipPage)
+                    .build();
+            } else if (throwable.getCause() instanceof IllegalArgumentException ||
+                throwable instanceof IllegalArgumentException) {
+                message = new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.INVALID_CURSOR_DESC)
+                    .withField("cursor")
+                    .withValue(cursor)
+                    .build();
+            } else {
+                message = new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_GET_FAILURE)
+                    .withField(idField)
+                    .withValue(id)
+                    .build();
+            }
+            return new ResponseEntity<Message>(message, HttpStatus.OK);
+        });
+    }
+
+}
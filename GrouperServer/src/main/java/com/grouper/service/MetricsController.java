@@ -0,0 +1,28 @@
+package com.grouper.service;
+
+import com.grouper.objectcache.CacheMetrics;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+public class MetricsController {
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Object cache metrics in the Prometheus text format: hits, misses, loads, removals by cause, size, and load
+     * latency histograms, labelled by cache (user, group, event).
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/metrics</p>
+     *
+     * @return text/plain Prometheus exposition
+     */
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET, produces = PROMETHEUS_CONTENT_TYPE)
+    @ResponseBody
+    public ResponseEntity<String> metrics() {
+        return new ResponseEntity<String>(CacheMetrics.scrape(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,117 @@
+package com.grouper.service;
+
+import com.grouper.index.SearchIndex;
+import com.grouper.models.Message;
+import com.grouper.models.SearchHit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+public class SearchRequestController {
+
+    private static final int MAXIMUM_HITS = 100;
+
+    /**
+     * Search group and event names, group types and descriptions. Matches any of the query's words, best match
+     * first; a word in a name counts for more than one in a description.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/search?q=machine%20learning&amp;kind=group&amp;limit=20</p>
+     *
+     * @param q         free text query
+     * @param kind      {group, event}, or omitted for both
+     * @param limit     int maximum number of hits to return (1 - 100)
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {DEFAULT_SUCCESS_DESC, DEFAULT_FAILURE_DESC, INVALID_LIMIT_DESC}
+     *          field: {SearchHits, kind, limit}
+     *          value: {[JSON SearchHit object], offending kind, offending limit}
+     */
+    @RequestMapping(value = "/search", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<Message> search(
+        @RequestParam(value = "q") String q,
+        @RequestParam(value = "kind", required = false) String kind,
+        @RequestParam(value = "limit", defaultValue = "20") int limit) {
+
+        if (!validKind(kind)) {
+            return unknownKindResponse(kind);
+        }
+        if (limit < 1) {
+            return invalidLimitResponse(limit);
+        }
+
+        List<SearchHit> hits = GrouperServiceApplication.searchIndex.search(q, kind, Math.min(limit, MAXIMUM_HITS));
+
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+            .withDescription(Message.DEFAULT_SUCCESS_DESC)
+            .withField("SearchHits")
+            .withValue(hits)
+            .build(), HttpStatus.OK);
+    }
+
+    /**
+     * Type-ahead over the same fields as /search. The last word of q is completed as a prefix, unless q ends in a
+     * space; every word has to match.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/search/suggest?q=hack%20ucl&amp;kind=event&amp;limit=10</p>
+     *
+     * @param q         what the user has typed so far
+     * @param kind      {group, event}, or omitted for both
+     * @param limit     int maximum number of hits to return (1 - 100)
+     * @return Message(status, description, field, value)
+     *          status: {200, 400}
+     *          description: {DEFAULT_SUCCESS_DESC, DEFAULT_FAILURE_DESC, INVALID_LIMIT_DESC}
+     *          field: {SearchHits, kind, limit}
+     *          value: {[JSON SearchHit object], offending kind, offending limit}
+     */
+    @RequestMapping(value = "/search/suggest", method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<Message> suggest(
+        @RequestParam(value = "q") String q,
+        @RequestParam(value = "kind", required = false) String kind,
+        @RequestParam(value = "limit", defaultValue = "10") int limit) {
+
+        if (!validKind(kind)) {
+            return unknownKindResponse(kind);
+        }
+        if (limit < 1) {
+            return invalidLimitResponse(limit);
+        }
+
+        List<SearchHit> hits = GrouperServiceApplication.searchIndex.suggest(q, kind, Math.min(limit, MAXIMUM_HITS));
+
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+            .withDescription(Message.DEFAULT_SUCCESS_DESC)
+            .withField("SearchHits")
+            .withValue(hits)
+            .build(), HttpStatus.OK);
+    }
+
+    private static boolean validKind(String kind) {
+        return kind == null || kind.equals(SearchIndex.GROUP) || kind.equals(SearchIndex.EVENT);
+    }
+
+    private static ResponseEntity<Message> unknownKindResponse(String kind) {
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+            .withDescription(Message.DEFAULT_FAILURE_DESC)
+            .withField("kind")
+            .withValue(kind)
+            .build(), HttpStatus.OK);
+    }
+
+    private static ResponseEntity<Message> invalidLimitResponse(int limit) {
+        return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+            .withDescription(Message.INVALID_LIMIT_DESC)
+            .withField("limit")
+            .withValue(limit)
+            .build(), HttpStatus.OK);
+    }
+
+}
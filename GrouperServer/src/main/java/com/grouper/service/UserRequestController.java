@@ -14,18 +14,26 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class UserRequestController {
 
+    private static final int MAXIMUM_IDS_PER_REQUEST = 100;
+
     /**
      * Get a user with the provided userId from the object store. If the object is not currently in the cache, it
      * will be loaded from DynamoDB.
      *
+     * The serialized response is cached per user version, so repeated reads of an unchanged user skip JSON
+     * serialization.
+     *
      * <p> -- Request format -- </p>
      * <p>method: GET</p>
      * <p>url: box.grouper.site:8080/getUser?userId=00000000</p>
@@ -39,24 +47,79 @@ public class UserRequestController {
      */
     @RequestMapping(value="/getUser", method=RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<Message> getUser(@RequestParam(value = "userId", defaultValue = "00000000") String userId) {
+    public CompletableFuture<ResponseEntity<byte[]>> getUser(
+        @RequestParam(value = "userId", defaultValue = "00000000") String userId) {
+
+        return GrouperServiceApplication.userObjectCache.getObjectAsync(userId).thenApply(user -> {
+            if (user.getUserId() == User.EMPTY_USER_ID) {
+                Message message = new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_GET_FAILURE)
+                    .withField("userId")
+                    .withValue(userId)
+                    .build();
+                return JsonResponses.ok(JsonResponses.serialize(message));
+            }
+
+            // Cached until the user is written again
+            return JsonResponses.ok(GrouperServiceApplication.userObjectCache.getResponseCache().get(userId,
+                user.getUserVersion(), () -> JsonResponses.serialize(new Message.MessageBuilder(
+                    Message.DEFAULT_SUCCESS_STATUS)
+                    .withDescription(Message.AWS_GET_SUCCESS)
+                    .withField("User")
+                    .withValue(user)
+                    .build())));
+        });
+    }
 
-        User user = GrouperServiceApplication.userObjectCache.getObject(userId);
+    /**
+     * Get every user with one of the provided userIds from the object store. Users that are not currently in the
+     * cache are loaded from DynamoDB together, in batches of 100.
+     *
+     * <p> -- Request format -- </p>
+     * <p>method: GET</p>
+     * <p>url: box.grouper.site:8080/getUsers?userIds=00000000,00000001</p>
+     *
+     * @param userIds   [String] userIds, comma separated, at most 100
+     * @return [Message(status, description, field, value)]
+     *          status: {200, 400}
+     *          description: {AWS_GET_SUCCESS, AWS_GET_FAILURE, BATCH_LIMIT_DESC}
+     *          field: {User, userId, userIds}
+     *          value: {JSON User object, offending userId, number of userIds requested}
+     */
+    @RequestMapping(value="/getUsers", method=RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<ArrayList<Message>> getUsers(@RequestParam(value = "userIds") List<String> userIds) {
 
-        if (user.getUserId() == User.EMPTY_USER_ID) {
-            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
-                .withDescription(Message.AWS_GET_FAILURE)
-                .withField("userId")
-                .withValue(userId)
-                .build(), HttpStatus.OK);
+        ArrayList<Message> messages = new ArrayList<>();
 
-        } else {
-            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
-                .withDescription(Message.AWS_GET_SUCCESS)
-                .withField("User")
-                .withValue(user)
-                .build(), HttpStatus.OK);
+        if (userIds.size() > MAXIMUM_IDS_PER_REQUEST) {
+            messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.BATCH_LIMIT_DESC)
+                .withField("userIds")
+                .withValue(userIds.size())
+                .build());
+            return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
         }
+
+        Map<String, User> users = GrouperServiceApplication.userObjectCache.getObjects(new LinkedHashSet<>(userIds));
+
+        for (Map.Entry<String, User> entry : users.entrySet()) {
+            if (entry.getValue().getUserId() == User.EMPTY_USER_ID) {
+                messages.add(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                    .withDescription(Message.AWS_GET_FAILURE)
+                    .withField("userId")
+                    .withValue(entry.getKey())
+                    .build());
+            } else {
+                messages.add(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS)
+                    .withDescription(Message.AWS_GET_SUCCESS)
+                    .withField("User")
+                    .withValue(entry.getValue())
+                    .build());
+            }
+        }
+
+        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
     }
 
     /**
@@ -70,16 +133,25 @@ public class UserRequestController {
      * @param request   CreateUserRequest request
      * @return Message(status, description, field, value)
      *          status: {200, 400}
-     *          description: {AWS_PUT_SUCCESS, AWS_PUT_FAILURE}
-     *          field: {User, userId}
-     *          value: {JSON User Object, offending userId}
+     *          description: {AWS_PUT_SUCCESS, AWS_PUT_FAILURE, UNKNOWN_SKILL_DESC}
+     *          field: {User, userId, userSkills}
+     *          value: {JSON User Object, offending userId, [unknown skill names]}
      */
     @RequestMapping(value = "/createUser", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_UTF8_VALUE,
         consumes = MediaType.APPLICATION_JSON_UTF8_VALUE)
     @ResponseBody
     public ResponseEntity<Message> createUser(@RequestBody CreateUserRequest request) {
 
-        String userId = "U" + GrouperServiceApplication.hashids.encode(Instant.now().toEpochMilli());
+        List<String> unknownSkills = SkillRegistry.unknownNames(request.getUserSkills());
+        if (!unknownSkills.isEmpty()) {
+            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.UNKNOWN_SKILL_DESC)
+                .withField("userSkills")
+                .withValue(unknownSkills)
+                .build(), HttpStatus.OK);
+        }
+
+        String userId = GrouperServiceApplication.idGenerator.nextId("U");
         User newUser = new User.UserBuilder(userId)
             .withUserName(request.getUserName())
             .withUserOccupation(request.getUserOccupation())
@@ -102,9 +174,9 @@ public class UserRequestController {
      * @param request   UpdateUserRequest request
      * @return Message(status, description, field, value)
      *          status: {200, 400}
-     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE}
-     *          field: {User, userId}
-     *          value: {JSON User Object, offending userId}
+     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE, UPDATE_CONFLICT_DESC, UNKNOWN_SKILL_DESC}
+     *          field: {User, userId, userSkills}
+     *          value: {JSON User Object, offending userId, [unknown skill names]}
      */
     @RequestMapping(value = "/updateUserFields", method = RequestMethod.POST, produces = MediaType
         .APPLICATION_JSON_UTF8_VALUE,
@@ -112,6 +184,15 @@ public class UserRequestController {
     @ResponseBody
     public ResponseEntity<Message> updateUserFields(@RequestBody UpdateUserRequest request) {
 
+        List<String> unknownSkills = SkillRegistry.unknownNames(request.getUserSkills());
+        if (!unknownSkills.isEmpty()) {
+            return new ResponseEntity<Message>(new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+                .withDescription(Message.UNKNOWN_SKILL_DESC)
+                .withField("userSkills")
+                .withValue(unknownSkills)
+                .build(), HttpStatus.OK);
+        }
+
         User currentUser = GrouperServiceApplication.userObjectCache.getObject(request.getUserId());
 
         User updatedUser = new User.UserBuilder(request.getUserId())
@@ -119,9 +200,18 @@ public class UserRequestController {
             .withUserOccupation(request.getUserOccupation())
             .withUserSkillSet(new SkillSet(request.getUserSkills()))
             .withUserEventMap(currentUser.getUserEventMap())
+            .withUserVersion(currentUser.getUserVersion())
             .build();
 
-        Message message = GrouperServiceApplication.userObjectCache.updateObject(updatedUser);
+        Message message = GrouperServiceApplication.userObjectCache.updateObject(currentUser, updatedUser);
+        if (message.getStatus() == Message.DEFAULT_SUCCESS_STATUS) {
+            // Index what was stored, which keeps fields changed concurrently by someone else
+            User storedUser = GrouperServiceApplication.userObjectCache.getObject(request.getUserId());
+            if (storedUser.getUserId() != User.EMPTY_USER_ID) {
+                GrouperServiceApplication.eventSkillIndex.indexUser(storedUser.getUserEventMap().keySet(),
+                    storedUser);
+            }
+        }
 
         return new ResponseEntity<Message>(message, HttpStatus.OK);
     }
@@ -151,20 +241,25 @@ public class UserRequestController {
     @ResponseBody
     public ResponseEntity<ArrayList<Message>> deleteUser(@RequestBody DeleteUserRequest request) {
 
-        ArrayList<Message> messages = new ArrayList<>();
+        String userId = request.getUserId();
+        List<CascadeRunner.Task> tasks = new ArrayList<>();
 
         for (Map.Entry<String, String> entry : request.getUserEventMap().entrySet()) {
-            Event updatedEvent = GrouperServiceApplication.eventObjectCache.getObject(entry.getKey());
-            Group updatedGroup = GrouperServiceApplication.groupObjectCache.getObject(entry.getValue());
+            String eventId = entry.getKey();
+            String groupId = entry.getValue();
 
-            updatedEvent.removeUser(request.getUserId());
-            messages.add(GrouperServiceApplication.eventObjectCache.updateObject(updatedEvent));
+            tasks.add(new CascadeRunner.Task("eventId", eventId, () -> GrouperServiceApplication.eventObjectCache
+                .removeUser(eventId, userId)));
+            if (!Group.EMPTY_GROUP_ID.equals(groupId)) {
+                tasks.add(new CascadeRunner.Task("groupId", groupId, () -> GrouperServiceApplication.groupObjectCache
+                    .removeUser(groupId, userId)));
+            }
 
-            updatedGroup.removeUser(request.getUserId());
-            messages.add(GrouperServiceApplication.groupObjectCache.updateObject(updatedGroup));
+            GrouperServiceApplication.eventSkillIndex.removeUser(eventId, userId);
         }
 
-        messages.add(GrouperServiceApplication.userObjectCache.deleteObject(request.getUserId()));
+        ArrayList<Message> messages = CascadeRunner.runAll(tasks);
+        messages.add(GrouperServiceApplication.userObjectCache.deleteObject(userId));
 
         return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
     }
@@ -182,28 +277,45 @@ public class UserRequestController {
      * @param eventId  string eventId
      * @return [Message(status, description, field, value)]
      *          status: {200, 400}
-     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE}
+     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE, AWS_GET_FAILURE}
      *          field: {userId, eventId}
      *          value: {offending userId, offending eventId}
      */
     @RequestMapping(value = "/rel/addUserToEvent", method = RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<ArrayList<Message>> addUserToEvent(
+    public CompletableFuture<ResponseEntity<ArrayList<Message>>> addUserToEvent(
         @RequestParam(value = "userId", defaultValue = "00000000") String userId,
         @RequestParam(value = "eventId", defaultValue = "00000000") String eventId) {
 
-        ArrayList<Message> messages = new ArrayList<>();
-
-        User updatedUser = GrouperServiceApplication.userObjectCache.getObject(userId);
-        updatedUser.addEvent(eventId);
-
-        Event updatedEvent = GrouperServiceApplication.eventObjectCache.getObject(eventId);
-        updatedEvent.addUser(userId);
-
-        messages.add(GrouperServiceApplication.userObjectCache.updateObject(updatedUser));
-        messages.add(GrouperServiceApplication.eventObjectCache.updateObject(updatedEvent));
-
-        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+        // Same order as addUserToGroup: the user side first, whose update fails if the user doesn't exist, then the
+        // event side, undoing the user side if it fails. A user the event already lists was enrolled before this
+        // request, so a failed event side leaves them enrolled.
+        return GrouperServiceApplication.eventObjectCache.getObjectAsync(eventId)
+            .thenCompose(event -> {
+                if (event.getEventId() == Event.EMPTY_EVENT_ID) {
+                    return CompletableFuture.completedFuture(messages(missingEvent(eventId)));
+                }
+
+                return GrouperServiceApplication.userObjectCache.addEvent(userId, eventId)
+                    .thenCompose(userMessage -> {
+                        if (userMessage.getStatus() != Message.DEFAULT_SUCCESS_STATUS) {
+                            return CompletableFuture.completedFuture(messages(userMessage));
+                        }
+
+                        return GrouperServiceApplication.eventObjectCache.addUser(eventId, userId)
+                            .thenCompose(eventMessage -> {
+                                if (eventMessage.getStatus() == Message.DEFAULT_SUCCESS_STATUS) {
+                                    return indexUser(eventId, userId, messages(userMessage, eventMessage));
+                                }
+                                if (event.getEventUsers().contains(userId)) {
+                                    return CompletableFuture.completedFuture(messages(userMessage, eventMessage));
+                                }
+                                return GrouperServiceApplication.userObjectCache.removeEvent(userId, eventId)
+                                    .thenApply(undoMessage -> messages(userMessage, eventMessage, undoMessage));
+                            });
+                    });
+            })
+            .thenApply(messages -> new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK));
     }
 
     /**
@@ -225,22 +337,20 @@ public class UserRequestController {
      */
     @RequestMapping(value = "/rel/removeUserFromEvent", method = RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<ArrayList<Message>> removeUserFromEvent(
+    public CompletableFuture<ResponseEntity<ArrayList<Message>>> removeUserFromEvent(
         @RequestParam(value = "userId", defaultValue = "00000000") String userId,
         @RequestParam(value = "eventId", defaultValue = "00000000") String eventId) {
 
-        ArrayList<Message> messages = new ArrayList<>();
-
-        User updatedUser = GrouperServiceApplication.userObjectCache.getObject(userId);
-        updatedUser.addEvent(eventId);
-
-        Event updatedEvent = GrouperServiceApplication.eventObjectCache.getObject(eventId);
-        updatedEvent.removeUser(userId);
-
-        messages.add(GrouperServiceApplication.userObjectCache.updateObject(updatedUser));
-        messages.add(GrouperServiceApplication.eventObjectCache.updateObject(updatedEvent));
-
-        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+        return GrouperServiceApplication.userObjectCache.removeEvent(userId, eventId)
+            .thenCombine(GrouperServiceApplication.eventObjectCache.removeUser(eventId, userId),
+                UserRequestController::messages)
+            .thenApply(messages -> {
+                // The skill index follows the event's users
+                if (messages.get(1).getStatus() == Message.DEFAULT_SUCCESS_STATUS) {
+                    GrouperServiceApplication.eventSkillIndex.removeUser(eventId, userId);
+                }
+                return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+            });
     }
 
     /**
@@ -257,28 +367,39 @@ public class UserRequestController {
      * @param groupId  string groupId
      * @return [Message(status, description, field, value)]
      *          status: {200, 400}
-     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE}
+     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE, AWS_GET_FAILURE}
      *          field: {userId, groupId}
      *          value: {offending userId, offending groupId}
      */
     @RequestMapping(value = "/rel/addUserToGroup", method = RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<ArrayList<Message>> addUserToGroup(
+    public CompletableFuture<ResponseEntity<ArrayList<Message>>> addUserToGroup(
         @RequestParam(value = "userId", defaultValue = "00000000") String userId,
         @RequestParam(value = "groupId", defaultValue = "00000000") String groupId){
 
-        ArrayList<Message> messages = new ArrayList<>();
-
-        Group updatedGroup = GrouperServiceApplication.groupObjectCache.getObject(groupId);
-        updatedGroup.addUser(userId);
-
-        User updatedUser = GrouperServiceApplication.userObjectCache.getObject(userId);
-        updatedUser.addGroup(groupId, updatedGroup.getGroupEvent());
-
-        messages.add(GrouperServiceApplication.groupObjectCache.updateObject(updatedGroup));
-        messages.add(GrouperServiceApplication.userObjectCache.updateObject(updatedUser));
-
-        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+        // The user side goes first, since its condition checks the user is enrolled in the group's event. The group
+        // side is only written once it holds, and the user side is undone if the group side fails.
+        return GrouperServiceApplication.groupObjectCache.getObjectAsync(groupId)
+            .thenCompose(group -> {
+                if (group.getGroupId() == Group.EMPTY_GROUP_ID) {
+                    return CompletableFuture.completedFuture(messages(missingGroup(groupId)));
+                }
+
+                return GrouperServiceApplication.userObjectCache.addGroup(userId, group.getGroupEvent(), groupId)
+                    .thenCompose(userMessage -> {
+                        if (userMessage.getStatus() != Message.DEFAULT_SUCCESS_STATUS) {
+                            return CompletableFuture.completedFuture(messages(userMessage));
+                        }
+
+                        return GrouperServiceApplication.groupObjectCache.addUser(groupId, userId)
+                            .thenCompose(groupMessage -> groupMessage.getStatus() == Message.DEFAULT_SUCCESS_STATUS ?
+                                CompletableFuture.completedFuture(messages(userMessage, groupMessage)) :
+                                GrouperServiceApplication.userObjectCache.removeGroup(userId, group.getGroupEvent(),
+                                    groupId).thenApply(undoMessage -> messages(userMessage, groupMessage,
+                                    undoMessage)));
+                    });
+            })
+            .thenApply(messages -> new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK));
     }
 
     /**
@@ -294,28 +415,69 @@ public class UserRequestController {
      * @param groupId  string groupId
      * @return [Message(status, description, field, value)]
      *          status: {200, 400}
-     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE}
+     *          description: {AWS_UPDATE_SUCCESS, AWS_UPDATE_FAILURE, AWS_GET_FAILURE}
      *          field: {userId, groupId}
      *          value: {offending userId, offending groupId}
      */
     @RequestMapping(value = "/rel/removeUserFromGroup", method = RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<ArrayList<Message>> removeUserFromGroup(
+    public CompletableFuture<ResponseEntity<ArrayList<Message>>> removeUserFromGroup(
         @RequestParam(value = "userId", defaultValue = "00000000") String userId,
         @RequestParam(value = "groupId", defaultValue = "00000000") String groupId){
 
-        ArrayList<Message> messages = new ArrayList<>();
+        // Mirrors addUserToGroup: the user side's condition checks the user is in the group, and is undone if the
+        // group side fails
+        return GrouperServiceApplication.groupObjectCache.getObjectAsync(groupId)
+            .thenCompose(group -> {
+                if (group.getGroupId() == Group.EMPTY_GROUP_ID) {
+                    return CompletableFuture.completedFuture(messages(missingGroup(groupId)));
+                }
+
+                return GrouperServiceApplication.userObjectCache.removeGroup(userId, group.getGroupEvent(), groupId)
+                    .thenCompose(userMessage -> {
+                        if (userMessage.getStatus() != Message.DEFAULT_SUCCESS_STATUS) {
+                            return CompletableFuture.completedFuture(messages(userMessage));
+                        }
+
+                        return GrouperServiceApplication.groupObjectCache.removeUser(groupId, userId)
+                            .thenCompose(groupMessage -> groupMessage.getStatus() == Message.DEFAULT_SUCCESS_STATUS ?
+                                CompletableFuture.completedFuture(messages(userMessage, groupMessage)) :
+                                GrouperServiceApplication.userObjectCache.addGroup(userId, group.getGroupEvent(),
+                                    groupId).thenApply(undoMessage -> messages(userMessage, groupMessage,
+                                    undoMessage)));
+                    });
+            })
+            .thenApply(messages -> new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK));
+    }
 
-        Group updatedGroup = GrouperServiceApplication.groupObjectCache.getObject(groupId);
-        updatedGroup.removeUser(userId);
+    private static ArrayList<Message> messages(Message... results) {
+        return new ArrayList<>(Arrays.asList(results));
+    }
 
-        User updatedUser = GrouperServiceApplication.userObjectCache.getObject(userId);
-        updatedUser.removeGroup(groupId, updatedGroup.getGroupEvent());
+    private static CompletableFuture<ArrayList<Message>> indexUser(String eventId, String userId,
+                                                                    ArrayList<Message> messages) {
+        return GrouperServiceApplication.userObjectCache.getObjectAsync(userId).thenApply(user -> {
+            if (user.getUserId() != User.EMPTY_USER_ID) {
+                GrouperServiceApplication.eventSkillIndex.indexUser(eventId, user);
+            }
+            return messages;
+        });
+    }
 
-        messages.add(GrouperServiceApplication.groupObjectCache.updateObject(updatedGroup));
-        messages.add(GrouperServiceApplication.userObjectCache.updateObject(updatedUser));
+    private static Message missingEvent(String eventId) {
+        return new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+            .withDescription(Message.AWS_GET_FAILURE)
+            .withField("eventId")
+            .withValue(eventId)
+            .build();
+    }
 
-        return new ResponseEntity<ArrayList<Message>>(messages, HttpStatus.OK);
+    private static Message missingGroup(String groupId) {
+        return new Message.MessageBuilder(Message.DEFAULT_FAILURE_STATUS)
+            .withDescription(Message.AWS_GET_FAILURE)
+            .withField("groupId")
+            .withValue(groupId)
+            .build();
     }
 
 }
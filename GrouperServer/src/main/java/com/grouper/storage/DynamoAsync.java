@@ -0,0 +1,73 @@
+package com.grouper.storage;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * CompletableFuture wrappers around the DynamoDB async client. Continuations run on the async client's thread pool,
+ * so they should be short: parse the item, update the cache, build the Message.
+ */
+final class DynamoAsync {
+
+    private DynamoAsync() {
+    }
+
+    static CompletableFuture<GetItemResult> getItem(AmazonDynamoDBAsync client, GetItemRequest request) {
+        CompletableFuture<GetItemResult> future = new CompletableFuture<>();
+        client.getItemAsync(request, completing(future));
+        return future;
+    }
+
+    static CompletableFuture<UpdateItemResult> updateItem(AmazonDynamoDBAsync client, UpdateItemRequest request) {
+        CompletableFuture<UpdateItemResult> future = new CompletableFuture<>();
+        client.updateItemAsync(request, completing(future));
+        return future;
+    }
+
+    static CompletableFuture<PutItemResult> putItem(AmazonDynamoDBAsync client, PutItemRequest request) {
+        CompletableFuture<PutItemResult> future = new CompletableFuture<>();
+        client.putItemAsync(request, completing(future));
+        return future;
+    }
+
+    static CompletableFuture<DeleteItemResult> deleteItem(AmazonDynamoDBAsync client, DeleteItemRequest request) {
+        CompletableFuture<DeleteItemResult> future = new CompletableFuture<>();
+        client.deleteItemAsync(request, completing(future));
+        return future;
+    }
+
+    static CompletableFuture<QueryResult> query(AmazonDynamoDBAsync client, QueryRequest request) {
+        CompletableFuture<QueryResult> future = new CompletableFuture<>();
+        client.queryAsync(request, completing(future));
+        return future;
+    }
+
+    private static <REQUEST extends AmazonWebServiceRequest, RESULT> AsyncHandler<REQUEST, RESULT> completing(
+        CompletableFuture<RESULT> future) {
+        return new AsyncHandler<REQUEST, RESULT>() {
+            @Override
+            public void onError(Exception exception) {
+                future.completeExceptionally(exception);
+            }
+
+            @Override
+            public void onSuccess(REQUEST request, RESULT result) {
+                future.complete(result);
+            }
+        };
+    }
+
+}
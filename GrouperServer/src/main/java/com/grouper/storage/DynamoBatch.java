@@ -0,0 +1,228 @@
+package com.grouper.storage;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.grouper.models.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BatchGetItem and BatchWriteItem helpers shared by the DynamoDB stores.
+ */
+final class DynamoBatch {
+
+    private static final Logger logger = LoggerFactory.getLogger(DynamoBatch.class);
+
+    // DynamoDB rejects a BatchGetItem with more than 100 keys, and a BatchWriteItem with more than 25 requests
+    static final int MAXIMUM_BATCH_GET_SIZE = 100;
+    static final int MAXIMUM_BATCH_WRITE_SIZE = 25;
+
+    private static final int MAXIMUM_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+
+    private DynamoBatch() {
+    }
+
+    /**
+     * Read every item with one of the given ids from a table, 100 keys per BatchGetItem. Keys DynamoDB leaves
+     * unprocessed (throttling, 16 MB response limit) are retried with exponential backoff.
+     *
+     * @param tableName     table to read from
+     * @param keyName       name of the table's string hash key
+     * @param projection    projection expression for the items
+     * @param ids           ids to read, duplicates are ignored
+     * @return id -> item, for every id that exists
+     * @throws AmazonServiceException if a request fails, or keys remain unprocessed after all retries
+     */
+    static Map<String, Map<String, AttributeValue>> batchGet(AmazonDynamoDB client, String tableName, String keyName,
+                                                             String projection, Iterable<? extends String> ids) {
+        Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+
+        LinkedHashSet<String> uniqueIds = new LinkedHashSet<>();
+        for (String id : ids) {
+            uniqueIds.add(id);
+        }
+
+        List<Map<String, AttributeValue>> chunk = new ArrayList<>(MAXIMUM_BATCH_GET_SIZE);
+        for (String id : uniqueIds) {
+            Map<String, AttributeValue> key = new HashMap<>();
+            key.put(keyName, new AttributeValue()
+                .withS(id));
+            chunk.add(key);
+
+            if (chunk.size() == MAXIMUM_BATCH_GET_SIZE) {
+                readChunk(client, tableName, keyName, projection, chunk, items);
+                chunk = new ArrayList<>(MAXIMUM_BATCH_GET_SIZE);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            readChunk(client, tableName, keyName, projection, chunk, items);
+        }
+
+        return items;
+    }
+
+    private static void readChunk(AmazonDynamoDB client, String tableName, String keyName, String projection,
+                                  List<Map<String, AttributeValue>> keys,
+                                  Map<String, Map<String, AttributeValue>> items) {
+        Map<String, KeysAndAttributes> requestItems = new HashMap<>();
+        requestItems.put(tableName, new KeysAndAttributes()
+            .withKeys(keys)
+            .withProjectionExpression(projection));
+
+        for (int attempt = 0; attempt < MAXIMUM_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+
+            BatchGetItemResult result = client.batchGetItem(new BatchGetItemRequest()
+                .withRequestItems(requestItems));
+
+            List<Map<String, AttributeValue>> responses = result.getResponses().get(tableName);
+            if (responses != null) {
+                for (Map<String, AttributeValue> item : responses) {
+                    items.put(item.get(keyName).getS(), item);
+                }
+            }
+
+            requestItems = result.getUnprocessedKeys();
+            if (requestItems == null || requestItems.isEmpty()) {
+                return;
+            }
+        }
+
+        throw new AmazonServiceException(Message.AWS_GET_FAILURE);
+    }
+
+    /**
+     * Delete every item with one of the given ids from a table, 25 deletes per BatchWriteItem. Unprocessed deletes
+     * are retried with exponential backoff. A chunk that fails outright doesn't stop the others.
+     *
+     * @param tableName     table to delete from
+     * @param keyName       name of the table's string hash key
+     * @param ids           ids to delete, duplicates are ignored
+     * @return ids whose delete failed, empty if all succeeded
+     */
+    static Set<String> batchDelete(AmazonDynamoDB client, String tableName, String keyName,
+                                   Iterable<? extends String> ids) {
+        Set<String> failedIds = new HashSet<>();
+
+        LinkedHashSet<String> uniqueIds = new LinkedHashSet<>();
+        for (String id : ids) {
+            uniqueIds.add(id);
+        }
+
+        List<WriteRequest> chunk = new ArrayList<>(MAXIMUM_BATCH_WRITE_SIZE);
+        for (String id : uniqueIds) {
+            Map<String, AttributeValue> key = new HashMap<>();
+            key.put(keyName, new AttributeValue()
+                .withS(id));
+            chunk.add(new WriteRequest()
+                .withDeleteRequest(new DeleteRequest()
+                    .withKey(key)));
+
+            if (chunk.size() == MAXIMUM_BATCH_WRITE_SIZE) {
+                deleteChunk(client, tableName, keyName, chunk, failedIds);
+                chunk = new ArrayList<>(MAXIMUM_BATCH_WRITE_SIZE);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            deleteChunk(client, tableName, keyName, chunk, failedIds);
+        }
+
+        return failedIds;
+    }
+
+    /**
+     * Delete items by full key, for tables with a sort key, 25 deletes per BatchWriteItem. Unprocessed deletes are
+     * retried like {@link #batchDelete}.
+     *
+     * @param tableName     table to delete from
+     * @param keys          primary keys of the items to delete
+     * @return keys whose delete failed, empty if all succeeded
+     */
+    static List<Map<String, AttributeValue>> batchDeleteKeys(AmazonDynamoDB client, String tableName,
+                                                             List<Map<String, AttributeValue>> keys) {
+        List<Map<String, AttributeValue>> failedKeys = new ArrayList<>();
+
+        for (int start = 0; start < keys.size(); start += MAXIMUM_BATCH_WRITE_SIZE) {
+            List<WriteRequest> chunk = new ArrayList<>(MAXIMUM_BATCH_WRITE_SIZE);
+            for (Map<String, AttributeValue> key : keys.subList(start, Math.min(start + MAXIMUM_BATCH_WRITE_SIZE,
+                keys.size()))) {
+                chunk.add(new WriteRequest()
+                    .withDeleteRequest(new DeleteRequest()
+                        .withKey(key)));
+            }
+
+            for (WriteRequest request : deleteChunk(client, tableName, chunk)) {
+                failedKeys.add(request.getDeleteRequest().getKey());
+            }
+        }
+
+        return failedKeys;
+    }
+
+    private static void deleteChunk(AmazonDynamoDB client, String tableName, String keyName,
+                                    List<WriteRequest> requests, Set<String> failedIds) {
+        for (WriteRequest request : deleteChunk(client, tableName, requests)) {
+            failedIds.add(request.getDeleteRequest().getKey().get(keyName).getS());
+        }
+    }
+
+    // Returns the deletes that could not be made
+    private static List<WriteRequest> deleteChunk(AmazonDynamoDB client, String tableName,
+                                                  List<WriteRequest> requests) {
+        Map<String, List<WriteRequest>> requestItems = new HashMap<>();
+        requestItems.put(tableName, requests);
+
+        try {
+            for (int attempt = 0; attempt < MAXIMUM_ATTEMPTS; attempt++) {
+                if (attempt > 0) {
+                    backoff(attempt);
+                }
+
+                BatchWriteItemResult result = client.batchWriteItem(
+                    new BatchWriteItemRequest()
+                        .withRequestItems(requestItems));
+
+                Map<String, List<WriteRequest>> unprocessedItems = result.getUnprocessedItems();
+                if (unprocessedItems == null || unprocessedItems.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                requestItems = unprocessedItems;
+            }
+        } catch (AmazonServiceException ase) {
+            logger.warn("table={} failure=\"Batch delete failed.\"", tableName, ase);
+        }
+
+        return requestItems.getOrDefault(tableName, new ArrayList<>());
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 6));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AmazonServiceException(Message.AWS_GET_FAILURE, ie);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.grouper.storage;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+class DynamoEdgeStore implements EdgeStore {
+
+    private final AmazonDynamoDB client;
+    private final AmazonDynamoDBAsync asyncClient;
+    private final String tableName;
+    private final String hashKeyName;
+    private final String rangeKeyName;
+
+    DynamoEdgeStore(AmazonDynamoDB client, AmazonDynamoDBAsync asyncClient, String tableName, String hashKeyName,
+                    String rangeKeyName) {
+        this.client = client;
+        this.asyncClient = asyncClient;
+        this.tableName = tableName;
+        this.hashKeyName = hashKeyName;
+        this.rangeKeyName = rangeKeyName;
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Map<String, AttributeValue> item) {
+        return DynamoAsync.putItem(this.asyncClient, new PutItemRequest()
+            .withTableName(this.tableName)
+            .withItem(item))
+            .thenApply(result -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String hashValue, String rangeValue) {
+        return DynamoAsync.deleteItem(this.asyncClient, new DeleteItemRequest()
+            .withTableName(this.tableName)
+            .withKey(key(hashValue, rangeValue)))
+            .thenApply(result -> null);
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> query(String hashValue, String rangePrefix, String exclusiveStartRange,
+                                                int limit, String projection) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":hash", new AttributeValue()
+            .withS(hashValue));
+        values.put(":prefix", new AttributeValue()
+            .withS(rangePrefix));
+
+        QueryRequest request = new QueryRequest()
+            .withTableName(this.tableName)
+            .withKeyConditionExpression(this.hashKeyName + " = :hash AND begins_with(" + this.rangeKeyName +
+                ", :prefix)")
+            .withExpressionAttributeValues(values)
+            .withProjectionExpression(projection)
+            .withLimit(limit);
+
+        if (exclusiveStartRange != null) {
+            request.setExclusiveStartKey(key(hashValue, exclusiveStartRange));
+        }
+
+        return DynamoAsync.query(this.asyncClient, request);
+    }
+
+    @Override
+    public List<Map<String, AttributeValue>> keys(String hashValue) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":hash", new AttributeValue()
+            .withS(hashValue));
+
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            QueryResult result = this.client.query(new QueryRequest()
+                .withTableName(this.tableName)
+                .withKeyConditionExpression(this.hashKeyName + " = :hash")
+                .withExpressionAttributeValues(values)
+                .withProjectionExpression(this.hashKeyName + ", " + this.rangeKeyName)
+                .withExclusiveStartKey(startKey));
+
+            keys.addAll(result.getItems());
+            startKey = result.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+
+        return keys;
+    }
+
+    @Override
+    public List<Map<String, AttributeValue>> batchDelete(List<Map<String, AttributeValue>> keys) {
+        return DynamoBatch.batchDeleteKeys(this.client, this.tableName, keys);
+    }
+
+    private Map<String, AttributeValue> key(String hashValue, String rangeValue) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(this.hashKeyName, new AttributeValue()
+            .withS(hashValue));
+        key.put(this.rangeKeyName, new AttributeValue()
+            .withS(rangeValue));
+        return key;
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.grouper.storage;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+class DynamoObjectStore implements ObjectStore {
+
+    private final AmazonDynamoDB client;
+    private final AmazonDynamoDBAsync asyncClient;
+    private final String tableName;
+    private final String keyName;
+    private final String projection;
+
+    DynamoObjectStore(AmazonDynamoDB client, AmazonDynamoDBAsync asyncClient, String tableName, String keyName,
+                      String projection) {
+        this.client = client;
+        this.asyncClient = asyncClient;
+        this.tableName = tableName;
+        this.keyName = keyName;
+        this.projection = projection;
+    }
+
+    @Override
+    public Map<String, AttributeValue> get(String id) {
+        return this.client.getItem(getItemRequest(id))
+            .getItem();
+    }
+
+    @Override
+    public Map<String, AttributeValue> getConsistent(String id) {
+        return this.client.getItem(getItemRequest(id)
+            .withConsistentRead(true))
+            .getItem();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> getAsync(String id) {
+        return DynamoAsync.getItem(this.asyncClient, getItemRequest(id))
+            .thenApply(GetItemResult::getItem);
+    }
+
+    @Override
+    public Map<String, Map<String, AttributeValue>> batchGet(Iterable<? extends String> ids) {
+        return DynamoBatch.batchGet(this.client, this.tableName, this.keyName, this.projection, ids);
+    }
+
+    @Override
+    public List<Map<String, AttributeValue>> scan(String projection) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanResult result = this.client.scan(new ScanRequest()
+                .withTableName(this.tableName)
+                .withProjectionExpression(projection)
+                .withExclusiveStartKey(startKey));
+
+            items.addAll(result.getItems());
+            startKey = result.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+
+        return items;
+    }
+
+    @Override
+    public void create(Map<String, AttributeValue> item) {
+        this.client.putItem(new PutItemRequest()
+            .withTableName(this.tableName)
+            .withItem(item)
+            .withConditionExpression("attribute_not_exists(" + this.keyName + ")"));
+    }
+
+    @Override
+    public void update(DynamoUpdate update) {
+        this.client.updateItem(update.request());
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(DynamoUpdate update) {
+        return DynamoAsync.updateItem(this.asyncClient, update.request())
+            .thenApply(result -> null);
+    }
+
+    @Override
+    public void delete(String id) {
+        this.client.deleteItem(new DeleteItemRequest()
+            .withTableName(this.tableName)
+            .withKey(key(id)));
+    }
+
+    @Override
+    public Set<String> batchDelete(Iterable<? extends String> ids) {
+        return DynamoBatch.batchDelete(this.client, this.tableName, this.keyName, ids);
+    }
+
+    private GetItemRequest getItemRequest(String id) {
+        return new GetItemRequest()
+            .withTableName(this.tableName)
+            .withKey(key(id))
+            .withProjectionExpression(this.projection);
+    }
+
+    private Map<String, AttributeValue> key(String id) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(this.keyName, new AttributeValue()
+            .withS(id));
+        return key;
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.grouper.storage;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
+
+/**
+ * Stores backed by DynamoDB tables. Sync calls use the sync client; async calls use the async client, whose pool
+ * also runs their continuations.
+ */
+public class DynamoStorage implements Storage {
+
+    private final AmazonDynamoDB client;
+    private final AmazonDynamoDBAsync asyncClient;
+
+    public DynamoStorage(AmazonDynamoDB client, AmazonDynamoDBAsync asyncClient) {
+        this.client = client;
+        this.asyncClient = asyncClient;
+    }
+
+    @Override
+    public ObjectStore objectStore(String tableName, String keyName, String projection) {
+        return new DynamoObjectStore(this.client, this.asyncClient, tableName, keyName, projection);
+    }
+
+    @Override
+    public EdgeStore edgeStore(String tableName, String hashKeyName, String rangeKeyName) {
+        return new DynamoEdgeStore(this.client, this.asyncClient, tableName, hashKeyName, rangeKeyName);
+    }
+
+}
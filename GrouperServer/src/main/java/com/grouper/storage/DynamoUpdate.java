@@ -0,0 +1,226 @@
+package com.grouper.storage;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an UpdateItem request that only touches the attributes it is given. ObjectStore.update takes one of these:
+ * DynamoObjectStore sends it as is, and InMemoryObjectStore applies the same clauses itself. Every update is
+ * conditional on the item existing, so an update never creates a partial item, and nothing is returned, since the
+ * caches already hold the new state.
+ *
+ * Field updates are also conditional on the item's version (optimistic concurrency). Set ADD/DELETE operations
+ * commute, so membership changes only increment the version and never conflict.
+ *
+ * <pre>
+ *     groupStore.update(new DynamoUpdate(GROUP_TABLE_NAME, GROUP_ID_KEY, groupId)
+ *         .add(GROUP_USERS_KEY, new AttributeValue().withSS(userId)));
+ * </pre>
+ */
+public final class DynamoUpdate {
+
+    // Attempts at a conditional field update before giving up on a version conflict
+    public static final int MAXIMUM_VERSION_ATTEMPTS = 3;
+
+    private final String tableName;
+    private final String keyName;
+    private final String id;
+
+    private final List<String> setClauses = new ArrayList<>();
+    private final List<String> removeClauses = new ArrayList<>();
+    private final List<String> addClauses = new ArrayList<>();
+    private final List<String> deleteClauses = new ArrayList<>();
+    private final List<String> conditions = new ArrayList<>();
+    private final Map<String, String> names = new HashMap<>();
+    private final Map<String, AttributeValue> values = new HashMap<>();
+
+    public DynamoUpdate(String tableName, String keyName, String id) {
+        this.tableName = tableName;
+        this.keyName = keyName;
+        this.id = id;
+    }
+
+    /**
+     * SET attribute = :attribute
+     */
+    public DynamoUpdate set(String attribute, AttributeValue value) {
+        this.setClauses.add(attribute + " = :" + attribute);
+        return value(":" + attribute, value);
+    }
+
+    /**
+     * A SET clause written by the caller, with its placeholders bound through {@link #name} and {@link #value}.
+     */
+    public DynamoUpdate set(String clause) {
+        this.setClauses.add(clause);
+        return this;
+    }
+
+    public DynamoUpdate remove(String path) {
+        this.removeClauses.add(path);
+        return this;
+    }
+
+    /**
+     * ADD attribute :attribute. Adds the elements of a set, and creates the set if it doesn't exist.
+     */
+    public DynamoUpdate add(String attribute, AttributeValue value) {
+        this.addClauses.add(attribute + " :" + attribute);
+        return value(":" + attribute, value);
+    }
+
+    /**
+     * DELETE attribute :attribute. Removes the elements of a set. DynamoDB drops the attribute once it is empty.
+     */
+    public DynamoUpdate delete(String attribute, AttributeValue value) {
+        this.deleteClauses.add(attribute + " :" + attribute);
+        return value(":" + attribute, value);
+    }
+
+    /**
+     * An extra condition, ANDed with the item existing.
+     */
+    public DynamoUpdate condition(String condition) {
+        this.conditions.add(condition);
+        return this;
+    }
+
+    /**
+     * ADD 1 to a version attribute. Items written before versions existed start from 0.
+     */
+    public DynamoUpdate incrementVersion(String attribute) {
+        return add(attribute, new AttributeValue()
+            .withN("1"));
+    }
+
+    /**
+     * Only write if the item is still at the given version. Version 0 also matches items that have none.
+     */
+    public DynamoUpdate expectVersion(String attribute, long version) {
+        value(":expectedVersion", new AttributeValue()
+            .withN(Long.toString(version)));
+
+        if (version == 0) {
+            return condition("(attribute_not_exists(" + attribute + ") OR " + attribute + " = :expectedVersion)");
+        }
+        return condition(attribute + " = :expectedVersion");
+    }
+
+    public DynamoUpdate name(String placeholder, String name) {
+        this.names.put(placeholder, name);
+        return this;
+    }
+
+    public DynamoUpdate value(String placeholder, AttributeValue value) {
+        this.values.put(placeholder, value);
+        return this;
+    }
+
+    /**
+     * @return true if nothing would be written
+     */
+    public boolean isEmpty() {
+        return this.setClauses.isEmpty() && this.removeClauses.isEmpty() && this.addClauses.isEmpty() &&
+            this.deleteClauses.isEmpty();
+    }
+
+    /**
+     * Read a version attribute, 0 if the item has none.
+     */
+    public static long version(AttributeValue value) {
+        return value == null || value.getN() == null ? 0 : Long.parseLong(value.getN());
+    }
+
+    UpdateItemRequest request() {
+        StringBuilder expression = new StringBuilder();
+        appendClauses(expression, "SET", this.setClauses);
+        appendClauses(expression, "REMOVE", this.removeClauses);
+        appendClauses(expression, "ADD", this.addClauses);
+        appendClauses(expression, "DELETE", this.deleteClauses);
+
+        StringBuilder condition = new StringBuilder("attribute_exists(")
+            .append(this.keyName)
+            .append(')');
+        for (String extraCondition : this.conditions) {
+            condition.append(" AND ")
+                .append(extraCondition);
+        }
+
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(this.keyName, new AttributeValue()
+            .withS(this.id));
+
+        UpdateItemRequest request = new UpdateItemRequest()
+            .withTableName(this.tableName)
+            .withKey(key)
+            .withUpdateExpression(expression.toString())
+            .withConditionExpression(condition.toString())
+            .withReturnValues(ReturnValue.NONE);
+
+        // DynamoDB rejects empty placeholder maps
+        if (!this.names.isEmpty()) {
+            request.setExpressionAttributeNames(this.names);
+        }
+        if (!this.values.isEmpty()) {
+            request.setExpressionAttributeValues(this.values);
+        }
+
+        return request;
+    }
+
+    String keyName() {
+        return this.keyName;
+    }
+
+    String id() {
+        return this.id;
+    }
+
+    List<String> setClauses() {
+        return this.setClauses;
+    }
+
+    List<String> removeClauses() {
+        return this.removeClauses;
+    }
+
+    List<String> addClauses() {
+        return this.addClauses;
+    }
+
+    List<String> deleteClauses() {
+        return this.deleteClauses;
+    }
+
+    List<String> conditions() {
+        return this.conditions;
+    }
+
+    Map<String, String> names() {
+        return this.names;
+    }
+
+    Map<String, AttributeValue> values() {
+        return this.values;
+    }
+
+    private static void appendClauses(StringBuilder expression, String action, List<String> clauses) {
+        if (clauses.isEmpty()) {
+            return;
+        }
+
+        if (expression.length() > 0) {
+            expression.append(' ');
+        }
+        expression.append(action)
+            .append(' ')
+            .append(String.join(", ", clauses));
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.grouper.storage;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The items of a table keyed by a string hash key and a string range key, such as memberships: one item per edge,
+ * read back a range at a time.
+ *
+ * Sync methods throw AmazonServiceException on failure. Async methods complete exceptionally with it instead.
+ */
+public interface EdgeStore {
+
+    /**
+     * Write an item, overwriting any item with the same key.
+     */
+    CompletableFuture<Void> put(Map<String, AttributeValue> item);
+
+    /**
+     * Delete an item. Deleting a key that doesn't exist succeeds.
+     */
+    CompletableFuture<Void> delete(String hashValue, String rangeValue);
+
+    /**
+     * Read one page of the items under a hash key whose range key starts with rangePrefix, ordered by range key.
+     *
+     * @param exclusiveStartRange range key to continue after, or null for the first page
+     * @param limit               most items to read
+     * @param projection          projection expression, the attributes to read
+     * @return a future of the page. Its last evaluated key is set if there may be more items.
+     */
+    CompletableFuture<QueryResult> query(String hashValue, String rangePrefix, String exclusiveStartRange, int limit,
+                                         String projection);
+
+    /**
+     * @return the full key of every item under a hash key
+     */
+    List<Map<String, AttributeValue>> keys(String hashValue);
+
+    /**
+     * @param keys full keys of the items to delete
+     * @return keys whose delete failed, empty if all succeeded
+     */
+    List<Map<String, AttributeValue>> batchDelete(List<Map<String, AttributeValue>> keys);
+
+}
@@ -0,0 +1,130 @@
+package com.grouper.storage;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An edge table in memory: a sorted map of range key -&gt; item under each hash key, so a query reads a page by
+ * walking forward from its start key, as DynamoDB does.
+ */
+class InMemoryEdgeStore implements EdgeStore {
+
+    private final InMemoryStorage storage;
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<String, Map<String, AttributeValue>>> items;
+    private final String hashKeyName;
+    private final String rangeKeyName;
+
+    InMemoryEdgeStore(InMemoryStorage storage,
+                      ConcurrentHashMap<String, ConcurrentSkipListMap<String, Map<String, AttributeValue>>> items,
+                      String hashKeyName, String rangeKeyName) {
+        this.storage = storage;
+        this.items = items;
+        this.hashKeyName = hashKeyName;
+        this.rangeKeyName = rangeKeyName;
+    }
+
+    @Override
+    public CompletableFuture<Void> put(Map<String, AttributeValue> item) {
+        String hashValue = item.get(this.hashKeyName).getS();
+        String rangeValue = item.get(this.rangeKeyName).getS();
+        Map<String, AttributeValue> copy = InMemoryStorage.copy(item, null);
+
+        return this.storage.callAsync(() -> {
+            this.items.computeIfAbsent(hashValue, key -> new ConcurrentSkipListMap<>()).put(rangeValue, copy);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String hashValue, String rangeValue) {
+        return this.storage.callAsync(() -> {
+            ConcurrentSkipListMap<String, Map<String, AttributeValue>> range = this.items.get(hashValue);
+            if (range != null) {
+                range.remove(rangeValue);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> query(String hashValue, String rangePrefix, String exclusiveStartRange,
+                                                int limit, String projection) {
+        return this.storage.callAsync(() -> {
+            List<Map<String, AttributeValue>> page = new ArrayList<>();
+            QueryResult result = new QueryResult();
+
+            ConcurrentSkipListMap<String, Map<String, AttributeValue>> range = this.items.get(hashValue);
+            if (range == null) {
+                return result.withItems(page)
+                    .withCount(0);
+            }
+
+            NavigableMap<String, Map<String, AttributeValue>> tail = exclusiveStartRange == null ?
+                range.tailMap(rangePrefix, true) : range.tailMap(exclusiveStartRange, false);
+            Iterator<Map.Entry<String, Map<String, AttributeValue>>> entries = tail.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Map<String, AttributeValue>> entry = entries.next();
+                if (!entry.getKey().startsWith(rangePrefix)) {
+                    break;
+                }
+                if (page.size() == limit) {
+                    // More to read: continue after the last item returned
+                    result.setLastEvaluatedKey(key(hashValue, page.get(page.size() - 1).get(this.rangeKeyName)
+                        .getS()));
+                    break;
+                }
+                page.add(InMemoryStorage.copy(entry.getValue(), projection));
+            }
+            return result.withItems(page)
+                .withCount(page.size());
+        });
+    }
+
+    @Override
+    public List<Map<String, AttributeValue>> keys(String hashValue) {
+        return this.storage.call(() -> {
+            List<Map<String, AttributeValue>> keys = new ArrayList<>();
+            ConcurrentSkipListMap<String, Map<String, AttributeValue>> range = this.items.get(hashValue);
+            if (range != null) {
+                for (String rangeValue : range.keySet()) {
+                    keys.add(key(hashValue, rangeValue));
+                }
+            }
+            return keys;
+        });
+    }
+
+    @Override
+    public List<Map<String, AttributeValue>> batchDelete(List<Map<String, AttributeValue>> keys) {
+        return this.storage.call(() -> {
+            for (Map<String, AttributeValue> key : keys) {
+                String hashValue = key.get(this.hashKeyName).getS();
+                ConcurrentSkipListMap<String, Map<String, AttributeValue>> range = this.items.get(hashValue);
+                if (range != null) {
+                    range.remove(key.get(this.rangeKeyName).getS());
+                }
+            }
+            return new ArrayList<>();
+        });
+    }
+
+    private Map<String, AttributeValue> key(String hashValue, String rangeValue) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(this.hashKeyName, new AttributeValue()
+            .withS(hashValue));
+        key.put(this.rangeKeyName, new AttributeValue()
+            .withS(rangeValue));
+        return key;
+    }
+
+}
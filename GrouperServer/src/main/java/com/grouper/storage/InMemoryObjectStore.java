@@ -0,0 +1,338 @@
+package com.grouper.storage;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An object table in memory. Updates interpret the subset of update and condition expressions DynamoUpdate builds:
+ *
+ * <pre>
+ *     SET    path = :value, path = if_not_exists(path, :value)
+ *     REMOVE path
+ *     ADD    attribute :value      (numbers and sets)
+ *     DELETE attribute :value      (sets; the attribute is dropped once empty)
+ *     conditions: attribute_exists(path), attribute_not_exists(path), path = :value, (condition OR condition)
+ * </pre>
+ *
+ * A path is an attribute or a map entry, attribute.#name. Anything else fails with a ValidationException, like a
+ * malformed expression does in DynamoDB. An update is applied atomically, inside the item's
+ * ConcurrentHashMap.compute, so version conditions behave as they do on a real table.
+ */
+class InMemoryObjectStore implements ObjectStore {
+
+    private final InMemoryStorage storage;
+    private final ConcurrentHashMap<String, Map<String, AttributeValue>> items;
+    private final String keyName;
+    private final String projection;
+
+    InMemoryObjectStore(InMemoryStorage storage, ConcurrentHashMap<String, Map<String, AttributeValue>> items,
+                        String keyName, String projection) {
+        this.storage = storage;
+        this.items = items;
+        this.keyName = keyName;
+        this.projection = projection;
+    }
+
+    @Override
+    public Map<String, AttributeValue> get(String id) {
+        return this.storage.call(() -> read(id));
+    }
+
+    // Every read here is consistent
+    @Override
+    public Map<String, AttributeValue> getConsistent(String id) {
+        return get(id);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, AttributeValue>> getAsync(String id) {
+        return this.storage.callAsync(() -> read(id));
+    }
+
+    @Override
+    public Map<String, Map<String, AttributeValue>> batchGet(Iterable<? extends String> ids) {
+        return this.storage.call(() -> {
+            Map<String, Map<String, AttributeValue>> found = new HashMap<>();
+            for (String id : ids) {
+                Map<String, AttributeValue> item = read(id);
+                if (item != null) {
+                    found.put(id, item);
+                }
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public List<Map<String, AttributeValue>> scan(String projection) {
+        return this.storage.call(() -> {
+            List<Map<String, AttributeValue>> scanned = new ArrayList<>(this.items.size());
+            for (Map<String, AttributeValue> item : this.items.values()) {
+                scanned.add(InMemoryStorage.copy(item, projection));
+            }
+            return scanned;
+        });
+    }
+
+    @Override
+    public void create(Map<String, AttributeValue> item) {
+        String id = item.get(this.keyName).getS();
+        Map<String, AttributeValue> copy = InMemoryStorage.copy(item, null);
+        this.storage.call(() -> {
+            if (this.items.putIfAbsent(id, copy) != null) {
+                throw conditionFailed();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void update(DynamoUpdate update) {
+        this.storage.call(() -> apply(update));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(DynamoUpdate update) {
+        return this.storage.callAsync(() -> apply(update));
+    }
+
+    @Override
+    public void delete(String id) {
+        this.storage.call(() -> this.items.remove(id));
+    }
+
+    @Override
+    public Set<String> batchDelete(Iterable<? extends String> ids) {
+        return this.storage.call(() -> {
+            for (String id : ids) {
+                this.items.remove(id);
+            }
+            return new LinkedHashSet<>();
+        });
+    }
+
+    private Map<String, AttributeValue> read(String id) {
+        Map<String, AttributeValue> item = this.items.get(id);
+        return item == null ? null : InMemoryStorage.copy(item, this.projection);
+    }
+
+    private Void apply(DynamoUpdate update) {
+        this.items.compute(update.id(), (id, item) -> {
+            // Every DynamoUpdate is conditional on the item existing
+            if (item == null) {
+                throw conditionFailed();
+            }
+            for (String condition : update.conditions()) {
+                if (!holds(item, condition, update)) {
+                    throw conditionFailed();
+                }
+            }
+
+            // Stored items are never changed in place; readers copy them outside the lock
+            Map<String, AttributeValue> updated = InMemoryStorage.copy(item, null);
+            for (String clause : update.setClauses()) {
+                applySet(updated, clause, update);
+            }
+            for (String path : update.removeClauses()) {
+                removePath(updated, path.trim(), update);
+            }
+            for (String clause : update.addClauses()) {
+                applyAdd(updated, clause, update);
+            }
+            for (String clause : update.deleteClauses()) {
+                applyDelete(updated, clause, update);
+            }
+            return updated;
+        });
+        return null;
+    }
+
+    private static boolean holds(Map<String, AttributeValue> item, String condition, DynamoUpdate update) {
+        condition = condition.trim();
+        if (condition.startsWith("(") && condition.endsWith(")")) {
+            for (String alternative : condition.substring(1, condition.length() - 1).split(" OR ")) {
+                if (holds(item, alternative, update)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (condition.startsWith("attribute_exists(") && condition.endsWith(")")) {
+            return resolve(item, argument(condition), update) != null;
+        }
+        if (condition.startsWith("attribute_not_exists(") && condition.endsWith(")")) {
+            return resolve(item, argument(condition), update) == null;
+        }
+
+        String[] sides = condition.split(" = ", 2);
+        if (sides.length == 2) {
+            AttributeValue value = resolve(item, sides[0].trim(), update);
+            return value != null && same(value, placeholder(sides[1].trim(), update));
+        }
+        throw InMemoryStorage.validationException("Unsupported condition: " + condition);
+    }
+
+    private static void applySet(Map<String, AttributeValue> item, String clause, DynamoUpdate update) {
+        String[] sides = clause.split(" = ", 2);
+        if (sides.length != 2) {
+            throw InMemoryStorage.validationException("Unsupported SET clause: " + clause);
+        }
+
+        String path = sides[0].trim();
+        String operand = sides[1].trim();
+        AttributeValue value;
+        if (operand.startsWith("if_not_exists(") && operand.endsWith(")")) {
+            String[] arguments = argument(operand).split(",", 2);
+            if (arguments.length != 2) {
+                throw InMemoryStorage.validationException("Unsupported SET clause: " + clause);
+            }
+            AttributeValue existing = resolve(item, arguments[0].trim(), update);
+            value = existing != null ? existing : placeholder(arguments[1].trim(), update);
+        } else {
+            value = placeholder(operand, update);
+        }
+
+        String[] segments = segments(path, update);
+        if (segments.length == 1) {
+            item.put(segments[0], InMemoryStorage.copy(value));
+        } else {
+            parentMap(item, segments, path).put(segments[1], InMemoryStorage.copy(value));
+        }
+    }
+
+    private static void removePath(Map<String, AttributeValue> item, String path, DynamoUpdate update) {
+        String[] segments = segments(path, update);
+        if (segments.length == 1) {
+            item.remove(segments[0]);
+        } else {
+            parentMap(item, segments, path).remove(segments[1]);
+        }
+    }
+
+    private static void applyAdd(Map<String, AttributeValue> item, String clause, DynamoUpdate update) {
+        String[] parts = clause.trim().split(" ", 2);
+        String attribute = segments(parts[0], update)[0];
+        AttributeValue value = placeholder(parts[1].trim(), update);
+        AttributeValue existing = item.get(attribute);
+
+        if (value.getN() != null) {
+            BigDecimal sum = new BigDecimal(value.getN());
+            if (existing != null) {
+                sum = sum.add(new BigDecimal(existing.getN()));
+            }
+            item.put(attribute, new AttributeValue()
+                .withN(sum.toPlainString()));
+        } else if (value.getSS() != null) {
+            Set<String> union = new LinkedHashSet<>();
+            if (existing != null) {
+                union.addAll(existing.getSS());
+            }
+            union.addAll(value.getSS());
+            item.put(attribute, new AttributeValue()
+                .withSS(new ArrayList<>(union)));
+        } else {
+            throw InMemoryStorage.validationException("Unsupported ADD clause: " + clause);
+        }
+    }
+
+    private static void applyDelete(Map<String, AttributeValue> item, String clause, DynamoUpdate update) {
+        String[] parts = clause.trim().split(" ", 2);
+        String attribute = segments(parts[0], update)[0];
+        AttributeValue value = placeholder(parts[1].trim(), update);
+        if (value.getSS() == null) {
+            throw InMemoryStorage.validationException("Unsupported DELETE clause: " + clause);
+        }
+
+        AttributeValue existing = item.get(attribute);
+        if (existing == null) {
+            return;
+        }
+
+        Set<String> remaining = new LinkedHashSet<>(existing.getSS());
+        remaining.removeAll(value.getSS());
+        if (remaining.isEmpty()) {
+            item.remove(attribute);
+        } else {
+            item.put(attribute, new AttributeValue()
+                .withSS(new ArrayList<>(remaining)));
+        }
+    }
+
+    private static AttributeValue resolve(Map<String, AttributeValue> item, String path, DynamoUpdate update) {
+        String[] segments = segments(path, update);
+        AttributeValue value = item.get(segments[0]);
+        if (segments.length == 1 || value == null) {
+            return value;
+        }
+        return value.getM() == null ? null : value.getM().get(segments[1]);
+    }
+
+    // The map holding a map entry path. DynamoDB rejects a SET or REMOVE under a map that doesn't exist.
+    private static Map<String, AttributeValue> parentMap(Map<String, AttributeValue> item, String[] segments,
+                                                         String path) {
+        AttributeValue parent = item.get(segments[0]);
+        if (parent == null || parent.getM() == null) {
+            throw InMemoryStorage.validationException(
+                "The document path provided in the update expression is invalid for update: " + path);
+        }
+        return parent.getM();
+    }
+
+    // attribute or attribute.entry, with #name placeholders substituted
+    private static String[] segments(String path, DynamoUpdate update) {
+        String[] segments = path.split("\\.");
+        if (segments.length > 2) {
+            throw InMemoryStorage.validationException("Unsupported path: " + path);
+        }
+
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].startsWith("#")) {
+                String name = update.names().get(segments[i]);
+                if (name == null) {
+                    throw InMemoryStorage.validationException("Unbound name placeholder: " + segments[i]);
+                }
+                segments[i] = name;
+            }
+        }
+        return segments;
+    }
+
+    private static AttributeValue placeholder(String placeholder, DynamoUpdate update) {
+        AttributeValue value = update.values().get(placeholder);
+        if (value == null) {
+            throw InMemoryStorage.validationException("Unbound value placeholder: " + placeholder);
+        }
+        return value;
+    }
+
+    private static ConditionalCheckFailedException conditionFailed() {
+        ConditionalCheckFailedException exception = new ConditionalCheckFailedException(
+            "The conditional request failed");
+        exception.setErrorCode("ConditionalCheckFailedException");
+        exception.setStatusCode(400);
+        return exception;
+    }
+
+    private static String argument(String call) {
+        return call.substring(call.indexOf('(') + 1, call.length() - 1).trim();
+    }
+
+    private static boolean same(AttributeValue left, AttributeValue right) {
+        if (left.getN() != null && right.getN() != null) {
+            return new BigDecimal(left.getN()).compareTo(new BigDecimal(right.getN())) == 0;
+        }
+        return left.equals(right);
+    }
+
+}
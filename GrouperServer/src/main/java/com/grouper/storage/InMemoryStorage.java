@@ -0,0 +1,178 @@
+package com.grouper.storage;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Stores held in process memory, for running the service, load tests and benchmarks without AWS. Nothing survives a
+ * restart, and nothing is shared between nodes.
+ *
+ * Every call waits latencyMillis plus up to jitterMillis before it runs, so a benchmark still sees a network round
+ * trip per request and batching still pays off. Sync calls sleep on the caller's thread; async calls are scheduled
+ * on a pool of asyncThreads, standing in for the DynamoDB async client's pool.
+ *
+ * Items are copied on the way in and out, so callers can't change stored items in place, as with a real table.
+ */
+public class InMemoryStorage implements Storage {
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final ScheduledExecutorService executor;
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Map<String, AttributeValue>>> objectTables =
+        new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentSkipListMap<String,
+        Map<String, AttributeValue>>>> edgeTables = new ConcurrentHashMap<>();
+
+    /**
+     * @param latencyMillis fixed delay before every call, 0 for none
+     * @param jitterMillis  most extra random delay before every call, 0 for none
+     * @param asyncThreads  threads running async calls
+     */
+    public InMemoryStorage(long latencyMillis, long jitterMillis, int asyncThreads) {
+        if (latencyMillis < 0 || jitterMillis < 0 || asyncThreads < 1) {
+            throw new IllegalArgumentException("Latency must be >= 0 and asyncThreads >= 1");
+        }
+
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.executor = Executors.newScheduledThreadPool(asyncThreads, new ThreadFactoryBuilder()
+            .setNameFormat("memory-storage-%d")
+            .setDaemon(true)
+            .build());
+    }
+
+    @Override
+    public ObjectStore objectStore(String tableName, String keyName, String projection) {
+        return new InMemoryObjectStore(this, this.objectTables.computeIfAbsent(tableName,
+            name -> new ConcurrentHashMap<>()), keyName, projection);
+    }
+
+    @Override
+    public EdgeStore edgeStore(String tableName, String hashKeyName, String rangeKeyName) {
+        return new InMemoryEdgeStore(this, this.edgeTables.computeIfAbsent(tableName,
+            name -> new ConcurrentHashMap<>()), hashKeyName, rangeKeyName);
+    }
+
+    /**
+     * Run a call on the caller's thread after the simulated latency.
+     */
+    <T> T call(Supplier<T> operation) {
+        long delay = delayMillis();
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new AmazonServiceException("Interrupted waiting for in-memory storage.", ie);
+            }
+        }
+        return operation.get();
+    }
+
+    /**
+     * Run a call on the async pool after the simulated latency. A failure completes the future exceptionally.
+     */
+    <T> CompletableFuture<T> callAsync(Supplier<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        this.executor.schedule(() -> {
+            try {
+                future.complete(operation.get());
+            } catch (RuntimeException re) {
+                future.completeExceptionally(re);
+            }
+        }, delayMillis(), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private long delayMillis() {
+        return this.latencyMillis + (this.jitterMillis == 0 ? 0 :
+            ThreadLocalRandom.current().nextLong(this.jitterMillis + 1));
+    }
+
+    /**
+     * @param projection comma-separated attribute paths, or null for every attribute
+     * @return a deep copy of the item, with only the projected top-level attributes
+     */
+    static Map<String, AttributeValue> copy(Map<String, AttributeValue> item, String projection) {
+        Map<String, AttributeValue> copy = new HashMap<>();
+        if (projection == null) {
+            for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        }
+
+        for (String path : projection.split(",")) {
+            String attribute = path.trim().split("\\.", 2)[0];
+            AttributeValue value = item.get(attribute);
+            if (value != null) {
+                copy.put(attribute, copy(value));
+            }
+        }
+        return copy;
+    }
+
+    static AttributeValue copy(AttributeValue value) {
+        AttributeValue copy = value.clone();
+        if (value.getSS() != null) {
+            copy.setSS(new ArrayList<>(value.getSS()));
+        }
+        if (value.getNS() != null) {
+            copy.setNS(new ArrayList<>(value.getNS()));
+        }
+        if (value.getB() != null) {
+            copy.setB(value.getB().duplicate());
+        }
+        if (value.getBS() != null) {
+            List<ByteBuffer> buffers = new ArrayList<>();
+            for (ByteBuffer buffer : value.getBS()) {
+                buffers.add(buffer.duplicate());
+            }
+            copy.setBS(buffers);
+        }
+        if (value.getM() != null) {
+            copy.setM(copy(value.getM(), null));
+        }
+        if (value.getL() != null) {
+            copy.setL(copyAll(value.getL()));
+        }
+        return copy;
+    }
+
+    private static List<AttributeValue> copyAll(Collection<AttributeValue> values) {
+        List<AttributeValue> copies = new ArrayList<>(values.size());
+        for (AttributeValue value : values) {
+            copies.add(copy(value));
+        }
+        return copies;
+    }
+
+    /**
+     * The exception DynamoDB answers an expression it can't evaluate with.
+     */
+    static AmazonServiceException validationException(String message) {
+        AmazonServiceException exception = new AmazonServiceException(message);
+        exception.setErrorCode("ValidationException");
+        exception.setStatusCode(400);
+        exception.setErrorType(AmazonServiceException.ErrorType.Client);
+        return exception;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.grouper.storage;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The items of one table keyed by a single string id: users, groups or events.
+ *
+ * Sync methods throw AmazonServiceException on failure. Async methods complete exceptionally with it instead.
+ */
+public interface ObjectStore {
+
+    /**
+     * @return the item with this id, or null if there is none
+     */
+    Map<String, AttributeValue> get(String id);
+
+    /**
+     * A strongly consistent read, which sees every write that succeeded before it. Costs twice the read capacity of
+     * get, so only use it where a stale item would be acted on, such as retrying a conditional write.
+     *
+     * @return the item with this id, or null if there is none
+     */
+    Map<String, AttributeValue> getConsistent(String id);
+
+    /**
+     * @return a future of the item with this id, or of null if there is none
+     */
+    CompletableFuture<Map<String, AttributeValue>> getAsync(String id);
+
+    /**
+     * @param ids ids to read, duplicates are ignored
+     * @return id -&gt; item, for every id that exists
+     */
+    Map<String, Map<String, AttributeValue>> batchGet(Iterable<? extends String> ids);
+
+    /**
+     * Read every item in the table. Slow on large tables; run it in the background, not on a request.
+     *
+     * @param projection projection expression, the attributes to read
+     */
+    List<Map<String, AttributeValue>> scan(String projection);
+
+    /**
+     * Write a new item. Never overwrites.
+     *
+     * @throws com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException if the id already exists
+     */
+    void create(Map<String, AttributeValue> item);
+
+    /**
+     * @throws com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException if the item doesn't exist, or
+     *         one of the update's conditions doesn't hold
+     */
+    void update(DynamoUpdate update);
+
+    CompletableFuture<Void> updateAsync(DynamoUpdate update);
+
+    /**
+     * Delete an item. Deleting an id that doesn't exist succeeds.
+     */
+    void delete(String id);
+
+    /**
+     * @param ids ids to delete, duplicates are ignored
+     * @return ids whose delete failed, empty if all succeeded
+     */
+    Set<String> batchDelete(Iterable<? extends String> ids);
+
+}
@@ -0,0 +1,42 @@
+package com.grouper.storage;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * The persistence layer under the object caches and the membership store. A backend hands out one store per table:
+ * DynamoStorage for DynamoDB, InMemoryStorage to run the service, load tests and benchmarks without AWS.
+ *
+ * Items are DynamoDB attribute maps for every backend, so the caches marshal objects the same way whichever backend
+ * is selected, and failures are the SDK's exceptions: AmazonServiceException, and ConditionalCheckFailedException
+ * when a write's condition doesn't hold.
+ *
+ * Selected with grouper.storage.backend, {dynamodb, memory}.
+ */
+public interface Storage {
+
+    String DYNAMODB = "dynamodb";
+    String MEMORY = "memory";
+
+    /**
+     * @param tableName  table holding the items
+     * @param keyName    name of the table's string hash key
+     * @param projection projection expression for get and batchGet
+     */
+    ObjectStore objectStore(String tableName, String keyName, String projection);
+
+    /**
+     * @param tableName    table holding the items
+     * @param hashKeyName  name of the table's string hash key
+     * @param rangeKeyName name of the table's string range key
+     */
+    EdgeStore edgeStore(String tableName, String hashKeyName, String rangeKeyName);
+
+    /**
+     * The exception a future failed with, without the CompletionException wrapper added by dependent stages.
+     */
+    static Throwable cause(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() :
+            throwable;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.grouper.index;
+
+import com.grouper.models.Event;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventGeoIndexTest {
+
+    @Test
+    public void returnsEventsInRadiusNearestFirst() {
+        EventGeoIndex index = new EventGeoIndex(0.25);
+        // UCLA, then downtown Los Angeles about 20 km away, then San Francisco about 550 km away
+        index.index(event("ucla", 34.0689, -118.4452));
+        index.index(event("downtown", 34.0522, -118.2437));
+        index.index(event("sf", 37.7749, -122.4194));
+
+        assertEquals(Arrays.asList("ucla", "downtown"), index.nearby(34.07, -118.44, 25, 10));
+        assertEquals(Collections.singletonList("ucla"), index.nearby(34.07, -118.44, 25, 1));
+        assertEquals(Arrays.asList("ucla", "downtown", "sf"), index.nearby(34.07, -118.44, 600, 10));
+        assertTrue(index.nearby(34.07, -118.44, 25, 0).isEmpty());
+    }
+
+    @Test
+    public void findsEventsAcrossTheAntimeridianAndNearThePoles() {
+        EventGeoIndex index = new EventGeoIndex(1);
+        index.index(event("east", 0, 179.9));
+        index.index(event("west", 0, -179.9));
+        index.index(event("north", 89.9, 0));
+        index.index(event("northOpposite", 89.9, 180));
+
+        assertEquals(new HashSet<>(Arrays.asList("east", "west")), new HashSet<>(index.nearby(0, 180, 50, 10)));
+        assertEquals(new HashSet<>(Arrays.asList("north", "northOpposite")),
+            new HashSet<>(index.nearby(89.95, 90, 50, 10)));
+    }
+
+    @Test
+    public void matchesABruteForceSearch() {
+        Random random = new Random(1);
+        EventGeoIndex index = new EventGeoIndex(0.5);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Event event = event("E" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            events.add(event);
+            index.index(event);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            double radiusKm = random.nextDouble() * 2000;
+
+            List<Event> expected = new ArrayList<>();
+            for (Event event : events) {
+                if (EventGeoIndex.distanceKm(latitude, longitude, event.getEventLatitude(),
+                    event.getEventLongitude()) <= radiusKm) {
+                    expected.add(event);
+                }
+            }
+            expected.sort(Comparator.comparingDouble((Event event) -> EventGeoIndex.distanceKm(latitude, longitude,
+                event.getEventLatitude(), event.getEventLongitude())).thenComparing(Event::getEventId));
+            List<String> expectedIds = new ArrayList<>();
+            for (Event event : expected.subList(0, Math.min(20, expected.size()))) {
+                expectedIds.add(event.getEventId());
+            }
+
+            assertEquals(expectedIds, index.nearby(latitude, longitude, radiusKm, 20));
+        }
+    }
+
+    @Test
+    public void movingOrClearingCoordinatesUpdatesTheIndex() {
+        EventGeoIndex index = new EventGeoIndex(0.25);
+        index.index(event("E1", 10, 10));
+        index.index(event("E1", 20, 20));
+
+        assertTrue(index.nearby(10, 10, 50, 10).isEmpty());
+        assertEquals(Collections.singletonList("E1"), index.nearby(20, 20, 50, 10));
+
+        index.index(new Event.EventBuilder("E1").build());
+        assertTrue(index.nearby(20, 20, 50, 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    private static Event event(String eventId, double latitude, double longitude) {
+        return new Event.EventBuilder(eventId)
+            .withEventCoordinates(latitude, longitude)
+            .build();
+    }
+
+}
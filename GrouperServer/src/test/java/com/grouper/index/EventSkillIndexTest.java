@@ -0,0 +1,163 @@
+package com.grouper.index;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.SkillSet;
+import com.grouper.models.User;
+import com.grouper.objectcache.EventObjectCache;
+import com.grouper.objectcache.GroupObjectCache;
+import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.FlakyStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventSkillIndexTest {
+
+    private static final long JAVA = 1L;
+    private static final long C = 1L << 1;
+    private static final long PYTHON = 1L << 5;
+
+    private FlakyStorage storage;
+    private EventSkillIndex index;
+
+    @Before
+    public void setUp() {
+        this.storage = new FlakyStorage();
+        GrouperServiceApplication.initServices(this.storage);
+        this.index = GrouperServiceApplication.eventSkillIndex;
+    }
+
+    @Test
+    public void answersFromTheEventsGroupsAndUsers() {
+        String javaGroup = group(JAVA);
+        String javaPythonGroup = group(JAVA | PYTHON);
+        String cUser = user(C);
+        String javaCUser = user(JAVA | C);
+        String eventId = event(Arrays.asList(javaGroup, javaPythonGroup), Arrays.asList(cUser, javaCUser));
+
+        assertEquals(new HashSet<>(Arrays.asList(javaGroup, javaPythonGroup)),
+            new HashSet<>(this.index.groupsNeeding(eventId, JAVA)));
+        assertEquals(Collections.singletonList(javaPythonGroup), this.index.groupsNeeding(eventId, JAVA | PYTHON));
+        assertEquals(new HashSet<>(Arrays.asList(cUser, javaCUser)), new HashSet<>(this.index.usersHaving(eventId, C)));
+        assertEquals(Collections.singleton(javaPythonGroup), this.index.groupsNeedingAny(eventId, PYTHON | C));
+        assertTrue(this.index.groupsNeeding(eventId, 1L << 40).isEmpty());
+    }
+
+    @Test
+    public void keepsLoadedEventsCurrent() {
+        String groupId = group(JAVA);
+        String eventId = event(Collections.singletonList(groupId), Collections.emptyList());
+        assertEquals(Collections.singletonList(groupId), this.index.groupsNeeding(eventId, JAVA));
+
+        this.index.indexGroup(new Group.GroupBuilder(groupId)
+            .withGroupEvent(eventId)
+            .withGroupSkillSet(new SkillSet(PYTHON))
+            .build());
+        assertTrue(this.index.groupsNeeding(eventId, JAVA).isEmpty());
+        assertEquals(Collections.singletonList(groupId), this.index.groupsNeeding(eventId, PYTHON));
+
+        this.index.removeGroup(eventId, groupId);
+        assertTrue(this.index.groupsNeeding(eventId, PYTHON).isEmpty());
+    }
+
+    @Test
+    public void unknownEventsLeaveNoPostings() {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(this.index.groupsNeeding("Enotanevent" + i, JAVA).isEmpty());
+        }
+
+        assertEquals(0, this.index.indexedEventCount());
+    }
+
+    @Test
+    public void failedLoadIsRetriedByTheNextQuery() {
+        // Written straight to storage, so the first query has to read them
+        Group group = new Group.GroupBuilder(GrouperServiceApplication.idGenerator.nextId("G"))
+            .withGroupSkillSet(new SkillSet(JAVA))
+            .build();
+        Event event = new Event.EventBuilder(GrouperServiceApplication.idGenerator.nextId("E"))
+            .withEventDate(new Date())
+            .withEventGroups(Collections.singletonList(group.getGroupId()))
+            .build();
+        GroupObjectCache.objectStore(this.storage).create(GroupObjectCache.toItem(group));
+        EventObjectCache.objectStore(this.storage).create(EventObjectCache.toItem(event));
+
+        this.storage.setFailing(true);
+        assertTrue(this.index.groupsNeeding(event.getEventId(), JAVA).isEmpty());
+        assertEquals(0, this.index.indexedEventCount());
+
+        this.storage.setFailing(false);
+        assertEquals(Collections.singletonList(group.getGroupId()), this.index.groupsNeeding(event.getEventId(),
+            JAVA));
+        assertEquals(1, this.index.indexedEventCount());
+    }
+
+    @Test
+    public void failedGroupReadIsRetriedByTheNextQuery() {
+        // The event is cached; its group is only in storage, so the first query has to batch read it
+        Group group = new Group.GroupBuilder(GrouperServiceApplication.idGenerator.nextId("G"))
+            .withGroupSkillSet(new SkillSet(JAVA))
+            .build();
+        GroupObjectCache.objectStore(this.storage).create(GroupObjectCache.toItem(group));
+        String eventId = event(Collections.singletonList(group.getGroupId()), Collections.emptyList());
+
+        this.storage.setFailing(true);
+        assertTrue(this.index.groupsNeeding(eventId, JAVA).isEmpty());
+        assertEquals(0, this.index.indexedEventCount());
+
+        this.storage.setFailing(false);
+        assertEquals(Collections.singletonList(group.getGroupId()), this.index.groupsNeeding(eventId, JAVA));
+        assertEquals(1, this.index.indexedEventCount());
+    }
+
+    @Test
+    public void deletedEventsAreEvicted() {
+        String first = event(Collections.singletonList(group(JAVA)), Collections.emptyList());
+        String second = event(Collections.singletonList(group(JAVA)), Collections.emptyList());
+        this.index.groupsNeeding(first, JAVA);
+        this.index.groupsNeeding(second, JAVA);
+        assertEquals(2, this.index.indexedEventCount());
+
+        this.index.removeEvent(first);
+        assertEquals(1, this.index.indexedEventCount());
+
+        this.index.retainEvents(Collections.singleton(first));
+        assertEquals(0, this.index.indexedEventCount());
+    }
+
+    private static String group(long skillMask) {
+        String groupId = GrouperServiceApplication.idGenerator.nextId("G");
+        GrouperServiceApplication.groupObjectCache.putObject(new Group.GroupBuilder(groupId)
+            .withGroupSkillSet(new SkillSet(skillMask))
+            .build());
+        return groupId;
+    }
+
+    private static String user(long skillMask) {
+        String userId = GrouperServiceApplication.idGenerator.nextId("U");
+        GrouperServiceApplication.userObjectCache.putObject(new User.UserBuilder(userId)
+            .withUserSkillSet(new SkillSet(skillMask))
+            .build());
+        return userId;
+    }
+
+    private static String event(List<String> groupIds, List<String> userIds) {
+        String eventId = GrouperServiceApplication.idGenerator.nextId("E");
+        GrouperServiceApplication.eventObjectCache.putObject(new Event.EventBuilder(eventId)
+            .withEventDate(new Date())
+            .withEventGroups(groupIds)
+            .withEventUsers(userIds)
+            .build());
+        return eventId;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.grouper.index;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventTimeIndexTest {
+
+    @Test
+    public void returnsTheRangeEarliestFirst() {
+        EventTimeIndex index = new EventTimeIndex();
+        index.index("E3", 300);
+        index.index("E1", 100);
+        index.index("E2", 200);
+        index.index("E4", 400);
+
+        assertEquals(Arrays.asList("E1", "E2", "E3"), index.between(100, 300, 10));
+        assertEquals(Arrays.asList("E2", "E3"), index.between(150, 350, 10));
+        assertEquals(Collections.singletonList("E1"), index.between(0, 1000, 1));
+        assertTrue(index.between(300, 100, 10).isEmpty());
+        assertTrue(index.between(0, 1000, 0).isEmpty());
+    }
+
+    @Test
+    public void eventsAtTheSameTimeAreAllKept() {
+        EventTimeIndex index = new EventTimeIndex();
+        index.index("E2", 100);
+        index.index("E1", 100);
+
+        assertEquals(Arrays.asList("E1", "E2"), index.between(100, 100, 10));
+    }
+
+    @Test
+    public void reindexingMovesTheEvent() {
+        EventTimeIndex index = new EventTimeIndex();
+        index.index("E1", 100);
+        index.index("E1", 500);
+
+        assertTrue(index.between(0, 200, 10).isEmpty());
+        assertEquals(Collections.singletonList("E1"), index.between(400, 600, 10));
+        assertEquals(1, index.size());
+
+        index.removeEvent("E1");
+        assertTrue(index.between(0, 1000, 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void refreshKeepsEventsIndexedDuringTheScan() {
+        EventTimeIndex index = new EventTimeIndex();
+        index.index("deleted", 100);
+        index.index("kept", 200);
+        HashSet<String> indexedBeforeScan = new HashSet<>(index.indexedEventIds());
+        // Created after the scan started, so the scan missed it
+        index.index("created", 300);
+
+        Map<String, Long> scanned = new HashMap<>();
+        scanned.put("kept", 250L);
+        index.refresh(scanned, indexedBeforeScan);
+
+        assertEquals(Arrays.asList("kept", "created"), index.between(0, 1000, 10));
+    }
+
+}
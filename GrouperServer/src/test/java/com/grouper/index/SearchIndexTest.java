@@ -0,0 +1,203 @@
+package com.grouper.index;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.SearchHit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchIndexTest {
+
+    @Test
+    public void ranksNameMatchesAboveDescriptionMatches() {
+        SearchIndex index = new SearchIndex();
+        index.indexGroup(group("G1", "Weekend Hikers", "outdoors", "Trail walks around the city"));
+        index.indexGroup(group("G2", "Book Club", "reading", "We hike to the library sometimes, weekend mornings"));
+        index.indexEvent(event("E1", "Chess night", "Bring a board"));
+
+        assertEquals(Arrays.asList("G1", "G2"), ids(index.search("weekend", null, 10)));
+        assertEquals(Collections.singletonList("G1"), ids(index.search("hikers", null, 10)));
+        assertTrue(index.search("swimming", null, 10).isEmpty());
+    }
+
+    @Test
+    public void matchesAnyTermAndRanksDocumentsMatchingMoreHigher() {
+        SearchIndex index = new SearchIndex();
+        index.indexEvent(event("E1", "Chess night", null));
+        index.indexEvent(event("E2", "Movie night", null));
+        index.indexEvent(event("E3", "Chess tournament", null));
+        addFiller(index, 30);
+
+        List<SearchHit> hits = index.search("chess night", null, 10);
+
+        assertEquals("E1", hits.get(0).getId());
+        assertEquals("Chess night", hits.get(0).getName());
+        assertEquals(Arrays.asList("E2", "E3"), sorted(ids(hits.subList(1, hits.size()))));
+    }
+
+    @Test
+    public void commonTermsOnlyReRankMatchesOfRarerTerms() {
+        SearchIndex index = new SearchIndex();
+        index.indexEvent(event("E1", "Chess night", null));
+        index.indexEvent(event("E2", "Movie night", null));
+        index.indexEvent(event("E3", "Chess tournament", null));
+        addFiller(index, 10);
+        for (int i = 0; i < 5; i++) {
+            index.indexEvent(event("N" + i, "Night " + i, null));
+        }
+
+        // night is in more than a tenth of the documents, so it only re-ranks what chess matched
+        assertEquals(Arrays.asList("E1", "E3"), ids(index.search("chess night", null, 10)));
+    }
+
+    @Test
+    public void commonTermsMatchOnTheirOwnWhenRarerTermsMatchNothing() {
+        SearchIndex index = new SearchIndex();
+        index.indexEvent(event("E1", "Chess night", null));
+        index.indexEvent(event("E2", "Movie night", null));
+        addFiller(index, 10);
+
+        // chezz is a typo that matches nothing, so night is all the query has
+        assertEquals(Arrays.asList("E1", "E2"), sorted(ids(index.search("chezz night", null, 10))));
+    }
+
+    @Test
+    public void filtersByKindAndLimits() {
+        SearchIndex index = new SearchIndex();
+        index.indexGroup(group("G1", "Climbing crew", null, null));
+        index.indexEvent(event("E1", "Climbing gym", null));
+        index.indexEvent(event("E2", "Climbing trip", null));
+
+        assertEquals(Collections.singletonList("G1"), ids(index.search("climbing", SearchIndex.GROUP, 10)));
+        assertEquals(Arrays.asList("E1", "E2"), ids(index.search("climbing", SearchIndex.EVENT, 10)));
+        assertEquals(2, index.search("climbing", null, 2).size());
+        assertTrue(index.search("climbing", null, 0).isEmpty());
+        assertEquals(SearchIndex.EVENT, index.search("gym", null, 10).get(0).getKind());
+    }
+
+    @Test
+    public void ignoresCaseAccentsAndPunctuation() {
+        SearchIndex index = new SearchIndex();
+        index.indexEvent(event("E1", "Café Crème -- Meetup!", null));
+
+        assertEquals(Collections.singletonList("E1"), ids(index.search("CAFE", null, 10)));
+        assertEquals(Collections.singletonList("E1"), ids(index.search("creme, meetup", null, 10)));
+    }
+
+    @Test
+    public void suggestCompletesTheLastTermAndMatchesEveryTerm() {
+        SearchIndex index = new SearchIndex();
+        index.indexEvent(event("E1", "Basketball pickup", null));
+        index.indexEvent(event("E2", "Baseball pickup", null));
+        index.indexEvent(event("E3", "Basket weaving", null));
+
+        assertEquals(Arrays.asList("E1", "E2", "E3"), sorted(ids(index.suggest("bas", null, 10))));
+        assertEquals(Arrays.asList("E1", "E2"), sorted(ids(index.suggest("pickup bas", null, 10))));
+        assertEquals(Collections.singletonList("E1"), ids(index.suggest("basketb", null, 10)));
+        assertTrue(index.suggest("", null, 10).isEmpty());
+    }
+
+    @Test
+    public void suggestTreatsATrailingSeparatorAsACompleteTerm() {
+        SearchIndex index = new SearchIndex();
+        index.indexEvent(event("E1", "Basket weaving", null));
+        index.indexEvent(event("E2", "Basketball pickup", null));
+
+        assertEquals(Arrays.asList("E1", "E2"), sorted(ids(index.suggest("basket", null, 10))));
+        assertEquals(Collections.singletonList("E1"), ids(index.suggest("basket ", null, 10)));
+        // Earlier terms never match as prefixes
+        assertTrue(index.suggest("bask weav", null, 10).isEmpty());
+    }
+
+    @Test
+    public void reindexingAndRemovingReplacePostings() {
+        SearchIndex index = new SearchIndex();
+        index.indexGroup(group("G1", "Running club", null, null));
+        index.indexGroup(group("G1", "Cycling club", null, null));
+
+        assertTrue(index.search("running", null, 10).isEmpty());
+        assertEquals(Collections.singletonList("G1"), ids(index.search("cycling", null, 10)));
+        assertTrue(index.suggest("run", null, 10).isEmpty());
+        assertEquals(1, index.size());
+
+        index.remove(SearchIndex.GROUP, "G1");
+
+        assertTrue(index.search("cycling club", null, 10).isEmpty());
+        assertTrue(index.suggest("cyc", null, 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void refreshKeepsDocumentsIndexedDuringTheScan() {
+        SearchIndex index = new SearchIndex();
+        index.indexEvent(event("E1", "Deleted elsewhere", null));
+        index.indexEvent(event("E2", "Still there", null));
+        Set<String> indexedBeforeScan = index.indexedIds(SearchIndex.EVENT);
+
+        // Created on this node after the scan started, so the scan missed it
+        index.indexEvent(event("E3", "Created meanwhile", null));
+        index.refreshEvents(Arrays.asList(event("E2", "Still there", null), event("E4", "Created elsewhere", null)),
+            indexedBeforeScan);
+
+        assertEquals(Arrays.asList("E2", "E3", "E4"), sorted(new ArrayList<>(index.indexedIds(SearchIndex.EVENT))));
+        assertTrue(index.search("deleted", null, 10).isEmpty());
+        assertEquals(Collections.singletonList("E4"), ids(index.search("elsewhere", null, 10)));
+    }
+
+    @Test
+    public void refreshOfOneKindLeavesTheOtherAlone() {
+        SearchIndex index = new SearchIndex();
+        index.indexGroup(group("G1", "Same id", null, null));
+        index.indexEvent(event("G1", "Same id", null));
+
+        index.refreshGroups(Collections.emptyList(), index.indexedIds(SearchIndex.GROUP));
+
+        assertTrue(index.indexedIds(SearchIndex.GROUP).isEmpty());
+        assertEquals(Collections.singletonList("G1"), ids(index.search("same", SearchIndex.EVENT, 10)));
+    }
+
+    private static void addFiller(SearchIndex index, int count) {
+        for (int i = 0; i < count; i++) {
+            index.indexGroup(group("F" + i, "Filler " + i, null, null));
+        }
+    }
+
+    private static Group group(String groupId, String name, String type, String description) {
+        return new Group.GroupBuilder(groupId)
+            .withGroupName(name)
+            .withGroupType(type)
+            .withGroupDescription(description)
+            .build();
+    }
+
+    private static Event event(String eventId, String name, String description) {
+        return new Event.EventBuilder(eventId)
+            .withEventName(name)
+            .withEventDate(new Date())
+            .withEventDescription(description)
+            .build();
+    }
+
+    private static List<String> ids(List<SearchHit> hits) {
+        List<String> ids = new ArrayList<>();
+        for (SearchHit hit : hits) {
+            ids.add(hit.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> sorted(List<String> ids) {
+        Collections.sort(ids);
+        return ids;
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.grouper.matching;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.GroupMatch;
+import com.grouper.models.Message;
+import com.grouper.models.SkillSet;
+import com.grouper.models.User;
+import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.InMemoryStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GroupMatcherTest {
+
+    private static final long JAVA = 1L;
+    private static final long C = 1L << 1;
+    private static final long CPP = 1L << 2;
+    private static final long SWIFT = 1L << 4;
+    private static final long PYTHON = 1L << 5;
+    private static final long HTML = 1L << 6;
+
+    private final GroupMatcher matcher = new GroupMatcher();
+
+    @Before
+    public void setUp() {
+        GrouperServiceApplication.initServices(new InMemoryStorage(0, 0, 2));
+    }
+
+    @Test
+    public void ranksByFilledNeedsThenCompleteness() {
+        User user = user(JAVA | PYTHON | HTML);
+
+        String partial = group(JAVA | C, "someoneElse");
+        String mostFilled = group(JAVA | PYTHON | SWIFT, "someoneElse");
+        String complete = group(PYTHON, "someoneElse");
+        String noOverlap = group(CPP, "someoneElse");
+        String alreadyMember = group(JAVA | HTML, user.getUserId());
+        Event event = event(partial, mostFilled, complete, noOverlap, alreadyMember);
+
+        List<GroupMatch> matches = this.matcher.topGroupsForUser(user, event, GroupMatcher.DEFAULT_MATCH_COUNT);
+
+        assertEquals(Arrays.asList(mostFilled, complete, partial), groupIds(matches));
+        assertEquals(2 + 2.0 / 3, matches.get(0).getScore(), 1e-9);
+        assertEquals(Arrays.asList(SkillSet.JAVA_SKILL_NAME, SkillSet.PYTHON_SKILL_NAME),
+            matches.get(0).getFilledSkills());
+    }
+
+    @Test
+    public void keepsOnlyTheBestK() {
+        User user = user(JAVA | PYTHON);
+        String best = group(JAVA | PYTHON, "someoneElse");
+        String second = group(JAVA, "someoneElse");
+        String third = group(JAVA | C, "someoneElse");
+        Event event = event(third, second, best);
+
+        assertEquals(Arrays.asList(best, second), groupIds(this.matcher.topGroupsForUser(user, event, 2)));
+    }
+
+    // Large events are scored in parallel, which must give the same answer as scoring them one by one
+    @Test
+    public void parallelScoringMatchesSequentialRanking() {
+        User user = user(JAVA | C | PYTHON | HTML);
+        Random random = new Random(7);
+
+        List<String> groupIds = new ArrayList<>();
+        List<GroupMatch> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            long needs = 1 + random.nextInt(255);
+            String groupId = group(needs, "someoneElse");
+            groupIds.add(groupId);
+
+            long filled = needs & user.getUserSkillSet().getSkillMask();
+            if (filled != 0) {
+                double score = Long.bitCount(filled) + (double) Long.bitCount(filled) / Long.bitCount(needs);
+                expected.add(new GroupMatch(groupId, "Group", score, Collections.emptyList()));
+            }
+        }
+        Event event = event(groupIds.toArray(new String[0]));
+
+        expected.sort(Collections.reverseOrder(BoundedMatchHeap.WORST_FIRST));
+        List<GroupMatch> matches = this.matcher.topGroupsForUser(user, event, GroupMatcher.MAXIMUM_MATCH_COUNT);
+
+        assertEquals(GroupMatcher.MAXIMUM_MATCH_COUNT, matches.size());
+        assertEquals(groupIds(expected.subList(0, GroupMatcher.MAXIMUM_MATCH_COUNT)), groupIds(matches));
+    }
+
+    @Test
+    public void unknownEventHasNoMatches() {
+        Event missing = new Event.EventBuilder(GrouperServiceApplication.idGenerator.nextId("E"))
+            .build();
+
+        assertTrue(this.matcher.topGroupsForUser(user(JAVA), missing, GroupMatcher.DEFAULT_MATCH_COUNT).isEmpty());
+    }
+
+    private static User user(long skillMask) {
+        return new User.UserBuilder(GrouperServiceApplication.idGenerator.nextId("U"))
+            .withUserSkillSet(new SkillSet(skillMask))
+            .build();
+    }
+
+    private static String group(long skillMask, String memberId) {
+        String groupId = GrouperServiceApplication.idGenerator.nextId("G");
+        check(GrouperServiceApplication.groupObjectCache.putObject(new Group.GroupBuilder(groupId)
+            .withGroupName("Group")
+            .withGroupSkillSet(new SkillSet(skillMask))
+            .withGroupUsers(Collections.singletonList(memberId))
+            .build()));
+        return groupId;
+    }
+
+    private static Event event(String... groupIds) {
+        Event event = new Event.EventBuilder(GrouperServiceApplication.idGenerator.nextId("E"))
+            .withEventName("Event")
+            .withEventDate(new Date())
+            .withEventGroups(Arrays.asList(groupIds))
+            .build();
+        check(GrouperServiceApplication.eventObjectCache.putObject(event));
+        return event;
+    }
+
+    private static void check(Message message) {
+        assertEquals(message.toString(), Message.DEFAULT_SUCCESS_STATUS, (int) message.getStatus());
+    }
+
+    private static List<String> groupIds(List<GroupMatch> matches) {
+        List<String> groupIds = new ArrayList<>();
+        for (GroupMatch match : matches) {
+            groupIds.add(match.getGroupId());
+        }
+        return groupIds;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.grouper.models;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventDateTest {
+
+    // Monday, 5 Mar 2018, 7:00 PM in Los Angeles
+    private static final long MARCH_5_7PM = ZonedDateTime.parse("2018-03-05T19:00-08:00[America/Los_Angeles]")
+        .toInstant().toEpochMilli();
+
+    @Test
+    public void parsesTheStoredFormat() {
+        assertEquals(new Date(MARCH_5_7PM), Event.parseEventDate("Monday, 5 Mar 2018, 7:00 PM Pacific Standard Time"));
+    }
+
+    @Test
+    public void ignoresAWrongDayOfWeek() {
+        assertEquals(new Date(MARCH_5_7PM), Event.parseEventDate("Friday, 5 Mar 2018, 7:00 PM Pacific Standard Time"));
+    }
+
+    @Test
+    public void acceptsAMissingDayOfWeek() {
+        assertEquals(new Date(MARCH_5_7PM), Event.parseEventDate("5 Mar 2018, 7:00 PM Pacific Standard Time"));
+    }
+
+    @Test
+    public void parsesEpochMilliseconds() {
+        assertEquals(new Date(MARCH_5_7PM), Event.parseEventDate(Long.toString(MARCH_5_7PM)));
+    }
+
+    @Test
+    public void formattedDatesParseBack() {
+        Date date = new Date(MARCH_5_7PM);
+        String formatted = Event.EVENT_DATE_FORMATTER.format(date.toInstant().atZone(
+            ZoneId.of("America/Los_Angeles")));
+
+        assertEquals(date, Event.parseEventDate(formatted));
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void rejectsOtherFormats() {
+        Event.parseEventDate("2018-03-05 19:00");
+    }
+
+}
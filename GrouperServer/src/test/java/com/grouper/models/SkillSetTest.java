@@ -0,0 +1,86 @@
+package com.grouper.models;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SkillSetTest {
+
+    @Test
+    public void ordinalsAreTheRegistryOrder() {
+        assertEquals(0, SkillRegistry.ordinal(SkillSet.JAVA_SKILL_NAME));
+        assertEquals(7, SkillRegistry.ordinal(SkillSet.JAVASCRIPT_SKILL_NAME));
+        assertEquals(-1, SkillRegistry.ordinal("COBOL"));
+        assertEquals(0L, SkillRegistry.bit("COBOL"));
+    }
+
+    @Test
+    public void maskRoundTripsThroughANumberAttribute() {
+        SkillSet skillSet = new SkillSet();
+        skillSet.addSkill(SkillSet.CPP_SKILL_NAME);
+        skillSet.addSkill(SkillSet.PYTHON_SKILL_NAME);
+
+        AttributeValue attributeValue = skillSet.toAttributeValue();
+        assertEquals(Long.toString((1L << 2) | (1L << 5)), attributeValue.getN());
+
+        SkillSet decoded = SkillSet.fromAttributeValue(attributeValue);
+        assertEquals(skillSet.getSkillMask(), decoded.getSkillMask());
+        assertEquals(Arrays.asList(SkillSet.CPP_SKILL_NAME, SkillSet.PYTHON_SKILL_NAME), decoded.skillNames());
+    }
+
+    @Test
+    public void readsLegacyMapAttributes() {
+        Map<String, AttributeValue> legacy = new HashMap<>();
+        legacy.put(SkillSet.JAVA_SKILL_NAME, new AttributeValue().withBOOL(true));
+        legacy.put(SkillSet.HTML_SKILL_NAME, new AttributeValue().withBOOL(true));
+        legacy.put(SkillSet.SWIFT_SKILL_NAME, new AttributeValue().withBOOL(false));
+
+        SkillSet decoded = SkillSet.fromAttributeValue(new AttributeValue().withM(legacy));
+
+        assertEquals(Arrays.asList(SkillSet.JAVA_SKILL_NAME, SkillSet.HTML_SKILL_NAME), decoded.skillNames());
+        assertEquals(0L, SkillSet.fromAttributeValue(null).getSkillMask());
+    }
+
+    @Test
+    public void jsonMapListsEveryRegisteredSkill() {
+        SkillSet skillSet = new SkillSet(Collections.singletonMap(SkillSet.SWIFT_SKILL_NAME, true));
+
+        HashMap<String, Boolean> skills = skillSet.getSkills();
+        assertEquals(SkillRegistry.size(), skills.size());
+        assertTrue(skills.get(SkillSet.SWIFT_SKILL_NAME));
+        assertFalse(skills.get(SkillSet.JAVA_SKILL_NAME));
+    }
+
+    @Test
+    public void setOperationsUseTheMask() {
+        SkillSet user = new SkillSet((1L) | (1L << 1) | (1L << 5));
+        SkillSet group = new SkillSet((1L) | (1L << 5));
+
+        assertEquals(3, user.count());
+        assertEquals(2, user.overlap(group));
+        assertTrue(user.covers(group));
+        assertFalse(group.covers(user));
+    }
+
+    @Test
+    public void unknownNamesAreReported() {
+        Map<String, Boolean> skills = new LinkedHashMap<>();
+        skills.put(SkillSet.JAVA_SKILL_NAME, true);
+        skills.put("COBOL", true);
+        skills.put("Rust", false);
+
+        assertEquals(Arrays.asList("COBOL", "Rust"), SkillRegistry.unknownNames(skills));
+        assertTrue(SkillRegistry.unknownNames(new SkillSet().getSkills()).isEmpty());
+        assertTrue(SkillRegistry.unknownNames(null).isEmpty());
+    }
+
+}
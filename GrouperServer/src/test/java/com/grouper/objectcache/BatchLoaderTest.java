@@ -0,0 +1,252 @@
+package com.grouper.objectcache;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.grouper.models.User;
+import com.grouper.storage.DynamoUpdate;
+import com.grouper.storage.InMemoryStorage;
+import com.grouper.storage.ObjectStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchLoaderTest {
+
+    private static final String USER_ID_KEY = "userId";
+
+    // Long enough that only the loader's other triggers can send a batch during a test
+    private static final long LONG_WINDOW_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private RecordingStore store;
+    private ScheduledExecutorService timer;
+    private ExecutorService batchExecutor;
+
+    @Before
+    public void setUp() {
+        ObjectStore userStore = UserObjectCache.objectStore(new InMemoryStorage(0, 0, 2));
+        for (String userId : Arrays.asList("U1", "U2", "U3")) {
+            userStore.create(UserObjectCache.toItem(new User.UserBuilder(userId).build()));
+        }
+        this.store = new RecordingStore(userStore);
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.batchExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        this.timer.shutdownNow();
+        this.batchExecutor.shutdownNow();
+    }
+
+    @Test
+    public void loneReadIsSentAtOnce() throws Exception {
+        BatchLoader loader = loader(LONG_WINDOW_MICROS, 100);
+
+        assertEquals("U1", userId(loader.loadAsync("U1")));
+        assertEquals("U2", loader.load("U2").get(USER_ID_KEY).getS());
+        assertEquals(Arrays.asList("U1", "U2"), this.store.gets);
+        assertTrue(this.store.batchGets.isEmpty());
+    }
+
+    @Test
+    public void readsWhileOneIsInFlightAreSentTogetherWhenItFinishes() throws Exception {
+        BatchLoader loader = loader(LONG_WINDOW_MICROS, 100);
+        CompletableFuture<Map<String, AttributeValue>> held = this.store.hold("U1");
+
+        CompletableFuture<Map<String, AttributeValue>> first = loader.loadAsync("U1");
+        CompletableFuture<Map<String, AttributeValue>> second = loader.loadAsync("U2");
+        CompletableFuture<Map<String, AttributeValue>> third = loader.loadAsync("U3");
+        CompletableFuture<Map<String, AttributeValue>> missing = loader.loadAsync("U4");
+        CompletableFuture<Map<String, AttributeValue>> secondAgain = loader.loadAsync("U2");
+        assertFalse(second.isDone());
+        assertSame(second, secondAgain);
+
+        this.store.release("U1", held);
+
+        assertEquals("U1", userId(first));
+        assertEquals("U2", userId(second));
+        assertEquals("U3", userId(third));
+        assertNull(missing.get(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("U1"), this.store.gets);
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("U2", "U3", "U4"))),
+            this.store.batchGets);
+    }
+
+    @Test
+    public void fullBatchIsSentWithoutWaiting() throws Exception {
+        BatchLoader loader = loader(LONG_WINDOW_MICROS, 2);
+        this.store.hold("U1");
+
+        loader.loadAsync("U1");
+        CompletableFuture<Map<String, AttributeValue>> second = loader.loadAsync("U2");
+        CompletableFuture<Map<String, AttributeValue>> third = loader.loadAsync("U3");
+
+        assertEquals("U2", userId(second));
+        assertEquals("U3", userId(third));
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("U2", "U3"))), this.store.batchGets);
+    }
+
+    @Test
+    public void windowClosesTheBatchWhileOtherReadsAreStillInFlight() throws Exception {
+        BatchLoader loader = loader(1000, 100);
+        this.store.hold("U1");
+
+        CompletableFuture<Map<String, AttributeValue>> first = loader.loadAsync("U1");
+        CompletableFuture<Map<String, AttributeValue>> second = loader.loadAsync("U2");
+
+        assertEquals("U2", userId(second));
+        assertFalse(first.isDone());
+    }
+
+    @Test
+    public void failedBatchFailsEveryRead() throws Exception {
+        BatchLoader loader = loader(LONG_WINDOW_MICROS, 100);
+        CompletableFuture<Map<String, AttributeValue>> held = this.store.hold("U1");
+        this.store.failBatches = true;
+
+        loader.loadAsync("U1");
+        List<CompletableFuture<Map<String, AttributeValue>>> reads = new ArrayList<>();
+        reads.add(loader.loadAsync("U2"));
+        reads.add(loader.loadAsync("U3"));
+        this.store.release("U1", held);
+
+        for (CompletableFuture<Map<String, AttributeValue>> read : reads) {
+            try {
+                read.get(5, TimeUnit.SECONDS);
+                fail("Read of a failed batch succeeded.");
+            } catch (ExecutionException ee) {
+                assertTrue(ee.getCause() instanceof AmazonServiceException);
+            }
+        }
+
+        // The failed batch finished, so the next read goes out on its own again
+        this.store.failBatches = false;
+        assertEquals("U3", userId(loader.loadAsync("U3")));
+    }
+
+    @Test
+    public void zeroWindowSendsEveryReadOnItsOwn() throws Exception {
+        BatchLoader loader = loader(0, 100);
+        this.store.hold("U1");
+
+        loader.loadAsync("U1");
+        assertEquals("U2", userId(loader.loadAsync("U2")));
+        assertTrue(this.store.batchGets.isEmpty());
+    }
+
+    private BatchLoader loader(long windowMicros, int maximumBatchSize) {
+        return new BatchLoader(this.store, windowMicros, maximumBatchSize, this.timer, this.batchExecutor,
+            CacheMetrics.register("batchTest", 0));
+    }
+
+    private static String userId(CompletableFuture<Map<String, AttributeValue>> read) throws Exception {
+        return read.get(5, TimeUnit.SECONDS).get(USER_ID_KEY).getS();
+    }
+
+    // Records reads, and can hold a getAsync until the test releases it
+    private static final class RecordingStore implements ObjectStore {
+
+        private final ObjectStore delegate;
+        private final Map<String, CompletableFuture<Map<String, AttributeValue>>> held = new ConcurrentHashMap<>();
+        private final List<String> gets = new CopyOnWriteArrayList<>();
+        private final List<Set<String>> batchGets = new CopyOnWriteArrayList<>();
+        private volatile boolean failBatches;
+
+        private RecordingStore(ObjectStore delegate) {
+            this.delegate = delegate;
+        }
+
+        private CompletableFuture<Map<String, AttributeValue>> hold(String id) {
+            CompletableFuture<Map<String, AttributeValue>> future = new CompletableFuture<>();
+            this.held.put(id, future);
+            return future;
+        }
+
+        private void release(String id, CompletableFuture<Map<String, AttributeValue>> future) {
+            this.held.remove(id);
+            future.complete(this.delegate.get(id));
+        }
+
+        @Override
+        public Map<String, AttributeValue> get(String id) {
+            return this.delegate.get(id);
+        }
+
+        @Override
+        public Map<String, AttributeValue> getConsistent(String id) {
+            return this.delegate.getConsistent(id);
+        }
+
+        @Override
+        public CompletableFuture<Map<String, AttributeValue>> getAsync(String id) {
+            this.gets.add(id);
+            CompletableFuture<Map<String, AttributeValue>> future = this.held.get(id);
+            return future != null ? future : this.delegate.getAsync(id);
+        }
+
+        @Override
+        public Map<String, Map<String, AttributeValue>> batchGet(Iterable<? extends String> ids) {
+            Set<String> idSet = new HashSet<>();
+            ids.forEach(idSet::add);
+            this.batchGets.add(idSet);
+            if (this.failBatches) {
+                throw new AmazonServiceException("Storage unavailable.");
+            }
+            return this.delegate.batchGet(ids);
+        }
+
+        @Override
+        public List<Map<String, AttributeValue>> scan(String projection) {
+            return this.delegate.scan(projection);
+        }
+
+        @Override
+        public void create(Map<String, AttributeValue> item) {
+            this.delegate.create(item);
+        }
+
+        @Override
+        public void update(DynamoUpdate update) {
+            this.delegate.update(update);
+        }
+
+        @Override
+        public CompletableFuture<Void> updateAsync(DynamoUpdate update) {
+            return this.delegate.updateAsync(update);
+        }
+
+        @Override
+        public void delete(String id) {
+            this.delegate.delete(id);
+        }
+
+        @Override
+        public Set<String> batchDelete(Iterable<? extends String> ids) {
+            return this.delegate.batchDelete(ids);
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.grouper.objectcache;
+
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.MembershipPage;
+import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.FlakyStorage;
+import com.grouper.storage.InMemoryStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MembershipStoreTest {
+
+    private static final List<String> MEMBERS = Arrays.asList("U5", "U1", "U4", "U2", "U3");
+
+    private InMemoryStorage storage;
+    private MembershipStore store;
+
+    @Before
+    public void setUp() {
+        this.storage = new InMemoryStorage(0, 0, 2);
+        GrouperServiceApplication.initServices(this.storage);
+        this.store = GrouperServiceApplication.membershipStore;
+    }
+
+    @Test
+    public void pagesTheStringSetUntilBackfilled() {
+        MembershipPage first = fallbackPage(null);
+        assertEquals(Arrays.asList("U1", "U2"), first.getMembers());
+
+        MembershipPage second = fallbackPage(first.getCursor());
+        assertEquals(Arrays.asList("U3", "U4"), second.getMembers());
+
+        MembershipPage last = fallbackPage(second.getCursor());
+        assertEquals(Collections.singletonList("U5"), last.getMembers());
+        assertNull(last.getCursor());
+    }
+
+    @Test
+    public void fallbackCursorsContinueInTheTable() {
+        for (String userId : MEMBERS) {
+            this.store.add(MembershipStore.GROUP, "G1", MembershipStore.USER, userId).join();
+        }
+
+        String cursor = fallbackPage(null).getCursor();
+        assertTrue(this.store.markBackfilled());
+
+        MembershipPage next = fallbackPage(cursor);
+        assertEquals(Arrays.asList("U3", "U4"), next.getMembers());
+    }
+
+    @Test
+    public void fallbackRejectsCursorsOfOtherLists() {
+        String groupCursor = fallbackPage(null).getCursor();
+
+        CompletableFuture<MembershipPage> page = this.store.page(MembershipStore.EVENT, "E1", MembershipStore.GROUP, 2,
+            groupCursor, () -> CompletableFuture.completedFuture(MEMBERS));
+
+        assertTrue(page.isCompletedExceptionally());
+    }
+
+    @Test
+    public void backfillCopiesStringSetsAndLeavesAMarker() {
+        // Written straight to storage, the way items from before the membership table look
+        Group group = new Group.GroupBuilder("G1")
+            .withGroupUsers(Arrays.asList("U1", "U2"))
+            .build();
+        Event event = new Event.EventBuilder("E1")
+            .withEventDate(new Date())
+            .withEventUsers(Arrays.asList("U1", "U2", "U3"))
+            .withEventGroups(Collections.singletonList("G1"))
+            .build();
+        GroupObjectCache.objectStore(this.storage).create(GroupObjectCache.toItem(group));
+        EventObjectCache.objectStore(this.storage).create(EventObjectCache.toItem(event));
+        assertFalse(this.store.readBackfillMarker());
+
+        assertTrue(GrouperServiceApplication.eventObjectCache.backfillMemberships());
+        assertTrue(GrouperServiceApplication.groupObjectCache.backfillMemberships());
+        assertTrue(this.store.markBackfilled());
+
+        assertEquals(Arrays.asList("U1", "U2", "U3"), tablePage(MembershipStore.EVENT, "E1", MembershipStore.USER));
+        assertEquals(Collections.singletonList("G1"), tablePage(MembershipStore.EVENT, "E1", MembershipStore.GROUP));
+        assertTrue(tablePage(MembershipStore.GROUP, "G1", MembershipStore.USER).containsAll(Arrays.asList("U1",
+            "U2")));
+        assertTrue(new MembershipStore(this.storage).readBackfillMarker());
+    }
+
+    @Test
+    public void backfillDropsEdgesOfMembersRemovedMeanwhile() {
+        assertTrue(this.store.backfill(MembershipStore.GROUP, "G1", MembershipStore.USER, Arrays.asList("U1", "U2"),
+            () -> Collections.singletonList("U1")));
+
+        assertEquals(Collections.singletonList("U1"), tablePage(MembershipStore.GROUP, "G1", MembershipStore.USER));
+    }
+
+    @Test
+    public void failedRemovalsStayQueuedUntilARetrySucceeds() {
+        FlakyStorage flakyStorage = new FlakyStorage();
+        MembershipStore flakyStore = new MembershipStore(flakyStorage);
+        flakyStore.add(MembershipStore.GROUP, "G1", MembershipStore.USER, "U1").join();
+
+        flakyStorage.setFailing(true);
+        flakyStore.removeAllLater(MembershipStore.GROUP, "G1");
+        assertFalse(flakyStore.retryRemovals());
+
+        flakyStorage.setFailing(false);
+        assertTrue(flakyStore.retryRemovals());
+        assertTrue(flakyStore.page(MembershipStore.GROUP, "G1", MembershipStore.USER,
+            MembershipStore.MAXIMUM_PAGE_SIZE, null).join().getMembers().isEmpty());
+    }
+
+    private MembershipPage fallbackPage(String cursor) {
+        return this.store.page(MembershipStore.GROUP, "G1", MembershipStore.USER, 2, cursor,
+            () -> CompletableFuture.completedFuture(MEMBERS)).join();
+    }
+
+    private List<String> tablePage(String parentKind, String parentId, String memberKind) {
+        return this.store.page(parentKind, parentId, memberKind, MembershipStore.MAXIMUM_PAGE_SIZE, null).join()
+            .getMembers();
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.grouper.objectcache;
+
+import com.grouper.models.Group;
+import com.grouper.models.Message;
+import com.grouper.models.SkillSet;
+import com.grouper.models.User;
+import com.grouper.service.GrouperServiceApplication;
+import com.grouper.storage.InMemoryStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UpdateObjectTest {
+
+    private InMemoryStorage storage;
+
+    @Before
+    public void setUp() {
+        this.storage = new InMemoryStorage(0, 0, 2);
+        GrouperServiceApplication.initServices(this.storage);
+    }
+
+    @Test
+    public void concurrentEditsOfDifferentFieldsBothSurvive() {
+        Group base = group();
+
+        Message rename = GrouperServiceApplication.groupObjectCache.updateObject(base,
+            copy(base).withGroupName("Renamed").build());
+        // Still based on the first read, so its version is stale
+        Message describe = GrouperServiceApplication.groupObjectCache.updateObject(base,
+            copy(base).withGroupDescription("Described").build());
+
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) rename.getStatus());
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) describe.getStatus());
+
+        Group stored = stored(base.getGroupId());
+        assertEquals("Renamed", stored.getGroupName());
+        assertEquals("Described", stored.getGroupDescription());
+        assertEquals(base.getGroupVersion() + 2, stored.getGroupVersion());
+        assertEquals(stored.getGroupName(),
+            GrouperServiceApplication.groupObjectCache.getObject(base.getGroupId()).getGroupName());
+        assertEquals(stored.getGroupDescription(),
+            GrouperServiceApplication.groupObjectCache.getObject(base.getGroupId()).getGroupDescription());
+    }
+
+    @Test
+    public void concurrentEditsOfTheSameFieldConflict() {
+        Group base = group();
+
+        GrouperServiceApplication.groupObjectCache.updateObject(base, copy(base).withGroupName("First").build());
+        Message second = GrouperServiceApplication.groupObjectCache.updateObject(base,
+            copy(base).withGroupName("Second").build());
+
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) second.getStatus());
+        assertEquals(Message.UPDATE_CONFLICT_DESC, second.getDescription());
+        assertEquals("First", stored(base.getGroupId()).getGroupName());
+    }
+
+    @Test
+    public void sameValueOnBothSidesIsNotAConflict() {
+        Group base = group();
+
+        GrouperServiceApplication.groupObjectCache.updateObject(base, copy(base).withGroupName("Same").build());
+        Message second = GrouperServiceApplication.groupObjectCache.updateObject(base,
+            copy(base).withGroupName("Same").build());
+
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) second.getStatus());
+        assertEquals(base.getGroupVersion() + 1, stored(base.getGroupId()).getGroupVersion());
+    }
+
+    @Test
+    public void unchangedObjectWritesNothing() {
+        Group base = group();
+
+        Message message = GrouperServiceApplication.groupObjectCache.updateObject(base, copy(base).build());
+
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) message.getStatus());
+        assertEquals(base.getGroupVersion(), stored(base.getGroupId()).getGroupVersion());
+    }
+
+    @Test
+    public void staleEditDoesNotOverwriteMembership() {
+        Group base = group();
+        String userId = GrouperServiceApplication.idGenerator.nextId("U");
+
+        GrouperServiceApplication.groupObjectCache.addUser(base.getGroupId(), userId).join();
+        Message rename = GrouperServiceApplication.groupObjectCache.updateObject(base,
+            copy(base).withGroupName("Renamed").build());
+
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) rename.getStatus());
+        Group stored = stored(base.getGroupId());
+        assertEquals("Renamed", stored.getGroupName());
+        assertTrue(stored.getGroupUsers().contains(userId));
+    }
+
+    @Test
+    public void missingObjectFails() {
+        Group missing = new Group.GroupBuilder(GrouperServiceApplication.idGenerator.nextId("G")).build();
+
+        Message message = GrouperServiceApplication.groupObjectCache.updateObject(missing,
+            copy(missing).withGroupName("Renamed").build());
+
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) message.getStatus());
+        assertEquals(Message.AWS_UPDATE_FAILURE, message.getDescription());
+    }
+
+    @Test
+    public void userEditsMergeTheSameWay() {
+        User base = new User.UserBuilder(GrouperServiceApplication.idGenerator.nextId("U"))
+            .withUserName("Name")
+            .withUserOccupation("Student")
+            .build();
+        GrouperServiceApplication.userObjectCache.putObject(base);
+        base = GrouperServiceApplication.userObjectCache.getObject(base.getUserId());
+
+        GrouperServiceApplication.userObjectCache.updateObject(base, new User.UserBuilder(base.getUserId())
+            .withUserName("Renamed")
+            .withUserOccupation(base.getUserOccupation())
+            .withUserSkillSet(base.getUserSkillSet())
+            .withUserVersion(base.getUserVersion())
+            .build());
+        Message message = GrouperServiceApplication.userObjectCache.updateObject(base,
+            new User.UserBuilder(base.getUserId())
+                .withUserName(base.getUserName())
+                .withUserOccupation("Engineer")
+                .withUserSkillSet(new SkillSet(1L))
+                .withUserVersion(base.getUserVersion())
+                .build());
+
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) message.getStatus());
+        User stored = UserObjectCache.itemToUser(UserObjectCache.objectStore(this.storage).get(base.getUserId()));
+        assertEquals("Renamed", stored.getUserName());
+        assertEquals("Engineer", stored.getUserOccupation());
+        assertEquals(1L, stored.getUserSkillSet().getSkillMask());
+    }
+
+    private static Group group() {
+        Group group = new Group.GroupBuilder(GrouperServiceApplication.idGenerator.nextId("G"))
+            .withGroupName("Name")
+            .withGroupDescription("Description")
+            .withGroupEvent(GrouperServiceApplication.idGenerator.nextId("E"))
+            .withGroupSkillSet(new SkillSet(1L))
+            .build();
+        GrouperServiceApplication.groupObjectCache.putObject(group);
+        return GrouperServiceApplication.groupObjectCache.getObject(group.getGroupId());
+    }
+
+    private static Group.GroupBuilder copy(Group group) {
+        return new Group.GroupBuilder(group.getGroupId())
+            .withGroupName(group.getGroupName())
+            .withGroupType(group.getGroupType())
+            .withGroupDescription(group.getGroupDescription())
+            .withGroupEvent(group.getGroupEvent())
+            .withGroupOwner(group.getGroupOwner())
+            .withGroupSkillSet(group.getGroupSkillSet())
+            .withGroupUsers(group.getGroupUsers())
+            .withGroupVersion(group.getGroupVersion());
+    }
+
+    private Group stored(String groupId) {
+        return GroupObjectCache.itemToGroup(GroupObjectCache.objectStore(this.storage).get(groupId));
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.grouper.service;
+
+import com.grouper.models.Message;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CascadeRunnerTest {
+
+    @Before
+    public void setUp() {
+        GrouperServiceApplication.cascadePermits = new Semaphore(2);
+    }
+
+    @Test
+    public void failuresNameTheIdTheyWrote() {
+        CompletableFuture<Message> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("down"));
+
+        List<Message> messages = CascadeRunner.runAll(Arrays.asList(
+            new CascadeRunner.Task("userId", "U1", () -> CompletableFuture.completedFuture(
+                new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS).build())),
+            new CascadeRunner.Task("groupId", "G2", () -> failed),
+            new CascadeRunner.Task("eventId", "E3", () -> {
+                throw new IllegalStateException("down");
+            })));
+
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) messages.get(0).getStatus());
+        assertFailure(messages.get(1), "groupId", "G2");
+        assertFailure(messages.get(2), "eventId", "E3");
+        assertEquals(2, GrouperServiceApplication.cascadePermits.availablePermits());
+    }
+
+    @Test
+    public void boundsTheWritesInFlight() {
+        ScheduledExecutorService backend = Executors.newScheduledThreadPool(4);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger mostInFlight = new AtomicInteger();
+
+        List<CascadeRunner.Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new CascadeRunner.Task("userId", "U" + i, () -> {
+                mostInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                CompletableFuture<Message> write = new CompletableFuture<>();
+                backend.schedule(() -> {
+                    inFlight.decrementAndGet();
+                    write.complete(new Message.MessageBuilder(Message.DEFAULT_SUCCESS_STATUS).build());
+                }, 2, TimeUnit.MILLISECONDS);
+                return write;
+            }));
+        }
+
+        List<Message> messages = CascadeRunner.runAll(tasks);
+        backend.shutdown();
+
+        assertEquals(20, messages.size());
+        assertTrue(mostInFlight.get() <= 2);
+    }
+
+    private static void assertFailure(Message message, String field, String value) {
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) message.getStatus());
+        assertEquals(field, message.getField());
+        assertEquals(value, message.getValue());
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.grouper.service;
+
+import com.grouper.models.Event;
+import com.grouper.models.EventDetail;
+import com.grouper.models.Group;
+import com.grouper.models.Message;
+import com.grouper.models.User;
+import com.grouper.models.UserSummary;
+import com.grouper.storage.InMemoryStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventDetailTest {
+
+    private final EventRequestController events = new EventRequestController();
+
+    @Before
+    public void setUp() {
+        GrouperServiceApplication.initServices(new InMemoryStorage(0, 0, 2));
+
+        for (String userId : Arrays.asList("U1", "U2", "U3")) {
+            GrouperServiceApplication.userObjectCache.putObject(new User.UserBuilder(userId)
+                .withUserName("Name of " + userId)
+                .build());
+        }
+        // U4 was deleted, G3 too
+        GrouperServiceApplication.groupObjectCache.putObject(new Group.GroupBuilder("G1")
+            .withGroupUsers(Arrays.asList("U1", "U2", "U4"))
+            .build());
+        GrouperServiceApplication.groupObjectCache.putObject(new Group.GroupBuilder("G2")
+            .withGroupUsers(Arrays.asList("U2", "U3"))
+            .build());
+        GrouperServiceApplication.eventObjectCache.putObject(new Event.EventBuilder("E1")
+            .withEventDate(new Date())
+            .withEventGroups(Arrays.asList("G1", "G2", "G3"))
+            .build());
+    }
+
+    @Test
+    public void returnsGroupsAndEachMemberOnce() {
+        EventDetail detail = detail(2);
+
+        assertEquals("E1", detail.getEvent().getEventId());
+        assertEquals(Arrays.asList("G1", "G2"), groupIds(detail));
+        assertEquals(Arrays.asList("U1", "U2", "U3"), memberIds(detail));
+        assertEquals("Name of U1", detail.getMembers().get(0).getUserName());
+        assertFalse(detail.isGroupsTruncated());
+    }
+
+    @Test
+    public void depthLimitsWhatIsLoaded() {
+        EventDetail eventOnly = detail(0);
+        assertTrue(eventOnly.getGroups().isEmpty());
+        assertTrue(eventOnly.getMembers().isEmpty());
+
+        EventDetail withGroups = detail(1);
+        assertEquals(Arrays.asList("G1", "G2"), groupIds(withGroups));
+        assertTrue(withGroups.getMembers().isEmpty());
+    }
+
+    @Test
+    public void missingEventsAndInvalidDepthsAreRejected() {
+        Message missing = this.events.getEventDetail("E9", 2).join().getBody();
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) missing.getStatus());
+        assertEquals(Message.AWS_GET_FAILURE, missing.getDescription());
+        assertEquals("eventId", missing.getField());
+        assertEquals("E9", missing.getValue());
+
+        for (int depth : new int[] {-1, 3}) {
+            Message invalid = this.events.getEventDetail("E1", depth).join().getBody();
+            assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) invalid.getStatus());
+            assertEquals("depth", invalid.getField());
+            assertEquals(depth, invalid.getValue());
+        }
+    }
+
+    private EventDetail detail(int depth) {
+        Message message = this.events.getEventDetail("E1", depth).join().getBody();
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) message.getStatus());
+        assertEquals("EventDetail", message.getField());
+        return (EventDetail) message.getValue();
+    }
+
+    private static List<String> groupIds(EventDetail detail) {
+        List<String> groupIds = new ArrayList<>();
+        for (Group group : detail.getGroups()) {
+            groupIds.add(group.getGroupId());
+        }
+        return groupIds;
+    }
+
+    private static List<String> memberIds(EventDetail detail) {
+        List<String> memberIds = new ArrayList<>();
+        for (UserSummary member : detail.getMembers()) {
+            memberIds.add(member.getUserId());
+        }
+        Collections.sort(memberIds);
+        return memberIds;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.grouper.service;
+
+import com.grouper.models.Event;
+import com.grouper.models.Message;
+import com.grouper.storage.InMemoryStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventQueriesTest {
+
+    private final EventRequestController events = new EventRequestController();
+
+    @Before
+    public void setUp() {
+        GrouperServiceApplication.initServices(new InMemoryStorage(0, 0, 2));
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 120; i++) {
+            Event event = new Event.EventBuilder(GrouperServiceApplication.idGenerator.nextId("E"))
+                .withEventDate(new Date(now + 60000 + i))
+                .withEventCoordinates(34.0689, -118.4452)
+                .build();
+            GrouperServiceApplication.eventObjectCache.putObject(event);
+            GrouperServiceApplication.eventTimeIndex.index(event.getEventId(), event.getEventDate().getTime());
+            GrouperServiceApplication.eventGeoIndex.index(event);
+        }
+    }
+
+    @Test
+    public void limitsBelowOneAreRejected() {
+        assertInvalidLimit(this.events.getUpcomingEvents(null, null, 0).getBody(), 0);
+        assertInvalidLimit(this.events.getEventsHappeningNow(-1).getBody(), -1);
+        assertInvalidLimit(this.events.getNearbyEvents(34.0689, -118.4452, null, 0).getBody(), 0);
+    }
+
+    @Test
+    public void limitsAboveTheMaximumAreCapped() {
+        assertEquals(100, this.events.getUpcomingEvents(null, null, 1000).getBody().size());
+        assertEquals(100, this.events.getNearbyEvents(34.0689, -118.4452, null, 1000).getBody().size());
+        assertEquals(1, this.events.getUpcomingEvents(null, null, 1).getBody().size());
+    }
+
+    private static void assertInvalidLimit(List<Message> messages, int limit) {
+        assertEquals(1, messages.size());
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) messages.get(0).getStatus());
+        assertEquals(Message.INVALID_LIMIT_DESC, messages.get(0).getDescription());
+        assertEquals("limit", messages.get(0).getField());
+        assertEquals(limit, messages.get(0).getValue());
+    }
+
+}
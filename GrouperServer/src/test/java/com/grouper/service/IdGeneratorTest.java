@@ -0,0 +1,100 @@
+package com.grouper.service;
+
+import org.hashids.Hashids;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IdGeneratorTest {
+
+    private static final Hashids hashids = new Hashids("voBxXOCwSmjtGHYk6mVVzFI2Yr9gbf");
+
+    @Test
+    public void concurrentIdsAreUnique() throws Exception {
+        IdGenerator idGenerator = new IdGenerator(hashids, 7);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int idsPerThread = 20000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            tasks.add(() -> {
+                for (int j = 0; j < idsPerThread; j++) {
+                    ids.add(idGenerator.nextId("U"));
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    @Test
+    public void idsFromOneNodeIncrease() {
+        IdGenerator idGenerator = new IdGenerator(hashids, 7);
+
+        long[] last = decode(idGenerator.nextId("E"));
+        // Enough ids to fill several milliseconds, so the sequence overflows at least once
+        for (int i = 0; i < 50000; i++) {
+            long[] next = decode(idGenerator.nextId("E"));
+            assertTrue(next[0] > last[0] || next[0] == last[0] && next[1] > last[1]);
+            last = next;
+        }
+    }
+
+    @Test
+    public void fullSequenceCarriesIntoTheNextMillisecond() {
+        IdGenerator idGenerator = new IdGenerator(hashids, 7);
+        long timestamp = IdGenerator.EPOCH_MILLIS + 1000;
+
+        assertEquals(idGenerator.idAt("G", timestamp + 1, 0), idGenerator.idAt("G", timestamp, 4096));
+        assertEquals(timestamp + 1, idGenerator.timestampOf(idGenerator.idAt("G", timestamp, 4096)));
+    }
+
+    @Test
+    public void nodesNeverShareIds() {
+        long timestamp = System.currentTimeMillis();
+
+        assertNotEquals(new IdGenerator(hashids, 1).idAt("U", timestamp, 0),
+            new IdGenerator(hashids, 2).idAt("U", timestamp, 0));
+    }
+
+    @Test
+    public void timestampIsDecoded() {
+        IdGenerator idGenerator = new IdGenerator(hashids, IdGenerator.MAXIMUM_NODE_ID);
+
+        long before = System.currentTimeMillis();
+        long timestamp = idGenerator.timestampOf(idGenerator.nextId("U"));
+        long after = System.currentTimeMillis();
+
+        assertTrue(timestamp >= before && timestamp <= after);
+        assertEquals(-1, idGenerator.timestampOf(""));
+        assertEquals(-1, idGenerator.timestampOf("U" + hashids.encode(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nodeIdMustFit() {
+        new IdGenerator(hashids, IdGenerator.MAXIMUM_NODE_ID + 1);
+    }
+
+    private static long[] decode(String id) {
+        return hashids.decode(id.substring(1));
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.grouper.service;
+
+import com.grouper.models.Event;
+import com.grouper.models.Message;
+import com.grouper.models.SkillSet;
+import com.grouper.models.User;
+import com.grouper.storage.InMemoryStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class MatchQueriesTest {
+
+    private final MatchRequestController matches = new MatchRequestController();
+
+    @Before
+    public void setUp() {
+        GrouperServiceApplication.initServices(new InMemoryStorage(0, 0, 2));
+
+        GrouperServiceApplication.eventObjectCache.putObject(new Event.EventBuilder("E1")
+            .withEventDate(new Date())
+            .build());
+        GrouperServiceApplication.userObjectCache.putObject(new User.UserBuilder("U1")
+            .build());
+    }
+
+    @Test
+    public void unknownSkillsAreDescribed() {
+        List<String> skills = Arrays.asList(SkillSet.JAVA_SKILL_NAME, "Cobol");
+
+        for (Message message : Arrays.asList(this.matches.groupsNeedingSkills("E1", skills).getBody(),
+            this.matches.usersWithSkills("E1", skills).getBody())) {
+            assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) message.getStatus());
+            assertEquals(Message.UNKNOWN_SKILL_DESC, message.getDescription());
+            assertEquals("skills", message.getField());
+            assertEquals("Cobol", message.getValue());
+        }
+    }
+
+    @Test
+    public void missingEventsAreRejectedLikeGroupsForUser() {
+        List<String> skills = Collections.singletonList(SkillSet.JAVA_SKILL_NAME);
+
+        for (Message message : Arrays.asList(this.matches.groupsNeedingSkills("E9", skills).getBody(),
+            this.matches.usersWithSkills("E9", skills).getBody(),
+            this.matches.groupsForUser("U1", "E9", 10).getBody())) {
+            assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) message.getStatus());
+            assertEquals(Message.AWS_GET_FAILURE, message.getDescription());
+            assertEquals("eventId", message.getField());
+            assertEquals("E9", message.getValue());
+        }
+    }
+
+    @Test
+    public void existingEventsWithoutMatchesSucceed() {
+        List<String> skills = Collections.singletonList(SkillSet.JAVA_SKILL_NAME);
+
+        Message groups = this.matches.groupsNeedingSkills("E1", skills).getBody();
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) groups.getStatus());
+        assertEquals("groupIds", groups.getField());
+        assertEquals(Collections.emptyList(), groups.getValue());
+
+        Message users = this.matches.usersWithSkills("E1", skills).getBody();
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) users.getStatus());
+        assertEquals("userIds", users.getField());
+        assertEquals(Collections.emptyList(), users.getValue());
+    }
+
+}
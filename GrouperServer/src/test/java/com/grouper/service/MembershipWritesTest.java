@@ -0,0 +1,199 @@
+package com.grouper.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grouper.models.Event;
+import com.grouper.models.Group;
+import com.grouper.models.Message;
+import com.grouper.models.User;
+import com.grouper.objectcache.EventObjectCache;
+import com.grouper.objectcache.MembershipStore;
+import com.grouper.requestmodels.CreateGroupRequest;
+import com.grouper.storage.InMemoryStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MembershipWritesTest {
+
+    private final UserRequestController users = new UserRequestController();
+    private final GroupRequestController groups = new GroupRequestController();
+
+    private InMemoryStorage storage;
+    private String eventId;
+
+    @Before
+    public void setUp() {
+        this.storage = new InMemoryStorage(0, 0, 2);
+        GrouperServiceApplication.initServices(this.storage);
+
+        this.eventId = GrouperServiceApplication.idGenerator.nextId("E");
+        GrouperServiceApplication.eventObjectCache.putObject(new Event.EventBuilder(this.eventId)
+            .withEventDate(new Date())
+            .build());
+    }
+
+    @Test
+    public void missingGroupIsReportedWithoutWrites() {
+        String userId = enrolledUser();
+        String groupId = GrouperServiceApplication.idGenerator.nextId("G");
+
+        List<Message> messages = this.users.addUserToGroup(userId, groupId).join().getBody();
+
+        assertEquals(1, messages.size());
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) messages.get(0).getStatus());
+        assertEquals("groupId", messages.get(0).getField());
+        assertEquals(groupId, messages.get(0).getValue());
+        assertEquals(Group.EMPTY_GROUP_ID,
+            GrouperServiceApplication.userObjectCache.getObject(userId).getUserEventMap().get(this.eventId));
+    }
+
+    @Test
+    public void groupSideIsOnlyWrittenOnceTheUserSideHolds() {
+        String groupId = createGroup(enrolledUser());
+        String notEnrolled = user();
+
+        List<Message> messages = this.users.addUserToGroup(notEnrolled, groupId).join().getBody();
+
+        assertEquals(1, messages.size());
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) messages.get(0).getStatus());
+        assertFalse(GrouperServiceApplication.groupObjectCache.getObject(groupId).getGroupUsers()
+            .contains(notEnrolled));
+    }
+
+    @Test
+    public void addAndRemoveWriteBothSides() {
+        String groupId = createGroup(enrolledUser());
+        String userId = enrolledUser();
+
+        List<Message> added = this.users.addUserToGroup(userId, groupId).join().getBody();
+        assertEquals(2, added.size());
+        assertTrue(GrouperServiceApplication.groupObjectCache.getObject(groupId).getGroupUsers().contains(userId));
+        assertEquals(groupId,
+            GrouperServiceApplication.userObjectCache.getObject(userId).getUserEventMap().get(this.eventId));
+
+        List<Message> removed = this.users.removeUserFromGroup(userId, groupId).join().getBody();
+        assertEquals(2, removed.size());
+        assertFalse(GrouperServiceApplication.groupObjectCache.getObject(groupId).getGroupUsers().contains(userId));
+        assertEquals(Group.EMPTY_GROUP_ID,
+            GrouperServiceApplication.userObjectCache.getObject(userId).getUserEventMap().get(this.eventId));
+    }
+
+    @Test
+    public void missingEventIsReportedWithoutWrites() {
+        String userId = user();
+        String missingEventId = GrouperServiceApplication.idGenerator.nextId("E");
+
+        List<Message> messages = this.users.addUserToEvent(userId, missingEventId).join().getBody();
+
+        assertEquals(1, messages.size());
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) messages.get(0).getStatus());
+        assertEquals("eventId", messages.get(0).getField());
+        assertEquals(missingEventId, messages.get(0).getValue());
+        assertFalse(GrouperServiceApplication.userObjectCache.getObject(userId).getUserEventMap()
+            .containsKey(missingEventId));
+    }
+
+    @Test
+    public void eventSideIsOnlyWrittenOnceTheUserSideHolds() {
+        String missingUserId = GrouperServiceApplication.idGenerator.nextId("U");
+
+        List<Message> messages = this.users.addUserToEvent(missingUserId, this.eventId).join().getBody();
+
+        assertEquals(1, messages.size());
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) messages.get(0).getStatus());
+        assertFalse(GrouperServiceApplication.eventObjectCache.getObject(this.eventId).getEventUsers()
+            .contains(missingUserId));
+    }
+
+    @Test
+    public void userSideIsUndoneWhenTheEventSideFails() {
+        String userId = user();
+        // Still cached, so the existence check passes, but the event side's conditional write fails
+        EventObjectCache.objectStore(this.storage).delete(this.eventId);
+
+        List<Message> messages = this.users.addUserToEvent(userId, this.eventId).join().getBody();
+
+        assertEquals(3, messages.size());
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) messages.get(1).getStatus());
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) messages.get(2).getStatus());
+        assertFalse(GrouperServiceApplication.userObjectCache.getObject(userId).getUserEventMap()
+            .containsKey(this.eventId));
+    }
+
+    @Test
+    public void addAndRemoveEventWriteBothSides() {
+        String userId = enrolledUser();
+        assertTrue(GrouperServiceApplication.eventObjectCache.getObject(this.eventId).getEventUsers()
+            .contains(userId));
+
+        List<Message> removed = this.users.removeUserFromEvent(userId, this.eventId).join().getBody();
+
+        assertEquals(2, removed.size());
+        assertFalse(GrouperServiceApplication.eventObjectCache.getObject(this.eventId).getEventUsers()
+            .contains(userId));
+        assertFalse(GrouperServiceApplication.userObjectCache.getObject(userId).getUserEventMap()
+            .containsKey(this.eventId));
+    }
+
+    @Test
+    public void createGroupReferencesTheStoredGroup() {
+        String ownerId = enrolledUser();
+
+        String groupId = createGroup(ownerId);
+
+        assertTrue(GrouperServiceApplication.eventObjectCache.getObject(this.eventId).getEventGroups()
+            .contains(groupId));
+        assertEquals(groupId,
+            GrouperServiceApplication.userObjectCache.getObject(ownerId).getUserEventMap().get(this.eventId));
+        assertTrue(GrouperServiceApplication.membershipStore.page(MembershipStore.GROUP, groupId,
+            MembershipStore.USER, MembershipStore.MAXIMUM_PAGE_SIZE, null).join().getMembers().contains(ownerId));
+    }
+
+    @Test
+    public void createGroupIsUndoneWhenTheOwnerCantReferenceIt() throws IOException {
+        List<Message> messages = this.groups.createGroup(createGroupRequest(user())).getBody();
+
+        String groupId = (String) messages.get(0).getValue();
+        assertEquals(Group.EMPTY_GROUP_ID, GrouperServiceApplication.groupObjectCache.getObject(groupId).getGroupId());
+        assertFalse(GrouperServiceApplication.eventObjectCache.getObject(this.eventId).getEventGroups()
+            .contains(groupId));
+    }
+
+    private String createGroup(String ownerId) {
+        try {
+            List<Message> messages = this.groups.createGroup(createGroupRequest(ownerId)).getBody();
+            for (Message message : messages) {
+                assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) message.getStatus());
+            }
+            return (String) messages.get(0).getValue();
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+    }
+
+    private CreateGroupRequest createGroupRequest(String ownerId) throws IOException {
+        return new ObjectMapper().readValue("{\"groupName\": \"Team\", \"groupEventId\": \"" + this.eventId +
+            "\", \"groupOwnerId\": \"" + ownerId + "\"}", CreateGroupRequest.class);
+    }
+
+    private String enrolledUser() {
+        String userId = user();
+        this.users.addUserToEvent(userId, this.eventId).join();
+        return userId;
+    }
+
+    private static String user() {
+        String userId = GrouperServiceApplication.idGenerator.nextId("U");
+        GrouperServiceApplication.userObjectCache.putObject(new User.UserBuilder(userId)
+            .build());
+        return userId;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.grouper.service;
+
+import com.grouper.models.Event;
+import com.grouper.models.Message;
+import com.grouper.models.SearchHit;
+import com.grouper.storage.InMemoryStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchQueriesTest {
+
+    private final SearchRequestController search = new SearchRequestController();
+
+    @Before
+    public void setUp() {
+        GrouperServiceApplication.initServices(new InMemoryStorage(0, 0, 2));
+
+        for (int i = 0; i < 120; i++) {
+            GrouperServiceApplication.searchIndex.indexEvent(new Event.EventBuilder("E" + i)
+                .withEventName("Hackathon " + i)
+                .withEventDate(new Date())
+                .build());
+        }
+    }
+
+    @Test
+    public void limitsBelowOneAreRejected() {
+        assertInvalidLimit(this.search.search("hackathon", null, 0).getBody(), 0);
+        assertInvalidLimit(this.search.suggest("hack", null, -1).getBody(), -1);
+    }
+
+    @Test
+    public void limitsAboveTheMaximumAreCapped() {
+        assertEquals(100, hits(this.search.search("hackathon", null, 1000).getBody()).size());
+        assertEquals(100, hits(this.search.suggest("hack", null, 1000).getBody()).size());
+        assertEquals(1, hits(this.search.search("hackathon", null, 1).getBody()).size());
+    }
+
+    @Test
+    public void unknownKindsAreRejected() {
+        Message message = this.search.search("hackathon", "user", 10).getBody();
+
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) message.getStatus());
+        assertEquals(Message.DEFAULT_FAILURE_DESC, message.getDescription());
+        assertEquals("kind", message.getField());
+        assertEquals("user", message.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<SearchHit> hits(Message message) {
+        assertEquals(Message.DEFAULT_SUCCESS_STATUS, (int) message.getStatus());
+        assertEquals("SearchHits", message.getField());
+        return (List<SearchHit>) message.getValue();
+    }
+
+    private static void assertInvalidLimit(Message message, int limit) {
+        assertEquals(Message.DEFAULT_FAILURE_STATUS, (int) message.getStatus());
+        assertEquals(Message.INVALID_LIMIT_DESC, message.getDescription());
+        assertEquals("limit", message.getField());
+        assertEquals(limit, message.getValue());
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.grouper.storage;
+
+import com.amazonaws.AmazonServiceException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * In-memory storage whose calls can be made to fail, the way DynamoDB does when it is unreachable or throttling.
+ */
+public class FlakyStorage extends InMemoryStorage {
+
+    private volatile boolean failing;
+
+    public FlakyStorage() {
+        super(0, 0, 2);
+    }
+
+    // While failing, every call throws, or completes exceptionally, with an AmazonServiceException
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    @Override
+    <T> T call(Supplier<T> operation) {
+        return super.call(() -> {
+            failIfFailing();
+            return operation.get();
+        });
+    }
+
+    @Override
+    <T> CompletableFuture<T> callAsync(Supplier<T> operation) {
+        return super.callAsync(() -> {
+            failIfFailing();
+            return operation.get();
+        });
+    }
+
+    private void failIfFailing() {
+        if (this.failing) {
+            AmazonServiceException exception = new AmazonServiceException("Storage unavailable.");
+            exception.setStatusCode(503);
+            throw exception;
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.grouper.storage;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InMemoryObjectStoreTest {
+
+    private static final String TABLE_NAME = "Things";
+    private static final String KEY_NAME = "thingId";
+    private static final String VERSION_KEY = "thingVersion";
+
+    private ObjectStore store;
+
+    @Before
+    public void setUp() {
+        this.store = new InMemoryStorage(0, 0, 2).objectStore(TABLE_NAME, KEY_NAME, null);
+
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(KEY_NAME, new AttributeValue("T1"));
+        item.put("name", new AttributeValue("first"));
+        item.put("tags", new AttributeValue().withSS("a", "b"));
+        item.put("counts", new AttributeValue().withM(new HashMap<>()));
+        this.store.create(item);
+    }
+
+    @Test(expected = ConditionalCheckFailedException.class)
+    public void createFailsIfTheItemExists() {
+        this.store.create(Collections.singletonMap(KEY_NAME, new AttributeValue("T1")));
+    }
+
+    @Test(expected = ConditionalCheckFailedException.class)
+    public void updateNeverCreatesAnItem() {
+        this.store.update(update("T2")
+            .set("name", new AttributeValue("second")));
+    }
+
+    @Test
+    public void appliesSetRemoveAddAndDelete() {
+        this.store.update(update("T1")
+            .set("name", new AttributeValue("renamed"))
+            .remove("counts")
+            .add("tags", new AttributeValue().withSS("b", "c"))
+            .incrementVersion(VERSION_KEY));
+
+        Map<String, AttributeValue> item = this.store.get("T1");
+        assertEquals("renamed", item.get("name").getS());
+        assertFalse(item.containsKey("counts"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), new HashSet<>(item.get("tags").getSS()));
+        assertEquals(1, DynamoUpdate.version(item.get(VERSION_KEY)));
+
+        this.store.update(update("T1")
+            .delete("tags", new AttributeValue().withSS("a", "b", "c")));
+
+        assertFalse(this.store.get("T1").containsKey("tags"));
+    }
+
+    @Test
+    public void setsMapEntriesAndKeepsExistingValuesWithIfNotExists() {
+        this.store.update(update("T1")
+            .set("counts.#entry = :count")
+            .set("name = if_not_exists(name, :name)")
+            .name("#entry", "U1")
+            .value(":count", new AttributeValue().withN("3"))
+            .value(":name", new AttributeValue("ignored")));
+
+        Map<String, AttributeValue> item = this.store.get("T1");
+        assertEquals("3", item.get("counts").getM().get("U1").getN());
+        assertEquals("first", item.get("name").getS());
+    }
+
+    @Test
+    public void rejectsSetsUnderMissingMapsAndUnboundPlaceholders() {
+        assertValidationException(update("T1")
+            .set("missing.#entry = :count")
+            .name("#entry", "U1")
+            .value(":count", new AttributeValue().withN("1")));
+        assertValidationException(update("T1")
+            .set("name = :unbound"));
+        assertValidationException(update("T1")
+            .set("name", new AttributeValue("renamed"))
+            .condition("size(name) > :one"));
+
+        assertEquals("first", this.store.get("T1").get("name").getS());
+    }
+
+    @Test
+    public void versionConditionsMatchOnlyTheExpectedVersion() {
+        // Items written before versions existed are at version 0
+        this.store.update(update("T1")
+            .set("name", new AttributeValue("v1"))
+            .incrementVersion(VERSION_KEY)
+            .expectVersion(VERSION_KEY, 0));
+
+        try {
+            this.store.update(update("T1")
+                .set("name", new AttributeValue("stale"))
+                .incrementVersion(VERSION_KEY)
+                .expectVersion(VERSION_KEY, 0));
+            fail("Update at a stale version succeeded.");
+        } catch (ConditionalCheckFailedException ccfe) {
+            assertEquals("v1", this.store.get("T1").get("name").getS());
+        }
+
+        this.store.update(update("T1")
+            .set("name", new AttributeValue("v2"))
+            .incrementVersion(VERSION_KEY)
+            .expectVersion(VERSION_KEY, 1));
+
+        Map<String, AttributeValue> item = this.store.get("T1");
+        assertEquals("v2", item.get("name").getS());
+        assertEquals(2, DynamoUpdate.version(item.get(VERSION_KEY)));
+    }
+
+    @Test
+    public void readsAreCopiesAndHonourTheProjection() {
+        this.store.get("T1").put("name", new AttributeValue("changed by the caller"));
+        assertEquals("first", this.store.get("T1").get("name").getS());
+
+        ObjectStore projected = new InMemoryStorage(0, 0, 2).objectStore(TABLE_NAME, KEY_NAME, KEY_NAME + ", name");
+        Map<String, AttributeValue> item = new HashMap<>(this.store.get("T1"));
+        projected.create(item);
+
+        assertEquals(new HashSet<>(Arrays.asList(KEY_NAME, "name")), projected.get("T1").keySet());
+        assertEquals(Collections.singleton("T1"), projected.batchGet(Arrays.asList("T1", "T2")).keySet());
+        assertNull(projected.get("T2"));
+    }
+
+    @Test
+    public void buildsTheDynamoRequest() {
+        UpdateItemRequest request = update("T1")
+            .set("name", new AttributeValue("renamed"))
+            .add("tags", new AttributeValue().withSS("c"))
+            .incrementVersion(VERSION_KEY)
+            .expectVersion(VERSION_KEY, 4)
+            .request();
+
+        assertEquals(TABLE_NAME, request.getTableName());
+        assertEquals("T1", request.getKey().get(KEY_NAME).getS());
+        assertEquals("SET name = :name ADD tags :tags, thingVersion :thingVersion", request.getUpdateExpression());
+        assertEquals("attribute_exists(thingId) AND thingVersion = :expectedVersion",
+            request.getConditionExpression());
+        assertEquals("4", request.getExpressionAttributeValues().get(":expectedVersion").getN());
+        assertNull(request.getExpressionAttributeNames());
+        assertTrue(update("T1").isEmpty());
+    }
+
+    private static DynamoUpdate update(String id) {
+        return new DynamoUpdate(TABLE_NAME, KEY_NAME, id);
+    }
+
+    private void assertValidationException(DynamoUpdate update) {
+        try {
+            this.store.update(update);
+            fail("Malformed update succeeded.");
+        } catch (ConditionalCheckFailedException ccfe) {
+            throw ccfe;
+        } catch (AmazonServiceException ase) {
+            assertEquals("ValidationException", ase.getErrorCode());
+        }
+    }
+
+}